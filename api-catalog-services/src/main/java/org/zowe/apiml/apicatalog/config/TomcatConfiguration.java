@@ -9,10 +9,12 @@
  */
 package org.zowe.apiml.apicatalog.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.servlet.server.ServletWebServerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.zowe.apiml.product.web.VirtualThreadConnectorCustomizer;
 
 /**
  * Configuration of Tomcat for the API Gateway.
@@ -20,10 +22,16 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class TomcatConfiguration {
 
+    @Value("${apiml.service.virtualThreads:false}")
+    private boolean virtualThreads;
+
     @Bean
     public ServletWebServerFactory servletContainer() {
         TomcatServletWebServerFactory tomcat = new TomcatServletWebServerFactory();
         tomcat.setProtocol(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+        if (virtualThreads) {
+            tomcat.addConnectorCustomizers(new VirtualThreadConnectorCustomizer());
+        }
         return tomcat;
     }
 }
@@ -19,6 +19,7 @@ import com.netflix.discovery.shared.transport.jersey.EurekaJerseyClient;
 import com.netflix.discovery.shared.transport.jersey.EurekaJerseyClientImpl.EurekaJerseyClientBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -75,9 +76,27 @@ public class HttpConfig {
     @Value("${eureka.client.serviceUrl.defaultZone}")
     private String eurekaServerUrl;
 
+    @Value("${apiml.httpclient.maxConnectionsTotal:100}")
+    private int maxConnectionsTotal;
+
+    @Value("${apiml.httpclient.maxConnectionsPerRoute:10}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${apiml.httpclient.idleConnectionTimeoutSeconds:30}")
+    private long idleConnectionTimeoutSeconds;
+
+    @Value("${apiml.httpclient.timeToLiveSeconds:-1}")
+    private long timeToLiveSeconds;
+
+    @Value("${apiml.httpclient.keepAliveSeconds:30}")
+    private long keepAliveSeconds;
+
+    private PoolingHttpClientConnectionManager secureConnectionManager;
+    private PoolingHttpClientConnectionManager secureConnectionManagerWithoutKeystore;
     private CloseableHttpClient secureHttpClient;
     private CloseableHttpClient secureHttpClientWithoutKeystore;
     private SSLContext secureSslContext;
+    private SSLContext secureSslContextWithoutKeystore;
     private HostnameVerifier secureHostnameVerifier;
     private EurekaJerseyClientBuilder eurekaJerseyClientBuilder;
 
@@ -91,7 +110,10 @@ public class HttpConfig {
                 HttpsConfig.builder()
                     .protocol(protocol)
                     .trustStore(trustStore).trustStoreType(trustStoreType).trustStorePassword(trustStorePassword).trustStoreRequired(trustStoreRequired)
-                    .verifySslCertificatesOfServices(verifySslCertificatesOfServices);
+                    .verifySslCertificatesOfServices(verifySslCertificatesOfServices)
+                    .maxConnectionsTotal(maxConnectionsTotal).maxConnectionsPerRoute(maxConnectionsPerRoute)
+                    .idleConnectionTimeoutSeconds(idleConnectionTimeoutSeconds).timeToLiveSeconds(timeToLiveSeconds)
+                    .keepAliveSeconds(keepAliveSeconds);
 
             HttpsConfig httpsConfig = httpsConfigSupplier.get()
                 .keyAlias(keyAlias).keyStore(keyStore).keyPassword(keyPassword)
@@ -103,13 +125,16 @@ public class HttpConfig {
             log.info("Using HTTPS configuration: {}", httpsConfig.toString());
 
             HttpsFactory factory = new HttpsFactory(httpsConfig);
-            secureHttpClient = factory.createSecureHttpClient();
+            secureConnectionManager = factory.createConnectionManager();
+            secureHttpClient = factory.createSecureHttpClient(secureConnectionManager);
             secureSslContext = factory.createSslContext();
             secureHostnameVerifier = factory.createHostnameVerifier();
             eurekaJerseyClientBuilder = factory.createEurekaJerseyClientBuilder(eurekaServerUrl, serviceId);
 
             HttpsFactory factoryWithoutKeystore = new HttpsFactory(httpsConfigWithoutKeystore);
-            secureHttpClientWithoutKeystore = factoryWithoutKeystore.createSecureHttpClient();
+            secureConnectionManagerWithoutKeystore = factoryWithoutKeystore.createConnectionManager();
+            secureHttpClientWithoutKeystore = factoryWithoutKeystore.createSecureHttpClient(secureConnectionManagerWithoutKeystore);
+            secureSslContextWithoutKeystore = factoryWithoutKeystore.createSslContext();
 
             factory.setSystemSslProperties();
         }
@@ -190,11 +215,39 @@ public class HttpConfig {
         return secureHttpClientWithoutKeystore;
     }
 
+    /**
+     * @return pool of connections of {@link #secureHttpClient()}, it is closed with the client
+     */
+    @Bean(destroyMethod = "")
+    @Primary
+    public PoolingHttpClientConnectionManager secureConnectionManager() {
+        return secureConnectionManager;
+    }
+
+    /**
+     * @return pool of connections of {@link #secureHttpClientWithoutKeystore()}, it is closed with the client
+     */
+    @Bean(destroyMethod = "")
+    @Qualifier("secureConnectionManagerWithoutKeystore")
+    public PoolingHttpClientConnectionManager secureConnectionManagerWithoutKeystore() {
+        return secureConnectionManagerWithoutKeystore;
+    }
+
     @Bean
+    @Primary
     public SSLContext secureSslContext() {
         return secureSslContext;
     }
 
+    /**
+     * @return SSLContext, which doesn't use a certificate to authenticate
+     */
+    @Bean
+    @Qualifier("secureSslContextWithoutKeystore")
+    public SSLContext secureSslContextWithoutKeystore() {
+        return secureSslContextWithoutKeystore;
+    }
+
     @Bean
     public HostnameVerifier secureHostnameVerifier() {
         return secureHostnameVerifier;
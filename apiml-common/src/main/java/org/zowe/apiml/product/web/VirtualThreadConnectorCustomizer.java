@@ -0,0 +1,65 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.product.web;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.Connector;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Customizer of Tomcat's connector, which processes requests on virtual threads (apiml.service.virtualThreads).
+ * Each request gets its own virtual thread, so a request blocked by a remote call (routing, z/OSMF, other
+ * instances) does not hold a thread of limited pool. The concurrency is limited by server.tomcat.max-connections
+ * only, server.tomcat.max-threads is not used.
+ *
+ * Virtual threads are available since Java 21, the executor is created by reflection to keep the build on Java 8.
+ * On older JVM the connector stays with the default pool of platform threads.
+ *
+ * All thread-local state (Zuul's RequestContext, Spring's RequestContextHolder, security context) is bound to the
+ * thread of one request and released with it, as with the pooled threads.
+ */
+@Slf4j
+public class VirtualThreadConnectorCustomizer implements TomcatConnectorCustomizer {
+
+    static final String FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    @Override
+    public void customize(Connector connector) {
+        final ExecutorService executor = createVirtualThreadExecutor();
+        if (executor == null) {
+            log.warn("Virtual threads are not supported by Java {}, requests are processed by platform threads",
+                System.getProperty("java.version"));
+            return;
+        }
+
+        connector.getProtocolHandler().setExecutor(executor);
+        log.info("Requests on port {} are processed by virtual threads", connector.getPort());
+    }
+
+    /**
+     * @return executor starting a new virtual thread for each task, or null if the JVM does not support them
+     */
+    static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(FACTORY_METHOD).invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            // preview feature not enabled
+            log.debug("Cannot create executor of virtual threads", e.getCause());
+            return null;
+        }
+    }
+
+}
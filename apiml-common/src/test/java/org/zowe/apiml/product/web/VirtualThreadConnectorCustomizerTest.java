@@ -0,0 +1,61 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.product.web;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.ProtocolHandler;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class VirtualThreadConnectorCustomizerTest {
+
+    private static boolean isVirtualThreadSupported() {
+        try {
+            Thread.class.getMethod("isVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void givenJvm_whenCreateExecutor_thenVirtualThreadsAreUsedIfSupported() throws Exception {
+        ExecutorService executor = VirtualThreadConnectorCustomizer.createVirtualThreadExecutor();
+        if (!isVirtualThreadSupported()) {
+            assertNull(executor);
+            return;
+        }
+
+        try {
+            assertNotNull(executor);
+            boolean virtual = executor.submit(() -> (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread())).get();
+            assertTrue(virtual);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void givenConnector_whenCustomize_thenExecutorIsSetIfSupported() {
+        Connector connector = mock(Connector.class);
+        ProtocolHandler protocolHandler = mock(ProtocolHandler.class);
+        when(connector.getProtocolHandler()).thenReturn(protocolHandler);
+
+        new VirtualThreadConnectorCustomizer().customize(connector);
+
+        verify(protocolHandler, times(isVirtualThreadSupported() ? 1 : 0)).setExecutor(any());
+    }
+
+}
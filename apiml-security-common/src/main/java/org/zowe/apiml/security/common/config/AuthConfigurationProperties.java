@@ -33,6 +33,10 @@ public class AuthConfigurationProperties {
     private String gatewayLogoutEndpoint = "/api/v1/gateway/auth/logout";
     private String gatewayQueryEndpoint = "/api/v1/gateway/auth/query";
     private String gatewayTicketEndpoint = "/api/v1/gateway/auth/ticket";
+    private String gatewayKeysEndpoint = "/auth/keys";
+
+    // Services verify JWT tokens by the public keys of the gateway instead of calling the query endpoint
+    private boolean localTokenValidation = false;
 
     private String serviceLoginEndpoint = "/auth/login";
     private String serviceLogoutEndpoint = "/auth/logout";
@@ -44,8 +48,11 @@ public class AuthConfigurationProperties {
     private String provider = "zosmf";
 
     private AuthConfigurationProperties.PassTicket passTicket;
+    private AuthConfigurationProperties.BasicAuthCacheProperties basicAuthCache;
 
     private String jwtKeyAlias;
+    private String jwtSignatureAlgorithm;
+    private String[] jwtVerificationKeyAliases;
 
     //Token properties
     @Data
@@ -71,10 +78,18 @@ public class AuthConfigurationProperties {
         private Integer timeout = 540;
     }
 
+    //Cache of successful authentications by the basic authorization header, 0 seconds disables it
+    @Data
+    public static class BasicAuthCacheProperties {
+        private int ttlSeconds = 30;
+        private int maxSize = 1000;
+    }
+
     public AuthConfigurationProperties() {
         this.cookieProperties = new AuthConfigurationProperties.CookieProperties();
         this.tokenProperties = new AuthConfigurationProperties.TokenProperties();
         this.passTicket = new AuthConfigurationProperties.PassTicket();
+        this.basicAuthCache = new AuthConfigurationProperties.BasicAuthCacheProperties();
     }
 
     /**
@@ -56,6 +56,16 @@ public abstract class AbstractSecureContentFilter extends OncePerRequestFilter {
      */
     protected abstract Optional<AbstractAuthenticationToken> extractContent(HttpServletRequest request);
 
+    /**
+     * Authenticates the extracted token by the authentication manager
+     *
+     * @param authenticationToken credentials from the request
+     * @return the authenticated principal
+     */
+    protected Authentication authenticate(AbstractAuthenticationToken authenticationToken) {
+        return authenticationManager.authenticate(authenticationToken);
+    }
+
     /**
      * Extracts the token from the request and use the authentication manager to perform authentication.
      * Then set the currently authenticated principal and call the next filter in the chain.
@@ -72,7 +82,7 @@ public abstract class AbstractSecureContentFilter extends OncePerRequestFilter {
 
         if (authenticationToken.isPresent()) {
             try {
-                Authentication authentication = authenticationManager.authenticate(authenticationToken.get());
+                Authentication authentication = authenticate(authenticationToken.get());
                 SecurityContextHolder.getContext().setAuthentication(authentication);
                 filterChain.doFilter(request, response);
             } catch (AuthenticationException authenticationException) {
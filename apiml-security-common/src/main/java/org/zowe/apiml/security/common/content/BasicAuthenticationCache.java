@@ -0,0 +1,130 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.security.common.content;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.zowe.apiml.cache.ExpiringCache;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of successful authentications by username and password, so repeated requests with the same basic
+ * authorization header (ie. monitoring) do not call the authentication provider (z/OSMF) each time.
+ *
+ * The passwords are not stored. The entry of user keeps HMAC-SHA256 of the credentials with a random secret generated
+ * for each instance, so the values cannot be compared with a precomputed table nor between instances. There is one
+ * entry per user, a failed authentication removes it, ie. after a change of password or a revoked user the old
+ * password is not accepted from the cache. The cache is bounded (see {@link ExpiringCache}).
+ *
+ * Instances of {@link Mac} are not thread-safe and their creation is not cheap, they are kept in a small pool shared by
+ * all threads (requests could run on virtual threads, a thread-local instance would not be reused).
+ */
+public class BasicAuthenticationCache {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MAX_POOLED_MACS = 16;
+
+    private final long ttlMillis;
+    private final SecretKeySpec secret;
+    private final BlockingQueue<Mac> macs = new ArrayBlockingQueue<>(MAX_POOLED_MACS);
+
+    private final ExpiringCache<String, Entry> cache;
+
+    public BasicAuthenticationCache(int ttlSeconds, int maxSize) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.cache = new ExpiringCache<>(maxSize);
+
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.secret = new SecretKeySpec(key, ALGORITHM);
+    }
+
+    private Mac createMac() {
+        try {
+            final Mac out = Mac.getInstance(ALGORITHM);
+            out.init(secret);
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not supported", e);
+        }
+    }
+
+    /**
+     * Return the cached authentication or authenticate the credentials and cache the result if it is successful
+     *
+     * @param token         username and password
+     * @param authenticator authentication of credentials, called on a cache miss
+     * @return the authenticated principal
+     * @throws AuthenticationException if the credentials are not valid
+     */
+    public Authentication authenticate(UsernamePasswordAuthenticationToken token, Function<UsernamePasswordAuthenticationToken, Authentication> authenticator) {
+        if ((token.getPrincipal() == null) || (token.getCredentials() == null) || (ttlMillis <= 0)) {
+            return authenticator.apply(token);
+        }
+
+        final String username = token.getPrincipal().toString();
+        final long now = System.currentTimeMillis();
+        final byte[] hash = getHash(username, token.getCredentials().toString());
+
+        final Entry cached = cache.get(username, now);
+        if ((cached != null) && MessageDigest.isEqual(cached.hash, hash)) {
+            return cached.authentication;
+        }
+
+        final Authentication authentication;
+        try {
+            authentication = authenticator.apply(token);
+        } catch (AuthenticationException e) {
+            cache.remove(username);
+            throw e;
+        }
+
+        if ((authentication != null) && authentication.isAuthenticated()) {
+            cache.put(username, new Entry(hash, authentication), now + ttlMillis);
+        }
+        return authentication;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private byte[] getHash(String username, String password) {
+        final Mac pooled = macs.poll();
+        final Mac instance = (pooled != null) ? pooled : createMac();
+        instance.update(username.getBytes(StandardCharsets.UTF_8));
+        instance.update((byte) 0);
+        final byte[] hash = instance.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        // doFinal resets the instance, it could be reused, if the pool is full it is dropped
+        macs.offer(instance);
+        return hash;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Entry {
+
+        private final byte[] hash;
+        private final Authentication authentication;
+
+    }
+
+}
@@ -16,6 +16,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
 
 import javax.servlet.http.HttpServletRequest;
@@ -24,22 +25,43 @@ import java.util.Base64;
 import java.util.Optional;
 
 /**
- * Authenticate the credentials from the basic authorization header
+ * Authenticate the credentials from the basic authorization header. Successful authentications could be cached, see
+ * {@link BasicAuthenticationCache}.
  */
 @Slf4j
 public class BasicContentFilter extends AbstractSecureContentFilter {
 
+    private final BasicAuthenticationCache authenticationCache;
+
     public BasicContentFilter(AuthenticationManager authenticationManager,
                               AuthenticationFailureHandler failureHandler,
                               ResourceAccessExceptionHandler resourceAccessExceptionHandler) {
-        super(authenticationManager, failureHandler, resourceAccessExceptionHandler, new String[0]);
+        this(authenticationManager, failureHandler, resourceAccessExceptionHandler, new String[0]);
     }
 
     public BasicContentFilter(AuthenticationManager authenticationManager,
                               AuthenticationFailureHandler failureHandler,
                               ResourceAccessExceptionHandler resourceAccessExceptionHandler,
                               String[] endpoints) {
+        this(authenticationManager, failureHandler, resourceAccessExceptionHandler, endpoints, null);
+    }
+
+    public BasicContentFilter(AuthenticationManager authenticationManager,
+                              AuthenticationFailureHandler failureHandler,
+                              ResourceAccessExceptionHandler resourceAccessExceptionHandler,
+                              String[] endpoints,
+                              BasicAuthenticationCache authenticationCache) {
         super(authenticationManager, failureHandler, resourceAccessExceptionHandler, endpoints);
+        this.authenticationCache = authenticationCache;
+    }
+
+    @Override
+    protected Authentication authenticate(AbstractAuthenticationToken authenticationToken) {
+        if ((authenticationCache == null) || !(authenticationToken instanceof UsernamePasswordAuthenticationToken)) {
+            return super.authenticate(authenticationToken);
+        }
+
+        return authenticationCache.authenticate((UsernamePasswordAuthenticationToken) authenticationToken, super::authenticate);
     }
 
     /**
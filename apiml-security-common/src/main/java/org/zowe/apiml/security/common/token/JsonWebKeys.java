@@ -0,0 +1,143 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.security.common.token;
+
+import lombok.experimental.UtilityClass;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.*;
+
+/**
+ * Conversion of public keys to and from JSON Web Keys (RFC 7517), which are used to publish the keys verifying JWT
+ * tokens of the gateway. Only RSA and EC (P-256, P-384, P-521) keys are supported.
+ */
+@UtilityClass
+public class JsonWebKeys {
+
+    public static final String KEYS = "keys";
+    public static final String KEY_ID = "kid";
+    public static final String KEY_TYPE = "kty";
+    public static final String ALGORITHM = "alg";
+
+    private static final Map<String, String> CURVE_BY_NAME;
+    private static final Map<Integer, String> CURVE_BY_SIZE;
+
+    static {
+        Map<String, String> byName = new HashMap<>();
+        byName.put("P-256", "secp256r1");
+        byName.put("P-384", "secp384r1");
+        byName.put("P-521", "secp521r1");
+        CURVE_BY_NAME = Collections.unmodifiableMap(byName);
+
+        Map<Integer, String> bySize = new HashMap<>();
+        bySize.put(256, "P-256");
+        bySize.put(384, "P-384");
+        bySize.put(521, "P-521");
+        CURVE_BY_SIZE = Collections.unmodifiableMap(bySize);
+    }
+
+    /**
+     * @param keyId     id of key (kid)
+     * @param publicKey RSA or EC public key
+     * @param algorithm signature algorithm of key (alg), optional
+     * @return the key as JSON Web Key
+     * @throws IllegalArgumentException if the type of key is not supported
+     */
+    public static Map<String, Object> toJwk(String keyId, PublicKey publicKey, String algorithm) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put(KEY_ID, keyId);
+        jwk.put("use", "sig");
+        if (algorithm != null) jwk.put(ALGORITHM, algorithm);
+
+        if (publicKey instanceof RSAPublicKey) {
+            RSAPublicKey rsa = (RSAPublicKey) publicKey;
+            jwk.put(KEY_TYPE, "RSA");
+            jwk.put("n", encode(rsa.getModulus()));
+            jwk.put("e", encode(rsa.getPublicExponent()));
+        } else if (publicKey instanceof ECPublicKey) {
+            ECPublicKey ec = (ECPublicKey) publicKey;
+            int fieldSize = ec.getParams().getCurve().getField().getFieldSize();
+            String curve = CURVE_BY_SIZE.get(fieldSize);
+            if (curve == null) throw new IllegalArgumentException("Unsupported curve with size " + fieldSize);
+
+            jwk.put(KEY_TYPE, "EC");
+            jwk.put("crv", curve);
+            jwk.put("x", encode(ec.getW().getAffineX(), (fieldSize + 7) / 8));
+            jwk.put("y", encode(ec.getW().getAffineY(), (fieldSize + 7) / 8));
+        } else {
+            throw new IllegalArgumentException("Unsupported type of key " + publicKey.getAlgorithm());
+        }
+        return jwk;
+    }
+
+    /**
+     * @param jwk JSON Web Key with RSA or EC public key
+     * @return the public key
+     * @throws IllegalArgumentException if the key is not supported or it is malformed
+     */
+    public static PublicKey toPublicKey(Map<String, Object> jwk) {
+        try {
+            String keyType = String.valueOf(jwk.get(KEY_TYPE));
+            if ("RSA".equals(keyType)) {
+                RSAPublicKeySpec spec = new RSAPublicKeySpec(decode(jwk, "n"), decode(jwk, "e"));
+                return KeyFactory.getInstance("RSA").generatePublic(spec);
+            }
+            if ("EC".equals(keyType)) {
+                String curve = CURVE_BY_NAME.get(String.valueOf(jwk.get("crv")));
+                if (curve == null) throw new IllegalArgumentException("Unsupported curve " + jwk.get("crv"));
+
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec(curve));
+                ECPoint point = new ECPoint(decode(jwk, "x"), decode(jwk, "y"));
+                ECPublicKeySpec spec = new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class));
+                return KeyFactory.getInstance("EC").generatePublic(spec);
+            }
+            throw new IllegalArgumentException("Unsupported type of key " + keyType);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Malformed key " + jwk.get(KEY_ID), e);
+        }
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        // the sign byte is not a part of the unsigned value
+        if ((bytes.length > 1) && (bytes[0] == 0)) return Arrays.copyOfRange(bytes, 1, bytes.length);
+        return bytes;
+    }
+
+    private static String encode(BigInteger value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned(value));
+    }
+
+    private static String encode(BigInteger value, int length) {
+        byte[] bytes = unsigned(value);
+        byte[] padded = new byte[length];
+        System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(padded);
+    }
+
+    private static BigInteger decode(Map<String, Object> jwk, String name) {
+        Object value = jwk.get(name);
+        if (value == null) throw new IllegalArgumentException("Missing parameter " + name + " of key " + jwk.get(KEY_ID));
+        return new BigInteger(1, Base64.getUrlDecoder().decode(String.valueOf(value)));
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.security.common.content;
+
+import org.junit.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class BasicAuthenticationCacheTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final Function<UsernamePasswordAuthenticationToken, Authentication> valid = token -> {
+        calls.incrementAndGet();
+        return new UsernamePasswordAuthenticationToken(token.getPrincipal(), null, Collections.emptyList());
+    };
+
+    private final Function<UsernamePasswordAuthenticationToken, Authentication> invalid = token -> {
+        calls.incrementAndGet();
+        throw new BadCredentialsException("Invalid credentials");
+    };
+
+    private static UsernamePasswordAuthenticationToken credentials(String username, String password) {
+        return new UsernamePasswordAuthenticationToken(username, password);
+    }
+
+    @Test
+    public void givenSameCredentials_whenAuthenticate_thenProviderIsCalledOnce() {
+        BasicAuthenticationCache cache = new BasicAuthenticationCache(30, 10);
+
+        Authentication first = cache.authenticate(credentials("user", "password"), valid);
+        Authentication second = cache.authenticate(credentials("user", "password"), valid);
+
+        assertSame(first, second);
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void givenDifferentPassword_whenAuthenticate_thenProviderIsCalled() {
+        BasicAuthenticationCache cache = new BasicAuthenticationCache(30, 10);
+
+        cache.authenticate(credentials("user", "password"), valid);
+        try {
+            cache.authenticate(credentials("user", "wrong"), invalid);
+            fail();
+        } catch (BadCredentialsException e) {
+            assertEquals(2, calls.get());
+        }
+    }
+
+    @Test
+    public void givenFailedAuthentication_whenAuthenticate_thenEntriesOfUserAreRemoved() {
+        BasicAuthenticationCache cache = new BasicAuthenticationCache(30, 10);
+        cache.authenticate(credentials("user", "password"), valid);
+        cache.authenticate(credentials("other", "password"), valid);
+
+        try {
+            cache.authenticate(credentials("user", "changed"), invalid);
+            fail();
+        } catch (BadCredentialsException e) {
+            // expected
+        }
+
+        assertEquals(1, cache.size());
+        try {
+            cache.authenticate(credentials("user", "password"), invalid);
+            fail();
+        } catch (BadCredentialsException e) {
+            assertEquals(4, calls.get());
+        }
+    }
+
+    @Test
+    public void givenZeroTtl_whenAuthenticate_thenIsNotCached() {
+        BasicAuthenticationCache cache = new BasicAuthenticationCache(0, 10);
+
+        cache.authenticate(credentials("user", "password"), valid);
+        cache.authenticate(credentials("user", "password"), valid);
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void givenIncompleteCredentials_whenAuthenticate_thenIsNotCached() {
+        BasicAuthenticationCache cache = new BasicAuthenticationCache(30, 10);
+
+        cache.authenticate(credentials(null, null), valid);
+        cache.authenticate(credentials(null, null), valid);
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void givenFullCache_whenAuthenticate_thenSizeIsBounded() {
+        BasicAuthenticationCache cache = new BasicAuthenticationCache(30, 2);
+
+        cache.authenticate(credentials("user1", "password"), valid);
+        cache.authenticate(credentials("user2", "password"), valid);
+        cache.authenticate(credentials("user3", "password"), valid);
+
+        assertEquals(2, cache.size());
+    }
+
+}
@@ -13,6 +13,7 @@ import org.zowe.apiml.security.common.error.ResourceAccessExceptionHandler;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
@@ -25,6 +26,7 @@ import org.springframework.security.web.authentication.AuthenticationFailureHand
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.Assert.*;
@@ -64,6 +66,26 @@ public class BasicContentFilterTest {
         verify(resourceAccessExceptionHandler, never()).handleException(any(), any(), any());
     }
 
+    @Test
+    public void authenticationWithCache() throws ServletException, IOException {
+        request.addHeader(HttpHeaders.AUTHORIZATION, BASIC_AUTH);
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(PRINCIPAL, PASSWORD);
+        when(authenticationManager.authenticate(authentication))
+            .thenReturn(new UsernamePasswordAuthenticationToken(PRINCIPAL, null, Collections.emptyList()));
+        BasicContentFilter basicContentFilter = new BasicContentFilter(authenticationManager,
+            authenticationFailureHandler,
+            resourceAccessExceptionHandler,
+            new String[0],
+            new BasicAuthenticationCache(30, 10));
+
+        basicContentFilter.doFilter(request, response, filterChain);
+        basicContentFilter.doFilter(request, response, new MockFilterChain());
+
+        verify(authenticationManager, times(1)).authenticate(authentication);
+        verify(filterChain).doFilter(request, response);
+        verify(authenticationFailureHandler, never()).onAuthenticationFailure(any(), any(), any());
+    }
+
     @Test
     public void shouldSkipFilter() throws ServletException, IOException {
         String[] endpoints = {"/gateway"};
@@ -0,0 +1,74 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.security.common.token;
+
+import org.junit.Test;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonWebKeysTest {
+
+    private PublicKey ecKey(String curve) throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(curve));
+        return generator.generateKeyPair().getPublic();
+    }
+
+    @Test
+    public void givenRsaKey_whenConvert_thenKeyIsSame() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PublicKey publicKey = generator.generateKeyPair().getPublic();
+
+        Map<String, Object> jwk = JsonWebKeys.toJwk("kid1", publicKey, "RS256");
+
+        assertEquals("kid1", jwk.get(JsonWebKeys.KEY_ID));
+        assertEquals("RSA", jwk.get(JsonWebKeys.KEY_TYPE));
+        assertEquals("RS256", jwk.get(JsonWebKeys.ALGORITHM));
+        assertEquals(publicKey, JsonWebKeys.toPublicKey(jwk));
+    }
+
+    @Test
+    public void givenEcKeys_whenConvert_thenKeysAreSame() throws GeneralSecurityException {
+        String[][] curves = {{"secp256r1", "P-256"}, {"secp384r1", "P-384"}, {"secp521r1", "P-521"}};
+        for (String[] curve : curves) {
+            PublicKey publicKey = ecKey(curve[0]);
+
+            Map<String, Object> jwk = JsonWebKeys.toJwk("kid", publicKey, null);
+
+            assertEquals("EC", jwk.get(JsonWebKeys.KEY_TYPE));
+            assertEquals(curve[1], jwk.get("crv"));
+            assertFalse(jwk.containsKey(JsonWebKeys.ALGORITHM));
+            assertEquals(publicKey, JsonWebKeys.toPublicKey(jwk));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenUnknownKeyType_whenToPublicKey_thenException() {
+        Map<String, Object> jwk = new HashMap<>();
+        jwk.put(JsonWebKeys.KEY_TYPE, "oct");
+        JsonWebKeys.toPublicKey(jwk);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenMissingParameter_whenToPublicKey_thenException() throws GeneralSecurityException {
+        Map<String, Object> jwk = JsonWebKeys.toJwk("kid", ecKey("secp256r1"), null);
+        jwk.remove("y");
+        JsonWebKeys.toPublicKey(jwk);
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.cache;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded in-memory cache with an expiration of each entry. It is used by the small caches of results (tokens,
+ * authentications, PassTickets), which are read on each request and cannot wait for a lock.
+ *
+ * Reads are lock-free. Each stored entry is added to a queue in the order of insertion, when the queue is longer than
+ * maxSize the oldest entries are removed (FIFO). All operations are O(1), there is no scan of the whole cache. An
+ * expired entry is removed when it is read, otherwise it stays until it is pushed out by newer entries.
+ *
+ * A replaced entry stays in the queue until it is polled, so the count of entries is at most maxSize, but could be
+ * lower for a short time after many replacements.
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ */
+public class ExpiringCache<K, V> {
+
+    private final int maxSize;
+    private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<K, V>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    public ExpiringCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * @param key key of entry
+     * @param now current time in milliseconds
+     * @return the value if it is cached and not expired, otherwise null
+     */
+    public V get(K key, long now) {
+        final Entry<K, V> entry = entries.get(key);
+        if (entry == null) return null;
+
+        if (entry.expiresAt <= now) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Store the value, the oldest entries are removed if the cache is full
+     *
+     * @param key       key of entry
+     * @param value     value to store
+     * @param expiresAt time of expiration in milliseconds
+     */
+    public void put(K key, V value, long expiresAt) {
+        final Entry<K, V> entry = new Entry<>(key, value, expiresAt);
+        entries.put(key, entry);
+        enqueue(entry);
+    }
+
+    /**
+     * Replace the value only if the current one is the expected instance, ie. a value computed in the background does
+     * not overwrite a newer one
+     *
+     * @param key       key of entry
+     * @param oldValue  expected current value
+     * @param newValue  value to store
+     * @param expiresAt time of expiration of the new value in milliseconds
+     * @return true if the value was replaced
+     */
+    public boolean replace(K key, V oldValue, V newValue, long expiresAt) {
+        final Entry<K, V> current = entries.get(key);
+        if ((current == null) || (current.value != oldValue)) return false;
+
+        final Entry<K, V> entry = new Entry<>(key, newValue, expiresAt);
+        if (!entries.replace(key, current, entry)) return false;
+        enqueue(entry);
+        return true;
+    }
+
+    /**
+     * @param key key of entry to remove
+     */
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove the entry only if its value is the expected instance
+     *
+     * @param key   key of entry
+     * @param value expected current value
+     * @return true if the entry was removed
+     */
+    public boolean remove(K key, V value) {
+        final Entry<K, V> current = entries.get(key);
+        return (current != null) && (current.value == value) && entries.remove(key, current);
+    }
+
+    /**
+     * Iterate over all entries including the expired ones. It is weakly consistent, concurrent changes may or may not
+     * be visited. It is intended for periodic tasks, not for requests.
+     *
+     * @param action action called with the key and the value of each entry
+     */
+    public void forEach(BiConsumer<K, V> action) {
+        entries.forEach((key, entry) -> action.accept(key, entry.value));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private void enqueue(Entry<K, V> entry) {
+        insertionOrder.add(entry);
+        if (queueSize.incrementAndGet() <= maxSize) return;
+
+        while (queueSize.get() > maxSize) {
+            final Entry<K, V> oldest = insertionOrder.poll();
+            if (oldest == null) break;
+            queueSize.decrementAndGet();
+            entries.remove(oldest.key, oldest);
+        }
+    }
+
+    private static final class Entry<K, V> {
+
+        private final K key;
+        private final V value;
+        private final long expiresAt;
+
+        Entry(K key, V value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
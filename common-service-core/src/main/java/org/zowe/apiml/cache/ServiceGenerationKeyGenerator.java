@@ -0,0 +1,44 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.cache;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Key generator for caches with serviceId as the first argument. The key is a {@link CompositeKey} of all arguments
+ * followed by the current generation of the service (see {@link ServiceGenerations}). The eviction of a service then
+ * does not need to iterate over the cache.
+ */
+public class ServiceGenerationKeyGenerator implements KeyGenerator {
+
+    private final ServiceGenerations serviceGenerations;
+
+    public ServiceGenerationKeyGenerator(ServiceGenerations serviceGenerations) {
+        this.serviceGenerations = serviceGenerations;
+    }
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        if ((params == null) || (params.length == 0)) {
+            throw new IllegalArgumentException("At least one argument with serviceId is required");
+        }
+        if ((params[0] != null) && !(params[0] instanceof String)) {
+            throw new IllegalArgumentException("The first argument has to be serviceId");
+        }
+
+        final Object[] values = Arrays.copyOf(params, params.length + 1);
+        values[params.length] = serviceGenerations.getGeneration((String) params[0]);
+        return new CompositeKey(values);
+    }
+
+}
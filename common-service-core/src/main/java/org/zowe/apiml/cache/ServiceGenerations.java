@@ -0,0 +1,67 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds generations of services for caching. The generation is a part of cache key (see
+ * {@link ServiceGenerationKeyGenerator}), so eviction of a service is just an increment of its generation - entries
+ * with an old generation are not reachable anymore and they are removed lazily by the cache (TTL, LRU). Eviction of
+ * all services is an increment of a global epoch.
+ *
+ * All values are taken from one sequence, so each eviction creates a generation, which was never used before. The
+ * generation of a service is the maximum of its own value and the epoch.
+ *
+ * Service IDs are case-insensitive.
+ */
+public class ServiceGenerations {
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong epoch = new AtomicLong();
+    private final ConcurrentMap<String, Long> generations = new ConcurrentHashMap<>();
+
+    private static String normalize(String serviceId) {
+        return serviceId.toLowerCase();
+    }
+
+    /**
+     * @param serviceId ID of service
+     * @return current generation of the service
+     */
+    public long getGeneration(String serviceId) {
+        final long currentEpoch = epoch.get();
+        if (serviceId == null) return currentEpoch;
+
+        final Long generation = generations.get(normalize(serviceId));
+        if (generation == null) return currentEpoch;
+        return Math.max(currentEpoch, generation);
+    }
+
+    /**
+     * Make all cached entries of the service unreachable
+     *
+     * @param serviceId ID of service to evict
+     */
+    public void evictService(String serviceId) {
+        if (serviceId == null) return;
+        generations.merge(normalize(serviceId), sequence.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * Make all cached entries of all services unreachable
+     */
+    public void evictAll() {
+        epoch.accumulateAndGet(sequence.incrementAndGet(), Math::max);
+    }
+
+}
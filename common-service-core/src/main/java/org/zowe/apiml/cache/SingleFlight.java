@@ -0,0 +1,86 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key. The first caller runs the loader, the others wait for its result and get
+ * the same value or the same exception. Nothing is remembered after the load finishes, the results could be cached by
+ * the loader (ie. in {@link ExpiringCache}).
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder joined = new LongAdder();
+
+    /**
+     * Run the loader or wait for the running load of the same key
+     *
+     * @param key    key of value
+     * @param loader load of value, called only if there is no running load of the key
+     * @return the loaded value
+     * @throws RuntimeException the exception thrown by the loader (also to the waiting callers)
+     */
+    public V load(K key, Supplier<V> loader) {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            joined.increment();
+            return join(running);
+        }
+
+        try {
+            final V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            // waiting threads must not block forever, even if the loader throws a checked exception sneakily
+            if (!future.isDone()) future.completeExceptionally(new IllegalStateException("Load of value failed"));
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * @return count of calls, which waited for a running load instead of calling the loader
+     */
+    public long getJoined() {
+        return joined.sum();
+    }
+
+    /**
+     * @return count of running loads
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+}
@@ -41,6 +41,8 @@ public final class EurekaMetadataDefinition {
     public static final String AUTHENTICATION_SCHEME = "apiml.authentication.scheme";
     public static final String AUTHENTICATION_APPLID = "apiml.authentication.applid";
 
+    public static final String CONNECTION_POOL_MAX_PER_ROUTE = "apiml.connectionPool.maxConnectionsPerRoute";
+
     //v1
     public static final String ROUTES_V1 = "routed-services";
     public static final String ROUTES_GATEWAY_URL_V1 = "gateway-url";
@@ -9,16 +9,15 @@
  */
 package org.zowe.apiml.passticket;
 
+import org.zowe.apiml.cache.ExpiringCache;
 import org.zowe.apiml.util.ClassOrDefaultProxyUtils;
 import org.zowe.apiml.util.ObjectUtil;
-import lombok.AllArgsConstructor;
 import lombok.Value;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This class allows to get a PassTicket from SAF.
@@ -51,9 +50,18 @@ public class PassTicketService {
         return stateInterface.isUsingBaseImplementation();
     }
 
+    /**
+     * Implementation of PassTickets used outside z/OS. Generated PassTickets are valid for
+     * {@link #PASSTICKET_VALIDITY_MILLIS} as in RACF. At most {@link #MAX_PASSTICKETS_PROPERTY} PassTickets are
+     * remembered; if there are more, the oldest ones (the first to expire) are forgotten, see {@link ExpiringCache}.
+     *
+     * In the load test mode ({@link #LOAD_TEST_PROPERTY}) PassTickets are not remembered, a PassTicket is valid if it
+     * was generated for the user and APPLID, and each call waits {@link #LOAD_TEST_LATENCY_PROPERTY} microseconds to
+     * simulate the cost of a SAF call.
+     */
     public static class DefaultPassTicketImpl implements IRRPassTicket {
 
-        private static int id = 0;
+        private static final AtomicLong ID = new AtomicLong();
 
         public static final String ZOWE_DUMMY_USERID = "user";
         public static final String ZOWE_DUMMY_PASS_TICKET_PREFIX = "ZoweDummyPassTicket";
@@ -62,7 +70,34 @@ public class PassTicketService {
         public static final String UNKNOWN_USER = "unknownUser";
         public static final String UNKNOWN_APPLID = "XBADAPPL";
 
-        private final Map<UserApp, Set<String>> userAppToPasstickets = new HashMap<>();
+        public static final long PASSTICKET_VALIDITY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+        public static final String MAX_PASSTICKETS_PROPERTY = "apiml.passticket.maxPassTickets";
+        public static final String LOAD_TEST_PROPERTY = "apiml.passticket.loadTest";
+        public static final String LOAD_TEST_LATENCY_PROPERTY = "apiml.passticket.loadTest.latencyMicros";
+
+        private static final int DEFAULT_MAX_PASSTICKETS = 100_000;
+
+        private final ExpiringCache<Ticket, Boolean> passTickets;
+        private final long validityMillis;
+        private final boolean loadTest;
+        private final long latencyNanos;
+
+        public DefaultPassTicketImpl() {
+            this(
+                Integer.getInteger(MAX_PASSTICKETS_PROPERTY, DEFAULT_MAX_PASSTICKETS),
+                PASSTICKET_VALIDITY_MILLIS,
+                Boolean.getBoolean(LOAD_TEST_PROPERTY),
+                Long.getLong(LOAD_TEST_LATENCY_PROPERTY, 0L)
+            );
+        }
+
+        DefaultPassTicketImpl(int maxPassTickets, long validityMillis, boolean loadTest, long latencyMicros) {
+            this.passTickets = new ExpiringCache<>(maxPassTickets);
+            this.validityMillis = validityMillis;
+            this.loadTest = loadTest;
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        }
 
         @Override
         public void evaluate(String userId, String applId, String passTicket) throws IRRPassTicketEvaluationException {
@@ -70,6 +105,8 @@ public class PassTicketService {
             ObjectUtil.requireNotNull(applId, "Parameter applId is empty");
             ObjectUtil.requireNotNull(passTicket, "Parameter passTicket is empty");
 
+            simulateLatency();
+
             if (StringUtils.equalsIgnoreCase(UNKNOWN_APPLID, applId)) {
                 throw new IRRPassTicketEvaluationException(AbstractIRRPassTicketException.ErrorCode.ERR_8_16_28);
             }
@@ -78,15 +115,22 @@ public class PassTicketService {
                 return;
             }
 
-            final Set<String> passTickets = userAppToPasstickets.get(new UserApp(userId, applId));
+            final boolean valid;
+            if (loadTest) {
+                valid = passTicket.startsWith(getPrefix(userId, applId));
+            } else {
+                valid = passTickets.get(new Ticket(userId, applId, passTicket), System.currentTimeMillis()) != null;
+            }
 
-            if ((passTickets == null) || !passTickets.contains(passTicket)) {
+            if (!valid) {
                 throw new IRRPassTicketEvaluationException(AbstractIRRPassTicketException.ErrorCode.ERR_8_16_32);
             }
         }
 
         @Override
         public String generate(String userId, String applId) throws IRRPassTicketGenerationException {
+            simulateLatency();
+
             if (StringUtils.equalsIgnoreCase(UNKNOWN_USER, userId)) {
                 throw new IRRPassTicketGenerationException(AbstractIRRPassTicketException.ErrorCode.ERR_8_8_16);
             }
@@ -99,25 +143,32 @@ public class PassTicketService {
                 return ZOWE_DUMMY_PASS_TICKET_PREFIX;
             }
 
-            final UserApp userApp = new UserApp(userId, applId);
-            final int currentId;
-            synchronized (DefaultPassTicketImpl.class) {
-                currentId = DefaultPassTicketImpl.id++;
+            final String passTicket = getPrefix(userId, applId) + ID.getAndIncrement();
+            if (!loadTest) {
+                passTickets.put(new Ticket(userId, applId, passTicket), Boolean.TRUE, System.currentTimeMillis() + validityMillis);
             }
-            final String passTicket = ZOWE_DUMMY_PASS_TICKET_PREFIX + "_" + applId + "_" + userId + "_" + currentId;
-
-            final Set<String> passTickets = userAppToPasstickets.computeIfAbsent(userApp, x -> new HashSet<>());
-            passTickets.add(passTicket);
 
             return passTicket;
         }
 
-        @AllArgsConstructor
+        int size() {
+            return passTickets.size();
+        }
+
+        private static String getPrefix(String userId, String applId) {
+            return ZOWE_DUMMY_PASS_TICKET_PREFIX + "_" + applId + "_" + userId + "_";
+        }
+
+        private void simulateLatency() {
+            if (loadTest && (latencyNanos > 0)) LockSupport.parkNanos(latencyNanos);
+        }
+
         @Value
-        private static class UserApp {
+        private static class Ticket {
 
             private final String userId;
             private final String applId;
+            private final String passTicket;
 
         }
     }
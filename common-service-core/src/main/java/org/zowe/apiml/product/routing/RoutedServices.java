@@ -16,6 +16,7 @@ import java.util.Map;
 
 public class RoutedServices {
     private final Map<String, RoutedService> routedService = new HashMap<>();
+    private final Map<String, String> normalizedServiceUrls = new HashMap<>();
 
     /**
      * Add route to the service
@@ -24,6 +25,11 @@ public class RoutedServices {
      */
     public void addRoutedService(RoutedService route) {
         routedService.put(route.getGatewayUrl(), route);
+        if (route.getServiceUrl() != null) {
+            normalizedServiceUrls.put(route.getGatewayUrl(), UrlUtils.removeLastSlash(route.getServiceUrl().toLowerCase()));
+        } else {
+            normalizedServiceUrls.remove(route.getGatewayUrl());
+        }
     }
 
     /**
@@ -46,19 +52,21 @@ public class RoutedServices {
     public RoutedService getBestMatchingServiceUrl(String serviceUrl, ServiceType type) {
         RoutedService result = null;
         int maxSize = 0;
+        String typePrefix = type.name().toLowerCase();
+        String normalizedServiceUrl = serviceUrl.toLowerCase();
 
         for (Map.Entry<String, RoutedService> serviceEntry : routedService.entrySet()) {
             if (!type.equals(ServiceType.ALL)
-                && !serviceEntry.getKey().toLowerCase().startsWith(type.name().toLowerCase())) {
+                && !serviceEntry.getKey().toLowerCase().startsWith(typePrefix)) {
                 continue;
             }
 
             RoutedService value = serviceEntry.getValue();
             int size = value.getServiceUrl().length();
-            //Remove last slash for service url
-            String routeServiceUrl = UrlUtils.removeLastSlash(value.getServiceUrl().toLowerCase());
+            //Service url in lower case without the last slash
+            String routeServiceUrl = normalizedServiceUrls.get(serviceEntry.getKey());
             if (size > maxSize &&
-                serviceUrl.toLowerCase().startsWith(routeServiceUrl)) {
+                normalizedServiceUrl.startsWith(routeServiceUrl)) {
                 result = value;
                 maxSize = size;
             }
@@ -29,4 +29,9 @@ public class HttpsConfig {
     @Builder.Default private String keyStoreType = "PKCS12";
     @Builder.Default private boolean clientAuth = false;
     @Builder.Default private boolean verifySslCertificatesOfServices = true;
+    @Builder.Default private int maxConnectionsTotal = 100;
+    @Builder.Default private int maxConnectionsPerRoute = 10;
+    @Builder.Default private long idleConnectionTimeoutSeconds = 30;
+    @Builder.Default private long timeToLiveSeconds = -1;
+    @Builder.Default private long keepAliveSeconds = 30;
 }
@@ -15,11 +15,13 @@ import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.ssl.SSLContextBuilder;
@@ -37,6 +39,7 @@ import java.net.URL;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Data
@@ -55,6 +58,34 @@ public class HttpsFactory {
     }
 
     public CloseableHttpClient createSecureHttpClient() {
+        return createSecureHttpClient(createConnectionManager());
+    }
+
+    /**
+     * Create HttpClient over the given connection manager. The client owns the connection manager (it is closed with
+     * the client) and runs a background thread, which evicts expired and idle connections from the pool.
+     *
+     * @param connectionManager pool of connections, see {@link #createConnectionManager()}
+     * @return HttpClient using the connection manager
+     */
+    public CloseableHttpClient createSecureHttpClient(PoolingHttpClientConnectionManager connectionManager) {
+        HttpClientBuilder builder = HttpClientBuilder.create().setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(createKeepAliveStrategy())
+                .evictExpiredConnections()
+                .disableCookieManagement().disableAuthCaching();
+        if (config.getIdleConnectionTimeoutSeconds() > 0) {
+            builder.evictIdleConnections(config.getIdleConnectionTimeoutSeconds(), TimeUnit.SECONDS);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Create pool of connections sized by the configuration. The limit per route is a default, it could be changed for
+     * a specific route by {@link PoolingHttpClientConnectionManager#setMaxPerRoute(org.apache.http.conn.routing.HttpRoute, int)}.
+     *
+     * @return connection manager with http and https socket factories
+     */
+    public PoolingHttpClientConnectionManager createConnectionManager() {
         Registry<ConnectionSocketFactory> socketFactoryRegistry;
         RegistryBuilder<ConnectionSocketFactory> socketFactoryRegistryBuilder = RegistryBuilder
                 .<ConnectionSocketFactory>create().register("http", PlainConnectionSocketFactory.getSocketFactory());
@@ -63,9 +94,23 @@ public class HttpsFactory {
         socketFactoryRegistry = socketFactoryRegistryBuilder.build();
 
         PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
-                Objects.requireNonNull(socketFactoryRegistry));
-        return HttpClientBuilder.create().setConnectionManager(connectionManager).disableCookieManagement()
-                .disableAuthCaching().build();
+                Objects.requireNonNull(socketFactoryRegistry), null, null, null,
+                config.getTimeToLiveSeconds(), TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(config.getMaxConnectionsTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        return connectionManager;
+    }
+
+    /**
+     * Keep-alive duration is taken from the header Keep-Alive of the response. If the service doesn't send it, the
+     * configured duration is used instead of keeping the connection forever.
+     */
+    ConnectionKeepAliveStrategy createKeepAliveStrategy() {
+        final long defaultKeepAliveMillis = TimeUnit.SECONDS.toMillis(config.getKeepAliveSeconds());
+        return (response, context) -> {
+            long keepAliveMillis = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return (keepAliveMillis < 0) ? defaultKeepAliveMillis : keepAliveMillis;
+        };
     }
 
     public ConnectionSocketFactory createSslSocketFactory() {
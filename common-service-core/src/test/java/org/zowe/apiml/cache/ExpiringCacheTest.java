@@ -0,0 +1,84 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.cache;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ExpiringCacheTest {
+
+    @Test
+    public void givenEntry_whenGet_thenValueIsReturnedUntilExpiration() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("key", "value", 100);
+
+        assertEquals("value", cache.get("key", 99));
+        assertNull(cache.get("key", 100));
+        assertEquals(0, cache.size());
+        assertNull(cache.get("unknown", 0));
+    }
+
+    @Test
+    public void givenFullCache_whenPut_thenOldestEntryIsRemoved() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(3);
+        for (int i = 0; i < 5; i++) {
+            cache.put("key" + i, "value" + i, Long.MAX_VALUE);
+        }
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("key0", 0));
+        assertNull(cache.get("key1", 0));
+        assertEquals("value4", cache.get("key4", 0));
+    }
+
+    @Test
+    public void givenManyReplacements_whenPut_thenSizeIsBounded() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(3);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + (i % 2), "value" + i, Long.MAX_VALUE);
+        }
+
+        assertEquals(2, cache.size());
+        assertEquals("value999", cache.get("key1", 0));
+    }
+
+    @Test
+    public void givenReplacedValue_whenReplace_thenNewerValueIsKept() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        String old = "old";
+        cache.put("key", old, Long.MAX_VALUE);
+        cache.put("key", "newer", Long.MAX_VALUE);
+
+        assertFalse(cache.replace("key", old, "background", Long.MAX_VALUE));
+        assertEquals("newer", cache.get("key", 0));
+        assertFalse(cache.remove("key", old));
+        assertTrue(cache.remove("key", cache.get("key", 0)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void givenEntries_whenForEach_thenAllAreVisited() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("a", "1", Long.MAX_VALUE);
+        cache.put("b", "2", 0);
+
+        Map<String, String> visited = new HashMap<>();
+        cache.forEach(visited::put);
+
+        assertEquals(2, visited.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+}
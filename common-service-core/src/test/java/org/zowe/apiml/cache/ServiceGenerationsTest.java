@@ -0,0 +1,78 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.cache;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ServiceGenerationsTest {
+
+    @Test
+    public void testEvictService() {
+        ServiceGenerations sg = new ServiceGenerations();
+        long service1 = sg.getGeneration("service1");
+        long service2 = sg.getGeneration("service2");
+
+        sg.evictService("SERVICE1");
+
+        assertNotEquals(service1, sg.getGeneration("service1"));
+        assertEquals(service2, sg.getGeneration("service2"));
+        assertEquals(sg.getGeneration("Service1"), sg.getGeneration("service1"));
+    }
+
+    @Test
+    public void testEvictAll() {
+        ServiceGenerations sg = new ServiceGenerations();
+        sg.evictService("service1");
+        long service1 = sg.getGeneration("service1");
+        long service2 = sg.getGeneration("service2");
+        long unknown = sg.getGeneration(null);
+
+        sg.evictAll();
+
+        assertNotEquals(service1, sg.getGeneration("service1"));
+        assertNotEquals(service2, sg.getGeneration("service2"));
+        assertNotEquals(unknown, sg.getGeneration(null));
+
+        // each eviction creates a new generation, it is not possible to return to an old one
+        long afterEvictAll = sg.getGeneration("service1");
+        sg.evictService("service1");
+        assertNotEquals(afterEvictAll, sg.getGeneration("service1"));
+        assertNotEquals(service1, sg.getGeneration("service1"));
+    }
+
+    @Test
+    public void testKeyGenerator() {
+        ServiceGenerations sg = new ServiceGenerations();
+        ServiceGenerationKeyGenerator kg = new ServiceGenerationKeyGenerator(sg);
+
+        Object key1 = kg.generate(null, null, "service1", "instance1");
+        Object key2 = kg.generate(null, null, "service2", "instance1");
+        assertEquals(key1, kg.generate(null, null, "service1", "instance1"));
+        assertEquals("service1", ((CompositeKey) key1).get(0));
+
+        sg.evictService("service1");
+        assertNotEquals(key1, kg.generate(null, null, "service1", "instance1"));
+        assertEquals(key2, kg.generate(null, null, "service2", "instance1"));
+
+        sg.evictAll();
+        assertNotEquals(key2, kg.generate(null, null, "service2", "instance1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyGeneratorWithoutServiceId() {
+        new ServiceGenerationKeyGenerator(new ServiceGenerations()).generate(null, null, 1, "instance1");
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final AtomicInteger loaded = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private Supplier<String> slowLoader(Supplier<String> result) {
+        return () -> {
+            loaded.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result.get();
+        };
+    }
+
+    private Future<String>[] loadConcurrently(ExecutorService executor, Supplier<String> loader) throws Exception {
+        @SuppressWarnings("unchecked")
+        Future<String>[] out = new Future[2];
+        out[0] = executor.submit(() -> singleFlight.load("key", loader));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        out[1] = executor.submit(() -> singleFlight.load("key", loader));
+        Thread.sleep(100);
+        release.countDown();
+        return out;
+    }
+
+    @Test
+    public void givenConcurrentLoads_whenLoad_thenLoaderIsCalledOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String>[] futures = loadConcurrently(executor, slowLoader(() -> "value"));
+
+            assertEquals("value", futures[0].get(5, TimeUnit.SECONDS));
+            assertEquals("value", futures[1].get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loaded.get());
+        assertEquals(1, singleFlight.getJoined());
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    public void givenLoaderThrowingError_whenLoadConcurrently_thenAllCallersFail() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String>[] futures = loadConcurrently(executor, slowLoader(() -> {
+                throw new AssertionError("unexpected");
+            }));
+
+            for (Future<String> future : futures) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    fail();
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof AssertionError);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    public void givenFinishedLoad_whenLoad_thenLoaderIsCalledAgain() {
+        Supplier<String> loader = () -> "value" + loaded.incrementAndGet();
+
+        assertEquals("value1", singleFlight.load("key", loader));
+        assertEquals("value2", singleFlight.load("key", loader));
+        assertEquals(0, singleFlight.getJoined());
+    }
+
+    @Test
+    public void givenFailingLoader_whenLoad_thenExceptionIsThrown() {
+        try {
+            singleFlight.load("key", () -> {
+                throw new IllegalStateException("failed");
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals(0, singleFlight.size());
+    }
+
+}
@@ -16,6 +16,12 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static org.zowe.apiml.passticket.PassTicketService.DefaultPassTicketImpl.*;
 import static org.junit.Assert.*;
 
@@ -177,6 +183,94 @@ public class PassTicketServiceTest {
         }
     }
 
+    @Test
+    public void givenExpiredPassTicket_whenEvaluate_thenException() throws IRRPassTicketGenerationException, InterruptedException {
+        PassTicketService.DefaultPassTicketImpl dpti = new PassTicketService.DefaultPassTicketImpl(100, 50, false, 0);
+        String passTicket = dpti.generate(TEST_USERID, "applId");
+
+        Thread.sleep(100);
+
+        try {
+            dpti.evaluate(TEST_USERID, "applId", passTicket);
+            fail();
+        } catch (IRRPassTicketEvaluationException e) {
+            assertEquals(AbstractIRRPassTicketException.ErrorCode.ERR_8_16_32, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void givenManyPassTickets_whenGenerate_thenCountIsBounded() throws IRRPassTicketGenerationException {
+        PassTicketService.DefaultPassTicketImpl dpti = new PassTicketService.DefaultPassTicketImpl(100, PASSTICKET_VALIDITY_MILLIS, false, 0);
+
+        for (int i = 0; i < 1000; i++) {
+            dpti.generate(TEST_USERID + i, "applId");
+        }
+
+        assertTrue(dpti.size() <= 100);
+    }
+
+    @Test
+    public void givenFullStore_whenGenerate_thenNewPassTicketIsValid() throws Exception {
+        PassTicketService.DefaultPassTicketImpl dpti = new PassTicketService.DefaultPassTicketImpl(10, PASSTICKET_VALIDITY_MILLIS, false, 0);
+        String first = dpti.generate(TEST_USERID, "applId");
+
+        for (int i = 0; i < 100; i++) {
+            String passTicket = dpti.generate(TEST_USERID, "applId");
+            dpti.evaluate(TEST_USERID, "applId", passTicket);
+        }
+
+        try {
+            dpti.evaluate(TEST_USERID, "applId", first);
+            fail();
+        } catch (IRRPassTicketEvaluationException e) {
+            assertEquals(AbstractIRRPassTicketException.ErrorCode.ERR_8_16_32, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void givenParallelCalls_whenGenerateAndEvaluate_thenAllPassTicketsAreValid() throws Exception {
+        PassTicketService.DefaultPassTicketImpl dpti = new PassTicketService.DefaultPassTicketImpl(100_000, PASSTICKET_VALIDITY_MILLIS, false, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Set<String>>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    Set<String> generated = new HashSet<>();
+                    for (int i = 0; i < 1000; i++) {
+                        String passTicket = dpti.generate(TEST_USERID, "applId");
+                        dpti.evaluate(TEST_USERID, "applId", passTicket);
+                        generated.add(passTicket);
+                    }
+                    return generated;
+                }));
+            }
+
+            Set<String> all = new HashSet<>();
+            for (Future<Set<String>> future : futures) {
+                all.addAll(future.get(30, TimeUnit.SECONDS));
+            }
+            assertEquals(8000, all.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenLoadTestMode_whenGenerate_thenPassTicketsAreNotStored() throws IRRPassTicketEvaluationException, IRRPassTicketGenerationException {
+        PassTicketService.DefaultPassTicketImpl dpti = new PassTicketService.DefaultPassTicketImpl(100, PASSTICKET_VALIDITY_MILLIS, true, 1);
+
+        String passTicket = dpti.generate(TEST_USERID, "applId");
+        dpti.evaluate(TEST_USERID, "applId", passTicket);
+
+        assertEquals(0, dpti.size());
+        try {
+            dpti.evaluate(TEST_USERID, "otherApplId", passTicket);
+            fail();
+        } catch (IRRPassTicketEvaluationException e) {
+            assertEquals(AbstractIRRPassTicketException.ErrorCode.ERR_8_16_32, e.getErrorCode());
+        }
+    }
+
     public static class Impl implements IRRPassTicket {
 
         @Override
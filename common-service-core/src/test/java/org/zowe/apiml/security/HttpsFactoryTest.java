@@ -21,11 +21,19 @@ import javax.net.ssl.SSLContext;
 
 import com.netflix.discovery.shared.transport.jersey.EurekaJerseyClientImpl;
 
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
 import org.apache.http.client.HttpClient;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HTTP;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -74,6 +82,33 @@ public class HttpsFactoryTest {
         assertEquals("org.apache.http.impl.client.InternalHttpClient", httpClient.getClass().getName());
     }
 
+    @Test
+    public void shouldCreateConnectionManagerWithConfiguredLimits() {
+        HttpsConfig httpsConfig = httpsConfigBuilder.maxConnectionsTotal(200).maxConnectionsPerRoute(20).build();
+        HttpsFactory httpsFactory = new HttpsFactory(httpsConfig);
+        PoolingHttpClientConnectionManager connectionManager = httpsFactory.createConnectionManager();
+        assertEquals(200, connectionManager.getMaxTotal());
+        assertEquals(20, connectionManager.getDefaultMaxPerRoute());
+        connectionManager.close();
+    }
+
+    @Test
+    public void shouldUseConfiguredKeepAliveWhenResponseHasNoKeepAliveHeader() {
+        HttpsConfig httpsConfig = httpsConfigBuilder.keepAliveSeconds(15).build();
+        ConnectionKeepAliveStrategy keepAliveStrategy = new HttpsFactory(httpsConfig).createKeepAliveStrategy();
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        assertEquals(15000, keepAliveStrategy.getKeepAliveDuration(response, new BasicHttpContext()));
+    }
+
+    @Test
+    public void shouldUseKeepAliveFromResponseHeader() {
+        HttpsConfig httpsConfig = httpsConfigBuilder.keepAliveSeconds(15).build();
+        ConnectionKeepAliveStrategy keepAliveStrategy = new HttpsFactory(httpsConfig).createKeepAliveStrategy();
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        response.addHeader(HTTP.CONN_KEEP_ALIVE, "timeout=5");
+        assertEquals(5000, keepAliveStrategy.getKeepAliveDuration(response, new BasicHttpContext()));
+    }
+
     @Test
     public void shouldCreateSecureSslContext() {
         HttpsConfig httpsConfig = httpsConfigBuilder.build();
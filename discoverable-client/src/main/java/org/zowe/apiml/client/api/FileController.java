@@ -14,15 +14,21 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 /**
  * Version 1 of the controller that returns a zip file.
  */
 @RestController
 @Api(tags = {"Other Operations"})
 public class FileController {
+    private static final int LARGE_FILE_CHUNK_SIZE = 64 * 1024;
+
     private final ServletContext servletContext;
     public FileController(ServletContext servletContext) {
         this.servletContext = servletContext;
@@ -39,4 +45,25 @@ public class FileController {
             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + fileName)
             .body(resource);
     }
+
+    /**
+     * Generates binary file of requested size without holding it in the memory. It is used to test streaming of large
+     * responses through the gateway.
+     */
+    @GetMapping(value = "/api/v1/large-file")
+    public void downloadLargeFile(@RequestParam("size") long size, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(size);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=large-file.bin");
+
+        byte[] chunk = new byte[LARGE_FILE_CHUNK_SIZE];
+        OutputStream outputStream = response.getOutputStream();
+        long remaining = size;
+        while (remaining > 0) {
+            int length = (int) Math.min(chunk.length, remaining);
+            outputStream.write(chunk, 0, length);
+            remaining -= length;
+        }
+        outputStream.flush();
+    }
 }
@@ -20,6 +20,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -36,4 +37,12 @@ public class FileControllerTest {
             .andExpect(status().isOk())
             .andExpect(header().string("Content-Disposition","attachment;filename=api-catalog.png"));
     }
+
+    @Test
+    public void callLargeFileDownloadEndpoint() throws Exception {
+        this.mockMvc.perform(get("/api/v1/large-file").param("size", "100000"))
+            .andExpect(status().isOk())
+            .andExpect(header().longValue("Content-Length", 100000))
+            .andExpect(content().bytes(new byte[100000]));
+    }
 }
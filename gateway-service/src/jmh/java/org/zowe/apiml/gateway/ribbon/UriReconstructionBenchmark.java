@@ -0,0 +1,125 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cloud.netflix.ribbon.DefaultServerIntrospector;
+import org.zowe.apiml.gateway.config.StreamingConfigProperties;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare construction of URI to call the selected server by Ribbon with the following update of scheme and by
+ * {@link ServerUriTemplate}. The template path contains also the lookup of instance in {@link InstanceInfoIndex}. To see
+ * allocation rate per request (gc.alloc.rate.norm) use the GC profiler.
+ * <p>
+ * Run: gradlew :gateway-service:jmh -PjmhArgs=UriReconstructionBenchmark,-prof,gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UriReconstructionBenchmark {
+
+    private static final String SERVICE_ID = "discoverableclient";
+
+    @Param({"true", "false"})
+    private boolean secure;
+
+    private CloseableHttpClient httpClient;
+    private GatewayRibbonLoadBalancingHttpClientImpl ribbonClient;
+    private DiscoveryEnabledServer server;
+    private InstanceInfo instanceInfo;
+    private URI[] requests;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        instanceInfo = InstanceInfo.Builder.newBuilder()
+            .setAppName(SERVICE_ID)
+            .setInstanceId("localhost:" + SERVICE_ID + ":10012")
+            .setVIPAddress(SERVICE_ID)
+            .setHostName("localhost")
+            .setPort(10012)
+            .setSecurePort(10012)
+            .enablePort(InstanceInfo.PortType.SECURE, secure)
+            .enablePort(InstanceInfo.PortType.UNSECURE, !secure)
+            .build();
+        server = new DiscoveryEnabledServer(instanceInfo, false, false);
+
+        Application application = new Application(SERVICE_ID);
+        application.addInstance(instanceInfo);
+        Applications applications = new Applications();
+        applications.addApplication(application);
+        InstanceInfoIndex instanceInfoIndex = new InstanceInfoIndex(createEurekaClient(applications));
+        instanceInfoIndex.rebuild();
+
+        IClientConfig config = IClientConfig.Builder.newBuilder(DefaultClientConfigImpl.class, SERVICE_ID)
+            .withSecure(false)
+            .withFollowRedirects(false)
+            .build();
+        httpClient = HttpClients.createDefault();
+        ribbonClient = new GatewayRibbonLoadBalancingHttpClientImpl(
+            httpClient, config, new DefaultServerIntrospector(), instanceInfoIndex, new StreamingConfigProperties());
+
+        requests = new URI[] {
+            URI.create("/discoverableclient/api/v1/greeting"),
+            URI.create("/discoverableclient/api/v1/greeting/name?lang=en&format=json"),
+            URI.create("/discoverableclient/ui/v1/static/js/main.js"),
+            URI.create("/discoverableclient/api/v1/pets/42?expand=owner%20name")
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * Discovery client is required only to construct {@link InstanceInfoIndex}, the index is filled once in the setup.
+     */
+    private static EurekaClient createEurekaClient(Applications applications) {
+        return (EurekaClient) Proxy.newProxyInstance(
+            EurekaClient.class.getClassLoader(),
+            new Class<?>[] {EurekaClient.class},
+            (proxy, method, args) -> "getApplications".equals(method.getName()) ? applications : null
+        );
+    }
+
+    private URI nextRequest() {
+        index = (index + 1) & (requests.length - 1);
+        return requests[index];
+    }
+
+    @Benchmark
+    public URI ribbonConstruction() {
+        return ribbonClient.reconstructURIWithServer(server, nextRequest(), instanceInfo);
+    }
+
+    @Benchmark
+    public URI serverUriTemplate() {
+        return ribbonClient.reconstructURIWithServer(server, nextRequest());
+    }
+
+}
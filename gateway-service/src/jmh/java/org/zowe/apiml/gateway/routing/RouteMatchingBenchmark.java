@@ -0,0 +1,113 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.routing;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.springframework.util.AntPathMatcher;
+import org.zowe.apiml.product.routing.RoutedService;
+import org.zowe.apiml.product.routing.RoutedServices;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare resolution of the request path (service ID, routed service and URI on the service) by sequential matching
+ * of patterns (SimpleRouteLocator + LocationFilter) and by compiled {@link RouteTrie}.
+ * <p>
+ * Run: gradlew :gateway-service:jmh -PjmhArgs=RouteMatchingBenchmark,-prof,gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteMatchingBenchmark {
+
+    private static final int PATHS = 1024;
+
+    @Param({"10", "100", "1000"})
+    private int services;
+
+    private LinkedHashMap<String, ZuulProperties.ZuulRoute> routes;
+    private Map<String, RoutedServices> routedServicesMap;
+    private AntPathMatcher pathMatcher;
+    private RouteTrie<ZuulProperties.ZuulRoute> routeTrie;
+
+    private String[] paths;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        routes = new LinkedHashMap<>();
+        routedServicesMap = new HashMap<>();
+        Map<String, ZuulProperties.ZuulRoute> routedRoutes = new LinkedHashMap<>();
+
+        for (int i = 0; i < services; i++) {
+            String serviceId = "service" + i;
+            RoutedService api = new RoutedService("api_v1", "api/v1", "/" + serviceId + "/api/v1");
+            RoutedService ui = new RoutedService("ui_v1", "ui/v1", "/" + serviceId);
+
+            RoutedServices routedServices = new RoutedServices();
+            routedServices.addRoutedService(api);
+            routedServices.addRoutedService(ui);
+            routedServicesMap.put(serviceId, routedServices);
+
+            for (RoutedService routedService : new RoutedService[] {api, ui}) {
+                String pattern = "/" + routedService.getGatewayUrl() + "/" + serviceId + "/**";
+                routes.put(pattern, new ZuulProperties.ZuulRoute(pattern, serviceId));
+                routedRoutes.put(pattern, new RoutedZuulRoute(pattern, serviceId, routedService));
+            }
+        }
+        pathMatcher = new AntPathMatcher();
+        routeTrie = RouteTrie.compile(routedRoutes);
+
+        paths = new String[PATHS];
+        for (int i = 0; i < PATHS; i++) {
+            paths[i] = "/api/v1/service" + (i * 7919 % services) + "/resources/" + i;
+        }
+    }
+
+    private String nextPath() {
+        index = (index + 1) & (PATHS - 1);
+        return paths[index];
+    }
+
+    @Benchmark
+    public String antPathMatcher() {
+        String path = nextPath();
+        for (Map.Entry<String, ZuulProperties.ZuulRoute> entry : routes.entrySet()) {
+            if (pathMatcher.match(entry.getKey(), path)) {
+                ZuulProperties.ZuulRoute route = entry.getValue();
+                int prefixLength = route.getPath().indexOf('*') - 1;
+                String proxy = route.getId();
+                String gatewayUrl = proxy.substring(0, proxy.lastIndexOf('/'));
+                RoutedService routedService = routedServicesMap.get(route.getServiceId()).findServiceByGatewayUrl(gatewayUrl);
+                return routedService.getServiceUrl() + path.substring(prefixLength);
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String routeTrie() {
+        String path = nextPath();
+        ZuulProperties.ZuulRoute route = routeTrie.match(path);
+        if (!(route instanceof RoutedZuulRoute)) {
+            return null;
+        }
+        int prefixLength = route.getPath().length() - 3;
+        return ((RoutedZuulRoute) route).getServiceUrl() + path.substring(prefixLength);
+    }
+
+}
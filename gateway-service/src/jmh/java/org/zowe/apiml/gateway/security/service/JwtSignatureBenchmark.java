@@ -0,0 +1,102 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing (login) and verification (each request with a token not in the validation cache) of JWT tokens by
+ * signature algorithm. Verification is measured with the parser built once (as {@link AuthenticationService} does) and
+ * with a new parser per token.
+ * <p>
+ * Run: gradlew :gateway-service:jmh -PjmhArgs=JwtSignatureBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSignatureBenchmark {
+
+    @Param({"RS256", "ES256", "ES384", "ES512"})
+    private String algorithm;
+
+    private SignatureAlgorithm signatureAlgorithm;
+    private KeyPair keyPair;
+    private JwtParser parser;
+    private String token;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        signatureAlgorithm = SignatureAlgorithm.forName(algorithm);
+        keyPair = generateKeyPair(signatureAlgorithm);
+        parser = Jwts.parser().setSigningKey(keyPair.getPublic());
+        token = sign();
+    }
+
+    private static KeyPair generateKeyPair(SignatureAlgorithm signatureAlgorithm) throws GeneralSecurityException {
+        if (signatureAlgorithm.isRsa()) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        }
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        switch (signatureAlgorithm) {
+            case ES256:
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+                break;
+            case ES384:
+                generator.initialize(new ECGenParameterSpec("secp384r1"));
+                break;
+            default:
+                generator.initialize(new ECGenParameterSpec("secp521r1"));
+        }
+        return generator.generateKeyPair();
+    }
+
+    @Benchmark
+    public String sign() {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+            .setHeaderParam("kid", "benchmark")
+            .setSubject("user")
+            .claim("dom", "domain")
+            .claim("ltpa", "ltpaToken")
+            .setIssuedAt(new Date(now))
+            .setExpiration(new Date(now + 3600000))
+            .setIssuer("APIML")
+            .signWith(signatureAlgorithm, keyPair.getPrivate())
+            .compact();
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Claims verifyNewParser() {
+        return Jwts.parser().setSigningKey(keyPair.getPublic()).parseClaimsJws(token).getBody();
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.zowe.apiml.gateway.config.TokenInvalidationConfigProperties;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup of token in {@link RevokedTokenStore} by the count of revoked tokens. The check of token which was not revoked
+ * should be answered by the Bloom filter without the lookup in the map.
+ * <p>
+ * Run: gradlew :gateway-service:jmh -PjmhArgs=RevokedTokenStoreBenchmark,-prof,gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RevokedTokenStoreBenchmark {
+
+    private static final int TOKENS = 1024;
+    private static final String TOKEN_PREFIX = "eyJhbGciOiJSUzI1NiJ9.eyJzdWIiOiJ1c2VyIiwiaWF0IjoxNTkwMDAwMDAwfQ.";
+
+    @Param({"0", "10000", "1000000"})
+    private int revokedCount;
+
+    private RevokedTokenStore store;
+    private String[] validTokens;
+    private String[] revokedTokens;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        TokenInvalidationConfigProperties properties = new TokenInvalidationConfigProperties();
+        properties.setExpectedTokens(Math.max(revokedCount, properties.getExpectedTokens()));
+        store = new RevokedTokenStore(properties);
+
+        Date expiration = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < revokedCount; i++) {
+            store.revoke(TOKEN_PREFIX + "revoked" + i, expiration);
+        }
+
+        validTokens = new String[TOKENS];
+        revokedTokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            validTokens[i] = TOKEN_PREFIX + "valid" + i;
+            revokedTokens[i] = TOKEN_PREFIX + "revoked" + (revokedCount == 0 ? 0 : i % revokedCount);
+        }
+    }
+
+    @Benchmark
+    public boolean isRevokedValidToken() {
+        return store.isRevoked(validTokens[index++ & (TOKENS - 1)]);
+    }
+
+    @Benchmark
+    public boolean isRevokedRevokedToken() {
+        return store.isRevoked(revokedTokens[index++ & (TOKENS - 1)]);
+    }
+
+}
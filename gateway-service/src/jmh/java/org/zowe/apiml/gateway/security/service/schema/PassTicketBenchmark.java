@@ -0,0 +1,74 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.schema;
+
+import org.openjdk.jmh.annotations.*;
+import org.zowe.apiml.passticket.IRRPassTicketGenerationException;
+import org.zowe.apiml.passticket.PassTicketService;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of PassTickets for concurrent requests of many users, generated directly and via {@link PassTicketCache}.
+ * The dummy implementation runs in the load test mode, the latency of SAF is simulated by latencyMicros.
+ * <p>
+ * Run: gradlew :gateway-service:jmh -PjmhArgs=PassTicketBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class PassTicketBenchmark {
+
+    private static final String APPLID = "APPLID";
+
+    @Param({"0", "200"})
+    private long latencyMicros;
+
+    @Param({"1000"})
+    private int users;
+
+    private PassTicketService passTicketService;
+    private PassTicketCache passTicketCache;
+    private String[] userIds;
+
+    @Setup
+    public void setUp() {
+        System.setProperty(PassTicketService.DefaultPassTicketImpl.LOAD_TEST_PROPERTY, "true");
+        System.setProperty(PassTicketService.DefaultPassTicketImpl.LOAD_TEST_LATENCY_PROPERTY, String.valueOf(latencyMicros));
+        passTicketService = new PassTicketService();
+        passTicketCache = new PassTicketCache(passTicketService, new AuthConfigurationProperties(), users, 60, 5000);
+
+        userIds = new String[users];
+        for (int i = 0; i < users; i++) {
+            userIds[i] = "user" + i;
+        }
+    }
+
+    private String randomUser() {
+        return userIds[ThreadLocalRandom.current().nextInt(users)];
+    }
+
+    @Benchmark
+    public String generate() throws IRRPassTicketGenerationException {
+        return passTicketService.generate(randomUser(), APPLID);
+    }
+
+    @Benchmark
+    public String cached() throws IRRPassTicketGenerationException {
+        return passTicketCache.get(randomUser(), APPLID).getPassTicket();
+    }
+
+}
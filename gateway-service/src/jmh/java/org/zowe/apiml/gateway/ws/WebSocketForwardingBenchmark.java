@@ -0,0 +1,125 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.TextMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Forwarding of a log-tailing workload (a big message of log lines) by the WebSocket proxy:
+ * - assembled: the message is assembled from the fragments received by the container and forwarded as a whole
+ * - partial: each fragment is forwarded as a partial message
+ * - deflated: bytes on the wire with permessage-deflate (raw deflate with context takeover, flushed per fragment)
+ *   compared to the uncompressed size, reported as the counters rawBytes and wireBytes
+ * <p>
+ * The heap allocated per message is reported by the GC profiler (gc.alloc.rate.norm).
+ * <p>
+ * Run: gradlew :gateway-service:jmh -PjmhArgs=WebSocketForwardingBenchmark,-prof,gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebSocketForwardingBenchmark {
+
+    @Param({"65536", "1048576"})
+    private int messageBytes;
+
+    @Param({"65536"})
+    private int fragmentBytes;
+
+    private String[] fragments;
+    private byte[][] fragmentBytesUtf8;
+    private Deflater deflater;
+    private byte[] output;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireBytes {
+
+        public long rawBytes;
+        public long wireBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rawBytes = 0;
+            wireBytes = 0;
+        }
+
+    }
+
+    @Setup
+    public void setUp() {
+        StringBuilder log = new StringBuilder(messageBytes + 256);
+        for (int i = 0; log.length() < messageBytes; i++) {
+            log.append(String.format("2020-05-01 12:%02d:%02d.%03d <ZWEAGW1:https-jsse-nio-10010-exec-%d:%d> user INFO "
+                    + "(o.z.a.g.w.WebSocketProxyServerHandler) Request %d routed to service %s in %d ms%n",
+                i / 60000 % 60, i / 1000 % 60, i % 1000, i % 10, 16000 + i % 50, i, "discoverableclient", i % 97));
+        }
+        String message = log.substring(0, messageBytes);
+
+        List<String> out = new ArrayList<>();
+        for (int start = 0; start < message.length(); start += fragmentBytes) {
+            out.add(message.substring(start, Math.min(message.length(), start + fragmentBytes)));
+        }
+        fragments = out.toArray(new String[0]);
+        fragmentBytesUtf8 = new byte[fragments.length][];
+        for (int i = 0; i < fragments.length; i++) {
+            fragmentBytesUtf8[i] = fragments[i].getBytes(StandardCharsets.UTF_8);
+        }
+
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        output = new byte[fragmentBytes + 1024];
+    }
+
+    @TearDown
+    public void tearDown() {
+        deflater.end();
+    }
+
+    @Benchmark
+    public TextMessage assembled() {
+        StringBuilder message = new StringBuilder(messageBytes);
+        for (String fragment : fragments) {
+            message.append(fragment);
+        }
+        return new TextMessage(message.toString());
+    }
+
+    @Benchmark
+    public void partial(Blackhole blackhole) {
+        for (int i = 0; i < fragments.length; i++) {
+            blackhole.consume(new TextMessage(fragments[i], i == fragments.length - 1));
+        }
+    }
+
+    @Benchmark
+    public void deflated(WireBytes wire) {
+        for (byte[] fragment : fragmentBytesUtf8) {
+            deflater.setInput(fragment);
+            int length;
+            do {
+                length = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+                wire.wireBytes += length;
+            } while (length == output.length);
+            wire.rawBytes += fragment.length;
+        }
+    }
+
+}
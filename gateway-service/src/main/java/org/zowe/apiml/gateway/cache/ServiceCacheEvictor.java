@@ -14,12 +14,14 @@ import org.zowe.apiml.gateway.ribbon.ApimlZoneAwareLoadBalancer;
 import com.netflix.discovery.CacheRefreshedEvent;
 import com.netflix.discovery.EurekaEvent;
 import com.netflix.discovery.EurekaEventListener;
-import lombok.Value;
 import org.springframework.stereotype.Component;
 import org.zowe.apiml.gateway.security.service.ServiceCacheEvict;
 
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class is responsible for evicting cache after new registry is loaded. This avoid race condition. Scenario is:
@@ -37,8 +39,8 @@ public class ServiceCacheEvictor implements EurekaEventListener, ServiceCacheEvi
 
     private List<ServiceCacheEvict> serviceCacheEvicts;
 
-    private boolean evictAll = false;
-    private HashSet<ServiceRef> toEvict = new HashSet<>();
+    private final AtomicBoolean evictAll = new AtomicBoolean();
+    private final Set<String> toEvict = ConcurrentHashMap.newKeySet();
 
     private ApimlZoneAwareLoadBalancer apimlZoneAwareLoadBalancer;
 
@@ -55,42 +57,42 @@ public class ServiceCacheEvictor implements EurekaEventListener, ServiceCacheEvi
         this.apimlZoneAwareLoadBalancer = apimlZoneAwareLoadBalancer;
     }
 
-    public synchronized void evictCacheService(String serviceId) {
-        if (evictAll) return;
-        toEvict.add(new ServiceRef(serviceId));
+    public void evictCacheService(String serviceId) {
+        if (evictAll.get()) return;
+        toEvict.add(serviceId);
     }
 
-    public synchronized void evictCacheAllService() {
-        evictAll = true;
+    public void evictCacheAllService() {
+        evictAll.set(true);
         toEvict.clear();
     }
 
+    /**
+     * Evict requested caches. Implementations of {@link ServiceCacheEvict} evict by a change of the service generation
+     * (see {@link org.zowe.apiml.cache.ServiceGenerations}), each call is just an atomic increment. Therefor there is
+     * no lock, requests arriving during evicting are processed on the next event.
+     *
+     * @param event event from discovery client
+     */
     @Override
-    public synchronized void onEvent(EurekaEvent event) {
+    public void onEvent(EurekaEvent event) {
         if (event instanceof CacheRefreshedEvent) {
-            if (!evictAll && toEvict.isEmpty()) return;
-
-            if (evictAll) {
+            if (evictAll.compareAndSet(true, false)) {
+                toEvict.clear();
                 serviceCacheEvicts.forEach(ServiceCacheEvict::evictCacheAllService);
-                evictAll = false;
             } else {
-                toEvict.forEach(ServiceRef::evict);
-                toEvict.clear();
+                if (toEvict.isEmpty()) return;
+
+                final Iterator<String> iterator = toEvict.iterator();
+                while (iterator.hasNext()) {
+                    final String serviceId = iterator.next();
+                    iterator.remove();
+                    serviceCacheEvicts.forEach(x -> x.evictCacheService(serviceId));
+                }
             }
 
             apimlZoneAwareLoadBalancer.serverChanged();
         }
     }
 
-    @Value
-    private class ServiceRef {
-
-        private final String serviceId;
-
-        public void evict() {
-            serviceCacheEvicts.forEach(x -> x.evictCacheService(serviceId));
-        }
-
-    }
-
 }
@@ -0,0 +1,110 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.config;
+
+import com.netflix.zuul.FilterProcessor;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.ribbon.support.RibbonRequestCustomizer;
+import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.springframework.cloud.netflix.zuul.filters.route.RibbonCommandFactory;
+import org.springframework.cloud.netflix.zuul.filters.route.RibbonRoutingFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zowe.apiml.gateway.filters.route.AsyncFilterProcessor;
+import org.zowe.apiml.gateway.filters.route.AsyncRibbonRoutingFilter;
+import org.zowe.apiml.gateway.ribbon.ConnectionPoolConfigurer;
+
+import javax.annotation.PostConstruct;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Asynchronous routing to the services (apiml.gateway.async.enabled). Zuul's {@link RibbonRoutingFilter} is replaced
+ * by {@link AsyncRibbonRoutingFilter} and Zuul's filter processor by {@link AsyncFilterProcessor}, which allows to
+ * finish the request in the asynchronous dispatch.
+ *
+ * The non-blocking client uses the same TLS settings (without keystore) and the same limits of connections as the
+ * blocking client used by Ribbon. The limits of routes set by metadata of instances are kept in its pool by
+ * {@link ConnectionPoolConfigurer} too.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "apiml.gateway.async", name = "enabled", havingValue = "true")
+public class AsyncRoutingConfig {
+
+    @Value("${apiml.httpclient.maxConnectionsTotal:100}")
+    private int maxConnectionsTotal;
+
+    @Value("${apiml.httpclient.maxConnectionsPerRoute:10}")
+    private int maxConnectionsPerRoute;
+
+    @PostConstruct
+    public void init() {
+        FilterProcessor.setProcessor(new AsyncFilterProcessor());
+    }
+
+    @Bean
+    public PoolingNHttpClientConnectionManager asyncConnectionManager(
+        @Qualifier("secureSslContextWithoutKeystore") SSLContext sslContext,
+        HostnameVerifier secureHostnameVerifier,
+        ConnectionPoolConfigurer connectionPoolConfigurer
+    ) throws IOReactorException {
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+            new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT),
+            RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register("http", NoopIOSessionStrategy.INSTANCE)
+                .register("https", new SSLIOSessionStrategy(sslContext, secureHostnameVerifier))
+                .build()
+        );
+        connectionManager.setMaxTotal(maxConnectionsTotal);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionPoolConfigurer.addConnectionPool(connectionManager);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient asyncHttpClient(PoolingNHttpClientConnectionManager asyncConnectionManager) {
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+            .setConnectionManager(asyncConnectionManager)
+            .disableCookieManagement()
+            .disableAuthCaching()
+            .build();
+        client.start();
+        return client;
+    }
+
+    @Bean
+    public RibbonRoutingFilter ribbonRoutingFilter(ProxyRequestHelper helper,
+                                                   RibbonCommandFactory<?> ribbonCommandFactory,
+                                                   ObjectProvider<List<RibbonRequestCustomizer>> requestCustomizers,
+                                                   SpringClientFactory clientFactory,
+                                                   CloseableHttpAsyncClient asyncHttpClient,
+                                                   AsyncRoutingConfigProperties asyncRoutingConfigProperties) {
+        return new AsyncRibbonRoutingFilter(helper, ribbonCommandFactory,
+            requestCustomizers.getIfAvailable(Collections::emptyList),
+            clientFactory, asyncHttpClient, asyncRoutingConfigProperties);
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of asynchronous routing to the services (see {@link AsyncRoutingConfig}). If it is enabled, the servlet
+ * thread is released while the gateway waits for the response of a service.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "apiml.gateway.async", ignoreUnknownFields = false)
+public class AsyncRoutingConfigProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Maximal Content-Length of request to be routed asynchronously, bigger and chunked requests are routed the
+     * blocking way (and streamed, see {@link StreamingConfigProperties})
+     */
+    private long maxRequestBodyBytes = 1024L * 1024L;
+
+    /**
+     * Maximal size of response body received from the service and not yet sent to the client. If the limit is
+     * reached, reading from the service is suspended.
+     */
+    private int responseBufferBytes = 256 * 1024;
+
+    /**
+     * Timeout of the whole asynchronous processing, including sending of the response to the client
+     */
+    private long timeoutMillis = 60000;
+
+}
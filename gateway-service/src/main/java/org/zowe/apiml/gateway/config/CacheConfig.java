@@ -19,6 +19,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
 import org.zowe.apiml.cache.CompositeKeyGenerator;
 import org.zowe.apiml.cache.CompositeKeyGeneratorWithoutLast;
+import org.zowe.apiml.cache.ServiceGenerationKeyGenerator;
+import org.zowe.apiml.cache.ServiceGenerations;
 
 import javax.annotation.PostConstruct;
 
@@ -31,6 +33,7 @@ public class CacheConfig {
 
     public static final String COMPOSITE_KEY_GENERATOR = "compositeKeyGenerator";
     public static final String COMPOSITE_KEY_GENERATOR_WITHOUT_LAST = "compositeKeyGeneratorWithoutLast";
+    public static final String SERVICE_GENERATION_KEY_GENERATOR = "serviceGenerationKeyGenerator";
 
     private static final String EHCACHE_STORAGE_ENV_PARAM_NAME = "ehcache.disk.store.dir";
     private static final String APIML_CACHE_STORAGE_LOCATION_ENV_PARAM_NAME = "apiml.cache.storage.location";
@@ -68,4 +71,14 @@ public class CacheConfig {
         return new CompositeKeyGeneratorWithoutLast();
     }
 
+    @Bean
+    public ServiceGenerations serviceGenerations() {
+        return new ServiceGenerations();
+    }
+
+    @Bean(CacheConfig.SERVICE_GENERATION_KEY_GENERATOR)
+    public KeyGenerator getServiceGenerationKeyGenerator() {
+        return new ServiceGenerationKeyGenerator(serviceGenerations());
+    }
+
 }
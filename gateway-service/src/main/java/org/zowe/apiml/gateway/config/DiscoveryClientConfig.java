@@ -10,6 +10,7 @@
 package org.zowe.apiml.gateway.config;
 
 import org.zowe.apiml.gateway.discovery.ApimlDiscoveryClient;
+import org.zowe.apiml.gateway.routing.VersionedRouteLocator;
 import com.netflix.appinfo.ApplicationInfoManager;
 import com.netflix.appinfo.EurekaInstanceConfig;
 import com.netflix.appinfo.HealthCheckHandler;
@@ -63,10 +64,32 @@ public class DiscoveryClientConfig {
 
         discoveryClientClient.registerEventListener(event -> {
             if (event instanceof CacheRefreshedEvent) {
-                refreshableRouteLocators.forEach(RefreshableRouteLocator::refresh);
-                zuulHandlerMapping.setDirty(true);
+                refreshRoutes();
             }
         });
         return discoveryClientClient;
     }
+
+    /**
+     * Refresh all route locators. The handler mapping is invalidated only if any route table was really changed. If
+     * there is no {@link VersionedRouteLocator}, the change cannot be detected and the mapping is always invalidated.
+     */
+    void refreshRoutes() {
+        long versionBefore = getRoutesVersion();
+        refreshableRouteLocators.forEach(RefreshableRouteLocator::refresh);
+        if (!isRoutesVersioned() || (getRoutesVersion() != versionBefore)) {
+            zuulHandlerMapping.setDirty(true);
+        }
+    }
+
+    private boolean isRoutesVersioned() {
+        return refreshableRouteLocators.stream().anyMatch(VersionedRouteLocator.class::isInstance);
+    }
+
+    private long getRoutesVersion() {
+        return refreshableRouteLocators.stream()
+            .filter(VersionedRouteLocator.class::isInstance)
+            .mapToLong(routeLocator -> ((VersionedRouteLocator) routeLocator).getRoutesVersion())
+            .sum();
+    }
 }
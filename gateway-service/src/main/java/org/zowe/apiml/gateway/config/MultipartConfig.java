@@ -9,22 +9,42 @@
  */
 package org.zowe.apiml.gateway.config;
 
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.boot.web.servlet.filter.OrderedHiddenHttpMethodFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Arrays;
 
+/**
+ * Multipart requests are parsed for methods PUT and POST. If streaming is enabled (see
+ * {@link StreamingConfigProperties}), they are not parsed at all and the gateway sends them to the service as
+ * a stream. The hidden method filter skips them then, it reads parameters of POST requests and the container would
+ * consume the body.
+ */
 @Configuration
+@RequiredArgsConstructor
 public class MultipartConfig    {
 
+    private final StreamingConfigProperties streamingConfigProperties;
+
     @Bean
     public MultipartResolver multipartResolver() {
         return new StandardServletMultipartResolver() {
             @Override
             public boolean isMultipart(HttpServletRequest request) {
+                if (streamingConfigProperties.isEnabled()) {
+                    return false;
+                }
                 String method = request.getMethod().toLowerCase();
                 if (!Arrays.asList("put", "post").contains(method)) {
                     return false;
@@ -34,4 +54,21 @@ public class MultipartConfig    {
             }
         };
     }
+
+    @Bean
+    public OrderedHiddenHttpMethodFilter hiddenHttpMethodFilter() {
+        return new OrderedHiddenHttpMethodFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+                if (streamingConfigProperties.isEnabled()
+                    && StringUtils.startsWithIgnoreCase(request.getContentType(), MediaType.MULTIPART_FORM_DATA_VALUE)
+                ) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                super.doFilterInternal(request, response, filterChain);
+            }
+        };
+    }
+
 }
@@ -0,0 +1,34 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of streaming of large bodies through the gateway. It is a mode, which is disabled by default. If it is
+ * enabled, bodies of big and chunked requests are sent to the service as they came, without copying into memory, and
+ * therefor without retries (the body cannot be sent again). Multipart requests are not parsed into parts. Responses
+ * are always streamed by Zuul, see zuul.initialStreamBufferSize.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "apiml.gateway.streaming", ignoreUnknownFields = false)
+public class StreamingConfigProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Minimal Content-Length of request to be streamed, chunked requests are streamed always
+     */
+    private long thresholdBytes = 1024L * 1024L;
+
+}
@@ -0,0 +1,90 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of invalidated JWT tokens. They are stored by their hash until they expire (see
+ * {@link org.zowe.apiml.gateway.security.service.RevokedTokenStore}) and distributed to the other instances of
+ * gateway. Tokens are queued per instance and sent in batches, failed batches are retried with exponential backoff.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "apiml.gateway.invalidation", ignoreUnknownFields = false)
+public class TokenInvalidationConfigProperties {
+
+    /**
+     * Delay between queueing of the first token and sending of the batch, tokens invalidated meanwhile are sent
+     * together
+     */
+    private long flushDelayMillis = 100;
+
+    /**
+     * Count of threads sending batches, the instances are notified in parallel
+     */
+    private int threads = 4;
+
+    /**
+     * Count of retries of a failed batch before the tokens for the instance are dropped
+     */
+    private int maxRetries = 5;
+
+    /**
+     * Delay before the first retry, each next one is doubled up to maxBackoffMillis
+     */
+    private long initialBackoffMillis = 500;
+
+    private long maxBackoffMillis = 30000;
+
+    /**
+     * Maximal size of the request with tokens from another instance, after the decompression. Bigger requests are
+     * rejected, so a small compressed body cannot expand without limit.
+     */
+    private long maxRequestBytes = 16L * 1024L * 1024L;
+
+    /**
+     * Maximal count of tokens (or hashes) in one request between instances. Batches are split by this limit, a request
+     * with more entries is rejected.
+     */
+    private int maxEntriesPerRequest = 1000;
+
+    /**
+     * Expected count of invalidated tokens which are not expired yet, it sets the size of Bloom filter in front of
+     * the store (8 bytes per token). More tokens are still stored, only false positives of the filter are more
+     * frequent.
+     */
+    private int expectedTokens = 100000;
+
+    /**
+     * Period of removing of expired tokens from the store
+     */
+    private long cleanupIntervalSeconds = 60;
+
+    /**
+     * Time to keep invalidated token without an expiration
+     */
+    private long defaultTtlSeconds = 86400;
+
+    /**
+     * Directory of the journal of invalidated tokens, which is loaded at startup. If it is not set, the tokens are
+     * kept only in memory and a restarted instance gets them from the other instances.
+     */
+    private String journalLocation;
+
+    /**
+     * Period of flushing of the journal to the disk. The journal survives a kill of the process anyway, the flush is
+     * needed to survive a crash of the system.
+     */
+    private long syncIntervalMillis = 1000;
+
+}
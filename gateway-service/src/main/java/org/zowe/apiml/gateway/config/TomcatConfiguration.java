@@ -9,21 +9,30 @@
  */
 package org.zowe.apiml.gateway.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.servlet.server.ServletWebServerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.zowe.apiml.product.web.VirtualThreadConnectorCustomizer;
 
 /**
  * Configuration of Tomcat
  */
 @Configuration
 public class TomcatConfiguration {
+
+    @Value("${apiml.service.virtualThreads:false}")
+    private boolean virtualThreads;
+
     @Bean
     public ServletWebServerFactory servletContainer() {
         System.setProperty("org.apache.tomcat.util.buf.UDecoder.ALLOW_ENCODED_SLASH", "true");
         TomcatServletWebServerFactory tomcat = new TomcatServletWebServerFactory();
         tomcat.setProtocol(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+        if (virtualThreads) {
+            tomcat.addConnectorCustomizers(new VirtualThreadConnectorCustomizer());
+        }
         return tomcat;
     }
 }
@@ -9,15 +9,31 @@
  */
 package org.zowe.apiml.gateway.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
-import org.springframework.web.bind.annotation.DeleteMapping;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.zowe.apiml.gateway.config.TokenInvalidationConfigProperties;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
+import org.zowe.apiml.gateway.security.service.JwtSecurityInitializer;
+import org.zowe.apiml.gateway.security.service.TokenInvalidationDistributor;
+import org.zowe.apiml.security.common.token.JsonWebKeys;
+import org.zowe.apiml.security.common.token.TokenNotValidException;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.PublicKey;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static org.apache.http.HttpStatus.*;
 
@@ -25,12 +41,19 @@ import static org.apache.http.HttpStatus.*;
  * Controller offer method to control security. It can contains method for user and also method for calling services
  * by gateway to distribute state of authentication between nodes.
  */
+@Slf4j
 @AllArgsConstructor
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final long KEYS_MAX_AGE_MINUTES = 5;
+
     private final AuthenticationService authenticationService;
+    private final JwtSecurityInitializer jwtSecurityInitializer;
+    private final TokenInvalidationConfigProperties tokenInvalidationConfigProperties;
 
     @DeleteMapping(path = "/invalidate/**")
     public void invalidateJwtToken(HttpServletRequest request, HttpServletResponse response) {
@@ -44,6 +67,79 @@ public class AuthController {
         response.setStatus(invalidated ? SC_OK : SC_SERVICE_UNAVAILABLE);
     }
 
+    /**
+     * Bulk invalidation of tokens sent by other instances of gateway, see {@link TokenInvalidationDistributor}. The body
+     * is JSON array of tokens, optionally compressed by gzip. Tokens which cannot be parsed are skipped, because they
+     * could not be invalidated in any attempt. Only other instances are allowed to call it (by client certificate).
+     */
+    @PostMapping(path = "/invalidate")
+    public void invalidateJwtTokens(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final String[] jwtTokens = readBody(request);
+        if (jwtTokens == null) {
+            response.setStatus(SC_REQUEST_TOO_LONG);
+            return;
+        }
+
+        boolean invalidated = true;
+        for (final String jwtToken : jwtTokens) {
+            try {
+                invalidated &= authenticationService.invalidateJwtToken(jwtToken, false);
+            } catch (TokenNotValidException e) {
+                log.debug("Invalidated token was skipped: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                log.debug("Token cannot be invalidated", e);
+                invalidated = false;
+            }
+        }
+
+        response.setStatus(invalidated ? SC_OK : SC_SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * All invalidated tokens of another instance of gateway, sent to this instance after its start. The body is JSON
+     * array of hashes exported by {@link org.zowe.apiml.gateway.security.service.RevokedTokenStore}, optionally
+     * compressed by gzip. Only other instances are allowed to call it (by client certificate).
+     */
+    @PostMapping(path = "/revoked")
+    public void addInvalidatedTokens(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final String[] entries = readBody(request);
+        if (entries == null) {
+            response.setStatus(SC_REQUEST_TOO_LONG);
+            return;
+        }
+
+        authenticationService.addInvalidated(Arrays.asList(entries));
+        response.setStatus(SC_OK);
+    }
+
+    /**
+     * @return entries of the body or null if the body (after decompression) or the count of entries exceeds the
+     * configured limits
+     */
+    private String[] readBody(HttpServletRequest request) throws IOException {
+        final long maxBytes = tokenInvalidationConfigProperties.getMaxRequestBytes();
+        final LimitedInputStream raw = new LimitedInputStream(request.getInputStream(), maxBytes);
+        final LimitedInputStream body = StringUtils.equalsIgnoreCase("gzip", request.getHeader(HttpHeaders.CONTENT_ENCODING))
+            ? new LimitedInputStream(new GZIPInputStream(raw), maxBytes) : raw;
+
+        final String[] entries;
+        try {
+            entries = OBJECT_MAPPER.readValue(body, String[].class);
+        } catch (IOException e) {
+            // Jackson could wrap the exception of stream, the state of streams is checked instead
+            if (!raw.isExceeded() && !body.isExceeded()) throw e;
+            log.debug("Request with invalidated tokens is bigger than {} bytes, it was rejected", maxBytes);
+            return null;
+        }
+
+        if (entries.length > tokenInvalidationConfigProperties.getMaxEntriesPerRequest()) {
+            log.debug("Request with {} invalidated tokens was rejected, the limit is {}",
+                entries.length, tokenInvalidationConfigProperties.getMaxEntriesPerRequest());
+            return null;
+        }
+        return entries;
+    }
+
     @GetMapping(path = "/distribute/**")
     public void distributeInvalidate(HttpServletRequest request, HttpServletResponse response) {
         final String endpoint = "/auth/distribute/";
@@ -56,4 +152,75 @@ public class AuthController {
         response.setStatus(distributed ? SC_OK : SC_NO_CONTENT);
     }
 
+    /**
+     * Public keys verifying JWT tokens issued by the gateway, as JSON Web Key Set. Services could validate tokens
+     * locally instead of calling the query endpoint. Keys are changed only by a restart, so the response is cacheable.
+     */
+    @GetMapping(path = "/keys", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> getVerificationKeys() {
+        final List<Map<String, Object>> keys = new ArrayList<>();
+        for (final Map.Entry<String, PublicKey> entry : jwtSecurityInitializer.getVerificationKeys().entrySet()) {
+            final boolean current = entry.getKey().equals(jwtSecurityInitializer.getKeyId());
+            final String algorithm = current ? jwtSecurityInitializer.getSignatureAlgorithm().getValue() : null;
+            keys.add(JsonWebKeys.toJwk(entry.getKey(), entry.getValue(), algorithm));
+        }
+
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(KEYS_MAX_AGE_MINUTES, TimeUnit.MINUTES).cachePublic())
+            .body(Collections.singletonMap(JsonWebKeys.KEYS, keys));
+    }
+
+    /**
+     * Stream which fails once more than the limit of bytes is read
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+        private boolean exceeded;
+
+        LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.remaining = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int out = super.read();
+            if (out >= 0) consume(1);
+            return out;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int out = super.read(b, off, len);
+            if (out > 0) consume(out);
+            return out;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long out = super.skip(n);
+            consume(out);
+            return out;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        boolean isExceeded() {
+            return exceeded;
+        }
+
+        private void consume(long bytes) throws IOException {
+            remaining -= bytes;
+            if (remaining < 0) {
+                exceeded = true;
+                throw new IOException("Limit of the request size was exceeded");
+            }
+        }
+
+    }
+
 }
@@ -9,25 +9,22 @@
  */
 package org.zowe.apiml.gateway.filters.pre;
 
+import org.zowe.apiml.gateway.routing.RoutedZuulRoute;
 import org.zowe.apiml.util.UrlUtils;
-import org.zowe.apiml.product.routing.RoutedServices;
-import org.zowe.apiml.product.routing.RoutedServicesUser;
 import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
 
 /**
  * Must be run after PreDecorationFilter. This will set Proxy, ServiceId and other variables in RequestContext
+ * <p>
+ * The routed service is taken from the route matched by the route locator (see {@link RoutedZuulRoute}), there is no
+ * other lookup of routes on the request.
  */
 @Slf4j
-public class LocationFilter extends ZuulFilter implements RoutedServicesUser {
-
-    private final Map<String, RoutedServices> routedServicesMap = new HashMap<>();
+public class LocationFilter extends ZuulFilter {
 
     @Override
     public String filterType() {
@@ -49,45 +46,27 @@ public class LocationFilter extends ZuulFilter implements RoutedServicesUser {
         RequestContext context = RequestContext.getCurrentContext();
 
         final String serviceId = (String) context.get(SERVICE_ID_KEY);
-        final String proxy = UrlUtils.removeFirstAndLastSlash((String) context.get(PROXY_KEY));
-        final String requestPath = UrlUtils.addFirstSlash((String) context.get(REQUEST_URI_KEY));
+        final String requestPath = (String) context.get(REQUEST_URI_KEY);
 
-        if (isRequestThatCanBeProcessed(serviceId, proxy, requestPath)) {
-            RoutedServices routedServices = routedServicesMap.get(serviceId);
+        if (isRequestThatCanBeProcessed(serviceId, requestPath)) {
+            Object route = context.get(RoutedZuulRoute.CONTEXT_KEY);
 
-            if (routedServices != null) {
-                @SuppressWarnings("squid:S2259")
-                int i = proxy.lastIndexOf('/');
-
-                if (i > 0) {
-                    String route = proxy.substring(0, i);
-                    String originalPath = normalizeOriginalPath(routedServices.findServiceByGatewayUrl(route).getServiceUrl());
-                    context.set(REQUEST_URI_KEY, originalPath + requestPath);
-                    log.debug("Routing: The request was routed to {}", originalPath + requestPath);
-                }
+            if ((route instanceof RoutedZuulRoute) && serviceId.equals(((RoutedZuulRoute) route).getServiceId())) {
+                String uri = ((RoutedZuulRoute) route).getServiceUrl() + UrlUtils.addFirstSlash(requestPath);
+                context.set(REQUEST_URI_KEY, uri);
+                log.debug("Routing: The request was routed to {}", uri);
             } else {
                 log.trace("Routing: No routing metadata for service {} found.", serviceId);
             }
         } else {
-            log.trace("Routing: Incorrect serviceId {}, proxy {} or requestPath {}.", serviceId, proxy, requestPath);
+            log.trace("Routing: Incorrect serviceId {} or requestPath {}.", serviceId, requestPath);
         }
 
         return null;
     }
 
-    public void addRoutedServices(String serviceId, RoutedServices routedServices) {
-        routedServicesMap.put(serviceId, routedServices);
-    }
-
-    private boolean isRequestThatCanBeProcessed(String serviceId, String proxy, String requestPath) {
-        return !(serviceId == null || proxy == null || requestPath == null);
+    private boolean isRequestThatCanBeProcessed(String serviceId, String requestPath) {
+        return !(serviceId == null || requestPath == null);
     }
 
-    private String normalizeOriginalPath(String originalPath) {
-        if (originalPath == null) {
-            return "";
-        } else {
-            return originalPath;
-        }
-    }
 }
@@ -11,6 +11,12 @@ package org.zowe.apiml.gateway.filters.pre;
 
 import com.netflix.zuul.context.RequestContext;
 
+/**
+ * Provides Zuul's context bound to the current thread. It is valid for any thread processing the request (pooled or
+ * virtual), Zuul's servlet creates the context at the beginning and releases it at the end of processing. In
+ * asynchronous routing the context is restored in the new dispatch, see
+ * {@link org.zowe.apiml.gateway.filters.route.AsyncFilterProcessor}.
+ */
 public class RequestContextProviderThreadLocal implements RequestContextProvider {
     @Override
     public RequestContext context() {
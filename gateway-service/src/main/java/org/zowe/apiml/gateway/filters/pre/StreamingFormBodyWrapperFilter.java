@@ -0,0 +1,43 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.pre;
+
+import com.netflix.zuul.context.RequestContext;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.cloud.netflix.zuul.filters.pre.FormBodyWrapperFilter;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.gateway.config.StreamingConfigProperties;
+
+/**
+ * Replacement of Zuul's {@link FormBodyWrapperFilter} (it is disabled by zuul.FormBodyWrapperFilter.pre.disable). The
+ * original filter encodes whole multipart request into a byte array. If streaming is enabled, multipart requests are
+ * not parsed (see {@link org.zowe.apiml.gateway.config.MultipartConfig}) and their body is sent to the service as
+ * a stream, therefor this filter is skipped for them. Form data are processed as before.
+ */
+@Component
+public class StreamingFormBodyWrapperFilter extends FormBodyWrapperFilter {
+
+    private final StreamingConfigProperties streamingConfigProperties;
+
+    public StreamingFormBodyWrapperFilter(StreamingConfigProperties streamingConfigProperties) {
+        this.streamingConfigProperties = streamingConfigProperties;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        if (streamingConfigProperties.isEnabled()) {
+            final String contentType = RequestContext.getCurrentContext().getRequest().getContentType();
+            if (StringUtils.startsWithIgnoreCase(contentType, MediaType.MULTIPART_FORM_DATA_VALUE)) return false;
+        }
+        return super.shouldFilter();
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.route;
+
+import com.netflix.zuul.FilterProcessor;
+import com.netflix.zuul.context.RequestContext;
+import com.netflix.zuul.exception.ZuulException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Filter processor, which allows to finish the request in another dispatch than it was started.
+ *
+ * When a route filter suspends the request (see {@link #suspend(RequestContext)}), post and error filters are not
+ * called in the current dispatch. The request context is stored in the request and the route filter calls
+ * {@link javax.servlet.AsyncContext#dispatch()} once the response of the service is available. The new dispatch
+ * (type ASYNC) restores the context instead of calling pre filters, then route filters process the response of the
+ * service and post (or error) filters are called as usual.
+ */
+public class AsyncFilterProcessor extends FilterProcessor {
+
+    static final String SUSPENDED_KEY = "asyncRoutingSuspended";
+    static final String CONTEXT_ATTRIBUTE = AsyncFilterProcessor.class.getName() + ".context";
+
+    /**
+     * Mark the request as suspended. Until the next dispatch, post and error filters are not called.
+     *
+     * @param context context of the request
+     */
+    public static void suspend(RequestContext context) {
+        context.set(SUSPENDED_KEY, Boolean.TRUE);
+        context.getRequest().setAttribute(CONTEXT_ATTRIBUTE, context);
+    }
+
+    public static boolean isSuspended(RequestContext context) {
+        return context.getBoolean(SUSPENDED_KEY);
+    }
+
+    @Override
+    public void preRoute() throws ZuulException {
+        if (!resume(RequestContext.getCurrentContext())) {
+            super.preRoute();
+        }
+    }
+
+    @Override
+    public void postRoute() throws ZuulException {
+        if (!isSuspended(RequestContext.getCurrentContext())) {
+            super.postRoute();
+        }
+    }
+
+    @Override
+    public void error() {
+        if (!isSuspended(RequestContext.getCurrentContext())) {
+            super.error();
+        }
+    }
+
+    /**
+     * Restore context of the suspended request, if this is its asynchronous dispatch.
+     *
+     * @param context new context of current dispatch
+     * @return true if the context was restored, false if it is a new request
+     */
+    boolean resume(RequestContext context) {
+        final HttpServletRequest request = context.getRequest();
+        if (request.getDispatcherType() != DispatcherType.ASYNC) return false;
+
+        final Object suspended = request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (!(suspended instanceof RequestContext)) return false;
+        request.removeAttribute(CONTEXT_ATTRIBUTE);
+
+        final HttpServletResponse response = context.getResponse();
+        context.putAll((RequestContext) suspended);
+        context.remove(SUSPENDED_KEY);
+        context.setRequest(request);
+        context.setResponse(response);
+        return true;
+    }
+
+}
@@ -0,0 +1,369 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.route;
+
+import com.netflix.client.IClient;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import com.netflix.zuul.context.RequestContext;
+import com.netflix.zuul.exception.ZuulException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.protocol.HttpAsyncMethods;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.ribbon.apache.RibbonApacheHttpRequest;
+import org.springframework.cloud.netflix.ribbon.apache.RibbonLoadBalancingHttpClient;
+import org.springframework.cloud.netflix.ribbon.support.RibbonCommandContext;
+import org.springframework.cloud.netflix.ribbon.support.RibbonRequestCustomizer;
+import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.springframework.cloud.netflix.zuul.filters.route.RibbonCommandFactory;
+import org.springframework.cloud.netflix.zuul.filters.route.RibbonRoutingFilter;
+import org.springframework.cloud.netflix.zuul.util.ZuulRuntimeException;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+import org.zowe.apiml.gateway.config.AsyncRoutingConfigProperties;
+import org.zowe.apiml.gateway.ribbon.GatewayRibbonLoadBalancingHttpClientImpl;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.apache.http.HttpStatus.SC_GATEWAY_TIMEOUT;
+import static org.apache.http.HttpStatus.SC_INTERNAL_SERVER_ERROR;
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.SERVICE_ID_KEY;
+
+/**
+ * Replacement of Zuul's {@link RibbonRoutingFilter}, which does not block the servlet thread while the service
+ * processes the request.
+ *
+ * The instance is selected by the same Ribbon load balancer and the request is created the same way as in
+ * {@link GatewayRibbonLoadBalancingHttpClientImpl} (incl. authentication commands waiting for the instance). Then the
+ * request is started in async mode, the body of request is read by a {@link ReadListener} without blocking and the call
+ * is made by non-blocking {@link CloseableHttpAsyncClient}. The body of request is collected in memory before the call
+ * (it is at most {@link AsyncRoutingConfigProperties#getMaxRequestBodyBytes()}, bigger and chunked bodies are not
+ * routed this way). Once the headers of response are received, the request is dispatched
+ * again and processed by post filters (see {@link AsyncFilterProcessor}), the body is passed as a stream without
+ * buffering (see {@link PipedResponseConsumer}).
+ *
+ * Requests which cannot be processed this way are routed by the original filter:
+ * <ul>
+ *     <li>the servlet does not support async mode</li>
+ *     <li>the body is chunked or bigger than the limit (they are streamed, see
+ *     {@link org.zowe.apiml.gateway.config.StreamingConfigProperties})</li>
+ *     <li>the Ribbon client is not the gateway's one</li>
+ * </ul>
+ *
+ * Retries of Ribbon are not supported in async mode.
+ */
+@Slf4j
+public class AsyncRibbonRoutingFilter extends RibbonRoutingFilter {
+
+    static final String RESPONSE_KEY = "asyncRoutingResponse";
+    static final String EXCEPTION_KEY = "asyncRoutingException";
+    private static final String ZUUL_RESPONSE_KEY = "zuulResponse";
+
+    private final SpringClientFactory clientFactory;
+    private final CloseableHttpAsyncClient asyncHttpClient;
+    private final AsyncRoutingConfigProperties properties;
+
+    public AsyncRibbonRoutingFilter(
+        ProxyRequestHelper helper,
+        RibbonCommandFactory<?> ribbonCommandFactory,
+        List<RibbonRequestCustomizer> requestCustomizers,
+        SpringClientFactory clientFactory,
+        CloseableHttpAsyncClient asyncHttpClient,
+        AsyncRoutingConfigProperties properties
+    ) {
+        super(helper, ribbonCommandFactory, requestCustomizers);
+        this.clientFactory = clientFactory;
+        this.asyncHttpClient = asyncHttpClient;
+        this.properties = properties;
+    }
+
+    @Override
+    public Object run() {
+        final RequestContext context = RequestContext.getCurrentContext();
+        if (context.containsKey(RESPONSE_KEY) || context.containsKey(EXCEPTION_KEY)) {
+            return processResult(context);
+        }
+
+        final GatewayRibbonLoadBalancingHttpClientImpl client = getClient(context);
+        if ((client == null) || !isAsyncSupported(context.getRequest())) {
+            return super.run();
+        }
+
+        this.helper.addIgnoredHeaders();
+        final RibbonCommandContext commandContext = buildCommandContext(context);
+        final RibbonApacheHttpRequest ribbonRequest = new RibbonApacheHttpRequest(commandContext);
+        try {
+            final Server server = client.getServerFromLoadBalancer(ribbonRequest.getURI(), commandContext.getLoadBalancerKey());
+            // RibbonCommandContext.getRequestEntity() would copy the body into memory, the stream is read by a listener
+            new AsyncRoute(context, client, server, ribbonRequest, getRequestBody(context.getRequest())).start();
+        } catch (ZuulException e) {
+            throw new ZuulRuntimeException(e);
+        } catch (Exception e) {
+            throw new ZuulRuntimeException(new ZuulException(e, SC_INTERNAL_SERVER_ERROR, e.getMessage()));
+        }
+        return null;
+    }
+
+    private GatewayRibbonLoadBalancingHttpClientImpl getClient(RequestContext context) {
+        final IClient<?, ?> client = clientFactory.getClient((String) context.get(SERVICE_ID_KEY), RibbonLoadBalancingHttpClient.class);
+        return (client instanceof GatewayRibbonLoadBalancingHttpClientImpl) ? (GatewayRibbonLoadBalancingHttpClientImpl) client : null;
+    }
+
+    boolean isAsyncSupported(HttpServletRequest request) {
+        if (!request.isAsyncSupported()) return false;
+
+        final long contentLength = request.getContentLengthLong();
+        if (contentLength > properties.getMaxRequestBodyBytes()) return false;
+        return (contentLength >= 0) || (request.getHeader("Transfer-Encoding") == null);
+    }
+
+    /**
+     * Process the result of service's call in the asynchronous dispatch. The response is set into the context the
+     * same way as by the original filter, an exception is thrown to be processed by error filters.
+     */
+    Object processResult(RequestContext context) {
+        final Exception exception = (Exception) context.remove(EXCEPTION_KEY);
+        if (exception != null) {
+            throw new ZuulRuntimeException(toZuulException(exception));
+        }
+
+        final HttpResponse response = (HttpResponse) context.remove(RESPONSE_KEY);
+        final MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        for (final Header header : response.getAllHeaders()) {
+            headers.add(header.getName(), header.getValue());
+        }
+
+        InputStream body = null;
+        if (response.getEntity() != null) {
+            try {
+                body = response.getEntity().getContent();
+            } catch (IOException e) {
+                throw new ZuulRuntimeException(toZuulException(e));
+            }
+            context.set(ZUUL_RESPONSE_KEY, body);
+        }
+        this.helper.setResponse(response.getStatusLine().getStatusCode(), body, headers);
+        return response;
+    }
+
+    private ZuulException toZuulException(Exception exception) {
+        if (exception instanceof ZuulException) return (ZuulException) exception;
+        if (exception instanceof SocketTimeoutException) {
+            return new ZuulException(exception, SC_GATEWAY_TIMEOUT, "TIMEOUT");
+        }
+        return new ZuulException(exception, SC_INTERNAL_SERVER_ERROR, exception.getMessage());
+    }
+
+    /**
+     * State of one asynchronous call. The request is resumed (dispatched again) just once, by the first of: headers
+     * of response received, failure of the call or timeout of async processing.
+     */
+    private class AsyncRoute implements FutureCallback<HttpResponse>, ReadListener, AsyncListener {
+
+        private final RequestContext context;
+        private final GatewayRibbonLoadBalancingHttpClientImpl client;
+        private final Server server;
+        private final RibbonApacheHttpRequest ribbonRequest;
+        private final InputStream requestBody;
+        private final ServerStats serverStats;
+        private final AtomicBoolean resumed = new AtomicBoolean();
+        private final AtomicBoolean closedByClient = new AtomicBoolean();
+        private final byte[] readBuffer = new byte[8192];
+
+        private ByteArrayOutputStream bodyBuffer;
+
+        private AsyncContext asyncContext;
+        private volatile Future<HttpResponse> future;
+        private long startTime;
+
+        AsyncRoute(RequestContext context, GatewayRibbonLoadBalancingHttpClientImpl client, Server server,
+                   RibbonApacheHttpRequest ribbonRequest, InputStream requestBody) {
+            this.context = context;
+            this.client = client;
+            this.server = server;
+            this.ribbonRequest = ribbonRequest;
+            this.requestBody = requestBody;
+            this.serverStats = client.getServerStats(server);
+        }
+
+        void start() throws Exception {
+            // everything, which depends on the thread's context, has to be done before suspending
+            client.applyAuthenticationCommand(ribbonRequest, server);
+            suspend();
+
+            // since now, all errors are processed in the next dispatch
+            try {
+                final long contentLength = context.getRequest().getContentLengthLong();
+                if ((contentLength > 0) && isContainerStream(requestBody)) {
+                    // the length is limited by maxRequestBodyBytes, see isAsyncSupported
+                    bodyBuffer = new ByteArrayOutputStream((int) Math.min(contentLength, Integer.MAX_VALUE));
+                    ((ServletInputStream) requestBody).setReadListener(this);
+                } else {
+                    // the body is empty or already in the memory (read by a pre filter)
+                    final byte[] body = (requestBody == null) ? new byte[0] : StreamUtils.copyToByteArray(requestBody);
+                    send(client.createRequest(ribbonRequest, server, toEntity(body)));
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        private void suspend() {
+            asyncContext = context.getRequest().startAsync();
+            asyncContext.setTimeout(properties.getTimeoutMillis());
+            asyncContext.addListener(this);
+            AsyncFilterProcessor.suspend(context);
+        }
+
+        /**
+         * Only the stream of container supports non-blocking reading, wrappers of request created by pre filters
+         * could return another one.
+         */
+        private boolean isContainerStream(InputStream inputStream) {
+            try {
+                return (inputStream != null) && (inputStream == asyncContext.getRequest().getInputStream());
+            } catch (IOException | IllegalStateException e) {
+                return false;
+            }
+        }
+
+        private HttpEntity toEntity(byte[] body) {
+            if ((body.length == 0) && !HttpMethod.POST.matches(ribbonRequest.getContext().getMethod())
+                && !HttpMethod.PUT.matches(ribbonRequest.getContext().getMethod())
+                && !HttpMethod.PATCH.matches(ribbonRequest.getContext().getMethod())) {
+                return null;
+            }
+            return new NByteArrayEntity(body);
+        }
+
+        private void send(HttpUriRequest httpRequest) {
+            final PipedResponseConsumer responseConsumer = new PipedResponseConsumer(
+                properties.getResponseBufferBytes(), properties.getTimeoutMillis(), this::onResponse);
+            // the response could be received and closed by the client before execute returns
+            responseConsumer.setOnClose(() -> {
+                closedByClient.set(true);
+                cancel();
+            });
+            client.noteOpenConnection(serverStats);
+            startTime = System.currentTimeMillis();
+            future = asyncHttpClient.execute(HttpAsyncMethods.create(httpRequest), responseConsumer, this);
+            if (closedByClient.get()) cancel();
+        }
+
+        private void cancel() {
+            final Future<HttpResponse> call = future;
+            if (call != null) call.cancel(true);
+        }
+
+        private void onResponse(HttpResponse response) {
+            context.set(RESPONSE_KEY, response);
+            resume();
+        }
+
+        private void fail(Exception exception) {
+            context.set(EXCEPTION_KEY, exception);
+            resume();
+        }
+
+        private void resume() {
+            if (resumed.compareAndSet(false, true)) {
+                asyncContext.dispatch();
+            }
+        }
+
+        // FutureCallback - call of service
+
+        @Override
+        public void completed(HttpResponse result) {
+            client.noteRequestCompletion(serverStats, result, null, System.currentTimeMillis() - startTime, null);
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            client.noteRequestCompletion(serverStats, null, ex, System.currentTimeMillis() - startTime, null);
+            fail(ex);
+        }
+
+        @Override
+        public void cancelled() {
+            client.noteRequestCompletion(serverStats, null, null, System.currentTimeMillis() - startTime, null);
+            fail(new IOException("Request to the service was cancelled"));
+        }
+
+        // ReadListener - body of request
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            final ServletInputStream inputStream = (ServletInputStream) requestBody;
+            while (inputStream.isReady() && !inputStream.isFinished()) {
+                final int read = inputStream.read(readBuffer);
+                if (read < 0) break;
+                bodyBuffer.write(readBuffer, 0, read);
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            try {
+                send(client.createRequest(ribbonRequest, server, toEntity(bodyBuffer.toByteArray())));
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            fail(new IOException("Reading of request failed: " + t, t));
+        }
+
+        // AsyncListener - async processing of request
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // nothing to do, the request is finished
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            log.debug("Asynchronous processing of request to {} timed out", server);
+            fail(new SocketTimeoutException("Asynchronous processing of request timed out"));
+            cancel();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            log.debug("Asynchronous processing of request to {} failed", server, event.getThrowable());
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // the listener is added just once
+        }
+
+    }
+
+}
@@ -0,0 +1,293 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.route;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Consumer of the service's response, which passes the body to a blocking {@link InputStream} read by post filters.
+ * The response is handed over as soon as the headers are received, the body is not buffered as a whole. Received
+ * chunks are queued up to the limit, then the input from the service is suspended until the reader takes them.
+ *
+ * Closing the stream before the end of body cancels the exchange with the service (ie. the client was disconnected).
+ *
+ * The reader waits on {@link ReentrantLock}, not on a monitor, so a virtual thread blocked by reading does not pin
+ * its carrier thread.
+ */
+class PipedResponseConsumer implements HttpAsyncResponseConsumer<HttpResponse> {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final int bufferLimit;
+    private final long readTimeoutMillis;
+    private final Consumer<HttpResponse> onResponse;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<byte[]> chunks = new ArrayDeque<>();
+    private int headOffset;
+    private int buffered;
+    private IOControl ioControl;
+    private boolean inputSuspended;
+    private boolean completed;
+    private boolean closed;
+    private Runnable onClose;
+
+    private volatile HttpResponse response;
+    private volatile Exception exception;
+    private volatile boolean done;
+
+    /**
+     * @param bufferLimit       maximal count of received bytes not yet read
+     * @param readTimeoutMillis maximal time to wait for data in the stream
+     * @param onResponse        called once the headers of response are received (on the I/O thread)
+     */
+    PipedResponseConsumer(int bufferLimit, long readTimeoutMillis, Consumer<HttpResponse> onResponse) {
+        this.bufferLimit = bufferLimit;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.onResponse = onResponse;
+    }
+
+    /**
+     * Set action to be called if the reader closes the stream before end of body.
+     */
+    void setOnClose(Runnable onClose) {
+        lock.lock();
+        try {
+            this.onClose = onClose;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void responseReceived(HttpResponse response) {
+        final HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            final BasicHttpEntity pipedEntity = new BasicHttpEntity();
+            pipedEntity.setContentType(entity.getContentType());
+            pipedEntity.setContentEncoding(entity.getContentEncoding());
+            pipedEntity.setContentLength(entity.getContentLength());
+            pipedEntity.setChunked(entity.isChunked());
+            pipedEntity.setContent(new Body());
+            response.setEntity(pipedEntity);
+        } else {
+            lock.lock();
+            try {
+                completed = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+        this.response = response;
+        onResponse.accept(response);
+    }
+
+    @Override
+    public void consumeContent(ContentDecoder decoder, IOControl ioControl) throws IOException {
+        lock.lock();
+        try {
+            this.ioControl = ioControl;
+        } finally {
+            lock.unlock();
+        }
+
+        int read;
+        while ((read = decoder.read(readBuffer)) > 0) {
+            readBuffer.flip();
+            final byte[] chunk = new byte[read];
+            readBuffer.get(chunk);
+            readBuffer.clear();
+
+            lock.lock();
+            try {
+                if (closed) continue;
+
+                chunks.addLast(chunk);
+                buffered += read;
+                changed.signalAll();
+                if (buffered >= bufferLimit) {
+                    inputSuspended = true;
+                    ioControl.suspendInput();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void responseCompleted(HttpContext context) {
+        lock.lock();
+        try {
+            completed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        done = true;
+    }
+
+    @Override
+    public void failed(Exception ex) {
+        lock.lock();
+        try {
+            exception = ex;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        done = true;
+    }
+
+    @Override
+    public Exception getException() {
+        return exception;
+    }
+
+    @Override
+    public HttpResponse getResult() {
+        return response;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public void close() {
+        // no resources, the body is released by the reader
+    }
+
+    @Override
+    public boolean cancel() {
+        lock.lock();
+        try {
+            closed = true;
+            chunks.clear();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        done = true;
+        return true;
+    }
+
+    /**
+     * Body of the response, reading blocks until next chunk is received.
+     */
+    private class Body extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            final byte[] one = new byte[1];
+            final int read = read(one, 0, 1);
+            return (read < 0) ? -1 : (one[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+
+            lock.lock();
+            try {
+                if (!awaitData()) return -1;
+
+                int copied = 0;
+                while ((copied < len) && !chunks.isEmpty()) {
+                    final byte[] head = chunks.peekFirst();
+                    final int count = Math.min(len - copied, head.length - headOffset);
+                    System.arraycopy(head, headOffset, b, off + copied, count);
+                    copied += count;
+                    headOffset += count;
+                    if (headOffset == head.length) {
+                        chunks.removeFirst();
+                        headOffset = 0;
+                    }
+                }
+                buffered -= copied;
+
+                if (inputSuspended && (buffered <= bufferLimit / 2)) {
+                    inputSuspended = false;
+                    ioControl.requestInput();
+                }
+                return copied;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean awaitData() throws IOException {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis);
+            while (chunks.isEmpty()) {
+                if (exception != null) throw new IOException("Reading of response failed: " + exception, exception);
+                if (completed || closed) return false;
+
+                if (remaining <= 0) throw new SocketTimeoutException("Read timed out");
+                try {
+                    remaining = changed.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Reading of response was interrupted", e);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int available() {
+            lock.lock();
+            try {
+                return buffered;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            final Runnable action;
+            lock.lock();
+            try {
+                if (closed) return;
+                closed = true;
+                chunks.clear();
+                buffered = 0;
+                action = (completed || (exception != null)) ? null : onClose;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (action != null) action.run();
+        }
+
+    }
+
+}
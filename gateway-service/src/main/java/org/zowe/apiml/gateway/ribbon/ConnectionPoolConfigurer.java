@@ -0,0 +1,200 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaEvent;
+import com.netflix.discovery.EurekaEventListener;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToIntFunction;
+
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.CONNECTION_POOL_MAX_PER_ROUTE;
+
+/**
+ * Keeps the pool of connections used by Ribbon (see {@link GatewayRibbonConfig}) in sync with the discovery service.
+ * After each fetch of registry (see {@link CacheRefreshedEvent}):
+ * <ul>
+ *     <li>the limit of connections per route is set from the metadata {@value CONNECTION_POOL_MAX_PER_ROUTE} of the
+ *     instance, routes without this metadata use the default limit</li>
+ *     <li>gauges of leased, pending and available connections are registered for each known route, gauges of
+ *     removed routes are removed</li>
+ * </ul>
+ *
+ * The route is created the same way as Ribbon does it: host name and port of the instance, the scheme is http if the
+ * unsecure port is enabled, otherwise https.
+ *
+ * Other pools calling the same instances (ie. the non-blocking client of asynchronous routing) could be added by
+ * {@link #addConnectionPool(ConnPoolControl)}, the same limits are set for them. The gauges are only for the pool of
+ * Ribbon.
+ */
+@Slf4j
+@Component
+public class ConnectionPoolConfigurer implements EurekaEventListener {
+
+    static final String METRIC_PREFIX = "apiml.gateway.httpclient.pool";
+    static final String TAG_ROUTE = "route";
+
+    private final EurekaClient discoveryClient;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final MeterRegistry meterRegistry;
+
+    private final List<ConnPoolControl<HttpRoute>> connectionPools = new CopyOnWriteArrayList<>();
+    private Map<HttpRoute, Integer> limits = Collections.emptyMap();
+    private final Map<HttpRoute, List<Meter>> routeGauges = new HashMap<>();
+
+    public ConnectionPoolConfigurer(
+        EurekaClient discoveryClient,
+        @Qualifier("secureConnectionManagerWithoutKeystore") PoolingHttpClientConnectionManager connectionManager,
+        MeterRegistry meterRegistry
+    ) {
+        this.discoveryClient = discoveryClient;
+        this.connectionManager = connectionManager;
+        this.meterRegistry = meterRegistry;
+        this.connectionPools.add(connectionManager);
+
+        registerTotalGauge("leased", PoolStats::getLeased);
+        registerTotalGauge("pending", PoolStats::getPending);
+        registerTotalGauge("available", PoolStats::getAvailable);
+        registerTotalGauge("max", PoolStats::getMax);
+
+        discoveryClient.registerEventListener(this);
+    }
+
+    @Override
+    public void onEvent(EurekaEvent event) {
+        if (event instanceof CacheRefreshedEvent) {
+            update();
+        }
+    }
+
+    /**
+     * Keep the limits of routes also in another pool. The current limits are set immediately.
+     *
+     * @param connectionPool pool of connections to the same instances
+     */
+    public synchronized void addConnectionPool(ConnPoolControl<HttpRoute> connectionPool) {
+        connectionPools.add(connectionPool);
+        limits.forEach(connectionPool::setMaxPerRoute);
+    }
+
+    /**
+     * Update limits and gauges of routes from the current snapshot of discovery client.
+     */
+    public synchronized void update() {
+        final Applications applications = discoveryClient.getApplications();
+        if (applications == null) return;
+
+        final Set<HttpRoute> routes = new HashSet<>();
+        final Map<HttpRoute, Integer> newLimits = new HashMap<>();
+        for (final Application application : applications.getRegisteredApplications()) {
+            for (final InstanceInfo instanceInfo : application.getInstances()) {
+                final HttpRoute route = getRoute(instanceInfo);
+                routes.add(route);
+
+                final Integer maxPerRoute = getMaxPerRoute(instanceInfo);
+                if (maxPerRoute != null) {
+                    newLimits.merge(route, maxPerRoute, Math::max);
+                }
+            }
+        }
+
+        for (final ConnPoolControl<HttpRoute> connectionPool : connectionPools) {
+            updateLimits(connectionPool, newLimits);
+        }
+        limits = newLimits;
+
+        routes.addAll(connectionManager.getRoutes());
+        updateGauges(routes);
+    }
+
+    private void updateLimits(ConnPoolControl<HttpRoute> connectionPool, Map<HttpRoute, Integer> newLimits) {
+        final int defaultMaxPerRoute = connectionPool.getDefaultMaxPerRoute();
+        for (final HttpRoute route : limits.keySet()) {
+            if (!newLimits.containsKey(route)) {
+                connectionPool.setMaxPerRoute(route, defaultMaxPerRoute);
+            }
+        }
+        newLimits.forEach(connectionPool::setMaxPerRoute);
+    }
+
+    private void updateGauges(Set<HttpRoute> routes) {
+        final Iterator<Map.Entry<HttpRoute, List<Meter>>> iterator = routeGauges.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<HttpRoute, List<Meter>> entry = iterator.next();
+            if (!routes.contains(entry.getKey())) {
+                entry.getValue().forEach(meterRegistry::remove);
+                iterator.remove();
+            }
+        }
+
+        for (final HttpRoute route : routes) {
+            routeGauges.computeIfAbsent(route, r -> Arrays.asList(
+                registerRouteGauge(r, "leased", PoolStats::getLeased),
+                registerRouteGauge(r, "pending", PoolStats::getPending),
+                registerRouteGauge(r, "available", PoolStats::getAvailable),
+                registerRouteGauge(r, "max", PoolStats::getMax)
+            ));
+        }
+    }
+
+    private Meter registerRouteGauge(HttpRoute route, String name, ToIntFunction<PoolStats> value) {
+        return Gauge.builder(METRIC_PREFIX + "." + name, connectionManager, cm -> value.applyAsInt(cm.getStats(route)))
+            .description("Count of " + name + " connections to the route")
+            .tag(TAG_ROUTE, route.getTargetHost().toURI())
+            .register(meterRegistry);
+    }
+
+    private void registerTotalGauge(String name, ToIntFunction<PoolStats> value) {
+        Gauge.builder(METRIC_PREFIX + ".total." + name, connectionManager, cm -> value.applyAsInt(cm.getTotalStats()))
+            .description("Count of " + name + " connections in the whole pool")
+            .register(meterRegistry);
+    }
+
+    static HttpRoute getRoute(InstanceInfo instanceInfo) {
+        final boolean secure = !instanceInfo.isPortEnabled(InstanceInfo.PortType.UNSECURE);
+        final int port = secure ? instanceInfo.getSecurePort() : instanceInfo.getPort();
+        final HttpHost target = new HttpHost(instanceInfo.getHostName(), port, secure ? "https" : "http");
+        return new HttpRoute(target, null, secure);
+    }
+
+    private Integer getMaxPerRoute(InstanceInfo instanceInfo) {
+        final String value = instanceInfo.getMetadata().get(CONNECTION_POOL_MAX_PER_ROUTE);
+        if (StringUtils.isBlank(value)) return null;
+
+        try {
+            final int maxPerRoute = Integer.parseInt(value.trim());
+            if (maxPerRoute > 0) return maxPerRoute;
+        } catch (NumberFormatException e) {
+            // logged below
+        }
+        log.warn("Invalid value of metadata {} of instance {}: '{}', the default is used",
+            CONNECTION_POOL_MAX_PER_ROUTE, instanceInfo.getInstanceId(), value);
+        return null;
+    }
+
+}
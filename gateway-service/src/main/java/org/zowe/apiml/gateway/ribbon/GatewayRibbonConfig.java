@@ -10,19 +10,17 @@
 package org.zowe.apiml.gateway.ribbon;
 
 import org.zowe.apiml.gateway.cache.ServiceCacheEvictor;
+import org.zowe.apiml.gateway.config.StreamingConfigProperties;
 import com.netflix.client.config.IClientConfig;
-import com.netflix.discovery.EurekaClient;
 import com.netflix.loadbalancer.*;
 import lombok.RequiredArgsConstructor;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.cache.CacheManager;
 import org.springframework.cloud.netflix.ribbon.PropertiesFactory;
 import org.springframework.cloud.netflix.ribbon.RibbonClientName;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonLoadBalancingHttpClient;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -45,11 +43,11 @@ public class GatewayRibbonConfig {
         @Qualifier("secureHttpClientWithoutKeystore") CloseableHttpClient secureHttpClientWithoutKeystore,
         IClientConfig config,
         ServerIntrospector serverIntrospector,
-        EurekaClient discoveryClient,
-        CacheManager cacheManager,
-        ApplicationContext applicationContext
+        InstanceInfoIndex instanceInfoIndex,
+        StreamingConfigProperties streamingConfigProperties
     ) {
-        return new GatewayRibbonLoadBalancingHttpClientImpl(secureHttpClientWithoutKeystore, config, serverIntrospector, discoveryClient, cacheManager, applicationContext);
+        return new GatewayRibbonLoadBalancingHttpClientImpl(
+            secureHttpClientWithoutKeystore, config, serverIntrospector, instanceInfoIndex, streamingConfigProperties);
     }
 
     @Bean
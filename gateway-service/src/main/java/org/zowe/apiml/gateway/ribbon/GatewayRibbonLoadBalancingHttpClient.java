@@ -15,11 +15,8 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.loadbalancer.Server;
 
 import org.springframework.cloud.client.loadbalancer.ServiceInstanceChooser;
-import org.zowe.apiml.gateway.security.service.ServiceCacheEvict;
 
-public interface GatewayRibbonLoadBalancingHttpClient extends ServiceInstanceChooser, ServiceCacheEvict {
-
-    public InstanceInfo putInstanceInfo(String serviceId, String instanceId, InstanceInfo instanceInfo);
+public interface GatewayRibbonLoadBalancingHttpClient extends ServiceInstanceChooser {
 
     public InstanceInfo getInstanceInfo(String serviceId, String instanceId);
 
@@ -9,14 +9,13 @@
  */
 package org.zowe.apiml.gateway.ribbon;
 
-import org.zowe.apiml.gateway.config.CacheConfig;
+import org.zowe.apiml.gateway.config.StreamingConfigProperties;
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationCommand;
-import org.zowe.apiml.util.CacheUtils;
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.client.RequestSpecificRetryHandler;
+import com.netflix.client.RetryHandler;
 import com.netflix.client.config.CommonClientConfigKey;
 import com.netflix.client.config.IClientConfig;
-import com.netflix.discovery.EurekaClient;
-import com.netflix.discovery.shared.Application;
 import com.netflix.loadbalancer.Server;
 import com.netflix.loadbalancer.reactive.ExecutionContext;
 import com.netflix.loadbalancer.reactive.ExecutionInfo;
@@ -24,27 +23,31 @@ import com.netflix.loadbalancer.reactive.ExecutionListener;
 import com.netflix.loadbalancer.reactive.LoadBalancerCommand;
 import com.netflix.zuul.context.RequestContext;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonApacheHttpRequest;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonApacheHttpResponse;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonLoadBalancingHttpClient;
-import org.springframework.context.ApplicationContext;
+import org.springframework.cloud.netflix.ribbon.support.RibbonCommandContext;
+import org.springframework.cloud.netflix.ribbon.support.RibbonRequestCustomizer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.REQUEST_ENTITY_KEY;
 import static org.zowe.apiml.gateway.security.service.ServiceAuthenticationServiceImpl.AUTHENTICATION_COMMAND_KEY;
 import static org.springframework.cloud.netflix.ribbon.RibbonUtils.updateToSecureConnectionIfNeeded;
 
@@ -54,15 +57,14 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
     private static final String HTTPS = "https";
     private static final String HTTP = "http";
 
-    private final EurekaClient discoveryClient;
-    private final CacheManager cacheManager;
-    private final ApplicationContext applicationContext;
+    private final InstanceInfoIndex instanceInfoIndex;
+    private final StreamingConfigProperties streamingConfigProperties;
     /**
-     * Instance to use AOP on method invocation - required for internal call to cache
+     * Templates to create URI by server. Servers with the same host and port are equal, an old template is replaced
+     * on the first call after any change of the instance. Templates of changed and removed instances are pruned after
+     * each rebuild of {@link InstanceInfoIndex}.
      */
-    private GatewayRibbonLoadBalancingHttpClient me;
-
-    private static final String INSTANCE_INFO_BY_INSTANCE_ID = "instanceInfoByInstanceId";
+    private final Map<Server, ServerUriTemplate> uriTemplates = new ConcurrentHashMap<>();
 
     /**
      * Ribbon load balancer
@@ -70,35 +72,70 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
      * @param secureHttpClientWithoutKeystore   custom http client for our certificates
      * @param config             configuration details
      * @param serverIntrospector introspector
+     * @param instanceInfoIndex  index of instances from discovery client
+     * @param streamingConfigProperties configuration of streaming of request bodies
      */
     public GatewayRibbonLoadBalancingHttpClientImpl(
         CloseableHttpClient secureHttpClientWithoutKeystore,
         IClientConfig config,
         ServerIntrospector serverIntrospector,
-        EurekaClient discoveryClient,
-        CacheManager cacheManager,
-        ApplicationContext applicationContext
+        InstanceInfoIndex instanceInfoIndex,
+        StreamingConfigProperties streamingConfigProperties
     ) {
         super(secureHttpClientWithoutKeystore, config, serverIntrospector);
-        this.discoveryClient = discoveryClient;
-        this.cacheManager = cacheManager;
-        this.applicationContext = applicationContext;
-    }
-
-    @PostConstruct
-    public void afterPropertiesSet() {
-        me = applicationContext.getBean(GatewayRibbonLoadBalancingHttpClient.class);
+        this.instanceInfoIndex = instanceInfoIndex;
+        this.streamingConfigProperties = streamingConfigProperties;
+        instanceInfoIndex.addRebuildListener(this::pruneUriTemplates);
     }
 
+    /**
+     * Create URI to call selected server. For usual URIs (see {@link ServerUriTemplate#isSupported(URI)}) is used the
+     * template with precomputed scheme, host and port of the server. Other URIs are constructed by Ribbon and then
+     * the scheme is updated by the instance.
+     *
+     * @param server   selected server
+     * @param original URI of the request
+     * @return URI to call the server
+     */
     @Override
     public URI reconstructURIWithServer(Server server, URI original) {
+        final Server.MetaInfo metaInfo = server.getMetaInfo();
+        final InstanceInfo instanceInfo = getInstanceInfo(metaInfo.getServiceIdForDiscovery(), metaInfo.getInstanceId());
+
+        if (ServerUriTemplate.isSupported(original)) {
+            return getUriTemplate(server, instanceInfo).expand(original);
+        }
+
+        return reconstructURIWithServer(server, original, instanceInfo);
+    }
+
+    ServerUriTemplate getUriTemplate(Server server, InstanceInfo instanceInfo) {
+        ServerUriTemplate uriTemplate = uriTemplates.get(server);
+        if ((uriTemplate == null) || !uriTemplate.isValidFor(server, instanceInfo)) {
+            uriTemplate = new ServerUriTemplate(server, instanceInfo);
+            uriTemplates.put(server, uriTemplate);
+        }
+        return uriTemplate;
+    }
+
+    void pruneUriTemplates() {
+        uriTemplates.entrySet().removeIf(entry -> {
+            final Server.MetaInfo metaInfo = entry.getKey().getMetaInfo();
+            final InstanceInfo instanceInfo = getInstanceInfo(metaInfo.getServiceIdForDiscovery(), metaInfo.getInstanceId());
+            return (instanceInfo == null) || !entry.getValue().isValidFor(entry.getKey(), instanceInfo);
+        });
+    }
+
+    int getUriTemplatesSize() {
+        return uriTemplates.size();
+    }
+
+    URI reconstructURIWithServer(Server server, URI original, InstanceInfo instanceInfo) {
         URI uriToSend;
         URI updatedURI = updateToSecureConnectionIfNeeded(original, this.config, this.serverIntrospector, server);
         final URI uriWithServer = super.reconstructURIWithServer(server, updatedURI);
 
         // if instance is not secure, override with http:
-        final Server.MetaInfo metaInfo = server.getMetaInfo();
-        final InstanceInfo instanceInfo = getInstanceInfo(metaInfo.getServiceIdForDiscovery(), metaInfo.getInstanceId());
         if (instanceInfo.isPortEnabled(InstanceInfo.PortType.UNSECURE)) {
             log.debug("Resetting scheme to HTTP based on instance info of instance: " + instanceInfo.getId());
             UriComponentsBuilder uriComponentsBuilder = UriComponentsBuilder.fromUri(uriWithServer).scheme(HTTP);
@@ -115,6 +152,76 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
     @Override
     public RibbonApacheHttpResponse execute(RibbonApacheHttpRequest request, IClientConfig configOverride) throws Exception {
         configOverride.set(CommonClientConfigKey.IsSecure, HTTPS.equals(request.getURI().getScheme()));
+        final RequestConfig requestConfig = createRequestConfig(configOverride);
+        final InputStream streamedBody = getStreamedBody();
+        final HttpUriRequest httpUriRequest = (streamedBody == null) ?
+            request.toRequest(requestConfig) : toStreamingRequest(request, requestConfig, streamedBody);
+        final HttpResponse httpResponse = this.delegate.execute(httpUriRequest);
+        return new RibbonApacheHttpResponse(httpResponse, httpUriRequest.getURI());
+    }
+
+    /**
+     * Streamed requests are not retried, their body was already read and cannot be sent again.
+     */
+    @Override
+    public RequestSpecificRetryHandler getRequestSpecificRetryHandler(RibbonApacheHttpRequest request, IClientConfig requestConfig) {
+        if (isStreamed(RequestContext.getCurrentContext().getRequest())) {
+            return new RequestSpecificRetryHandler(false, false, RetryHandler.DEFAULT, null);
+        }
+        return super.getRequestSpecificRetryHandler(request, requestConfig);
+    }
+
+    /**
+     * Decide if the body of request should be streamed to the service (see {@link StreamingConfigProperties}). Other
+     * bodies are sent by Ribbon, which copies them into memory to be able to retry the request.
+     *
+     * @param request request of the client, from Zuul's context
+     * @return true for big and chunked requests if streaming is enabled
+     */
+    boolean isStreamed(HttpServletRequest request) {
+        if ((request == null) || !streamingConfigProperties.isEnabled()) return false;
+
+        final long contentLength = request.getContentLengthLong();
+        if (contentLength < 0) return request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null;
+        return contentLength >= streamingConfigProperties.getThresholdBytes();
+    }
+
+    private InputStream getStreamedBody() throws IOException {
+        final RequestContext context = RequestContext.getCurrentContext();
+        if (!isStreamed(context.getRequest())) return null;
+
+        final InputStream requestEntity = (InputStream) context.get(REQUEST_ENTITY_KEY);
+        return (requestEntity != null) ? requestEntity : context.getRequest().getInputStream();
+    }
+
+    /**
+     * Create the request the same way as {@link RibbonApacheHttpRequest#toRequest(RequestConfig)}, but with the body
+     * as a non-repeatable stream. The original method reads {@link RibbonCommandContext#getRequestEntity()}, which
+     * copies the whole body into a byte array.
+     */
+    HttpUriRequest toStreamingRequest(RibbonApacheHttpRequest request, RequestConfig requestConfig, InputStream body) {
+        final RibbonCommandContext context = request.getContext();
+        final long contentLength = (context.getContentLength() == null) ? -1 : context.getContentLength();
+        return buildRequest(request, request.getURI(), requestConfig, new InputStreamEntity(body, contentLength));
+    }
+
+    @SuppressWarnings("unchecked")
+    private HttpUriRequest buildRequest(RibbonApacheHttpRequest request, URI uri, RequestConfig requestConfig, HttpEntity entity) {
+        final RibbonCommandContext context = request.getContext();
+        final RequestBuilder builder = RequestBuilder.create(context.getMethod())
+            .setUri(uri)
+            .setConfig(requestConfig)
+            .setEntity(entity);
+
+        context.getHeaders().forEach((name, values) -> values.forEach(value -> builder.addHeader(name, value)));
+        context.getParams().forEach((name, values) -> values.forEach(value -> builder.addParameter(name, value)));
+        for (final RibbonRequestCustomizer customizer : context.getRequestCustomizers()) {
+            if (customizer.accepts(RequestBuilder.class)) customizer.customize(builder);
+        }
+        return builder.build();
+    }
+
+    private RequestConfig createRequestConfig(IClientConfig configOverride) {
         final RequestConfig.Builder builder = RequestConfig.custom();
         builder.setConnectTimeout(configOverride.get(
             CommonClientConfigKey.ConnectTimeout, this.connectTimeout));
@@ -123,65 +230,65 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
         builder.setRedirectsEnabled(configOverride.get(
             CommonClientConfigKey.FollowRedirects, this.followRedirects));
         builder.setContentCompressionEnabled(false);
-
-        final RequestConfig requestConfig = builder.build();
-        final HttpUriRequest httpUriRequest = request.toRequest(requestConfig);
-        final HttpResponse httpResponse = this.delegate.execute(httpUriRequest);
-        return new RibbonApacheHttpResponse(httpResponse, httpUriRequest.getURI());
+        return builder.build();
     }
 
-    @Override
-    public void evictCacheService(String serviceId) {
-        CacheUtils.evictSubset(cacheManager, INSTANCE_INFO_BY_INSTANCE_ID, x -> StringUtils.equalsIgnoreCase((String) x.get(0), serviceId));
-    }
-
-    @Override
-    @CacheEvict(value = INSTANCE_INFO_BY_INSTANCE_ID, allEntries = true)
-    public void evictCacheAllService() {
-        // evict all records
+    /**
+     * Create request to call the selected server directly, without Ribbon's command (and therefor without retries).
+     * It is used by asynchronous routing, the steps are the same as in {@link #execute(RibbonApacheHttpRequest, IClientConfig)}:
+     * the URI is reconstructed by the server and the timeouts are taken from the client's configuration. The
+     * authentication command has to be applied before, see {@link #applyAuthenticationCommand(RibbonApacheHttpRequest, Server)}.
+     * The body of Zuul's context is not read, the entity is the only body of the request.
+     *
+     * @param request request built by Zuul
+     * @param server  server selected by the load balancer, see {@link #getServerFromLoadBalancer(URI, Object)}
+     * @param entity  body of the request, which could be sent without blocking, or null
+     * @return request with absolute URI
+     */
+    public HttpUriRequest createRequest(RibbonApacheHttpRequest request, Server server, HttpEntity entity) {
+        final URI uri = reconstructURIWithServer(server, request.getURI());
+        return buildRequest(request, uri, createRequestConfig(this.config), entity);
     }
 
     /**
-     * This methods write specific InstanceInfo into cache
+     * Apply the authentication command, which waits for the selected instance (see {@link AuthenticationCommand}),
+     * and copy headers added by the command into the request. It has to be called in the thread of the request,
+     * the command is taken from Zuul's context.
      *
-     * @param serviceId    serviceId of instance
-     * @param instanceId   ID of instance
-     * @param instanceInfo instanceInfo to store
-     * @return cached instanceInfo object
+     * @param request request to the service
+     * @param server  selected server
+     * @throws Exception if the command cannot be applied
      */
-    @CachePut(value = INSTANCE_INFO_BY_INSTANCE_ID, keyGenerator = CacheConfig.COMPOSITE_KEY_GENERATOR_WITHOUT_LAST)
-    public InstanceInfo putInstanceInfo(String serviceId, String instanceId, InstanceInfo instanceInfo) {
-        return instanceInfo;
+    public void applyAuthenticationCommand(RibbonApacheHttpRequest request, Server server) throws Exception {
+        final AuthenticationCommand cmd = (AuthenticationCommand) RequestContext.getCurrentContext().get(AUTHENTICATION_COMMAND_KEY);
+        if (cmd == null) return;
+
+        // in context is a command, it means update of authentication is waiting for select an instance
+        final Server.MetaInfo metaInfo = server.getMetaInfo();
+        final InstanceInfo instanceInfo = getInstanceInfo(metaInfo.getServiceIdForDiscovery(), metaInfo.getInstanceId());
+        cmd.apply(instanceInfo);
+
+        /*
+         * Update current request by added values on sending in load balancer. It is used at least for service
+         * authentication. Now it updates only headers, but could be extended for another values in future.
+         */
+        final Map<String, String> newHeaders = RequestContext.getCurrentContext().getZuulRequestHeaders();
+        for (Map.Entry<String, String> entry : newHeaders.entrySet()) {
+            request.getContext().getHeaders().set(entry.getKey(), entry.getValue());
+        }
     }
 
     /**
-     * Get the InstanceInfo by id. For searching is used serviceId. It method found another instances it will
-     * cache them for next using
+     * Get the InstanceInfo by id. Instances are taken from {@link InstanceInfoIndex}, which is rebuilt after each
+     * fetch of registry, therefor there is no cache to evict.
      *
      * @param serviceId  service to call
      * @param instanceId selected instance of service
      * @return instance with matching service and instanceId
      */
-    @Cacheable(value = INSTANCE_INFO_BY_INSTANCE_ID, keyGenerator = CacheConfig.COMPOSITE_KEY_GENERATOR)
+    @Override
     public InstanceInfo getInstanceInfo(String serviceId, String instanceId) {
-        InstanceInfo output = null;
-
-        Application application = discoveryClient.getApplication(serviceId);
-        if (application == null) return null;
-
-        for (final InstanceInfo instanceInfo : application.getInstances()) {
-            if (StringUtils.equals(instanceId, instanceInfo.getInstanceId())) {
-                // found instance, store it for output
-                output = instanceInfo;
-            }
-
-            /*
-             * Getting all instance is pretty heavy, cache them, therefor it is very probably, nex using of service
-             * will use different instance and need to find it too.
-             */
-            me.putInstanceInfo(serviceId, instanceInfo.getInstanceId(), instanceInfo);
-        }
-        return output;
+        return instanceInfoIndex.getInstanceInfo(serviceId, instanceId);
     }
 
     @Override
@@ -196,24 +303,6 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
          */
         builder.withListeners(Collections.singletonList(new ExecutionListener<Object, RibbonApacheHttpResponse>() {
 
-            /**
-             * This method update current request by added values on sending in load balancer. It is used at least
-             * for service authentication.
-             *
-             * Now it updates only headers, but could be extended for another values in future.
-             *
-             * @param context context of treated call
-             */
-            private void updateRequestByZuulChanges(ExecutionContext<Object> context) {
-                final Map<String, String> newHeaders = RequestContext.getCurrentContext().getZuulRequestHeaders();
-                if (!newHeaders.isEmpty()) {
-                    final RibbonApacheHttpRequest req = (RibbonApacheHttpRequest) context.getRequest();
-                    for (Map.Entry<String, String> entry : newHeaders.entrySet()) {
-                        req.getContext().getHeaders().set(entry.getKey(), entry.getValue());
-                    }
-                }
-            }
-
             @Override
             public void onExecutionStart(ExecutionContext<Object> context) {
                 // dont needed yet
@@ -221,17 +310,10 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
 
             @Override
             public void onStartWithServer(ExecutionContext<Object> context, ExecutionInfo info) {
-                final AuthenticationCommand cmd = (AuthenticationCommand) RequestContext.getCurrentContext().get(AUTHENTICATION_COMMAND_KEY);
-                if (cmd != null) {
-                    // in context is a command, it means update of authentication is waiting for select an instance
-                    final Server.MetaInfo metaInfo = info.getServer().getMetaInfo();
-                    final InstanceInfo instanceInfo = me.getInstanceInfo(metaInfo.getServiceIdForDiscovery(), metaInfo.getInstanceId());
-                    try {
-                        cmd.apply(instanceInfo);
-                    } catch (Exception e) {
-                        throw new AbortExecutionException(String.valueOf(e), e);
-                    }
-                    updateRequestByZuulChanges(context);
+                try {
+                    applyAuthenticationCommand((RibbonApacheHttpRequest) context.getRequest(), info.getServer());
+                } catch (Exception e) {
+                    throw new AbortExecutionException(String.valueOf(e), e);
                 }
             }
 
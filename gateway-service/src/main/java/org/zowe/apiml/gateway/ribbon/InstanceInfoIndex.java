@@ -0,0 +1,110 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaEvent;
+import com.netflix.discovery.EurekaEventListener;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Immutable index of all known instances by instanceId. The index is rebuilt from the snapshot of discovery client
+ * after each fetch of registry (see {@link CacheRefreshedEvent}) and then replaced at once. Reading is just a hash
+ * lookup without any lock.
+ *
+ * If the instance is not indexed yet (registry was not fetched since the start or Ribbon knows the instance before
+ * the event was processed), the application is searched directly in the discovery client.
+ *
+ * Listeners added by {@link #addRebuildListener(Runnable)} are called after each rebuild, ie. to remove values derived
+ * from instances, which are not registered anymore.
+ *
+ * The bean is shared by all Ribbon clients, therefor it is not a part of {@link GatewayRibbonConfig}.
+ */
+@Component
+public class InstanceInfoIndex implements EurekaEventListener {
+
+    private final EurekaClient discoveryClient;
+
+    private volatile Map<String, InstanceInfo> instancesById = Collections.emptyMap();
+    private final List<Runnable> rebuildListeners = new CopyOnWriteArrayList<>();
+
+    public InstanceInfoIndex(EurekaClient discoveryClient) {
+        this.discoveryClient = discoveryClient;
+        discoveryClient.registerEventListener(this);
+    }
+
+    @Override
+    public void onEvent(EurekaEvent event) {
+        if (event instanceof CacheRefreshedEvent) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Create a new index from the current snapshot of discovery client and replace the previous one.
+     */
+    public void rebuild() {
+        final Applications applications = discoveryClient.getApplications();
+        if (applications == null) return;
+
+        final Map<String, InstanceInfo> index = new HashMap<>();
+        for (final Application application : applications.getRegisteredApplications()) {
+            for (final InstanceInfo instanceInfo : application.getInstances()) {
+                index.put(instanceInfo.getInstanceId(), instanceInfo);
+            }
+        }
+        instancesById = Collections.unmodifiableMap(index);
+
+        for (final Runnable listener : rebuildListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * @param listener action called after each rebuild of the index
+     */
+    public void addRebuildListener(Runnable listener) {
+        rebuildListeners.add(listener);
+    }
+
+    /**
+     * Get the InstanceInfo by id. The serviceId is used only if the instance is not indexed yet.
+     *
+     * @param serviceId  service to call
+     * @param instanceId selected instance of service
+     * @return instance with matching instanceId, otherwise null
+     */
+    public InstanceInfo getInstanceInfo(String serviceId, String instanceId) {
+        final InstanceInfo instanceInfo = instancesById.get(instanceId);
+        if (instanceInfo != null) return instanceInfo;
+
+        final Application application = discoveryClient.getApplication(serviceId);
+        if (application == null) return null;
+
+        for (final InstanceInfo candidate : application.getInstances()) {
+            if (StringUtils.equals(instanceId, candidate.getInstanceId())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+}
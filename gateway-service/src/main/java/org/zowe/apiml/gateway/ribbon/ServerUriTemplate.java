@@ -0,0 +1,90 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.loadbalancer.Server;
+import org.apache.commons.lang.StringUtils;
+
+import java.net.URI;
+
+/**
+ * Precomputed beginning of URI (scheme, host and port) to call a selected server. The scheme is given by the instance
+ * (http if unsecure port is enabled, otherwise https), host and port by the server. The final URI is created by one
+ * concatenation with the raw path and query of the original URI.
+ *
+ * The template is valid only for the same instance's object (a new one is created on each change in discovery
+ * service) and the same host and port of the server.
+ */
+class ServerUriTemplate {
+
+    private static final String HTTP = "http";
+    private static final String HTTPS = "https";
+
+    private final InstanceInfo instanceInfo;
+    private final String host;
+    private final int port;
+    private final String prefix;
+
+    ServerUriTemplate(Server server, InstanceInfo instanceInfo) {
+        this.instanceInfo = instanceInfo;
+        this.host = server.getHost();
+        this.port = server.getPort();
+
+        final String scheme = instanceInfo.isPortEnabled(InstanceInfo.PortType.UNSECURE) ? HTTP : HTTPS;
+        final StringBuilder sb = new StringBuilder(scheme.length() + host.length() + 9);
+        sb.append(scheme).append("://").append(host);
+        if (port >= 0) sb.append(':').append(port);
+        this.prefix = sb.toString();
+    }
+
+    /**
+     * Template can be used only for hierarchical URI with http(s) or without scheme, which contains neither user info
+     * nor fragment. The query cannot contain '+', because an upgrade to secure connection replaces it by "%20". All
+     * other URIs have to be created the standard way.
+     *
+     * @param original URI of the request
+     * @return true if the template can create the same URI as Ribbon
+     */
+    static boolean isSupported(URI original) {
+        if (original.isOpaque() || (original.getRawPath() == null)) return false;
+
+        final String scheme = original.getScheme();
+        if ((scheme != null) && !HTTP.equalsIgnoreCase(scheme) && !HTTPS.equalsIgnoreCase(scheme)) return false;
+
+        if (!StringUtils.isEmpty(original.getRawUserInfo())) return false;
+        if (!StringUtils.isEmpty(original.getRawFragment())) return false;
+
+        final String rawQuery = original.getRawQuery();
+        return (rawQuery == null) || (rawQuery.indexOf('+') < 0);
+    }
+
+    boolean isValidFor(Server server, InstanceInfo instanceInfo) {
+        return (this.instanceInfo == instanceInfo) && (this.port == server.getPort()) && this.host.equals(server.getHost());
+    }
+
+    /**
+     * Create URI to call the server. The original URI has to be supported, see {@link #isSupported(URI)}.
+     *
+     * @param original URI of the request
+     * @return URI with scheme, host and port of the server
+     */
+    URI expand(URI original) {
+        final String rawPath = original.getRawPath();
+        final String rawQuery = original.getRawQuery();
+
+        final int length = prefix.length() + rawPath.length() + ((rawQuery == null) ? 0 : rawQuery.length() + 1);
+        final StringBuilder sb = new StringBuilder(length);
+        sb.append(prefix).append(rawPath);
+        if (!StringUtils.isEmpty(rawQuery)) sb.append('?').append(rawQuery);
+        return URI.create(sb.toString());
+    }
+
+}
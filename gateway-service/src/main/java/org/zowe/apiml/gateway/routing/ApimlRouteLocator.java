@@ -9,6 +9,11 @@
  */
 package org.zowe.apiml.gateway.routing;
 
+import com.netflix.zuul.context.RequestContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
 import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
 import org.zowe.apiml.product.routing.RoutedServices;
 import org.zowe.apiml.product.routing.RoutedServicesUser;
@@ -23,35 +28,156 @@ import org.springframework.util.PatternMatchUtils;
 import org.springframework.util.StringUtils;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-class ApimlRouteLocator extends DiscoveryClientRouteLocator {
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.ROUTES;
+
+/**
+ * Route locator building routes from the metadata of services registered in Eureka.
+ * <p>
+ * The route table is built incrementally. For each service is computed a fingerprint of route-relevant metadata
+ * (routes of all its instances). Only services with a changed fingerprint are parsed again and pushed into
+ * {@link RoutedServicesUser}s, the others reuse the previous result. If no fingerprint changed and the route-relevant
+ * {@link ZuulProperties} (static routes, ignored services and patterns, prefix) are the same, the refresh is skipped
+ * completely and the current route table (and its version) stays untouched.
+ * <p>
+ * Each version of the route table is compiled into a {@link RouteTrie}, which is used to match routes on the request
+ * path instead of the sequential matching of all patterns. Routes from the metadata are {@link RoutedZuulRoute}s, the
+ * matched one is stored in the {@link RequestContext}, so the rewrite of the request URI needs no further lookup.
+ */
+class ApimlRouteLocator extends DiscoveryClientRouteLocator implements VersionedRouteLocator {
     private final DiscoveryClient discovery;
     private final ZuulProperties properties;
     private final List<RoutedServicesUser> routedServicesUsers;
     private final EurekaMetadataParser eurekaMetadataParser;
 
+    private final Map<String, ServiceRoutes> serviceRoutesCache = new HashMap<>();
+    private String propertiesFingerprint;
+    private final AtomicLong routesVersion = new AtomicLong();
+    private volatile CompiledRoutes compiledRoutes;
+
+    private final Timer rebuildTimer;
+    private final Counter rebuiltServicesCounter;
+
     ApimlRouteLocator(String servletPath,
                       DiscoveryClient discovery,
                       ZuulProperties properties,
                       ServiceRouteMapper serviceRouteMapper,
-                      List<RoutedServicesUser> routedServicesUsers) {
+                      List<RoutedServicesUser> routedServicesUsers,
+                      MeterRegistry meterRegistry) {
         super(servletPath, discovery, properties, serviceRouteMapper, null);
         this.discovery = discovery;
         this.properties = properties;
         this.routedServicesUsers = routedServicesUsers;
         this.eurekaMetadataParser = new EurekaMetadataParser();
+
+        this.rebuildTimer = Timer.builder("apiml.gateway.routes.rebuild")
+            .description("Duration of the route table rebuild")
+            .register(meterRegistry);
+        this.rebuiltServicesCounter = Counter.builder("apiml.gateway.routes.services.rebuilt")
+            .description("Count of services whose routes were parsed again because of changed metadata")
+            .register(meterRegistry);
     }
 
     @InjectApimlLogger
     private ApimlLogger apimlLog = ApimlLogger.empty();
 
+    @Override
+    public long getRoutesVersion() {
+        return routesVersion.get();
+    }
+
+    @Override
+    protected ZuulProperties.ZuulRoute getZuulRoute(String adjustedPath) {
+        ZuulProperties.ZuulRoute route = matchZuulRoute(adjustedPath);
+        RequestContext.getCurrentContext().set(RoutedZuulRoute.CONTEXT_KEY,
+            (route instanceof RoutedZuulRoute) ? route : null);
+        return route;
+    }
+
+    private ZuulProperties.ZuulRoute matchZuulRoute(String adjustedPath) {
+        if (matchesIgnoredPatterns(adjustedPath)) {
+            return null;
+        }
+
+        Map<String, ZuulProperties.ZuulRoute> routesMap = getRoutesMap();
+        if (routesMap == null) {
+            return null;
+        }
+
+        CompiledRoutes compiled = compiledRoutes;
+        if ((compiled == null) || (compiled.getSource() != routesMap)) {
+            compiled = new CompiledRoutes(routesMap, RouteTrie.compile(routesMap));
+            compiledRoutes = compiled;
+        }
+
+        return compiled.getRouteTrie().match(adjustedPath);
+    }
+
+    /**
+     * Rebuild the route table only if the route-relevant metadata of any service changed, a service was added or
+     * a service was removed, or the configuration of Zuul changed since the last build.
+     */
+    @Override
+    public synchronized void refresh() {
+        if ((this.discovery != null) && !isChanged()) {
+            return;
+        }
+
+        doRefresh();
+    }
+
+    private boolean isChanged() {
+        if (!propertiesFingerprint().equals(propertiesFingerprint)) {
+            return true;
+        }
+
+        List<String> services = this.discovery.getServices();
+        if (services.size() != serviceRoutesCache.size()) {
+            return true;
+        }
+
+        for (String serviceId : services) {
+            ServiceRoutes cached = serviceRoutesCache.get(serviceId);
+            if ((cached == null) || !cached.getFingerprint().equals(fingerprint(this.discovery.getInstances(serviceId)))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    protected synchronized LinkedHashMap<String, ZuulProperties.ZuulRoute> locateRoutes() {
+        long start = System.nanoTime();
+        String currentPropertiesFingerprint = propertiesFingerprint();
+        LinkedHashMap<String, ZuulProperties.ZuulRoute> values = buildRoutes();
+        rebuildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (values != null) {
+            propertiesFingerprint = currentPropertiesFingerprint;
+            routesVersion.incrementAndGet();
+        }
+        return values;
+    }
+
+    /**
+     * Compute the fingerprint of the configuration of Zuul used to build the route table. The configuration could be
+     * changed at runtime (refresh of environment), {@link ZuulProperties.ZuulRoute} prints all its fields.
+     *
+     * @return the fingerprint, two equal fingerprints lead to the same routes
+     */
+    private String propertiesFingerprint() {
+        return this.properties.getPrefix() + '|' + this.properties.getIgnoredServices() + '|'
+            + this.properties.getIgnoredPatterns() + '|' + this.properties.getRoutes();
+    }
+
     /**
      * Suppressing warnings instead of resolving them to match the original class
      * DiscoveryClientRouteLocator as much as possible
      */
-    @Override
     @SuppressWarnings({"squid:MethodCyclomaticComplexity", "squid:S1075", "squid:S3776"})
-    protected LinkedHashMap<String, ZuulProperties.ZuulRoute> locateRoutes() {
+    private LinkedHashMap<String, ZuulProperties.ZuulRoute> buildRoutes() {
         LinkedHashMap<String, ZuulProperties.ZuulRoute> routesMap = new LinkedHashMap<>(super.locateRoutes());
         if (this.discovery != null) {
             Map<String, ZuulProperties.ZuulRoute> staticServices = new LinkedHashMap<>();
@@ -71,6 +197,7 @@ class ApimlRouteLocator extends DiscoveryClientRouteLocator {
             String[] ignored = this.properties.getIgnoredServices()
                 .toArray(new String[0]);
             Set<String> removedRoutes = new HashSet<>();
+            serviceRoutesCache.keySet().retainAll(services);
             for (String serviceId : services) {
                 // Ignore specifically ignored services and those that were manually
                 // configured
@@ -80,15 +207,7 @@ class ApimlRouteLocator extends DiscoveryClientRouteLocator {
                     return null;
                 }
 
-                RoutedServices routedServices = new RoutedServices();
-                List<String> keys = createRouteKeys(serviceInstances, routedServices, serviceId);
-                if (keys.isEmpty()) {
-                    keys.add("/" + mapRouteToService(serviceId) + "/**");
-                }
-
-                for (RoutedServicesUser routedServicesUser : routedServicesUsers) {
-                    routedServicesUser.addRoutedServices(serviceId, routedServices);
-                }
+                Map<String, ZuulProperties.ZuulRoute> serviceRoutes = getServiceRoutes(serviceId, serviceInstances).getRoutes();
 
                 if (staticServices.containsKey(serviceId)
                     && staticServices.get(serviceId).getUrl() == null) {
@@ -99,11 +218,12 @@ class ApimlRouteLocator extends DiscoveryClientRouteLocator {
                     removedRoutes.add(staticRoute.getPath());
                 }
 
-                for (String key : keys) {
+                for (Map.Entry<String, ZuulProperties.ZuulRoute> serviceRoute : serviceRoutes.entrySet()) {
+                    String key = serviceRoute.getKey();
                     if (!PatternMatchUtils.simpleMatch(ignored, serviceId)
                         && !routesMap.containsKey(key) && !removedRoutes.contains(key)) {
                         // Not ignored
-                        routesMap.put(key, new ZuulProperties.ZuulRoute(key, serviceId));
+                        routesMap.put(key, serviceRoute.getValue());
                     }
                 }
             }
@@ -129,28 +249,105 @@ class ApimlRouteLocator extends DiscoveryClientRouteLocator {
     }
 
     /**
-     * Parse route keys from the metadata and populate service routes
+     * Return routes of the service. The routes are parsed again (and propagated to all {@link RoutedServicesUser}s)
+     * only if the route-relevant metadata of the service changed since the last build.
+     *
+     * @param serviceId        the service id
+     * @param serviceInstances the list of service instances
+     * @return the routes of service
+     */
+    private ServiceRoutes getServiceRoutes(String serviceId, List<ServiceInstance> serviceInstances) {
+        String fingerprint = fingerprint(serviceInstances);
+        ServiceRoutes cached = serviceRoutesCache.get(serviceId);
+        if ((cached != null) && cached.getFingerprint().equals(fingerprint)) {
+            return cached;
+        }
+
+        RoutedServices routedServices = new RoutedServices();
+        Map<String, ZuulProperties.ZuulRoute> routes = createRoutes(serviceInstances, routedServices, serviceId);
+        if (routes.isEmpty()) {
+            String key = "/" + mapRouteToService(serviceId) + "/**";
+            routes.put(key, new ZuulProperties.ZuulRoute(key, serviceId));
+        }
+
+        for (RoutedServicesUser routedServicesUser : routedServicesUsers) {
+            routedServicesUser.addRoutedServices(serviceId, routedServices);
+        }
+
+        ServiceRoutes serviceRoutes = new ServiceRoutes(fingerprint, Collections.unmodifiableMap(routes));
+        serviceRoutesCache.put(serviceId, serviceRoutes);
+        rebuiltServicesCounter.increment();
+        return serviceRoutes;
+    }
+
+    /**
+     * Compute the fingerprint of route-relevant metadata of all instances. Eureka shuffles the instances on each
+     * fetch, so the fingerprint does not depend on their order.
+     *
+     * @param serviceInstances the list of service instances
+     * @return the fingerprint, two equal fingerprints lead to the same routes
+     */
+    private String fingerprint(List<ServiceInstance> serviceInstances) {
+        if (serviceInstances == null) {
+            return "";
+        }
+
+        List<String> instanceRoutes = new ArrayList<>(serviceInstances.size());
+        for (ServiceInstance serviceInstance : serviceInstances) {
+            Map<String, String> routes = new TreeMap<>();
+            serviceInstance.getMetadata().forEach((key, value) -> {
+                if (key.startsWith(ROUTES)) {
+                    routes.put(key, value);
+                }
+            });
+            instanceRoutes.add(routes.toString());
+        }
+        Collections.sort(instanceRoutes);
+        return String.join("|", instanceRoutes);
+    }
+
+    /**
+     * Parse routes from the metadata and populate service routes. If more instances define the same gateway URL,
+     * the last one wins as in {@link RoutedServices}.
      *
      * @param serviceInstance the list of service instances
      * @param routes          the service routes
      * @param serviceId       the service id
-     * @return the list of route keys
+     * @return the routes by the route key
      */
     @SuppressWarnings("squid:S3776") // Suppress complexity warning
-    private List<String> createRouteKeys(List<ServiceInstance> serviceInstance,
-                                         RoutedServices routes,
-                                         String serviceId) {
-        List<String> keys = new ArrayList<>();
+    private Map<String, ZuulProperties.ZuulRoute> createRoutes(List<ServiceInstance> serviceInstance,
+                                                               RoutedServices routes,
+                                                               String serviceId) {
+        Map<String, ZuulProperties.ZuulRoute> out = new LinkedHashMap<>();
         serviceInstance.stream()
             .map(ServiceInstance::getMetadata)
             .flatMap(
                 metadata -> eurekaMetadataParser.parseToListRoute(metadata).stream()
             )
             .forEach(routedService -> {
-                keys.add("/" + routedService.getGatewayUrl() + "/" + mapRouteToService(serviceId) + "/**");
+                String key = "/" + routedService.getGatewayUrl() + "/" + mapRouteToService(serviceId) + "/**";
+                out.put(key, new RoutedZuulRoute(key, serviceId, routedService));
                 routes.addRoutedService(routedService);
             });
 
-        return keys;
+        return out;
     }
+
+    @Value
+    private static class CompiledRoutes {
+
+        private final Map<String, ZuulProperties.ZuulRoute> source;
+        private final RouteTrie<ZuulProperties.ZuulRoute> routeTrie;
+
+    }
+
+    @Value
+    private static class ServiceRoutes {
+
+        private final String fingerprint;
+        private final Map<String, ZuulProperties.ZuulRoute> routes;
+
+    }
+
 }
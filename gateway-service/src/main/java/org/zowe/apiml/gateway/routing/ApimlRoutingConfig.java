@@ -9,6 +9,7 @@
  */
 package org.zowe.apiml.gateway.routing;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
@@ -78,13 +79,13 @@ public class ApimlRoutingConfig {
                                                                    ZuulProperties zuulProperties,
                                                                    ServiceRouteMapper serviceRouteMapper,
                                                                    WebSocketProxyServerHandler webSocketProxyServerHandler,
-                                                                   PageRedirectionFilter pageRedirectionFilter) {
+                                                                   PageRedirectionFilter pageRedirectionFilter,
+                                                                   MeterRegistry meterRegistry) {
         List<RoutedServicesUser> routedServicesUsers = new ArrayList<>();
-        routedServicesUsers.add(locationFilter());
         routedServicesUsers.add(webSocketProxyServerHandler);
         routedServicesUsers.add(pageRedirectionFilter);
         zuulProperties.setDecodeUrl(false);
 
-        return new ApimlRouteLocator("", discovery, zuulProperties, serviceRouteMapper, routedServicesUsers);
+        return new ApimlRouteLocator("", discovery, zuulProperties, serviceRouteMapper, routedServicesUsers, meterRegistry);
     }
 }
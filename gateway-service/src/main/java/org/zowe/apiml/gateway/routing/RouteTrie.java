@@ -0,0 +1,249 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.routing;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, compiled form of a route table. It gives the same result as matching of the patterns with
+ * {@link AntPathMatcher} in the order of the table (the first matching pattern wins), but patterns in the form
+ * {@code /literal/segments/**} (all routes created from the Eureka metadata) are stored in a path trie. The lookup
+ * then walks the segments of the path once and does not allocate any objects.
+ * <p>
+ * Other patterns are kept in a list and are matched by {@link AntPathMatcher}, but only those, which are in the
+ * table before the best literal candidate.
+ *
+ * @param <T> type of value stored for each pattern
+ */
+final class RouteTrie<T> {
+
+    private static final String WILDCARD_SUFFIX = "/**";
+
+    private final Node<T> root;
+    private final List<Pattern<T>> patterns;
+    private final PathMatcher pathMatcher;
+
+    private RouteTrie(Node<T> root, List<Pattern<T>> patterns, PathMatcher pathMatcher) {
+        this.root = root;
+        this.patterns = patterns;
+        this.pathMatcher = pathMatcher;
+    }
+
+    /**
+     * Compile the route table
+     *
+     * @param routes the route table, key is a pattern, the order defines priority
+     * @param <T>    type of values
+     * @return compiled route table
+     */
+    static <T> RouteTrie<T> compile(Map<String, T> routes) {
+        return compile(routes, new AntPathMatcher());
+    }
+
+    static <T> RouteTrie<T> compile(Map<String, T> routes, PathMatcher pathMatcher) {
+        MutableNode<T> root = new MutableNode<>();
+        List<Pattern<T>> patterns = new ArrayList<>();
+
+        int order = 0;
+        for (Map.Entry<String, T> entry : routes.entrySet()) {
+            String pattern = entry.getKey();
+            if (isLiteralPrefix(pattern)) {
+                MutableNode<T> node = root;
+                for (String segment : pattern.substring(0, pattern.length() - WILDCARD_SUFFIX.length()).split("/")) {
+                    if (!segment.isEmpty()) {
+                        node = node.children.computeIfAbsent(segment, k -> new MutableNode<>());
+                    }
+                }
+                if (node.value == null) {
+                    node.value = entry.getValue();
+                    node.order = order;
+                }
+            } else {
+                patterns.add(new Pattern<>(pattern, entry.getValue(), order));
+            }
+            order++;
+        }
+
+        return new RouteTrie<>(root.compile(), patterns, pathMatcher);
+    }
+
+    private static boolean isLiteralPrefix(String pattern) {
+        if (!pattern.startsWith("/") || !pattern.endsWith(WILDCARD_SUFFIX)) {
+            return false;
+        }
+
+        for (int i = 0; i < pattern.length() - WILDCARD_SUFFIX.length(); i++) {
+            char c = pattern.charAt(i);
+            if ((c == '*') || (c == '?') || (c == '{')) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Find the value of the first pattern in the route table matching the path
+     *
+     * @param path path to match
+     * @return value of matching pattern, or null if no pattern matches
+     */
+    T match(String path) {
+        if ((path == null) || !path.startsWith("/")) {
+            return matchPatterns(path, Integer.MAX_VALUE);
+        }
+
+        Node<T> node = root;
+        T best = node.value;
+        int bestOrder = (best == null) ? Integer.MAX_VALUE : node.order;
+
+        int length = path.length();
+        int start = 0;
+        while ((node != null) && (start < length)) {
+            // skip the separators, AntPathMatcher ignores empty segments
+            while ((start < length) && (path.charAt(start) == '/')) {
+                start++;
+            }
+            if (start == length) {
+                break;
+            }
+
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            node = node.child(path, start, end);
+            if ((node != null) && (node.value != null) && (node.order < bestOrder)) {
+                best = node.value;
+                bestOrder = node.order;
+            }
+            start = end;
+        }
+
+        T pattern = matchPatterns(path, bestOrder);
+        return (pattern != null) ? pattern : best;
+    }
+
+    private T matchPatterns(String path, int beforeOrder) {
+        if (path == null) {
+            return null;
+        }
+
+        for (Pattern<T> pattern : patterns) {
+            if (pattern.order >= beforeOrder) {
+                break;
+            }
+            if (pathMatcher.match(pattern.pattern, path)) {
+                return pattern.value;
+            }
+        }
+        return null;
+    }
+
+    private static class Pattern<T> {
+
+        private final String pattern;
+        private final T value;
+        private final int order;
+
+        private Pattern(String pattern, T value, int order) {
+            this.pattern = pattern;
+            this.value = value;
+            this.order = order;
+        }
+
+    }
+
+    private static class MutableNode<T> {
+
+        private final Map<String, MutableNode<T>> children = new LinkedHashMap<>();
+        private T value;
+        private int order = Integer.MAX_VALUE;
+
+        private Node<T> compile() {
+            String[] keys = new String[tableSize(children.size())];
+            @SuppressWarnings("unchecked")
+            Node<T>[] nodes = new Node[keys.length];
+
+            int mask = keys.length - 1;
+            for (Map.Entry<String, MutableNode<T>> entry : children.entrySet()) {
+                String key = entry.getKey();
+                int index = hash(key, 0, key.length()) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                nodes[index] = entry.getValue().compile();
+            }
+
+            return new Node<>(keys, nodes, value, order);
+        }
+
+        private static int tableSize(int entries) {
+            int size = 1;
+            while (size < entries * 2) {
+                size <<= 1;
+            }
+            return size;
+        }
+
+    }
+
+    /**
+     * Node of trie. Children are stored in an open addressing table, which allows to find a child by a region of
+     * the path without creating a substring.
+     */
+    private static class Node<T> {
+
+        private final String[] keys;
+        private final Node<T>[] nodes;
+        private final int mask;
+        private final T value;
+        private final int order;
+
+        private Node(String[] keys, Node<T>[] nodes, T value, int order) {
+            this.keys = keys;
+            this.nodes = nodes;
+            this.mask = keys.length - 1;
+            this.value = value;
+            this.order = order;
+        }
+
+        private Node<T> child(String path, int start, int end) {
+            int length = end - start;
+            int index = hash(path, start, end) & mask;
+            String key;
+            while ((key = keys[index]) != null) {
+                if ((key.length() == length) && path.regionMatches(start, key, 0, length)) {
+                    return nodes[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+    }
+
+    private static int hash(String text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+}
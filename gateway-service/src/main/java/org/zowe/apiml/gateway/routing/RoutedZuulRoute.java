@@ -0,0 +1,46 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.routing;
+
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.zowe.apiml.product.routing.RoutedService;
+
+/**
+ * Route created from the Eureka metadata. It is a leaf of {@link RouteTrie}, so the match of the request path returns
+ * together with the serviceId also the routed service and the URL on the service, which replaces the gateway prefix.
+ * <p>
+ * The matched route is stored in the {@link com.netflix.zuul.context.RequestContext} under {@link #CONTEXT_KEY} and
+ * used by {@link org.zowe.apiml.gateway.filters.pre.LocationFilter} to rewrite the request URI without any other lookup.
+ */
+public class RoutedZuulRoute extends ZuulProperties.ZuulRoute {
+
+    public static final String CONTEXT_KEY = "apimlRoutedZuulRoute";
+
+    private final RoutedService routedService;
+    private final String serviceUrl;
+
+    public RoutedZuulRoute(String path, String serviceId, RoutedService routedService) {
+        super(path, serviceId);
+        this.routedService = routedService;
+        this.serviceUrl = (routedService.getServiceUrl() == null) ? "" : routedService.getServiceUrl();
+    }
+
+    public RoutedService getRoutedService() {
+        return routedService;
+    }
+
+    /**
+     * @return URL on the service to replace the gateway prefix, empty string if the route does not define it
+     */
+    public String getServiceUrl() {
+        return serviceUrl;
+    }
+
+}
@@ -0,0 +1,23 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.routing;
+
+/**
+ * Route locator which keeps track of changes in its route table. The version is increased each time the table is
+ * replaced, so callers can find out cheaply whether anything depending on the routes has to be recomputed.
+ */
+public interface VersionedRouteLocator {
+
+    /**
+     * @return the current version of the route table, it is increased with every change of the table
+     */
+    long getRoutesVersion();
+
+}
@@ -30,9 +30,11 @@ import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.zowe.apiml.gateway.security.query.QueryFilter;
 import org.zowe.apiml.gateway.security.query.SuccessfulQueryHandler;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
+import org.zowe.apiml.gateway.security.service.TokenInvalidationDistributor;
 import org.zowe.apiml.gateway.security.ticket.SuccessfulTicketHandler;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.security.common.config.HandlerInitializer;
+import org.zowe.apiml.security.common.content.BasicAuthenticationCache;
 import org.zowe.apiml.security.common.content.BasicContentFilter;
 import org.zowe.apiml.security.common.content.CookieContentFilter;
 import org.zowe.apiml.security.common.login.LoginFilter;
@@ -87,10 +89,11 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
             .authorizeRequests()
             .antMatchers(HttpMethod.POST, authConfigurationProperties.getGatewayLoginEndpoint()).permitAll()
 
-            // ticket endpoint
+            // ticket endpoint and invalidation of tokens by other instances of gateway, by client certificate
             .and()
             .authorizeRequests()
             .antMatchers(HttpMethod.POST, authConfigurationProperties.getGatewayTicketEndpoint()).authenticated()
+            .antMatchers(HttpMethod.POST, TokenInvalidationDistributor.BULK_INVALIDATE_PATH, TokenInvalidationDistributor.REVOKED_PATH).authenticated()
             .and()
             .x509().userDetailsService(x509UserDetailsService())
 
@@ -166,7 +169,11 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
             authenticationManager(),
             handlerInitializer.getAuthenticationFailureHandler(),
             handlerInitializer.getResourceAccessExceptionHandler(),
-            PROTECTED_ENDPOINTS);
+            PROTECTED_ENDPOINTS,
+            new BasicAuthenticationCache(
+                authConfigurationProperties.getBasicAuthCache().getTtlSeconds(),
+                authConfigurationProperties.getBasicAuthCache().getMaxSize()
+            ));
     }
 
     /**
@@ -15,10 +15,15 @@ import com.netflix.discovery.shared.Application;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.StringUtils;
+import net.sf.ehcache.Ehcache;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
@@ -29,7 +34,6 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.constants.ApimlConstants;
 import org.zowe.apiml.product.constants.CoreService;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
@@ -37,12 +41,11 @@ import org.zowe.apiml.security.common.token.QueryResponse;
 import org.zowe.apiml.security.common.token.TokenAuthentication;
 import org.zowe.apiml.security.common.token.TokenExpireException;
 import org.zowe.apiml.security.common.token.TokenNotValidException;
-import org.zowe.apiml.util.CacheUtils;
-import org.zowe.apiml.util.EurekaUtils;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
+import java.security.Key;
 import java.util.*;
 
 import static org.zowe.apiml.gateway.security.service.ZosmfService.TokenType.JWT;
@@ -61,7 +64,6 @@ public class AuthenticationService {
     private static final String LTPA_CLAIM_NAME = "ltpa";
     private static final String DOMAIN_CLAIM_NAME = "dom";
     private static final String CACHE_VALIDATION_JWT_TOKEN = "validationJwtToken";
-    private static final String CACHE_INVALIDATED_JWT_TOKENS = "invalidatedJwtTokens";
 
     private static final String TOKEN_IS_NOT_VALID_DUE_TO = "Token is not valid due to: {}.";
 
@@ -70,9 +72,20 @@ public class AuthenticationService {
     private final JwtSecurityInitializer jwtSecurityInitializer;
     private final ZosmfService zosmfService;
     private final EurekaClient discoveryClient;
-    private final RestTemplate restTemplate;
+    private final TokenInvalidationDistributor tokenInvalidationDistributor;
+    private final RevokedTokenStore revokedTokenStore;
+    private final ParsedTokenCache parsedTokenCache;
+    private final ZosmfValidationCoalescer zosmfValidationCoalescer;
     private final CacheManager cacheManager;
 
+    // parser is thread-safe once configured, the key is resolved by the header of each token
+    private final JwtParser jwtParser = Jwts.parser().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            return getVerificationKey(header.getKeyId());
+        }
+    });
+
     // to force calling inside methods with aspects - ie. ehCache aspect
     private AuthenticationService meAsProxy;
 
@@ -95,6 +108,7 @@ public class AuthenticationService {
         long expiration = calculateExpiration(now, username);
 
         return Jwts.builder()
+            .setHeaderParam(JwsHeader.KEY_ID, jwtSecurityInitializer.getKeyId())
             .setSubject(username)
             .claim(DOMAIN_CLAIM_NAME, domain)
             .claim(LTPA_CLAIM_NAME, ltpaToken)
@@ -116,30 +130,21 @@ public class AuthenticationService {
      * @return state of invalidate (true - token was invalidated)
      */
     @CacheEvict(value = CACHE_VALIDATION_JWT_TOKEN, key = "#jwtToken")
-    @Cacheable(value = CACHE_INVALIDATED_JWT_TOKENS, key = "#jwtToken", condition = "#jwtToken != null")
     public Boolean invalidateJwtToken(String jwtToken, boolean distribute) {
+        // already invalidated (ie. repeated notification from another instance)
+        if (revokedTokenStore.isRevoked(jwtToken)) return Boolean.TRUE;
+
         /*
-         * until ehCache is not distributed, send to other instances invalidation request
+         * until ehCache is not distributed, send to other instances invalidation request (asynchronously in batches)
          */
-        if (distribute) {
-            final Application application = discoveryClient.getApplication(CoreService.GATEWAY.getServiceId());
-            // wrong state, gateway have to exists (at least this current instance), return false like unsuccessful
-            if (application == null) return Boolean.FALSE;
-
-            final String myInstanceId = discoveryClient.getApplicationInfoManager().getInfo().getInstanceId();
-            for (final InstanceInfo instanceInfo : application.getInstances()) {
-                if (StringUtils.equals(myInstanceId, instanceInfo.getInstanceId())) continue;
-
-                final String url = EurekaUtils.getUrl(instanceInfo) + "/auth/invalidate/{}";
-                restTemplate.delete(url, jwtToken);
-            }
-        }
+        // wrong state, gateway have to exists (at least this current instance), return false like unsuccessful
+        if (distribute && !tokenInvalidationDistributor.invalidate(jwtToken)) return Boolean.FALSE;
 
         // invalidate token in z/OSMF
-        final QueryResponse queryResponse = parseJwtToken(jwtToken);
-        switch (queryResponse.getSource()) {
+        final ParsedTokenCache.ParsedToken parsedToken = getParsedToken(jwtToken);
+        switch (parsedToken.getSource()) {
             case ZOWE:
-                final String ltpaToken = getLtpaToken(jwtToken);
+                final String ltpaToken = parsedToken.getLtpaToken();
                 if (ltpaToken != null) zosmfService.invalidate(LTPA, ltpaToken);
                 break;
             case ZOSMF:
@@ -149,6 +154,7 @@ public class AuthenticationService {
                 throw new TokenNotValidException("Unknown token type.");
         }
 
+        revokedTokenStore.revoke(jwtToken, (parsedToken.getExpiration() == null) ? null : new Date(parsedToken.getExpiration()));
         return Boolean.TRUE;
     }
 
@@ -158,9 +164,35 @@ public class AuthenticationService {
      * @param jwtToken token to check
      * @return true - token is invalidated, otherwise token is still valid
      */
-    @Cacheable(value = CACHE_INVALIDATED_JWT_TOKENS, unless = "true", key = "#jwtToken", condition = "#jwtToken != null")
     public Boolean isInvalidated(String jwtToken) {
-        return Boolean.FALSE;
+        return revokedTokenStore.isRevoked(jwtToken);
+    }
+
+    /**
+     * Stores invalidated tokens received from another instance of gateway (see {@link #distributeInvalidate(String)}).
+     * The expiration of entries is limited by the lifetime of tokens. Only hashes of tokens are known, so the cached
+     * validations are evicted by comparing hashes of their keys.
+     *
+     * @param entries exported entries of {@link RevokedTokenStore}
+     */
+    public void addInvalidated(Collection<String> entries) {
+        final long maxExpiration = System.currentTimeMillis()
+            + authConfigurationProperties.getTokenProperties().getExpirationInSeconds() * 1000L;
+        final Set<RevokedTokenStore.TokenHash> imported = revokedTokenStore.importEntries(entries, maxExpiration);
+        if (imported.isEmpty()) return;
+
+        final Cache cache = cacheManager.getCache(CACHE_VALIDATION_JWT_TOKEN);
+        if (cache == null) return;
+        if (!(cache.getNativeCache() instanceof Ehcache)) {
+            cache.clear();
+            return;
+        }
+
+        for (final Object key : ((Ehcache) cache.getNativeCache()).getKeys()) {
+            if ((key instanceof String) && imported.contains(RevokedTokenStore.TokenHash.of((String) key))) {
+                cache.evict(key);
+            }
+        }
     }
 
     /**
@@ -184,10 +216,23 @@ public class AuthenticationService {
         return new TokenNotValidException("An internal error occurred while validating the token therefor the token is no longer valid.");
     }
 
+    /**
+     * Tokens without id of key or with id of the current key are verified by the current key, the other ones by the
+     * previous keys (see rotation of keys in {@link JwtSecurityInitializer}).
+     */
+    private Key getVerificationKey(String keyId) {
+        if ((keyId == null) || keyId.equals(jwtSecurityInitializer.getKeyId())) {
+            return jwtSecurityInitializer.getJwtPublicKey();
+        }
+
+        final Key key = jwtSecurityInitializer.getJwtPublicKey(keyId);
+        if (key == null) throw new SignatureException("Unknown key id '" + keyId + "'");
+        return key;
+    }
+
     private Claims validateAndParseLocalJwtToken(String jwtToken) {
         try {
-            return Jwts.parser()
-                .setSigningKey(jwtSecurityInitializer.getJwtPublicKey())
+            return jwtParser
                 .parseClaimsJws(jwtToken)
                 .getBody();
         } catch (RuntimeException exception) {
@@ -219,7 +264,7 @@ public class AuthenticationService {
                 validateAndParseLocalJwtToken(jwtToken);
                 break;
             case ZOSMF:
-                zosmfService.validate(JWT, jwtToken);
+                zosmfValidationCoalescer.validate(JWT, jwtToken, zosmfService::validate);
                 break;
             default:
                 throw new TokenNotValidException("Unknown token type.");
@@ -251,12 +296,12 @@ public class AuthenticationService {
     }
 
     /**
-     * This method get all invalidated JWT token in the cache and distributes them to instance of Gateway with name
-     * in argument toInstanceId. If instance cannot be find it return false. A notification can throw an runtime
-     * exception. In all other cases all invalidated token are distributed and method returns true.
+     * This method get all invalidated JWT token in the store and distributes them to instance of Gateway with name
+     * in argument toInstanceId. If instance cannot be find it return false. In all other cases all invalidated tokens
+     * are queued to be sent as one payload (see {@link TokenInvalidationDistributor}) and method returns true.
      *
      * @param toInstanceId instanceId of Gateway where invalidated JWT token should be sent
-     * @return true if all token were sent, otherwise false
+     * @return true if all token were queued, otherwise false
      */
     public boolean distributeInvalidate(String toInstanceId) {
         final Application application = discoveryClient.getApplication(CoreService.GATEWAY.getServiceId());
@@ -265,12 +310,7 @@ public class AuthenticationService {
         final InstanceInfo instanceInfo = application.getByInstanceId(toInstanceId);
         if (instanceInfo == null) return false;
 
-        final String url = EurekaUtils.getUrl(instanceInfo) + "/auth/invalidate/{}";
-
-        final Collection<String> invalidated = CacheUtils.getAllRecords(cacheManager, CACHE_INVALIDATED_JWT_TOKENS);
-        for (final String invalidatedToken : invalidated) {
-            restTemplate.delete(url, invalidatedToken);
-        }
+        tokenInvalidationDistributor.distribute(instanceInfo, revokedTokenStore.export());
 
         return true;
     }
@@ -313,6 +353,23 @@ public class AuthenticationService {
      * @return the query response
      */
     public QueryResponse parseJwtToken(String jwtToken) {
+        return getParsedToken(jwtToken).toQueryResponse();
+    }
+
+    /**
+     * Returns claims of the JWT token used by the gateway. The token is parsed only once until it expires, next calls
+     * are answered from {@link ParsedTokenCache}.
+     *
+     * @param jwtToken the JWT token
+     * @return parsed claims of token
+     * @throws TokenNotValidException if the JWT token is not valid
+     * @throws TokenExpireException if the JWT token is expired
+     */
+    public ParsedTokenCache.ParsedToken getParsedToken(String jwtToken) {
+        return parsedTokenCache.get(jwtToken, this::parseClaims);
+    }
+
+    private ParsedTokenCache.ParsedToken parseClaims(String jwtToken) {
         /*
          * Removes signature, because of z/OSMF we don't have key to verify certificate and
          * we just need to read claim. Verification is realized via REST call to z/OSMF.
@@ -320,17 +377,18 @@ public class AuthenticationService {
          */
         final String withoutSign = removeSign(jwtToken);
 
-        // parse to claims and construct QueryResponse
+        // parse to claims and construct ParsedToken
         try {
-            Claims claims = Jwts.parser()
+            final Claims claims = Jwts.parser()
                 .parseClaimsJwt(withoutSign)
                 .getBody();
-            return new QueryResponse(
+            return new ParsedTokenCache.ParsedToken(
                 claims.get(DOMAIN_CLAIM_NAME, String.class),
                 claims.getSubject(),
-                claims.getIssuedAt(),
-                claims.getExpiration(),
-                QueryResponse.Source.valueByIssuer(claims.getIssuer())
+                (claims.getIssuedAt() == null) ? null : claims.getIssuedAt().getTime(),
+                (claims.getExpiration() == null) ? null : claims.getExpiration().getTime(),
+                QueryResponse.Source.valueByIssuer(claims.getIssuer()),
+                claims.get(LTPA_CLAIM_NAME, String.class)
             );
         } catch (RuntimeException exception) {
             throw handleJwtParserException(exception);
@@ -379,18 +437,7 @@ public class AuthenticationService {
      * @throws TokenNotValidException if the JWT token is not valid
      */
     public String getLtpaToken(String jwtToken) {
-        // remove sign to avoid validation of sign
-        final String withoutSign = removeSign(jwtToken);
-
-        // parse to claims and construct QueryResponse
-        try {
-            return Jwts.parser()
-                .parseClaimsJwt(withoutSign)
-                .getBody()
-                .get(LTPA_CLAIM_NAME, String.class);
-        } catch (RuntimeException exception) {
-            throw handleJwtParserException(exception);
-        }
+        return getParsedToken(jwtToken).getLtpaToken();
     }
 
     /**
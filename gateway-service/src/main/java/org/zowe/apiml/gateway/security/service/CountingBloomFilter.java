@@ -0,0 +1,87 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting Bloom filter with 4-bit counters (16 counters in one long) which supports removing. Items are identified by
+ * two independent 64-bit hashes, positions are computed by double hashing. A saturated counter is never decremented
+ * (standard approach), so it could cause only a false positive, never a false negative.
+ *
+ * The filter is lock-free, counters are updated by CAS.
+ */
+class CountingBloomFilter {
+
+    static final int HASH_FUNCTIONS = 4;
+    static final int COUNTERS_PER_ITEM = 16;
+
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final long COUNTER_MASK = 0xFL;
+
+    private final AtomicLongArray words;
+    private final int size;
+
+    /**
+     * @param expectedItems count of items to keep the false positive rate low (~0.2 %)
+     */
+    CountingBloomFilter(int expectedItems) {
+        final long counters = Math.max(COUNTERS_PER_WORD, (long) expectedItems * COUNTERS_PER_ITEM);
+        final int wordCount = (int) Math.min(Integer.MAX_VALUE / COUNTERS_PER_WORD, (counters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+        this.words = new AtomicLongArray(wordCount);
+        this.size = wordCount * COUNTERS_PER_WORD;
+    }
+
+    void add(long hash1, long hash2) {
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            update(index(hash1, hash2, i), 1);
+        }
+    }
+
+    void remove(long hash1, long hash2) {
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            update(index(hash1, hash2, i), -1);
+        }
+    }
+
+    boolean mightContain(long hash1, long hash2) {
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            final int index = index(hash1, hash2, i);
+            if (counter(words.get(index / COUNTERS_PER_WORD), index) == 0) return false;
+        }
+        return true;
+    }
+
+    private int index(long hash1, long hash2, int i) {
+        return (int) Math.floorMod(hash1 + i * hash2, (long) size);
+    }
+
+    private static long counter(long word, int index) {
+        return (word >>> shift(index)) & COUNTER_MASK;
+    }
+
+    private static int shift(int index) {
+        return (index % COUNTERS_PER_WORD) * 4;
+    }
+
+    private void update(int index, int delta) {
+        final int wordIndex = index / COUNTERS_PER_WORD;
+        while (true) {
+            final long word = words.get(wordIndex);
+            final long counter = counter(word, index);
+            // saturated counter stays, decrement of zero means the item was not added
+            if ((counter == COUNTER_MASK) || ((delta < 0) && (counter == 0))) return;
+
+            final long updated = word + ((long) delta << shift(index));
+            if (words.compareAndSet(wordIndex, word, updated)) return;
+        }
+    }
+
+}
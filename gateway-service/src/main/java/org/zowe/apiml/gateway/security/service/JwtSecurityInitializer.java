@@ -7,7 +7,6 @@
  *
  * Copyright Contributors to the Zowe Project.
  */
-
 package org.zowe.apiml.gateway.security.service;
 
 import org.zowe.apiml.message.log.ApimlLogger;
@@ -16,14 +15,30 @@ import org.zowe.apiml.security.HttpsConfig;
 import org.zowe.apiml.security.HttpsConfigError;
 import org.zowe.apiml.security.SecurityUtils;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
-
-
+import java.security.interfaces.ECKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads the key pair to sign JWT tokens. The signature algorithm is derived from the key (RS256 for RSA, ES256, ES384
+ * or ES512 for EC by the size of curve) or it is set by apiml.security.auth.jwtSignatureAlgorithm.
+ *
+ * Each key has an id (a hash of the public key), which is set in the header of created tokens. Public keys of the
+ * aliases in apiml.security.auth.jwtVerificationKeyAliases are accepted too, so tokens signed by the previous key stay
+ * valid during a rotation of keys.
+ */
 @Service
 public class JwtSecurityInitializer {
 
@@ -42,18 +57,24 @@ public class JwtSecurityInitializer {
     @Value("${apiml.security.auth.jwtKeyAlias:jwtsecret}")
     private String keyAlias;
 
+    @Value("${apiml.security.auth.jwtSignatureAlgorithm:#{null}}")
+    private String signatureAlgorithmName;
+
+    @Value("${apiml.security.auth.jwtVerificationKeyAliases:}")
+    private String[] verificationKeyAliases = new String[0];
+
     private SignatureAlgorithm signatureAlgorithm;
     private Key jwtSecret;
     private PublicKey jwtPublicKey;
+    private String keyId;
+    private Map<String, PublicKey> verificationKeys = Collections.emptyMap();
 
     @InjectApimlLogger
     private ApimlLogger apimlLog = ApimlLogger.empty();
 
     @PostConstruct
     public void init() {
-        signatureAlgorithm = SignatureAlgorithm.RS256;
-        HttpsConfig config = HttpsConfig.builder().keyAlias(keyAlias).keyStore(keyStore).keyPassword(keyPassword)
-            .keyStorePassword(keyStorePassword).keyStoreType(keyStoreType).build();
+        HttpsConfig config = createConfig(keyAlias);
         try {
             jwtSecret = SecurityUtils.loadKey(config);
             jwtPublicKey = SecurityUtils.loadPublicKey(config);
@@ -65,6 +86,77 @@ public class JwtSecurityInitializer {
             apimlLog.log("org.zowe.apiml.gateway.jwtKeyMissing", keyAlias, keyStore);
             throw new HttpsConfigError(errorMessage, HttpsConfigError.ErrorCode.WRONG_KEY_ALIAS, config);
         }
+
+        signatureAlgorithm = getSignatureAlgorithm(config);
+        keyId = getKeyId(jwtPublicKey);
+
+        Map<String, PublicKey> keys = new HashMap<>();
+        keys.put(keyId, jwtPublicKey);
+        for (String alias : verificationKeyAliases) {
+            if (alias.trim().isEmpty()) continue;
+
+            PublicKey publicKey = SecurityUtils.loadPublicKey(createConfig(alias.trim()));
+            if (publicKey == null) {
+                apimlLog.log("org.zowe.apiml.gateway.jwtKeyMissing", alias, keyStore);
+                continue;
+            }
+            keys.put(getKeyId(publicKey), publicKey);
+        }
+        verificationKeys = Collections.unmodifiableMap(keys);
+    }
+
+    private HttpsConfig createConfig(String alias) {
+        return HttpsConfig.builder().keyAlias(alias).keyStore(keyStore).keyPassword(keyPassword)
+            .keyStorePassword(keyStorePassword).keyStoreType(keyStoreType).build();
+    }
+
+    private SignatureAlgorithm getSignatureAlgorithm(HttpsConfig config) {
+        final String keyAlgorithm = jwtPublicKey.getAlgorithm();
+        SignatureAlgorithm algorithm = null;
+        try {
+            if (signatureAlgorithmName != null) {
+                algorithm = SignatureAlgorithm.forName(signatureAlgorithmName);
+            } else if ("EC".equals(keyAlgorithm)) {
+                algorithm = getEcAlgorithm(((ECKey) jwtPublicKey).getParams().getCurve().getField().getFieldSize());
+            } else {
+                algorithm = SignatureAlgorithm.RS256;
+            }
+        } catch (SignatureException e) {
+            // unknown name of algorithm, ie. EdDSA is not supported by the JWT library
+        }
+
+        final boolean matches = (algorithm != null) && (
+            ("RSA".equals(keyAlgorithm) && algorithm.isRsa() && algorithm.name().startsWith("RS")) ||
+            ("EC".equals(keyAlgorithm) && algorithm.isEllipticCurve())
+        );
+        if (!matches) {
+            String name = (signatureAlgorithmName != null) ? signatureAlgorithmName : String.valueOf(algorithm);
+            apimlLog.log("org.zowe.apiml.gateway.jwtAlgorithmNotSupported", name, keyAlgorithm, keyAlias);
+            throw new HttpsConfigError(
+                String.format("Signature algorithm '%s' cannot be used with the %s key with alias '%s'.", name, keyAlgorithm, keyAlias),
+                HttpsConfigError.ErrorCode.WRONG_KEY_ALIAS, config
+            );
+        }
+        return algorithm;
+    }
+
+    private SignatureAlgorithm getEcAlgorithm(int fieldSize) {
+        if (fieldSize <= 256) return SignatureAlgorithm.ES256;
+        if (fieldSize <= 384) return SignatureAlgorithm.ES384;
+        return SignatureAlgorithm.ES512;
+    }
+
+    /**
+     * @param publicKey public key
+     * @return id of key, base64url of the first 128 bits of SHA-256 of the encoded key
+     */
+    static String getKeyId(PublicKey publicKey) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(publicKey.getEncoded());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
     }
 
     public SignatureAlgorithm getSignatureAlgorithm() {
@@ -78,4 +170,27 @@ public class JwtSecurityInitializer {
     public PublicKey getJwtPublicKey() {
         return jwtPublicKey;
     }
+
+    /**
+     * @return id of the key used to sign new tokens
+     */
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * @return public keys accepted to verify tokens by their ids, it contains also the current key
+     */
+    public Map<String, PublicKey> getVerificationKeys() {
+        return verificationKeys;
+    }
+
+    /**
+     * @param keyId id of key from the header of token
+     * @return public key to verify the token or null if the key is unknown
+     */
+    public PublicKey getJwtPublicKey(String keyId) {
+        return verificationKeys.get(keyId);
+    }
+
 }
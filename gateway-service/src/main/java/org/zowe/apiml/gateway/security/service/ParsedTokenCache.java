@@ -0,0 +1,145 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.cache.ExpiringCache;
+import org.zowe.apiml.security.common.token.QueryResponse;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache of parsed claims of JWT tokens. One request could need the claims several times (query, validation,
+ * the LTPA token for the service, ...), each parsing decodes base64 and JSON of the token. The cache is keyed by the
+ * hash of token (see {@link RevokedTokenStore.TokenHash}) and an entry is valid until the token expires. Tokens without
+ * expiration are not cached.
+ *
+ * The cache is bounded (see {@link ExpiringCache}), if it is full the oldest entries are removed.
+ *
+ * Counts of hits and misses and the time of parsing are exported as metrics (apiml.gateway.parsedTokenCache).
+ */
+@Component
+public class ParsedTokenCache implements MeterBinder {
+
+    static final String METRIC_PREFIX = "apiml.gateway.parsedTokenCache";
+
+    private final ExpiringCache<RevokedTokenStore.TokenHash, ParsedToken> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+
+    public ParsedTokenCache(@Value("${apiml.gateway.parsedTokenCache.maxSize:10000}") int maxSize) {
+        this.cache = new ExpiringCache<>(maxSize);
+    }
+
+    /**
+     * Return parsed token from the cache or parse it and store. The exception of parser is not cached.
+     *
+     * @param jwtToken token to parse
+     * @param parser   parser of token, called on a cache miss
+     * @return parsed token
+     */
+    public ParsedToken get(String jwtToken, Function<String, ParsedToken> parser) {
+        if (jwtToken == null) return parser.apply(null);
+
+        final long now = System.currentTimeMillis();
+        final RevokedTokenStore.TokenHash hash = RevokedTokenStore.TokenHash.of(jwtToken);
+        final ParsedToken cached = cache.get(hash, now);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        final long start = System.nanoTime();
+        final ParsedToken parsed = parser.apply(jwtToken);
+        parseNanos.add(System.nanoTime() - start);
+
+        if (!parsed.isExpired(now)) {
+            cache.put(hash, parsed, parsed.getExpiration());
+        }
+        return parsed;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", hits, LongAdder::sum)
+            .tag("result", "hit")
+            .description("Count of tokens found in the cache")
+            .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .description("Count of tokens parsed because of a cache miss")
+            .register(registry);
+        FunctionTimer.builder(METRIC_PREFIX + ".parse", this, ParsedTokenCache::getMisses, c -> c.parseNanos.sum(), TimeUnit.NANOSECONDS)
+            .description("Time of parsing of tokens")
+            .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".size", cache, ExpiringCache::size)
+            .register(registry);
+    }
+
+    /**
+     * Immutable claims of token, which are used by the gateway
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class ParsedToken {
+
+        private final String domain;
+        private final String userId;
+        private final Long creation;
+        private final Long expiration;
+        private final QueryResponse.Source source;
+        private final String ltpaToken;
+
+        boolean isExpired(long now) {
+            return (expiration == null) || (expiration <= now);
+        }
+
+        /**
+         * @return new instance of {@link QueryResponse}, the caller could modify it
+         */
+        public QueryResponse toQueryResponse() {
+            return new QueryResponse(
+                domain,
+                userId,
+                (creation == null) ? null : new Date(creation),
+                (expiration == null) ? null : new Date(expiration),
+                source
+            );
+        }
+
+    }
+
+}
@@ -0,0 +1,315 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of revoked tokens in a memory-mapped file. Each record contains the hash of token and its
+ * expiration. An append is a write to the mapped memory, so it survives the kill of process (the data are already
+ * in the page cache of the system). To survive also a crash of the system {@link #sync()} has to be called, it is
+ * called periodically, so the appends are flushed in batches.
+ *
+ * Each record ends with its checksum and a marker. Replay stops at the first record which is not complete (ie. the
+ * system crashed during the write) and the next append overwrites it.
+ *
+ * The journal grows only, {@link #compact(Consumer)} rewrites it with the valid records into a new file which
+ * atomically replaces the old one. A replaced mapping is unmapped immediately, otherwise the memory and the disk space
+ * of the old file would be held until the garbage collection of the buffer.
+ */
+@Slf4j
+class RevocationJournal implements Closeable {
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+
+    private static final long MAGIC = 0x41504D4C52455631L; // APMLREV1
+    private static final int RECORD_MARKER = 0x5245564B; // REVK
+    private static final int INITIAL_CAPACITY = HEADER_SIZE + 4096 * RECORD_SIZE;
+
+    private final Path file;
+    private final ReentrantLock lock = new ReentrantLock();
+    // sync flushes the mapping outside of the lock, it cannot be unmapped meanwhile
+    private final ReentrantReadWriteLock mappingLock = new ReentrantReadWriteLock();
+    private final ByteBuffer checksumBuffer = ByteBuffer.allocate(3 * Long.BYTES);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private int recordCount;
+    private volatile boolean dirty;
+
+    RevocationJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Record in the journal
+     */
+    @FunctionalInterface
+    interface RecordConsumer {
+
+        void accept(long high, long low, long expiration);
+
+    }
+
+    /**
+     * Open the journal and pass all its records to the consumer. A missing file is created, a file with a different
+     * format is replaced by an empty journal.
+     *
+     * @param consumer receives all records, in the order of appends
+     * @return count of replayed records
+     */
+    int open(RecordConsumer consumer) throws IOException {
+        lock.lock();
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            map(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+
+            if (buffer.getLong(0) != MAGIC) {
+                if (channel.size() > INITIAL_CAPACITY || buffer.getLong(0) != 0) {
+                    log.warn("The file {} is not a journal of revoked tokens, a new one is created", file);
+                }
+                reset();
+                return 0;
+            }
+
+            int position = HEADER_SIZE;
+            recordCount = 0;
+            while (position + RECORD_SIZE <= buffer.capacity() && isValid(position)) {
+                consumer.accept(buffer.getLong(position), buffer.getLong(position + 8), buffer.getLong(position + 16));
+                position += RECORD_SIZE;
+                recordCount++;
+            }
+            buffer.position(position);
+            // the rest of an incomplete record has to be cleaned, otherwise it could be valid with the next append
+            if (position + RECORD_SIZE <= buffer.capacity()) buffer.putLong(position + 24, 0);
+            return recordCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Append a record. It is stored on disk with the next {@link #sync()}.
+     */
+    void append(long high, long low, long expiration) throws IOException {
+        lock.lock();
+        try {
+            if (buffer == null) throw new IllegalStateException("Journal " + file + " is not opened");
+            if (buffer.remaining() < RECORD_SIZE) {
+                grow();
+            }
+            final int position = buffer.position();
+            buffer.putLong(position, high);
+            buffer.putLong(position + 8, low);
+            buffer.putLong(position + 16, expiration);
+            buffer.putInt(position + 24, checksum(high, low, expiration));
+            // the marker is written as the last one, the record is not valid without it
+            buffer.putInt(position + 28, RECORD_MARKER);
+            buffer.position(position + RECORD_SIZE);
+            recordCount++;
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write appended records to the disk. The memory is flushed outside of the lock, appends are not blocked.
+     */
+    void sync() {
+        if (!dirty) return;
+
+        final MappedByteBuffer current;
+        lock.lock();
+        try {
+            current = buffer;
+            dirty = false;
+        } finally {
+            lock.unlock();
+        }
+        if (current == null) return;
+
+        mappingLock.readLock().lock();
+        try {
+            // the buffer is replaced and unmapped under the write lock, a replaced one was flushed before
+            if (current == buffer) current.force();
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the journal by a new one with records provided by the writer. Appends wait until the compaction ends.
+     *
+     * @param writer writes all records which should stay in the journal
+     * @return count of records in the new journal
+     */
+    int compact(Consumer<RecordConsumer> writer) throws IOException {
+        lock.lock();
+        try {
+            final Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+            final ByteBuffer[] out = {ByteBuffer.allocate(Math.max(INITIAL_CAPACITY, HEADER_SIZE + recordCount * RECORD_SIZE))};
+            out[0].putLong(MAGIC).putLong(0);
+            final int[] count = {0};
+            writer.accept((high, low, expiration) -> {
+                if (out[0].remaining() < RECORD_SIZE) {
+                    final ByteBuffer bigger = ByteBuffer.allocate(out[0].capacity() * 2);
+                    out[0].flip();
+                    out[0] = bigger.put(out[0]);
+                }
+                out[0].putLong(high).putLong(low).putLong(expiration)
+                    .putInt(checksum(high, low, expiration)).putInt(RECORD_MARKER);
+                count[0]++;
+            });
+            out[0].flip();
+
+            try (FileChannel tmp = FileChannel.open(tmpFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)
+            ) {
+                while (out[0].hasRemaining()) tmp.write(out[0]);
+                tmp.force(true);
+            }
+
+            buffer.force();
+            final int oldPosition = buffer.position();
+            replace(null);
+            channel.close();
+            boolean moved = false;
+            try {
+                Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                moved = true;
+            } finally {
+                // if the move failed the old journal is used further
+                map(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                buffer.position(moved ? HEADER_SIZE + count[0] * RECORD_SIZE : oldPosition);
+            }
+            recordCount = count[0];
+            dirty = false;
+            return recordCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return count of records in the journal, including the expired and repeated ones
+     */
+    int getRecordCount() {
+        lock.lock();
+        try {
+            return recordCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (buffer != null) {
+                buffer.force();
+                replace(null);
+            }
+            if (channel != null) channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void map(FileChannel newChannel) throws IOException {
+        channel = newChannel;
+        final long size = Math.max(channel.size(), INITIAL_CAPACITY);
+        replace(channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    private void grow() throws IOException {
+        final int position = buffer.position();
+        // a mapping is limited by Integer.MAX_VALUE, the last complete record has to fit
+        final long size = Math.min((long) buffer.capacity() * 2, Integer.MAX_VALUE - (Integer.MAX_VALUE - HEADER_SIZE) % RECORD_SIZE);
+        if (size - position < RECORD_SIZE) throw new IOException("Journal " + file + " is too big");
+        buffer.force();
+        replace(channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        buffer.position(position);
+    }
+
+    /**
+     * Replace the current mapping and release the old one without waiting for the garbage collection. If the internal
+     * API is not available (it differs between versions of Java), the old buffer is left to GC.
+     */
+    private void replace(MappedByteBuffer newBuffer) {
+        mappingLock.writeLock().lock();
+        try {
+            final MappedByteBuffer mapped = buffer;
+            buffer = newBuffer;
+            if (mapped == null) return;
+
+            try {
+                // Java 9+
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), mapped);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                final Method cleanerMethod = mapped.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(mapped);
+                if (cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Mapping of journal {} cannot be released, it is left to the garbage collection", file, e);
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+
+    private void reset() throws IOException {
+        channel.truncate(0);
+        map(channel);
+        buffer.putLong(0, MAGIC);
+        buffer.position(HEADER_SIZE);
+        buffer.force();
+        recordCount = 0;
+    }
+
+    private boolean isValid(int position) {
+        return buffer.getInt(position + 28) == RECORD_MARKER
+            && buffer.getInt(position + 24) == checksum(buffer.getLong(position), buffer.getLong(position + 8), buffer.getLong(position + 16));
+    }
+
+    private int checksum(long high, long low, long expiration) {
+        checksumBuffer.clear();
+        checksumBuffer.putLong(high).putLong(low).putLong(expiration).flip();
+        crc.reset();
+        crc.update(checksumBuffer);
+        return (int) crc.getValue();
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.gateway.config.TokenInvalidationConfigProperties;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store of invalidated (revoked) tokens. Instead of the token itself (kilobytes) only 128 bits of its SHA-256 hash are
+ * stored, each entry is kept until the token expires. The store is not limited by size, so a revocation is never lost
+ * before the token expires.
+ *
+ * Lookups are fronted by {@link CountingBloomFilter}, the common case (token was not revoked) is answered by a few
+ * reads of memory without touching the map.
+ *
+ * Entries could be exported and imported as strings "{hash in hex}:{expiration in millis}", it is used to pass all
+ * revoked tokens to a new instance of gateway.
+ *
+ * If the location of journal is set, each revocation is appended to {@link RevocationJournal}. It is loaded at startup,
+ * so the revocations are not lost by a restart (also by a kill) of the gateway even if no other instance is running.
+ * The journal is flushed to the disk periodically and compacted with the cleanup once most of its records are expired.
+ */
+@Slf4j
+@Component
+public class RevokedTokenStore {
+
+    static final String JOURNAL_FILE_NAME = "revoked-tokens.journal";
+
+    private static final int MIN_RECORDS_TO_COMPACT = 1024;
+
+    private final TokenInvalidationConfigProperties properties;
+    private final CountingBloomFilter filter;
+    private final Map<TokenHash, Long> revoked = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService cleaner;
+    private RevocationJournal journal;
+
+    public RevokedTokenStore(TokenInvalidationConfigProperties properties) {
+        this.properties = properties;
+        this.filter = new CountingBloomFilter(properties.getExpectedTokens());
+    }
+
+    @PostConstruct
+    public void afterPropertiesSet() throws IOException {
+        if (StringUtils.isNotEmpty(properties.getJournalLocation())) {
+            openJournal(Paths.get(properties.getJournalLocation(), JOURNAL_FILE_NAME));
+        }
+
+        cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "revoked-token-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::cleanup,
+            properties.getCleanupIntervalSeconds(), properties.getCleanupIntervalSeconds(), TimeUnit.SECONDS);
+        if (journal != null) {
+            cleaner.scheduleWithFixedDelay(journal::sync,
+                properties.getSyncIntervalMillis(), properties.getSyncIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void preDestroy() throws IOException {
+        if (cleaner != null) cleaner.shutdownNow();
+        if (journal != null) journal.close();
+    }
+
+    /**
+     * Open the journal and load all valid revocations from it
+     */
+    void openJournal(Path file) throws IOException {
+        final long start = System.nanoTime();
+        final long now = System.currentTimeMillis();
+        final RevocationJournal newJournal = new RevocationJournal(file);
+        final int records = newJournal.open((high, low, expiration) -> {
+            if (expiration > now) revoke(new TokenHash(high, low), expiration, false);
+        });
+        journal = newJournal;
+        log.info("{} revoked tokens were loaded from {} records of journal {} in {} ms",
+            revoked.size(), records, file, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @param jwtToken token to check
+     * @return true if the token was revoked and the revocation is not expired
+     */
+    public boolean isRevoked(String jwtToken) {
+        if (jwtToken == null) return false;
+
+        final TokenHash hash = TokenHash.of(jwtToken);
+        if (!filter.mightContain(hash.high, hash.low)) return false;
+
+        final Long expiration = revoked.get(hash);
+        return (expiration != null) && (expiration > System.currentTimeMillis());
+    }
+
+    /**
+     * Store the revoked token until its expiration.
+     *
+     * @param jwtToken   revoked token
+     * @param expiration expiration of the token, if null the default TTL is used
+     */
+    public void revoke(String jwtToken, Date expiration) {
+        final long expirationMillis = (expiration != null) ? expiration.getTime()
+            : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(properties.getDefaultTtlSeconds());
+        revoke(TokenHash.of(jwtToken), expirationMillis, true);
+    }
+
+    private void revoke(TokenHash hash, long expirationMillis, boolean persist) {
+        // the filter is updated first, a concurrent lookup could not miss the stored entry
+        filter.add(hash.high, hash.low);
+        final Long previous = revoked.putIfAbsent(hash, expirationMillis);
+        if (previous != null) {
+            filter.remove(hash.high, hash.low);
+            if (previous >= expirationMillis || !revoked.replace(hash, previous, expirationMillis)) return;
+        }
+
+        if (persist && (journal != null)) {
+            try {
+                journal.append(hash.high, hash.low, expirationMillis);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Revoked token cannot be written into the journal, it is kept only in memory", e);
+            }
+        }
+    }
+
+    /**
+     * @return all valid entries in the format "{hash}:{expiration}"
+     */
+    public List<String> export() {
+        final long now = System.currentTimeMillis();
+        final List<String> out = new ArrayList<>(revoked.size());
+        for (final Map.Entry<TokenHash, Long> entry : revoked.entrySet()) {
+            if (entry.getValue() > now) {
+                out.add(entry.getKey() + ":" + entry.getValue());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Store exported entries of another instance. Malformed and expired entries are skipped, the expiration is limited
+     * by maxExpiration (but not below the default TTL), so an entry cannot stay in the store longer than any token
+     * could be valid.
+     *
+     * @param entries       entries in the format "{hash}:{expiration}"
+     * @param maxExpiration upper limit of the expiration of imported entries, in millis
+     * @return hashes of the imported entries
+     */
+    public Set<TokenHash> importEntries(Collection<String> entries, long maxExpiration) {
+        final long now = System.currentTimeMillis();
+        final long limit = Math.max(maxExpiration, now + TimeUnit.SECONDS.toMillis(properties.getDefaultTtlSeconds()));
+        final Set<TokenHash> imported = new HashSet<>();
+        for (final String entry : entries) {
+            final int index = entry.indexOf(':');
+            if (index != 32) {
+                log.debug("Malformed entry of revoked token skipped: {}", entry);
+                continue;
+            }
+
+            try {
+                final long expiration = Math.min(Long.parseLong(entry.substring(index + 1)), limit);
+                if (expiration <= now) continue;
+                final TokenHash hash = TokenHash.parse(entry.substring(0, index));
+                revoke(hash, expiration, true);
+                imported.add(hash);
+            } catch (NumberFormatException e) {
+                log.debug("Malformed entry of revoked token skipped: {}", entry);
+            }
+        }
+        return imported;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    void cleanup() {
+        removeExpired();
+        if (journal == null) return;
+
+        final int records = journal.getRecordCount();
+        if (records < MIN_RECORDS_TO_COMPACT || records < 2 * revoked.size()) return;
+
+        try {
+            final long now = System.currentTimeMillis();
+            final int compacted = journal.compact(writer -> revoked.forEach((hash, expiration) -> {
+                if (expiration > now) writer.accept(hash.high, hash.low, expiration);
+            }));
+            log.debug("Journal of revoked tokens was compacted from {} to {} records", records, compacted);
+        } catch (IOException e) {
+            log.warn("Journal of revoked tokens cannot be compacted", e);
+        }
+    }
+
+    void removeExpired() {
+        final long now = System.currentTimeMillis();
+        int removed = 0;
+        for (final Map.Entry<TokenHash, Long> entry : revoked.entrySet()) {
+            if ((entry.getValue() <= now) && revoked.remove(entry.getKey(), entry.getValue())) {
+                filter.remove(entry.getKey().high, entry.getKey().low);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.debug("{} expired revoked tokens were removed, {} remains", removed, revoked.size());
+        }
+    }
+
+    /**
+     * First 128 bits of SHA-256 of the token, the halves are independent hashes for the Bloom filter.
+     */
+    @EqualsAndHashCode
+    static final class TokenHash {
+
+        private final long high;
+        private final long low;
+
+        private TokenHash(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        static TokenHash of(String jwtToken) {
+            final MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not supported", e);
+            }
+            final ByteBuffer hash = ByteBuffer.wrap(digest.digest(jwtToken.getBytes(StandardCharsets.UTF_8)));
+            return new TokenHash(hash.getLong(), hash.getLong());
+        }
+
+        static TokenHash parse(String value) {
+            return new TokenHash(Long.parseUnsignedLong(value.substring(0, 16), 16), Long.parseUnsignedLong(value.substring(16), 16));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", high, low);
+        }
+
+    }
+
+}
@@ -17,14 +17,12 @@ import org.zowe.apiml.gateway.security.service.schema.AbstractAuthenticationSche
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationCommand;
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationSchemeFactory;
 import org.zowe.apiml.gateway.security.service.schema.ServiceAuthenticationService;
-import org.zowe.apiml.util.CacheUtils;
+import org.zowe.apiml.cache.ServiceGenerations;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.EurekaClient;
 import com.netflix.discovery.shared.Application;
 import com.netflix.zuul.context.RequestContext;
 import lombok.AllArgsConstructor;
-import org.apache.commons.lang.StringUtils;
-import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
@@ -70,7 +68,7 @@ public class ServiceAuthenticationServiceImpl implements ServiceAuthenticationSe
     private final EurekaClient discoveryClient;
     private final AuthenticationSchemeFactory authenticationSchemeFactory;
     private final AuthenticationService authenticationService;
-    private final CacheManager cacheManager;
+    private final ServiceGenerations serviceGenerations;
 
     protected Authentication getAuthentication(InstanceInfo instanceInfo) {
         final Map<String, String> metadata = instanceInfo.getMetadata();
@@ -99,8 +97,8 @@ public class ServiceAuthenticationServiceImpl implements ServiceAuthenticationSe
     }
 
     @Override
-    @CacheEvict(value = CACHE_BY_SERVICE_ID, condition = "#result != null && #result.isExpired()")
-    @Cacheable(value = CACHE_BY_SERVICE_ID, keyGenerator = CacheConfig.COMPOSITE_KEY_GENERATOR)
+    @CacheEvict(value = CACHE_BY_SERVICE_ID, keyGenerator = CacheConfig.SERVICE_GENERATION_KEY_GENERATOR, condition = "#result != null && #result.isExpired()")
+    @Cacheable(value = CACHE_BY_SERVICE_ID, keyGenerator = CacheConfig.SERVICE_GENERATION_KEY_GENERATOR)
     public AuthenticationCommand getAuthenticationCommand(String serviceId, String jwtToken) throws AuthenticationException {
         final Application application = discoveryClient.getApplication(serviceId);
         if (application == null) return AuthenticationCommand.EMPTY;
@@ -126,21 +124,24 @@ public class ServiceAuthenticationServiceImpl implements ServiceAuthenticationSe
         return getAuthenticationCommand(found, jwtToken);
     }
 
+    /**
+     * Method makes unreachable all records in cache serviceAuthenticationByServiceId. It increases the global epoch
+     * of service generations, old records expire lazily.
+     */
     @Override
-    @CacheEvict(value = CACHE_BY_SERVICE_ID, allEntries = true)
     public void evictCacheAllService() {
-        // evict all cached data accessible by serviceId
+        serviceGenerations.evictAll();
     }
 
     /**
-     * Method evicts all records in cache serviceAuthenticationByServiceId, where is as key serviceId or records where
-     * is impossible to known, which service is belongs to.
+     * Method makes unreachable all records in cache serviceAuthenticationByServiceId with the serviceId. It increases
+     * the generation of service (part of the key), old records expire lazily.
      *
      * @param serviceId Id of service to evict
      */
     @Override
     public void evictCacheService(String serviceId) {
-        CacheUtils.evictSubset(cacheManager, CACHE_BY_SERVICE_ID, x -> StringUtils.equalsIgnoreCase((String) x.get(0), serviceId));
+        serviceGenerations.evictService(serviceId);
     }
 
     public class UniversalAuthenticationCommand extends AuthenticationCommand {
@@ -0,0 +1,248 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.zowe.apiml.gateway.config.TokenInvalidationConfigProperties;
+import org.zowe.apiml.product.constants.CoreService;
+import org.zowe.apiml.util.EurekaUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Distributes invalidated JWT tokens to the other instances of gateway asynchronously. Tokens are queued per instance
+ * and the queued tokens are sent in compressed bulk requests (POST /auth/invalidate) of at most maxEntriesPerRequest
+ * tokens, different instances are notified in parallel. A failed batch is returned into the queue and retried with
+ * exponential backoff.
+ *
+ * Instances of an older version (ie. during a rolling upgrade) do not provide the bulk endpoint. If it answers 404 or 405,
+ * the instance is marked as legacy and its tokens are sent one by one (DELETE /auth/invalidate/{token}).
+ *
+ * The logout does not wait for the other instances. The same mechanism is used to send all invalidated tokens to a
+ * newly started instance (POST /auth/revoked), they are sent as batches of hashes exported by
+ * {@link RevokedTokenStore}. Both endpoints require the client certificate of gateway.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenInvalidationDistributor {
+
+    public static final String BULK_INVALIDATE_PATH = "/auth/invalidate";
+    public static final String REVOKED_PATH = "/auth/revoked";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final EurekaClient discoveryClient;
+    private final RestTemplate restTemplate;
+    private final TokenInvalidationConfigProperties properties;
+
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+    @PostConstruct
+    public void afterPropertiesSet() {
+        scheduler.setPoolSize(properties.getThreads());
+        scheduler.setThreadNamePrefix("token-invalidation-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Queue the token to be sent to all other instances of gateway.
+     *
+     * @param jwtToken invalidated token
+     * @return false if gateway is not registered (wrong state, at least this instance should exist), otherwise true
+     */
+    public boolean invalidate(String jwtToken) {
+        final Application application = discoveryClient.getApplication(CoreService.GATEWAY.getServiceId());
+        if (application == null) return false;
+
+        final String myInstanceId = discoveryClient.getApplicationInfoManager().getInfo().getInstanceId();
+        for (final InstanceInfo instanceInfo : application.getInstances()) {
+            if (StringUtils.equals(myInstanceId, instanceInfo.getInstanceId())) continue;
+
+            enqueue(instanceInfo, BULK_INVALIDATE_PATH, Collections.singleton(jwtToken));
+        }
+        return true;
+    }
+
+    /**
+     * Queue all invalidated tokens to be sent to one instance of gateway, ie. to a new instance.
+     *
+     * @param instanceInfo   instance of gateway to notify
+     * @param revokedEntries entries exported by {@link RevokedTokenStore}
+     */
+    public void distribute(InstanceInfo instanceInfo, Collection<String> revokedEntries) {
+        if (!revokedEntries.isEmpty()) {
+            enqueue(instanceInfo, REVOKED_PATH, revokedEntries);
+        }
+    }
+
+    private void enqueue(InstanceInfo instanceInfo, String path, Collection<String> entries) {
+        final String url = EurekaUtils.getUrl(instanceInfo) + path;
+        final Peer peer = peers.computeIfAbsent(instanceInfo.getInstanceId() + path, k -> new Peer(url, BULK_INVALIDATE_PATH.equals(path)));
+        synchronized (peer) {
+            peer.url = url;
+            peer.pending.addAll(entries);
+            if (!peer.scheduled && !peer.inFlight) {
+                schedule(peer, properties.getFlushDelayMillis());
+            }
+        }
+    }
+
+    private void schedule(Peer peer, long delayMillis) {
+        peer.scheduled = true;
+        scheduler.schedule(() -> flush(peer), new Date(System.currentTimeMillis() + delayMillis));
+    }
+
+    void flush(Peer peer) {
+        final List<String> batch;
+        final String url;
+        final boolean legacy;
+        synchronized (peer) {
+            peer.scheduled = false;
+            if (peer.pending.isEmpty()) return;
+
+            batch = new ArrayList<>(Math.min(peer.pending.size(), properties.getMaxEntriesPerRequest()));
+            final Iterator<String> iterator = peer.pending.iterator();
+            while (iterator.hasNext() && (batch.size() < properties.getMaxEntriesPerRequest())) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            peer.inFlight = true;
+            url = peer.url;
+            legacy = peer.legacy;
+        }
+
+        boolean sent;
+        try {
+            send(peer, url, batch, legacy);
+            sent = true;
+        } catch (Exception e) {
+            log.debug("Cannot send {} invalidated tokens to {}", batch.size(), url, e);
+            sent = false;
+        }
+
+        synchronized (peer) {
+            peer.inFlight = false;
+            if (sent) {
+                peer.attempts = 0;
+                if (!peer.pending.isEmpty()) schedule(peer, properties.getFlushDelayMillis());
+                return;
+            }
+
+            peer.attempts++;
+            if (peer.attempts > properties.getMaxRetries()) {
+                log.warn("Invalidated tokens could not be sent to {}, {} tokens are dropped", url, batch.size() + peer.pending.size());
+                peer.pending.clear();
+                peer.attempts = 0;
+                return;
+            }
+            peer.pending.addAll(batch);
+            schedule(peer, getBackoff(peer.attempts));
+        }
+    }
+
+    long getBackoff(int attempts) {
+        final long backoff = properties.getInitialBackoffMillis() << Math.min(attempts - 1, 30);
+        return Math.min(backoff, properties.getMaxBackoffMillis());
+    }
+
+    private void send(Peer peer, String url, List<String> batch, boolean legacy) throws IOException {
+        if (!legacy) {
+            try {
+                send(url, batch);
+                return;
+            } catch (HttpClientErrorException e) {
+                if (!peer.bulkInvalidate || !isMissingEndpoint(e.getStatusCode())) throw e;
+            }
+
+            log.debug("Instance {} does not support bulk invalidation, tokens are sent one by one", url);
+            synchronized (peer) {
+                peer.legacy = true;
+            }
+        }
+        sendOneByOne(url, batch);
+    }
+
+    private void send(String url, List<String> jwtTokens) throws IOException {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(compress(jwtTokens), headers), Void.class);
+    }
+
+    private void sendOneByOne(String url, List<String> jwtTokens) {
+        for (final String jwtToken : jwtTokens) {
+            restTemplate.delete(url + "/{}", jwtToken);
+        }
+    }
+
+    private static boolean isMissingEndpoint(HttpStatus status) {
+        return (status == HttpStatus.NOT_FOUND) || (status == HttpStatus.METHOD_NOT_ALLOWED);
+    }
+
+    static byte[] compress(List<String> jwtTokens) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(body)) {
+            OBJECT_MAPPER.writeValue(gzip, jwtTokens);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Queue of tokens for one endpoint of one instance of gateway. A batch is either scheduled or in flight, never both, so tokens
+     * for one instance are sent sequentially.
+     */
+    static class Peer {
+
+        private String url;
+        private final boolean bulkInvalidate;
+        private final Set<String> pending = new LinkedHashSet<>();
+        private boolean scheduled;
+        private boolean inFlight;
+        private boolean legacy;
+        private int attempts;
+
+        Peer(String url, boolean bulkInvalidate) {
+            this.url = url;
+            this.bulkInvalidate = bulkInvalidate;
+        }
+
+    }
+
+}
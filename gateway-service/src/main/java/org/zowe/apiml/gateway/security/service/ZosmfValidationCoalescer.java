@@ -0,0 +1,119 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.cache.ExpiringCache;
+import org.zowe.apiml.cache.SingleFlight;
+import org.zowe.apiml.security.common.token.TokenExpireException;
+import org.zowe.apiml.security.common.token.TokenNotValidException;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Coalesces validations of the same token in z/OSMF. A page in the browser could send many requests with a new token at
+ * once, before the result of validation is cached (see {@link AuthenticationService#validateJwtToken(String)}). The
+ * concurrent validations of one token share a single call of z/OSMF (see {@link SingleFlight}).
+ *
+ * A token rejected by z/OSMF is rejected without a call for a short period
+ * (apiml.gateway.zosmfValidation.negativeTtlMillis). Other failures, ie. z/OSMF is not available, are not remembered.
+ * The remembered failures are bounded (see {@link ExpiringCache}).
+ *
+ * Counts of calls of z/OSMF, coalesced validations and rejections by the remembered failures are exported as metrics
+ * (apiml.gateway.zosmfValidation.requests).
+ */
+@Component
+public class ZosmfValidationCoalescer implements MeterBinder {
+
+    static final String METRIC_PREFIX = "apiml.gateway.zosmfValidation";
+
+    private final long negativeTtlMillis;
+
+    private final SingleFlight<RevokedTokenStore.TokenHash, Void> inFlight = new SingleFlight<>();
+    private final ExpiringCache<RevokedTokenStore.TokenHash, RuntimeException> failures;
+
+    private final LongAdder called = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ZosmfValidationCoalescer(
+        @Value("${apiml.gateway.zosmfValidation.maxSize:1000}") int maxSize,
+        @Value("${apiml.gateway.zosmfValidation.negativeTtlMillis:5000}") long negativeTtlMillis
+    ) {
+        this.failures = new ExpiringCache<>(maxSize);
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    /**
+     * Validate the token by the validator or wait for the running validation of the same token.
+     *
+     * @param type      type of token
+     * @param token     token to validate
+     * @param validator validation in z/OSMF, it throws an exception if the token is not valid
+     */
+    public void validate(ZosmfService.TokenType type, String token, BiConsumer<ZosmfService.TokenType, String> validator) {
+        final long now = System.currentTimeMillis();
+        final RevokedTokenStore.TokenHash hash = RevokedTokenStore.TokenHash.of(type.getCookieName() + '=' + token);
+
+        final RuntimeException failure = failures.get(hash, now);
+        if (failure != null) {
+            rejected.increment();
+            throw failure;
+        }
+
+        inFlight.load(hash, () -> {
+            called.increment();
+            try {
+                validator.accept(type, token);
+            } catch (TokenNotValidException | TokenExpireException | BadCredentialsException e) {
+                failures.put(hash, e, now + negativeTtlMillis);
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    public long getCalled() {
+        return called.sum();
+    }
+
+    public long getCoalesced() {
+        return inFlight.getJoined();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", called, LongAdder::sum)
+            .tag("result", "called")
+            .description("Count of validations of tokens called in z/OSMF")
+            .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", inFlight, SingleFlight::getJoined)
+            .tag("result", "coalesced")
+            .description("Count of validations of tokens, which waited for a running call of z/OSMF")
+            .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", rejected, LongAdder::sum)
+            .tag("result", "rejected")
+            .description("Count of validations of tokens rejected without a call of z/OSMF, by a recent failure")
+            .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".inFlight", inFlight, SingleFlight::size)
+            .register(registry);
+    }
+
+}
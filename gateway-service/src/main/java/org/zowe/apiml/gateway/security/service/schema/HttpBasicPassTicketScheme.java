@@ -15,7 +15,6 @@ import org.zowe.apiml.security.common.auth.AuthenticationScheme;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.security.common.token.QueryResponse;
 import org.zowe.apiml.passticket.IRRPassTicketGenerationException;
-import org.zowe.apiml.passticket.PassTicketService;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.zuul.context.RequestContext;
 import lombok.EqualsAndHashCode;
@@ -29,12 +28,12 @@ import java.util.Base64;
 
 /**
  * This bean support PassTicket. Bean is responsible for getting PassTicket from
- * SAF and generating new authentication header in request.
+ * SAF (via {@link PassTicketCache}) and generating new authentication header in request.
  */
 @Component
 @RequiredArgsConstructor
 public class HttpBasicPassTicketScheme implements AbstractAuthenticationScheme {
-    private final PassTicketService passTicketService;
+    private final PassTicketCache passTicketCache;
     private final AuthConfigurationProperties authConfigurationProperties;
 
     @Override
@@ -45,22 +44,20 @@ public class HttpBasicPassTicketScheme implements AbstractAuthenticationScheme {
     @Override
     public AuthenticationCommand createCommand(Authentication authentication, QueryResponse token)
         throws AuthenticationException {
-        final long before = System.currentTimeMillis();
-
         final String applId = authentication.getApplid();
         final String userId = token.getUserId();
-        String passTicket;
+        final PassTicketCache.CachedPassTicket passTicket;
         try {
-            passTicket = passTicketService.generate(userId, applId);
+            passTicket = passTicketCache.get(userId, applId);
         } catch (IRRPassTicketGenerationException e) {
             throw new AuthenticationException(
                 String.format("Could not generate PassTicket for user ID %s and APPLID %s", userId, applId), e);
         }
         final String encoded = Base64.getEncoder()
-            .encodeToString((userId + ":" + passTicket).getBytes(StandardCharsets.UTF_8));
+            .encodeToString((userId + ":" + passTicket.getPassTicket()).getBytes(StandardCharsets.UTF_8));
         final String value = "Basic " + encoded;
 
-        final long expiredAt = Math.min(before + authConfigurationProperties.getPassTicket().getTimeout() * 1000,
+        final long expiredAt = Math.min(passTicket.getGeneratedAt() + authConfigurationProperties.getPassTicket().getTimeout() * 1000,
             token.getExpiration().getTime());
 
         return new PassTicketCommand(value, expiredAt);
@@ -0,0 +1,260 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.schema;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.cache.ExpiringCache;
+import org.zowe.apiml.passticket.IRRPassTicketGenerationException;
+import org.zowe.apiml.passticket.PassTicketService;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of PassTickets by user and APPLID. A generation of PassTicket is a call of SAF, so it is done once per the
+ * lifetime of PassTicket (apiml.security.auth.passTicket.timeout) and not on each request.
+ *
+ * PassTickets of pairs used during their lifetime are generated again in the background before they expire
+ * (apiml.gateway.passTicketCache.refreshAheadSeconds), so an active user does not wait for SAF. A PassTicket is served
+ * only if it is valid at least {@link #MIN_VALIDITY_MILLIS}, otherwise it is generated on the request thread. The cache
+ * is bounded (apiml.gateway.passTicketCache.maxSize, see {@link ExpiringCache}), if it is full the oldest generated
+ * PassTickets are removed. PassTickets of active pairs are generated again, so they stay in the cache.
+ *
+ * Counts of hits and misses, the time of generations and the count of background generations, which were used, are
+ * exported as metrics (apiml.gateway.passTicketCache).
+ */
+@Slf4j
+@Component
+public class PassTicketCache implements MeterBinder {
+
+    static final String METRIC_PREFIX = "apiml.gateway.passTicketCache";
+
+    static final long MIN_VALIDITY_MILLIS = 10_000;
+
+    private final PassTicketService passTicketService;
+    private final AuthConfigurationProperties authConfigurationProperties;
+    private final long refreshAheadMillis;
+    private final long refreshIntervalMillis;
+
+    private final ExpiringCache<UserApplId, CachedPassTicket> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder generations = new LongAdder();
+    private final LongAdder generationNanos = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshHits = new LongAdder();
+
+    private ScheduledExecutorService refresher;
+
+    public PassTicketCache(
+        PassTicketService passTicketService,
+        AuthConfigurationProperties authConfigurationProperties,
+        @Value("${apiml.gateway.passTicketCache.maxSize:10000}") int maxSize,
+        @Value("${apiml.gateway.passTicketCache.refreshAheadSeconds:60}") int refreshAheadSeconds,
+        @Value("${apiml.gateway.passTicketCache.refreshIntervalMillis:5000}") long refreshIntervalMillis
+    ) {
+        this.passTicketService = passTicketService;
+        this.authConfigurationProperties = authConfigurationProperties;
+        this.refreshAheadMillis = TimeUnit.SECONDS.toMillis(refreshAheadSeconds);
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.entries = new ExpiringCache<>(maxSize);
+    }
+
+    @PostConstruct
+    public void afterPropertiesSet() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "passticket-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        if (refresher != null) refresher.shutdownNow();
+    }
+
+    /**
+     * Return a cached PassTicket valid at least {@link #MIN_VALIDITY_MILLIS} or generate a new one
+     *
+     * @param userId user ID
+     * @param applId APPLID of the service
+     * @return PassTicket with the time of generation
+     * @throws IRRPassTicketGenerationException if the PassTicket cannot be generated
+     */
+    public CachedPassTicket get(String userId, String applId) throws IRRPassTicketGenerationException {
+        final long now = System.currentTimeMillis();
+        final UserApplId key = new UserApplId(userId, applId);
+
+        final CachedPassTicket cached = entries.get(key, now);
+        if (cached != null) {
+            hits.increment();
+            cached.lastAccess = now;
+            if (cached.refreshed && cached.used.compareAndSet(false, true)) refreshHits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        final CachedPassTicket generated = generate(key, false);
+        generated.lastAccess = now;
+        entries.put(key, generated, getStaleAt(generated));
+        return generated;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getGenerations() {
+        return generations.sum();
+    }
+
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+
+    public long getRefreshHits() {
+        return refreshHits.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", hits, LongAdder::sum)
+            .tag("result", "hit")
+            .description("Count of PassTickets served from the cache")
+            .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .description("Count of PassTickets generated on the request thread")
+            .register(registry);
+        FunctionTimer.builder(METRIC_PREFIX + ".generation", this, PassTicketCache::getGenerations, c -> c.generationNanos.sum(), TimeUnit.NANOSECONDS)
+            .description("Time of generation of PassTickets in SAF")
+            .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".refreshes", refreshes, LongAdder::sum)
+            .description("Count of PassTickets generated in the background before the previous one expired")
+            .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".refreshHits", refreshHits, LongAdder::sum)
+            .description("Count of PassTickets generated in the background, which were used")
+            .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".size", this, PassTicketCache::size)
+            .register(registry);
+    }
+
+    private long getLifetimeMillis() {
+        return TimeUnit.SECONDS.toMillis(authConfigurationProperties.getPassTicket().getTimeout());
+    }
+
+    private long getStaleAt(CachedPassTicket cached) {
+        return cached.generatedAt + getLifetimeMillis() - MIN_VALIDITY_MILLIS;
+    }
+
+    private CachedPassTicket generate(UserApplId key, boolean refreshed) throws IRRPassTicketGenerationException {
+        final long generatedAt = System.currentTimeMillis();
+        final long start = System.nanoTime();
+        try {
+            return new CachedPassTicket(passTicketService.generate(key.userId, key.applId), generatedAt, refreshed);
+        } finally {
+            generations.increment();
+            generationNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Generate PassTickets of pairs used during the lifetime of PassTicket, which expire soon, and remove the inactive
+     * ones
+     */
+    void refresh() {
+        final long now = System.currentTimeMillis();
+        final long lifetime = getLifetimeMillis();
+
+        final List<Map.Entry<UserApplId, CachedPassTicket>> toRefresh = new ArrayList<>();
+        entries.forEach((key, cached) -> {
+            if (now < getStaleAt(cached) - refreshAheadMillis) return;
+
+            if (cached.lastAccess >= now - lifetime) {
+                toRefresh.add(new AbstractMap.SimpleImmutableEntry<>(key, cached));
+            } else if (now >= getStaleAt(cached)) {
+                entries.remove(key, cached);
+            }
+        });
+
+        for (final Map.Entry<UserApplId, CachedPassTicket> entry : toRefresh) {
+            try {
+                final CachedPassTicket generated = generate(entry.getKey(), true);
+                generated.lastAccess = entry.getValue().lastAccess;
+                refreshes.increment();
+                // an access could replace the entry meanwhile
+                entries.replace(entry.getKey(), entry.getValue(), generated, getStaleAt(generated));
+            } catch (IRRPassTicketGenerationException | RuntimeException e) {
+                log.debug("PassTicket for user ID {} and APPLID {} cannot be generated: {}",
+                    entry.getKey().userId, entry.getKey().applId, e.getMessage());
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    @EqualsAndHashCode
+    private static final class UserApplId {
+
+        private final String userId;
+        private final String applId;
+
+    }
+
+    /**
+     * PassTicket with the time of its generation
+     */
+    public static final class CachedPassTicket {
+
+        @Getter
+        private final String passTicket;
+        @Getter
+        private final long generatedAt;
+
+        private final boolean refreshed;
+        private final AtomicBoolean used = new AtomicBoolean();
+        private volatile long lastAccess;
+
+        CachedPassTicket(String passTicket, long generatedAt, boolean refreshed) {
+            this.passTicket = passTicket;
+            this.generatedAt = generatedAt;
+            this.refreshed = refreshed;
+        }
+
+    }
+
+}
@@ -11,24 +11,77 @@ package org.zowe.apiml.gateway.ws;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 public class GatewayWebSocketConfigurer implements WebSocketConfigurer {
     private WebSocketProxyServerHandler webSocketProxyServerHandler;
+    private final boolean compression;
 
     @Autowired
-    public GatewayWebSocketConfigurer(WebSocketProxyServerHandler webSocketProxyServerHandler) {
+    public GatewayWebSocketConfigurer(
+        WebSocketProxyServerHandler webSocketProxyServerHandler,
+        @Value("${apiml.gateway.webSocket.compression:true}") boolean compression
+    ) {
         this.webSocketProxyServerHandler = webSocketProxyServerHandler;
+        this.compression = compression;
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         String webSocketPath = "/ws/**";
         log.debug("Registering WebSocket proxy handler to " + webSocketPath);
-        registry.addHandler(webSocketProxyServerHandler, webSocketPath);
+        registry.addHandler(webSocketProxyServerHandler, webSocketPath)
+            .setHandshakeHandler(new ExtensionsHandshakeHandler(compression));
+    }
+
+    /**
+     * Size of the buffers of sessions from the clients. Messages bigger than the buffer are received as partial
+     * messages, so it is the biggest forwarded fragment.
+     */
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer(
+        @Value("${apiml.gateway.webSocket.messageBufferSizeBytes:65536}") int messageBufferSizeBytes
+    ) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(messageBufferSizeBytes);
+        container.setMaxBinaryMessageBufferSize(messageBufferSizeBytes);
+        return container;
+    }
+
+    /**
+     * Negotiates permessage-deflate with the client only if the compression is enabled, independently on the session
+     * to the service.
+     */
+    static class ExtensionsHandshakeHandler extends DefaultHandshakeHandler {
+        private final boolean compression;
+
+        ExtensionsHandshakeHandler(boolean compression) {
+            this.compression = compression;
+        }
+
+        @Override
+        protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                List<WebSocketExtension> requestedExtensions, List<WebSocketExtension> supportedExtensions) {
+            List<WebSocketExtension> extensions = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+            if (compression) {
+                return extensions;
+            }
+            return extensions.stream()
+                .filter(extension -> !WebSocketRoutedSession.PERMESSAGE_DEFLATE.equals(extension.getName()))
+                .collect(Collectors.toList());
+        }
     }
 }
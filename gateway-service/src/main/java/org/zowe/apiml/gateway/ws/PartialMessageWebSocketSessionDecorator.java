@@ -0,0 +1,57 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.jetty.JettyWebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+
+/**
+ * Sends partial messages (see {@link WebSocketMessage#isLast()}) as fragments of one message. Spring's Jetty session
+ * sends each message as a whole one, so the fragments are sent by the native Jetty session. Other sessions (ie. the
+ * container's sessions from the clients) support partial messages natively and are called directly.
+ *
+ * The sends must be serialized by the caller, see {@link WebSocketFlowControl}.
+ */
+class PartialMessageWebSocketSessionDecorator extends WebSocketSessionDecorator {
+
+    private boolean fragmented;
+
+    PartialMessageWebSocketSessionDecorator(WebSocketSession delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (!(getDelegate() instanceof JettyWebSocketSession) || (!fragmented && message.isLast())) {
+            super.sendMessage(message);
+            return;
+        }
+
+        final RemoteEndpoint remote = ((JettyWebSocketSession) getDelegate()).getNativeSession().getRemote();
+        if (message instanceof TextMessage) {
+            remote.sendPartialString(((TextMessage) message).getPayload(), message.isLast());
+        } else if (message instanceof BinaryMessage) {
+            remote.sendPartialBytes(((BinaryMessage) message).getPayload(), message.isLast());
+        } else {
+            // control frames could be sent among fragments
+            super.sendMessage(message);
+            return;
+        }
+        fragmented = !message.isLast();
+    }
+
+}
@@ -46,6 +46,9 @@ public class WebSocketActuatorEndpoint {
             map.put("serviceUrl", currentSession.getClientUri());
             map.put("serviceSessionId", currentSession.getClientId());
 
+            map.put("clientBufferSize", String.valueOf(currentSession.getServerBufferSize()));
+            map.put("serviceBufferSize", String.valueOf(currentSession.getClientBufferSize()));
+
             result.add(map);
         }
 
@@ -0,0 +1,153 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+
+/**
+ * Flow control of forwarded WebSocket frames. Each session, to which the gateway sends messages, is decorated
+ * according to the overflow policy (apiml.gateway.webSocket.overflowPolicy):
+ *
+ * - CLOSE: messages are queued, the session is closed if the queue exceeds the limit of bytes
+ *   (sendBufferSizeLimitBytes) or a send takes longer than sendTimeLimitMillis
+ * - DROP: messages are queued, a new message is dropped whole (all its fragments) if the queue would exceed the limit
+ *   of bytes. Fragments of a message, which was already started, are always queued, so the queue could exceed the
+ *   limit by maxMessageSizeBytes at most, then the session is closed. The session is closed also if a send takes
+ *   longer than sendTimeLimitMillis.
+ * - BLOCK: messages are not queued, the sending thread waits for the previous send. It stops reading from the peer,
+ *   so the back-pressure is propagated to the producer by TCP.
+ *
+ * In all cases only one thread sends to the session at the time. Partial messages are forwarded as fragments (see
+ * {@link PartialMessageWebSocketSessionDecorator}). A message bigger than maxMessageSizeBytes is not forwarded.
+ */
+public class WebSocketFlowControl {
+
+    public enum OverflowPolicy {
+        CLOSE, DROP, BLOCK
+    }
+
+    private final int sendTimeLimitMillis;
+    private final int sendBufferSizeLimitBytes;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxMessageSizeBytes;
+
+    public WebSocketFlowControl(int sendTimeLimitMillis, int sendBufferSizeLimitBytes, OverflowPolicy overflowPolicy,
+                                int maxMessageSizeBytes) {
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.sendBufferSizeLimitBytes = sendBufferSizeLimitBytes;
+        this.overflowPolicy = overflowPolicy;
+        this.maxMessageSizeBytes = maxMessageSizeBytes;
+    }
+
+    public int getMaxMessageSizeBytes() {
+        return maxMessageSizeBytes;
+    }
+
+    public int getSendBufferSizeLimitBytes() {
+        return sendBufferSizeLimitBytes;
+    }
+
+    /**
+     * Decorate the session for sending of forwarded messages
+     *
+     * @param session session to send messages to
+     * @return decorated session
+     */
+    public WebSocketSession decorate(WebSocketSession session) {
+        final WebSocketSession partial = new PartialMessageWebSocketSessionDecorator(session);
+        switch (overflowPolicy) {
+            case BLOCK:
+                return new BlockingWebSocketSessionDecorator(partial);
+            case DROP:
+                return new DroppingWebSocketSessionDecorator(new ConcurrentWebSocketSessionDecorator(partial,
+                    sendTimeLimitMillis, sendBufferSizeLimitBytes + maxMessageSizeBytes,
+                    ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE), sendBufferSizeLimitBytes);
+            case CLOSE:
+            default:
+                return new ConcurrentWebSocketSessionDecorator(partial, sendTimeLimitMillis, sendBufferSizeLimitBytes,
+                    ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+        }
+    }
+
+    /**
+     * @param session session decorated by {@link #decorate(WebSocketSession)}
+     * @return count of bytes waiting to be sent, 0 if messages are not queued
+     */
+    public static int getBufferSize(WebSocketSession session) {
+        WebSocketSession current = session;
+        while (current instanceof WebSocketSessionDecorator) {
+            if (current instanceof ConcurrentWebSocketSessionDecorator) {
+                return ((ConcurrentWebSocketSessionDecorator) current).getBufferSize();
+            }
+            current = ((WebSocketSessionDecorator) current).getDelegate();
+        }
+        return 0;
+    }
+
+    private static class BlockingWebSocketSessionDecorator extends WebSocketSessionDecorator {
+
+        BlockingWebSocketSessionDecorator(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public synchronized void sendMessage(WebSocketMessage<?> message) throws IOException {
+            super.sendMessage(message);
+        }
+
+    }
+
+    /**
+     * Drops whole data messages if the queue of the delegate is full. The decision is made on the first fragment and
+     * applies to all fragments of the message. Control messages (ping, pong) are not part of the data message, they
+     * are always forwarded.
+     */
+    static class DroppingWebSocketSessionDecorator extends WebSocketSessionDecorator {
+
+        private final int bufferSizeLimit;
+        private boolean forwarding;
+        private boolean dropping;
+
+        DroppingWebSocketSessionDecorator(WebSocketSession delegate, int bufferSizeLimit) {
+            super(delegate);
+            this.bufferSizeLimit = bufferSizeLimit;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (accept(message)) {
+                super.sendMessage(message);
+            }
+        }
+
+        private synchronized boolean accept(WebSocketMessage<?> message) {
+            if (!(message instanceof TextMessage) && !(message instanceof BinaryMessage)) {
+                return true;
+            }
+
+            if (!forwarding && !dropping) {
+                dropping = getBufferSize(getDelegate()) + message.getPayloadLength() > bufferSizeLimit;
+            }
+            boolean accepted = !dropping;
+            forwarding = accepted && !message.isLast();
+            dropping = dropping && !message.isLast();
+            return accepted;
+        }
+
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import com.netflix.appinfo.InstanceInfo;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.netflix.eureka.EurekaServiceInstance;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Selects the instance of service for a new routed WebSocket session. Only the instances with status UP in Eureka are
+ * used (instances from other sources are considered as UP). The counts of active sessions per instance are tracked by
+ * {@link #sessionOpened(String, ServiceInstance)} and {@link #sessionClosed(String)}.
+ *
+ * Strategies (apiml.gateway.webSocket.loadBalancing):
+ * - LEAST_SESSIONS: the instance with the lowest count of active sessions, ties are broken by round-robin
+ * - ROUND_ROBIN: instances in turns
+ * - STICKY: the same instance for the same user, while the instance is available. It uses rendezvous hashing, so
+ *   only users of the removed instance are moved when the set of instances changes.
+ */
+public class WebSocketLoadBalancer {
+
+    public enum Strategy {
+        LEAST_SESSIONS, ROUND_ROBIN, STICKY
+    }
+
+    private final Strategy strategy;
+
+    private final AtomicInteger position = new AtomicInteger();
+    private final Map<String, AtomicInteger> activeSessions = new ConcurrentHashMap<>();
+    private final Map<String, String> instanceBySession = new ConcurrentHashMap<>();
+
+    public WebSocketLoadBalancer(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Choose an instance for the new session
+     *
+     * @param instances all known instances of the service
+     * @param stickyKey identification of user, used only by the STICKY strategy
+     * @return selected instance or null if no instance is UP
+     */
+    public ServiceInstance choose(List<ServiceInstance> instances, String stickyKey) {
+        final List<ServiceInstance> available = instances.stream()
+            .filter(WebSocketLoadBalancer::isUp)
+            .collect(Collectors.toList());
+        if (available.isEmpty()) return null;
+
+        switch (strategy) {
+            case ROUND_ROBIN:
+                return available.get(nextPosition(available.size()));
+            case STICKY:
+                if (stickyKey != null) return chooseByHash(available, stickyKey);
+                return available.get(nextPosition(available.size()));
+            case LEAST_SESSIONS:
+            default:
+                return chooseLeastSessions(available);
+        }
+    }
+
+    public void sessionOpened(String sessionId, ServiceInstance instance) {
+        final String instanceKey = getKey(instance);
+        if (instanceBySession.put(sessionId, instanceKey) == null) {
+            activeSessions.computeIfAbsent(instanceKey, k -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    public void sessionClosed(String sessionId) {
+        final String instanceKey = instanceBySession.remove(sessionId);
+        if (instanceKey == null) return;
+
+        final AtomicInteger counter = activeSessions.get(instanceKey);
+        if (counter != null) counter.decrementAndGet();
+    }
+
+    public int getActiveSessions(ServiceInstance instance) {
+        final AtomicInteger counter = activeSessions.get(getKey(instance));
+        return counter == null ? 0 : counter.get();
+    }
+
+    private int nextPosition(int size) {
+        return Math.floorMod(position.getAndIncrement(), size);
+    }
+
+    private ServiceInstance chooseLeastSessions(List<ServiceInstance> available) {
+        final int offset = nextPosition(available.size());
+        ServiceInstance best = null;
+        int bestSessions = Integer.MAX_VALUE;
+        for (int i = 0; i < available.size(); i++) {
+            final ServiceInstance candidate = available.get((offset + i) % available.size());
+            final int sessions = getActiveSessions(candidate);
+            if (sessions < bestSessions) {
+                best = candidate;
+                bestSessions = sessions;
+            }
+        }
+        return best;
+    }
+
+    private ServiceInstance chooseByHash(List<ServiceInstance> available, String stickyKey) {
+        ServiceInstance best = null;
+        long bestWeight = Long.MIN_VALUE;
+        for (final ServiceInstance candidate : available) {
+            final long weight = hash(stickyKey + '\n' + getKey(candidate));
+            if ((best == null) || (weight > bestWeight)) {
+                best = candidate;
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+
+    private static long hash(String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            long out = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                out = (out << 8) | (digest[i] & 0xff);
+            }
+            return out;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    static String getKey(ServiceInstance instance) {
+        return instance.getHost() + ':' + instance.getPort();
+    }
+
+    static boolean isUp(ServiceInstance instance) {
+        if (instance instanceof EurekaServiceInstance) {
+            return ((EurekaServiceInstance) instance).getInstanceInfo().getStatus() == InstanceInfo.InstanceStatus.UP;
+        }
+        return true;
+    }
+
+}
@@ -14,6 +14,7 @@ import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
 
 /**
  * Copies data from the client to the server session.
@@ -29,7 +30,13 @@ public class WebSocketProxyClientHandler extends AbstractWebSocketHandler {
     @Override
     public void handleMessage(WebSocketSession session, WebSocketMessage<?> webSocketMessage) throws Exception {
         log.debug("handleMessage(session={},message={})", session, webSocketMessage);
-        webSocketServerSession.sendMessage(webSocketMessage);
+        try {
+            webSocketServerSession.sendMessage(webSocketMessage);
+        } catch (SessionLimitExceededException e) {
+            log.debug("Session {} exceeded the limits: {}", webSocketServerSession, e.getMessage());
+            session.close(e.getStatus());
+            webSocketServerSession.close(e.getStatus());
+        }
     }
 
     @Override
@@ -9,36 +9,86 @@
  */
 package org.zowe.apiml.gateway.ws;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.zowe.apiml.product.routing.RoutedService;
 import org.zowe.apiml.product.routing.RoutedServices;
 import org.zowe.apiml.product.routing.RoutedServicesUser;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
 import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Singleton;
 import java.io.IOException;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Handle initialization and management of routed WebSocket sessions. Copies
  * data from the current session (from client to the gateway) to the server that
  * provides the real WebSocket service.
+ *
+ * The sessions to the servers are opened by a few long-lived clients
+ * (apiml.gateway.webSocket.clients), which share their thread pools and selectors
+ * among all sessions. The clients are stopped with the gateway.
+ *
+ * The handshakes with the servers run on a separate pool (handshakeThreads), so
+ * the container thread does not wait for them. A handshake not completed in
+ * handshakeTimeoutMillis is cancelled and the session from the client is closed.
+ * Handshakes waiting for a thread are limited by handshakeQueueSize, a session
+ * over the limit is closed with 1013 (try again later).
+ *
+ * The instance of service is selected by {@link WebSocketLoadBalancer} (loadBalancing).
+ *
+ * Messages from the client are received and forwarded as partial messages, so big
+ * messages are streamed. Messages from the server are received whole, up to
+ * maxMessageSizeBytes.
  */
 @Component
 @Singleton
 @Slf4j
-public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implements RoutedServicesUser {
+public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implements RoutedServicesUser, MeterBinder {
+
+    static final String METRIC_PREFIX = "apiml.gateway.webSocket";
+
+    static final int DEFAULT_CLIENTS = 1;
+    static final int DEFAULT_MAX_THREADS = 50;
+    static final int DEFAULT_SELECTORS = 2;
+    static final int DEFAULT_HANDSHAKE_THREADS = 16;
+    static final int DEFAULT_HANDSHAKE_QUEUE_SIZE = 1000;
+    static final long DEFAULT_HANDSHAKE_TIMEOUT_MILLIS = 30000;
+    static final String DEFAULT_LOAD_BALANCING = "LEAST_SESSIONS";
+    static final int DEFAULT_MAX_MESSAGE_SIZE_BYTES = 1048576;
 
     private final Map<String, WebSocketRoutedSession> routedSessions;
     private final Map<String, RoutedServices> routedServicesMap = new ConcurrentHashMap<>();
@@ -47,24 +97,153 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
     private final WebSocketRoutedSessionFactory webSocketRoutedSessionFactory;
     private static final String SEPARATOR = "/";
 
+    private final JettyWebSocketClient[] webSocketClients;
+    private final AtomicInteger nextClient = new AtomicInteger();
+    private final int maxThreads;
+    private final int selectors;
+    private final int maxMessageSizeBytes;
+    private final int handshakeThreads;
+    private final int handshakeQueueSize;
+    private final long handshakeTimeoutMillis;
+    private final HttpClient[] httpClients;
+    private final WebSocketLoadBalancer loadBalancer;
+    private ExecutorService handshakeExecutor;
+    private ScheduledExecutorService handshakeTimeouts;
+    private Timer handshakeTimer;
+
     @Autowired
-    public WebSocketProxyServerHandler(DiscoveryClient discovery, SslContextFactoryProvider jettySslContextFactoryProvider) {
-        this.discovery = discovery;
-        this.jettySslContextFactory = jettySslContextFactoryProvider.getSslFactory();
-        this.routedSessions = new ConcurrentHashMap<>();  // Default
-        this.webSocketRoutedSessionFactory = new WebSocketRoutedSessionFactoryImpl();
-        log.debug("Creating WebSocketProxyServerHandler {} jettySslContextFactory={}", this, jettySslContextFactory);
+    public WebSocketProxyServerHandler(
+        DiscoveryClient discovery,
+        SslContextFactoryProvider jettySslContextFactoryProvider,
+        @Value("${apiml.gateway.webSocket.clients:" + DEFAULT_CLIENTS + "}") int clients,
+        @Value("${apiml.gateway.webSocket.maxThreads:" + DEFAULT_MAX_THREADS + "}") int maxThreads,
+        @Value("${apiml.gateway.webSocket.selectors:" + DEFAULT_SELECTORS + "}") int selectors,
+        @Value("${apiml.gateway.webSocket.handshakeThreads:" + DEFAULT_HANDSHAKE_THREADS + "}") int handshakeThreads,
+        @Value("${apiml.gateway.webSocket.handshakeQueueSize:" + DEFAULT_HANDSHAKE_QUEUE_SIZE + "}") int handshakeQueueSize,
+        @Value("${apiml.gateway.webSocket.handshakeTimeoutMillis:" + DEFAULT_HANDSHAKE_TIMEOUT_MILLIS + "}") long handshakeTimeoutMillis,
+        @Value("${apiml.gateway.webSocket.loadBalancing:" + DEFAULT_LOAD_BALANCING + "}") WebSocketLoadBalancer.Strategy loadBalancing,
+        @Value("${apiml.gateway.webSocket.sendTimeLimitMillis:10000}") int sendTimeLimitMillis,
+        @Value("${apiml.gateway.webSocket.sendBufferSizeLimitBytes:524288}") int sendBufferSizeLimitBytes,
+        @Value("${apiml.gateway.webSocket.overflowPolicy:CLOSE}") WebSocketFlowControl.OverflowPolicy overflowPolicy,
+        @Value("${apiml.gateway.webSocket.maxMessageSizeBytes:" + DEFAULT_MAX_MESSAGE_SIZE_BYTES + "}") int maxMessageSizeBytes,
+        @Value("${apiml.gateway.webSocket.compression:true}") boolean compression
+    ) {
+        this(discovery, jettySslContextFactoryProvider, new ConcurrentHashMap<>(),
+            new WebSocketRoutedSessionFactoryImpl(
+                new WebSocketFlowControl(sendTimeLimitMillis, sendBufferSizeLimitBytes, overflowPolicy, maxMessageSizeBytes),
+                compression),
+            clients, maxThreads, selectors, handshakeThreads, handshakeQueueSize, handshakeTimeoutMillis, loadBalancing,
+            maxMessageSizeBytes);
     }
 
     public WebSocketProxyServerHandler(DiscoveryClient discovery, SslContextFactoryProvider sslContextFactoryProvider,
                                        Map<String, WebSocketRoutedSession> routedSessions, WebSocketRoutedSessionFactory webSocketRoutedSessionFactory) {
+        this(discovery, sslContextFactoryProvider, routedSessions, webSocketRoutedSessionFactory,
+            DEFAULT_CLIENTS, DEFAULT_MAX_THREADS, DEFAULT_SELECTORS, DEFAULT_HANDSHAKE_THREADS, DEFAULT_HANDSHAKE_QUEUE_SIZE,
+            DEFAULT_HANDSHAKE_TIMEOUT_MILLIS, WebSocketLoadBalancer.Strategy.valueOf(DEFAULT_LOAD_BALANCING),
+            DEFAULT_MAX_MESSAGE_SIZE_BYTES);
+    }
+
+    private WebSocketProxyServerHandler(
+        DiscoveryClient discovery,
+        SslContextFactoryProvider jettySslContextFactoryProvider,
+        Map<String, WebSocketRoutedSession> routedSessions,
+        WebSocketRoutedSessionFactory webSocketRoutedSessionFactory,
+        int clients,
+        int maxThreads,
+        int selectors,
+        int handshakeThreads,
+        int handshakeQueueSize,
+        long handshakeTimeoutMillis,
+        WebSocketLoadBalancer.Strategy loadBalancing,
+        int maxMessageSizeBytes
+    ) {
         this.discovery = discovery;
-        this.jettySslContextFactory = sslContextFactoryProvider.getSslFactory();
+        this.jettySslContextFactory = jettySslContextFactoryProvider.getSslFactory();
         this.routedSessions = routedSessions;
         this.webSocketRoutedSessionFactory = webSocketRoutedSessionFactory;
+        this.webSocketClients = new JettyWebSocketClient[Math.max(1, clients)];
+        this.httpClients = new HttpClient[webSocketClients.length];
+        this.maxThreads = maxThreads;
+        this.selectors = selectors;
+        this.maxMessageSizeBytes = maxMessageSizeBytes;
+        this.handshakeThreads = handshakeThreads;
+        this.handshakeQueueSize = handshakeQueueSize;
+        this.handshakeTimeoutMillis = handshakeTimeoutMillis;
+        this.loadBalancer = new WebSocketLoadBalancer(loadBalancing);
         log.debug("Creating WebSocketProxyServerHandler {} jettySslContextFactory={}", this, jettySslContextFactory);
     }
 
+    /**
+     * Create and start the shared clients. Each client has own bounded thread pool and selectors.
+     */
+    @PostConstruct
+    public void startClients() throws Exception {
+        handshakeExecutor = new ThreadPoolExecutor(handshakeThreads, handshakeThreads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(handshakeQueueSize), daemonThreads("ws-handshake"));
+        handshakeTimeouts = Executors.newSingleThreadScheduledExecutor(daemonThreads("ws-handshake-timeout"));
+
+        for (int i = 0; i < webSocketClients.length; i++) {
+            final QueuedThreadPool executor = new QueuedThreadPool(maxThreads, Math.min(maxThreads, 8));
+            executor.setName("ws-client-" + i);
+            executor.setDaemon(true);
+
+            httpClients[i] = new HttpClient(new HttpClientTransportOverHTTP(selectors), jettySslContextFactory);
+            httpClients[i].setExecutor(executor);
+            httpClients[i].start();
+
+            final WebSocketClient webSocketClient = new WebSocketClient(httpClients[i]);
+            webSocketClient.getPolicy().setMaxTextMessageSize(maxMessageSizeBytes);
+            webSocketClient.getPolicy().setMaxBinaryMessageSize(maxMessageSizeBytes);
+
+            webSocketClients[i] = new JettyWebSocketClient(webSocketClient);
+            webSocketClients[i].setTaskExecutor(new ConcurrentTaskExecutor(handshakeExecutor));
+            webSocketClients[i].start();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Stop the shared clients, it closes all open sessions to the services.
+     */
+    @PreDestroy
+    public void stopClients() {
+        for (final JettyWebSocketClient client : webSocketClients) {
+            if (client != null) client.stop();
+        }
+        for (final HttpClient client : httpClients) {
+            try {
+                if (client != null) client.stop();
+            } catch (Exception e) {
+                log.debug("Error stopping WebSocket client: {}", e.getMessage(), e);
+            }
+        }
+        if (handshakeTimeouts != null) handshakeTimeouts.shutdownNow();
+        if (handshakeExecutor != null) handshakeExecutor.shutdownNow();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(METRIC_PREFIX + ".sessions", this, handler -> handler.getRoutedSessions().size())
+            .description("Count of active routed WebSocket sessions")
+            .register(registry);
+        handshakeTimer = Timer.builder(METRIC_PREFIX + ".handshake")
+            .description("Time of opening WebSocket sessions to the services")
+            .register(registry);
+    }
+
+    private JettyWebSocketClient getWebSocketClient() {
+        return webSocketClients[Math.floorMod(nextClient.getAndIncrement(), webSocketClients.length)];
+    }
+
     public void addRoutedServices(String serviceId, RoutedServices routedServices) {
         routedServicesMap.put(serviceId, routedServices);
     }
@@ -97,7 +276,7 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
                     return;
                 }
 
-                ServiceInstance serviceInstance = findServiceInstance(serviceId);
+                ServiceInstance serviceInstance = findServiceInstance(serviceId, webSocketSession);
                 if (serviceInstance != null) {
                     openWebSocketConnection(service, serviceInstance, serviceInstance, path, webSocketSession);
                 } else {
@@ -134,29 +313,57 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
         String targetUrl = getTargetUrl(serviceUrl, serviceInstance, path);
 
         log.debug(String.format("Opening routed WebSocket session from %s to %s with %s by %s", uri.toString(), targetUrl, jettySslContextFactory, this));
+        final long start = System.nanoTime();
         try {
-            WebSocketRoutedSession session = webSocketRoutedSessionFactory.session(webSocketSession, targetUrl, jettySslContextFactory);
+            WebSocketRoutedSession session = webSocketRoutedSessionFactory.session(webSocketSession, targetUrl, getWebSocketClient());
             routedSessions.put(webSocketSession.getId(), session);
+            loadBalancer.sessionOpened(webSocketSession.getId(), serviceInstance);
+            watchHandshake(session.getHandshake(), session, start);
         } catch (WebSocketProxyError e) {
             log.debug("Error opening WebSocket connection to {}: {}", targetUrl, e.getMessage());
-            webSocketSession.close(CloseStatus.NOT_ACCEPTABLE.withReason(e.getMessage()));
+            CloseStatus status = (e.getCause() instanceof RejectedExecutionException) ?
+                CloseStatus.SERVICE_OVERLOAD : CloseStatus.NOT_ACCEPTABLE;
+            webSocketSession.close(status.withReason(e.getMessage()));
+        }
+    }
+
+    private void watchHandshake(ListenableFuture<WebSocketSession> handshake, WebSocketRoutedSession session, long start) {
+        if (handshake == null) {
+            return;
+        }
+
+        handshake.addCallback(
+            result -> recordHandshake(start),
+            failure -> recordHandshake(start)
+        );
+        if ((handshakeTimeouts != null) && !handshake.isDone()) {
+            handshakeTimeouts.schedule(session::timeoutHandshake, handshakeTimeoutMillis, TimeUnit.MILLISECONDS);
         }
     }
 
-    private ServiceInstance findServiceInstance(String serviceId) {
+    private void recordHandshake(long start) {
+        if (handshakeTimer != null) handshakeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private ServiceInstance findServiceInstance(String serviceId, WebSocketSession webSocketSession) {
         List<ServiceInstance> serviceInstances = this.discovery.getInstances(serviceId);
-        if (!serviceInstances.isEmpty()) {
-            // TODO: This just a simple implementation that will be replaced by more sophisticated mechanism in future
-            return serviceInstances.get(0);
+        return loadBalancer.choose(serviceInstances, getStickyKey(webSocketSession));
+    }
+
+    private String getStickyKey(WebSocketSession webSocketSession) {
+        if (webSocketSession.getPrincipal() != null) {
+            return webSocketSession.getPrincipal().getName();
         }
-        else {
-            return null;
+        if (webSocketSession.getRemoteAddress() != null) {
+            return webSocketSession.getRemoteAddress().getHostString();
         }
+        return null;
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
         log.debug("afterConnectionClosed(session={},status={})", session, status);
+        loadBalancer.sessionClosed(session.getId());
         try {
             session.close(status);
 
@@ -172,6 +379,11 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
         }
     }
 
+    @Override
+    public boolean supportsPartialMessages() {
+        return true;
+    }
+
     @Override
     public void handleMessage(WebSocketSession webSocketSession, WebSocketMessage<?> webSocketMessage)
             throws Exception {
@@ -10,43 +10,86 @@
 package org.zowe.apiml.gateway.ws;
 
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jetty.util.ssl.SslContextFactory;
-import org.eclipse.jetty.websocket.client.WebSocketClient;
 import org.springframework.http.HttpHeaders;
 import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.WebSocketHttpHeaders;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
 
 import java.io.IOException;
 import java.net.URI;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Queue;
 
 /**
  * Represents a connection in the proxying chain, establishes 'client' to
  * 'server' communication with the next server, with a
  * {@link WebSocketProxyClientHandler} to copy data from the 'client' to the
  * supplied 'server' session.
+ *
+ * The handshake with the server is asynchronous. Messages received before it
+ * is completed are buffered (up to {@link #MAX_PENDING_MESSAGES} and up to
+ * sendBufferSizeLimitBytes of {@link WebSocketFlowControl}) and sent once the
+ * session to the server is opened. A session opened by Jetty after
+ * the handshake was cancelled (timeout or closed client) is closed immediately,
+ * the cancel itself does not stop the connect of Jetty.
+ *
+ * Messages in both directions are sent through the sessions decorated by
+ * {@link WebSocketFlowControl}. Partial messages from the client are forwarded
+ * as fragments, without assembling the whole message in the memory.
+ *
+ * Extensions of the client's handshake are not forwarded, permessage-deflate is
+ * negotiated with the server only if the compression is enabled.
  */
 @Slf4j
 public class WebSocketRoutedSession {
-    private static final int DEFAULT_TIMEOUT = 30000;
+    static final int MAX_PENDING_MESSAGES = 100;
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
 
-    private final WebSocketSession webSocketClientSession;
     private final WebSocketSession webSocketServerSession;
+    private final WebSocketSession serverSessionSender;
+    private final WebSocketFlowControl flowControl;
+    private final String targetUrl;
+    private final boolean compression;
+    private final ListenableFuture<WebSocketSession> handshake;
+    private final Queue<WebSocketMessage<?>> pendingMessages = new ArrayDeque<>();
+
+    private volatile WebSocketSession webSocketClientSession;
+    private WebSocketSession openedSession;
+    private volatile boolean closed;
+    private volatile boolean timedOut;
+    private long messageBytes;
+    private long pendingBytes;
 
-    public WebSocketRoutedSession(WebSocketSession webSocketServerSession, String targetUrl, SslContextFactory jettySslContextFactory) {
-        log.debug("Creating WebSocketRoutedSession jettySslContextFactory={}", jettySslContextFactory);
+    public WebSocketRoutedSession(WebSocketSession webSocketServerSession, String targetUrl, JettyWebSocketClient webSocketClient,
+                                  WebSocketFlowControl flowControl, boolean compression) {
+        log.debug("Creating WebSocketRoutedSession webSocketClient={}", webSocketClient);
         this.webSocketServerSession = webSocketServerSession;
-        this.webSocketClientSession = createWebSocketClientSession(webSocketServerSession, targetUrl, jettySslContextFactory);
+        this.serverSessionSender = flowControl.decorate(webSocketServerSession);
+        this.flowControl = flowControl;
+        this.targetUrl = targetUrl;
+        this.compression = compression;
+        this.handshake = startHandshake(webSocketServerSession, targetUrl, webSocketClient);
+        this.handshake.addCallback(this::onHandshakeSuccess, this::onHandshakeFailure);
     }
 
     public WebSocketRoutedSession(WebSocketSession webSocketServerSession, WebSocketSession webSocketClientSession) {
         log.debug("Creating WebSocketRoutedSession with provided server and client session.");
         this.webSocketClientSession = webSocketClientSession;
         this.webSocketServerSession = webSocketServerSession;
+        this.serverSessionSender = webSocketServerSession;
+        this.flowControl = null;
+        this.targetUrl = null;
+        this.compression = false;
+        SettableListenableFuture<WebSocketSession> completed = new SettableListenableFuture<>();
+        completed.set(webSocketClientSession);
+        this.handshake = completed;
     }
 
     private WebSocketHttpHeaders getWebSocketHttpHeaders(WebSocketSession webSocketServerSession) {
@@ -56,10 +99,15 @@ public class WebSocketRoutedSession {
             String header = String.join(" ", value);
             headers.add(key, header);
         });
+        headers.setSecWebSocketExtensions(compression ?
+            Collections.singletonList(new WebSocketExtension(PERMESSAGE_DEFLATE)) : Collections.emptyList());
 
         return headers;
     }
 
+    /**
+     * @return the session to the server, null until the handshake is completed
+     */
     public WebSocketSession getWebSocketClientSession() {
         return webSocketClientSession;
     }
@@ -68,17 +116,26 @@ public class WebSocketRoutedSession {
         return webSocketServerSession;
     }
 
-    private WebSocketSession createWebSocketClientSession(WebSocketSession webSocketServerSession, String targetUrl, SslContextFactory sslContextFactory) {
+    /**
+     * @return the handshake with the server, it is completed with the session to the server
+     */
+    public ListenableFuture<WebSocketSession> getHandshake() {
+        return handshake;
+    }
+
+    private ListenableFuture<WebSocketSession> startHandshake(WebSocketSession webSocketServerSession, String targetUrl, JettyWebSocketClient client) {
         try {
-            log.debug("createWebSocketClientSession(session={},targetUrl={},jettySslContextFactory={})",
-                    webSocketClientSession, targetUrl, sslContextFactory);
-            JettyWebSocketClient client = new JettyWebSocketClient(new WebSocketClient(sslContextFactory));
-            client.start();
+            log.debug("startHandshake(session={},targetUrl={},webSocketClient={})",
+                    webSocketServerSession, targetUrl, client);
             URI targetURI = new URI(targetUrl);
             WebSocketHttpHeaders headers = getWebSocketHttpHeaders(webSocketServerSession);
-            ListenableFuture<WebSocketSession> futureSession = client
-                .doHandshake(new WebSocketProxyClientHandler(webSocketServerSession), headers, targetURI);
-            return futureSession.get(DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
+            WebSocketProxyClientHandler handler = new WebSocketProxyClientHandler(serverSessionSender) {
+                @Override
+                public void afterConnectionEstablished(WebSocketSession session) {
+                    onSessionOpened(session);
+                }
+            };
+            return client.doHandshake(handler, headers, targetURI);
         }
         catch (IllegalStateException e) {
             throw webSocketProxyException(targetUrl, e, webSocketServerSession, true);
@@ -88,6 +145,84 @@ public class WebSocketRoutedSession {
         }
     }
 
+    private void onSessionOpened(WebSocketSession session) {
+        synchronized (this) {
+            if (!closed && !timedOut) {
+                openedSession = session;
+                return;
+            }
+        }
+
+        log.debug("Session to {} was opened after the handshake was cancelled", targetUrl);
+        closeQuietly(session, CloseStatus.GOING_AWAY);
+    }
+
+    private void cancelHandshake() {
+        WebSocketSession session;
+        synchronized (this) {
+            session = openedSession;
+        }
+
+        handshake.cancel(true);
+        if (session != null) {
+            closeQuietly(session, CloseStatus.GOING_AWAY);
+        }
+    }
+
+    private void onHandshakeSuccess(WebSocketSession session) {
+        synchronized (this) {
+            if (!closed) {
+                WebSocketSession sender = flowControl.decorate(session);
+                try {
+                    for (WebSocketMessage<?> webSocketMessage : pendingMessages) {
+                        sender.sendMessage(webSocketMessage);
+                    }
+                    pendingMessages.clear();
+                    pendingBytes = 0;
+                    webSocketClientSession = sender;
+                    return;
+                } catch (SessionLimitExceededException e) {
+                    log.debug("Session to {} exceeded the limits: {}", targetUrl, e.getMessage());
+                    closeServerSession(e.getStatus());
+                } catch (IOException e) {
+                    log.debug("Error sending buffered messages to {}: {}", targetUrl, e.getMessage());
+                    closeServerSession(CloseStatus.SERVER_ERROR.withReason(e.getMessage()));
+                }
+            }
+        }
+
+        closeQuietly(session, CloseStatus.NORMAL);
+    }
+
+    private void onHandshakeFailure(Throwable cause) {
+        if (closed) {
+            return;
+        }
+
+        if (timedOut) {
+            String message = String.format("Timeout of opening session to WebSocket service at %s", targetUrl);
+            log.debug(message);
+            closeServerSession(CloseStatus.SERVICE_OVERLOAD.withReason(message));
+        } else {
+            String message = String.format("Error opening session to WebSocket service at %s: %s", targetUrl, cause.getMessage());
+            log.debug(message);
+            closeServerSession(CloseStatus.NOT_ACCEPTABLE.withReason(message));
+        }
+    }
+
+    /**
+     * Cancel the handshake if it is not completed yet and close the session from the client
+     */
+    public void timeoutHandshake() {
+        synchronized (this) {
+            if (handshake.isDone()) {
+                return;
+            }
+            timedOut = true;
+        }
+        cancelHandshake();
+    }
+
     private WebSocketProxyError webSocketProxyException(String targetUrl, Exception cause, WebSocketSession webSocketServerSession, boolean logError) {
         String message = String.format("Error opening session to WebSocket service at %s: %s", targetUrl, cause.getMessage());
         if (logError) {
@@ -98,12 +233,104 @@ public class WebSocketRoutedSession {
 
     public void sendMessageToServer(WebSocketMessage<?> webSocketMessage) throws IOException {
         log.debug("sendMessageToServer(session={},message={})", webSocketClientSession, webSocketMessage);
-        webSocketClientSession.sendMessage(webSocketMessage);
+        WebSocketSession session;
+        synchronized (this) {
+            if (isTooBig(webSocketMessage)) {
+                closeServerSession(CloseStatus.TOO_BIG_TO_PROCESS.withReason(
+                    String.format("Message is bigger than %d bytes", flowControl.getMaxMessageSizeBytes())));
+                return;
+            }
+
+            session = webSocketClientSession;
+            if (session == null) {
+                if (closed) {
+                    return;
+                }
+                if (canBePending(webSocketMessage)) {
+                    pendingMessages.add(webSocketMessage);
+                    pendingBytes += webSocketMessage.getPayloadLength();
+                    return;
+                }
+            }
+        }
+
+        if (session == null) {
+            closeServerSession(CloseStatus.POLICY_VIOLATION.withReason(
+                String.format("Too many messages or bytes before the session to WebSocket service at %s was opened", targetUrl)));
+            return;
+        }
+        try {
+            session.sendMessage(webSocketMessage);
+        } catch (SessionLimitExceededException e) {
+            log.debug("Session to {} exceeded the limits: {}", getClientUri(), e.getMessage());
+            closeQuietly(session, e.getStatus());
+            closeServerSession(e.getStatus());
+        }
+    }
+
+    private boolean canBePending(WebSocketMessage<?> webSocketMessage) {
+        if (pendingMessages.size() >= MAX_PENDING_MESSAGES) {
+            return false;
+        }
+        return (flowControl == null)
+            || (pendingBytes + webSocketMessage.getPayloadLength() <= flowControl.getSendBufferSizeLimitBytes());
+    }
+
+    private boolean isTooBig(WebSocketMessage<?> webSocketMessage) {
+        if (flowControl == null) {
+            return false;
+        }
+
+        messageBytes += webSocketMessage.getPayloadLength();
+        boolean tooBig = messageBytes > flowControl.getMaxMessageSizeBytes();
+        if (webSocketMessage.isLast()) {
+            messageBytes = 0;
+        }
+        return tooBig;
+    }
+
+    /**
+     * @return count of bytes waiting to be sent to the client
+     */
+    public int getServerBufferSize() {
+        return WebSocketFlowControl.getBufferSize(serverSessionSender);
+    }
+
+    /**
+     * @return count of bytes waiting to be sent to the server
+     */
+    public int getClientBufferSize() {
+        WebSocketSession session = webSocketClientSession;
+        return session == null ? 0 : WebSocketFlowControl.getBufferSize(session);
     }
 
     public void close(CloseStatus status) throws IOException {
-        if (webSocketClientSession.isOpen()) {
-            webSocketClientSession.close(status);
+        WebSocketSession session;
+        synchronized (this) {
+            closed = true;
+            pendingMessages.clear();
+            pendingBytes = 0;
+            session = webSocketClientSession;
+        }
+
+        if (session == null) {
+            cancelHandshake();
+        } else if (session.isOpen()) {
+            session.close(status);
+        }
+    }
+
+    private void closeServerSession(CloseStatus status) {
+        closeQuietly(webSocketServerSession, status);
+    }
+
+    private static void closeQuietly(WebSocketSession session, CloseStatus status) {
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (IOException e) {
+            log.debug("Error closing WebSocket session: {}", e.getMessage(), e);
         }
     }
 
@@ -116,10 +343,12 @@ public class WebSocketRoutedSession {
     }
 
     public String getClientUri() {
-        return getWebSocketClientSession().getUri().toString();
+        WebSocketSession session = getWebSocketClientSession();
+        return session == null ? targetUrl : session.getUri().toString();
     }
 
     public String getClientId() {
-        return getWebSocketClientSession().getId();
+        WebSocketSession session = getWebSocketClientSession();
+        return session == null ? null : session.getId();
     }
 }
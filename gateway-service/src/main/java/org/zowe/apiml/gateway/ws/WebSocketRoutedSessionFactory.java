@@ -9,16 +9,16 @@
  */
 package org.zowe.apiml.gateway.ws;
 
-import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
 
 public interface WebSocketRoutedSessionFactory {
     /**
-     * Create valid client websocket session based on the existing session, target Url and SSL Context.
+     * Create valid client websocket session based on the existing session, target Url and a shared client.
      * @param webSocketSession Valid Server side WebSocket Session.
      * @param targetUrl Full websocket URL towards the server
-     * @param sslContextFactory Factory producing the current SSL Context.
+     * @param webSocketClient Started client used for the handshake with the server, it is shared by many sessions.
      * @return Valid routed session handling the client session
      */
-    WebSocketRoutedSession session(WebSocketSession webSocketSession, String targetUrl, SslContextFactory sslContextFactory);
+    WebSocketRoutedSession session(WebSocketSession webSocketSession, String targetUrl, JettyWebSocketClient webSocketClient);
 }
@@ -9,15 +9,23 @@
  */
 package org.zowe.apiml.gateway.ws;
 
-import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
 
 /**
  * Default implementation. Provides the WebSocketRoutedSession the same way as before.
  */
 public class WebSocketRoutedSessionFactoryImpl implements WebSocketRoutedSessionFactory {
+    private final WebSocketFlowControl flowControl;
+    private final boolean compression;
+
+    public WebSocketRoutedSessionFactoryImpl(WebSocketFlowControl flowControl, boolean compression) {
+        this.flowControl = flowControl;
+        this.compression = compression;
+    }
+
     @Override
-    public WebSocketRoutedSession session(WebSocketSession webSocketSession, String targetUrl, SslContextFactory sslContextFactory) {
-        return new WebSocketRoutedSession(webSocketSession, targetUrl, sslContextFactory);
+    public WebSocketRoutedSession session(WebSocketSession webSocketSession, String targetUrl, JettyWebSocketClient webSocketClient) {
+        return new WebSocketRoutedSession(webSocketSession, targetUrl, webSocketClient, flowControl, compression);
     }
 }
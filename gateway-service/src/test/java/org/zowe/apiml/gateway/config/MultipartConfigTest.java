@@ -11,17 +11,31 @@
 package org.zowe.apiml.gateway.config;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MultipartConfigTest {
+
+    private MultipartConfig createMultipartConfig(boolean streamingEnabled) {
+        StreamingConfigProperties streamingConfigProperties = new StreamingConfigProperties();
+        streamingConfigProperties.setEnabled(streamingEnabled);
+        return new MultipartConfig(streamingConfigProperties);
+    }
+
     @Test
     public void shouldDoPutRequestAndReturnTrue() {
         MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/v1/");
         request.setContentType("multipart/");
-        MultipartConfig multipartConfig = new MultipartConfig();
+        MultipartConfig multipartConfig = createMultipartConfig(false);
         assertTrue(multipartConfig.multipartResolver().isMultipart(request));
     }
 
@@ -29,7 +43,32 @@ public class MultipartConfigTest {
     public void shouldDoGetRequestAndReturnFalse() {
         MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/");
         request.setContentType("multipart/");
-        MultipartConfig multipartConfig = new MultipartConfig();
+        MultipartConfig multipartConfig = createMultipartConfig(false);
+        assertFalse(multipartConfig.multipartResolver().isMultipart(request));
+    }
+
+    @Test
+    public void givenStreamingEnabled_whenPutRequest_thenIsNotParsed() {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/v1/");
+        request.setContentType("multipart/");
+        MultipartConfig multipartConfig = createMultipartConfig(true);
         assertFalse(multipartConfig.multipartResolver().isMultipart(request));
     }
+
+    private String filterHiddenMethod(boolean streamingEnabled, String contentType) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/");
+        request.setContentType(contentType);
+        request.setParameter("_method", "PUT");
+        MockFilterChain filterChain = new MockFilterChain();
+        createMultipartConfig(streamingEnabled).hiddenHttpMethodFilter().doFilter(request, new MockHttpServletResponse(), filterChain);
+        return ((HttpServletRequest) filterChain.getRequest()).getMethod();
+    }
+
+    @Test
+    public void givenStreamingEnabled_whenMultipartRequest_thenHiddenMethodIsNotRead() throws ServletException, IOException {
+        assertEquals("POST", filterHiddenMethod(true, "multipart/form-data; boundary=xyz"));
+        assertEquals("PUT", filterHiddenMethod(true, "application/x-www-form-urlencoded"));
+        assertEquals("PUT", filterHiddenMethod(false, "multipart/form-data; boundary=xyz"));
+    }
+
 }
@@ -9,19 +9,40 @@
  */
 package org.zowe.apiml.gateway.controllers;
 
+import io.jsonwebtoken.SignatureAlgorithm;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.zowe.apiml.gateway.config.TokenInvalidationConfigProperties;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
+import org.zowe.apiml.gateway.security.service.JwtSecurityInitializer;
+import org.zowe.apiml.security.common.token.TokenNotValidException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import static org.apache.http.HttpStatus.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -32,9 +53,15 @@ public class AuthControllerTest {
     @Mock
     private AuthenticationService authenticationService;
 
+    @Mock
+    private JwtSecurityInitializer jwtSecurityInitializer;
+
+    private TokenInvalidationConfigProperties tokenInvalidationConfigProperties;
+
     @BeforeEach
     public void setUp() {
-        AuthController authController = new AuthController(authenticationService);
+        tokenInvalidationConfigProperties = new TokenInvalidationConfigProperties();
+        AuthController authController = new AuthController(authenticationService, jwtSecurityInitializer, tokenInvalidationConfigProperties);
         mockMvc = MockMvcBuilders.standaloneSetup(authController).build();
     }
 
@@ -61,4 +88,92 @@ public class AuthControllerTest {
         this.mockMvc.perform(get("/auth/distribute/instance2")).andExpect(status().is(SC_NO_CONTENT));
     }
 
+    @Test
+    public void getVerificationKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        Map<String, PublicKey> keys = new LinkedHashMap<>();
+        keys.put("current", generator.generateKeyPair().getPublic());
+        keys.put("previous", generator.generateKeyPair().getPublic());
+        when(jwtSecurityInitializer.getVerificationKeys()).thenReturn(keys);
+        when(jwtSecurityInitializer.getKeyId()).thenReturn("current");
+        when(jwtSecurityInitializer.getSignatureAlgorithm()).thenReturn(SignatureAlgorithm.ES256);
+
+        this.mockMvc.perform(get("/auth/keys"))
+            .andExpect(status().is(SC_OK))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"))
+            .andExpect(jsonPath("$.keys.length()").value(2))
+            .andExpect(jsonPath("$.keys[0].kid").value("current"))
+            .andExpect(jsonPath("$.keys[0].alg").value("ES256"))
+            .andExpect(jsonPath("$.keys[0].kty").value("EC"))
+            .andExpect(jsonPath("$.keys[0].crv").value("P-256"))
+            .andExpect(jsonPath("$.keys[1].kid").value("previous"))
+            .andExpect(jsonPath("$.keys[1].alg").doesNotExist());
+    }
+
+    private byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void invalidateJwtTokensInBulk() throws Exception {
+        when(authenticationService.invalidateJwtToken(anyString(), eq(false))).thenReturn(Boolean.TRUE);
+        when(authenticationService.invalidateJwtToken("malformed", false)).thenThrow(new TokenNotValidException("Unknown token type."));
+
+        this.mockMvc.perform(post("/auth/invalidate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .content(gzip("[\"a\",\"malformed\",\"b\"]"))
+        ).andExpect(status().is(SC_OK));
+
+        verify(authenticationService, times(1)).invalidateJwtToken("a", false);
+        verify(authenticationService, times(1)).invalidateJwtToken("b", false);
+    }
+
+    @Test
+    public void invalidateJwtTokensInBulkWithFailure() throws Exception {
+        when(authenticationService.invalidateJwtToken("a", false)).thenThrow(new IllegalStateException("z/OSMF is not available"));
+        when(authenticationService.invalidateJwtToken("b", false)).thenReturn(Boolean.TRUE);
+
+        this.mockMvc.perform(post("/auth/invalidate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"a\",\"b\"]")
+        ).andExpect(status().is(SC_SERVICE_UNAVAILABLE));
+
+        verify(authenticationService, times(1)).invalidateJwtToken("b", false);
+    }
+
+    @Test
+    public void addInvalidatedTokens() throws Exception {
+        this.mockMvc.perform(post("/auth/revoked")
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .content(gzip("[\"hash1:1\",\"hash2:2\"]"))
+        ).andExpect(status().is(SC_OK));
+
+        verify(authenticationService, times(1)).addInvalidated(Arrays.asList("hash1:1", "hash2:2"));
+    }
+
+    @Test
+    public void rejectTooBigDecompressedBody() throws Exception {
+        tokenInvalidationConfigProperties.setMaxRequestBytes(1024);
+        final StringBuilder tokens = new StringBuilder("[\"");
+        for (int i = 0; i < 2048; i++) tokens.append('a');
+        tokens.append("\"]");
+
+        final byte[] compressed = gzip(tokens.toString());
+        assertTrue(compressed.length < 1024);
+        this.mockMvc.perform(post("/auth/invalidate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .content(compressed)
+        ).andExpect(status().is(SC_REQUEST_TOO_LONG));
+
+        verify(authenticationService, never()).invalidateJwtToken(anyString(), anyBoolean());
+    }
+
 }
@@ -9,8 +9,9 @@
  */
 package org.zowe.apiml.gateway.filters.pre;
 
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.zowe.apiml.gateway.routing.RoutedZuulRoute;
 import org.zowe.apiml.product.routing.RoutedService;
-import org.zowe.apiml.product.routing.RoutedServices;
 import com.netflix.zuul.context.RequestContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -33,16 +34,13 @@ public class LocationFilterTest {
         ctx.set(REQUEST_URI_KEY, "/path");
         ctx.set(PROXY_KEY, "api/v1/service");
         ctx.set(SERVICE_ID_KEY, "service");
-        RoutedServices routedServices = new RoutedServices();
-        routedServices.addRoutedService(
-            new RoutedService("testv1", "ui/r4", "/service/r1"));
-        routedServices.addRoutedService(
-            new RoutedService("testv4", "api/v2", "/service/v2"));
-        routedServices.addRoutedService(
-            new RoutedService("testv2", "test", "/service/test1"));
-        routedServices.addRoutedService(
-            new RoutedService("testv3", "api/v1", "/service/v1"));
-        this.filter.addRoutedServices("service", routedServices);
+        ctx.set(RoutedZuulRoute.CONTEXT_KEY, route("api/v1", "/service/v1"));
+    }
+
+    private RoutedZuulRoute route(String gatewayUrl, String serviceUrl) {
+        return new RoutedZuulRoute(
+            "/" + gatewayUrl + "/service/**", "service", new RoutedService("testv1", gatewayUrl, serviceUrl)
+        );
     }
 
     @Test
@@ -50,6 +48,15 @@ public class LocationFilterTest {
         final RequestContext ctx = RequestContext.getCurrentContext();
         ctx.set(SERVICE_ID_KEY, "service1");
         ctx.set(PROXY_KEY, "service1");
+        ctx.remove(RoutedZuulRoute.CONTEXT_KEY);
+        this.filter.run();
+        assertEquals("/path", ctx.get(REQUEST_URI_KEY));
+    }
+
+    @Test
+    public void routeWithoutMetadataIsNotModified() {
+        final RequestContext ctx = RequestContext.getCurrentContext();
+        ctx.set(RoutedZuulRoute.CONTEXT_KEY, new ZuulProperties.ZuulRoute("/service/**", "service"));
         this.filter.run();
         assertEquals("/path", ctx.get(REQUEST_URI_KEY));
     }
@@ -70,19 +77,20 @@ public class LocationFilterTest {
     }
 
     @Test
-    public void proxyStartsWithSlash() {
+    public void matchedRouteIsUsed() {
         final RequestContext ctx = RequestContext.getCurrentContext();
         ctx.set(PROXY_KEY, "/api/v2/service");
+        ctx.set(RoutedZuulRoute.CONTEXT_KEY, route("api/v2", "/service/v2"));
         this.filter.run();
         assertEquals("/service/v2/path", ctx.get(REQUEST_URI_KEY));
     }
 
     @Test
-    public void proxyEndsWithSlash() {
+    public void routeOfOtherServiceIsIgnored() {
         final RequestContext ctx = RequestContext.getCurrentContext();
-        ctx.set(PROXY_KEY, "api/v2/service/");
+        ctx.set(SERVICE_ID_KEY, "service2");
         this.filter.run();
-        assertEquals("/service/v2/path", ctx.get(REQUEST_URI_KEY));
+        assertEquals("/path", ctx.get(REQUEST_URI_KEY));
     }
 
     @Test
@@ -101,22 +109,6 @@ public class LocationFilterTest {
         assertEquals("/path", ctx.get(REQUEST_URI_KEY));
     }
 
-    @Test
-    public void proxyIsEmpty() {
-        final RequestContext ctx = RequestContext.getCurrentContext();
-        ctx.set(PROXY_KEY, "");
-        this.filter.run();
-        assertEquals("/path", ctx.get(REQUEST_URI_KEY));
-    }
-
-    @Test
-    public void proxyIsNull() {
-        final RequestContext ctx = RequestContext.getCurrentContext();
-        ctx.set(PROXY_KEY, null);
-        this.filter.run();
-        assertEquals("/path", ctx.get(REQUEST_URI_KEY));
-    }
-
     @Test
     public void requestPathIsEmpty() {
         final RequestContext ctx = RequestContext.getCurrentContext();
@@ -153,13 +145,9 @@ public class LocationFilterTest {
 
     @Test
     public void normalizeOriginalPathShouldReturnEmptyString() {
-        LocationFilter filter = new LocationFilter();
         final RequestContext ctx = RequestContext.getCurrentContext();
-        RoutedServices routedServices = new RoutedServices();
-        routedServices.addRoutedService(
-            new RoutedService("testv1", "api/v1", null));
-        filter.addRoutedServices("service", routedServices);
-        filter.run();
+        ctx.set(RoutedZuulRoute.CONTEXT_KEY, route("api/v1", null));
+        this.filter.run();
         assertEquals("/path", ctx.get(REQUEST_URI_KEY));
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.pre;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.zowe.apiml.gateway.config.StreamingConfigProperties;
+import org.zowe.apiml.gateway.utils.CleanCurrentRequestContextTest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamingFormBodyWrapperFilterTest extends CleanCurrentRequestContextTest {
+
+    private final StreamingConfigProperties streamingConfigProperties = new StreamingConfigProperties();
+    private final StreamingFormBodyWrapperFilter filter = new StreamingFormBodyWrapperFilter(streamingConfigProperties);
+
+    @BeforeEach
+    public void enableStreaming() {
+        streamingConfigProperties.setEnabled(true);
+    }
+
+    private void setRequest(String contentType) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/service/upload");
+        request.setContentType(contentType);
+        ctx.setRequest(request);
+    }
+
+    @Test
+    public void givenStreamingEnabled_whenMultipart_thenIsSkipped() {
+        setRequest("multipart/form-data; boundary=abc");
+        assertFalse(filter.shouldFilter());
+    }
+
+    @Test
+    public void givenStreamingEnabled_whenFormData_thenIsWrapped() {
+        setRequest("application/x-www-form-urlencoded");
+        assertTrue(filter.shouldFilter());
+    }
+
+}
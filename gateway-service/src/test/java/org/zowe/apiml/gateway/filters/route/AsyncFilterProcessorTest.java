@@ -0,0 +1,85 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.route;
+
+import com.netflix.zuul.context.RequestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.zowe.apiml.gateway.utils.CleanCurrentRequestContextTest;
+
+import javax.servlet.DispatcherType;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.SERVICE_ID_KEY;
+
+class AsyncFilterProcessorTest extends CleanCurrentRequestContextTest {
+
+    private final AsyncFilterProcessor filterProcessor = new AsyncFilterProcessor();
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        request = new MockHttpServletRequest("GET", "/api/v1/service/resource");
+    }
+
+    private RequestContext createSuspendedContext() {
+        RequestContext suspended = new RequestContext();
+        suspended.setRequest(request);
+        suspended.setResponse(new MockHttpServletResponse());
+        suspended.set(SERVICE_ID_KEY, "service");
+        AsyncFilterProcessor.suspend(suspended);
+        return suspended;
+    }
+
+    @Test
+    void givenSuspendedContext_whenSuspend_thenContextIsStoredInRequest() {
+        RequestContext suspended = createSuspendedContext();
+
+        assertTrue(AsyncFilterProcessor.isSuspended(suspended));
+        assertSame(suspended, request.getAttribute(AsyncFilterProcessor.CONTEXT_ATTRIBUTE));
+    }
+
+    @Test
+    void givenAsyncDispatch_whenResume_thenContextIsRestored() {
+        createSuspendedContext();
+        request.setDispatcherType(DispatcherType.ASYNC);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ctx.setRequest(request);
+        ctx.setResponse(response);
+
+        assertTrue(filterProcessor.resume(ctx));
+
+        assertEquals("service", ctx.get(SERVICE_ID_KEY));
+        assertFalse(AsyncFilterProcessor.isSuspended(ctx));
+        assertSame(request, ctx.getRequest());
+        assertSame(response, ctx.getResponse());
+        assertNull(request.getAttribute(AsyncFilterProcessor.CONTEXT_ATTRIBUTE));
+    }
+
+    @Test
+    void givenRequestDispatch_whenResume_thenContextIsNotRestored() {
+        createSuspendedContext();
+        ctx.setRequest(request);
+
+        assertFalse(filterProcessor.resume(ctx));
+        assertNull(ctx.get(SERVICE_ID_KEY));
+    }
+
+    @Test
+    void givenAsyncDispatchWithoutSuspendedContext_whenResume_thenContextIsNotRestored() {
+        request.setDispatcherType(DispatcherType.ASYNC);
+        ctx.setRequest(request);
+
+        assertFalse(filterProcessor.resume(ctx));
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.route;
+
+import com.netflix.zuul.exception.ZuulException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.springframework.cloud.netflix.zuul.filters.route.RibbonCommandFactory;
+import org.springframework.cloud.netflix.zuul.util.ZuulRuntimeException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.StreamUtils;
+import org.zowe.apiml.gateway.config.AsyncRoutingConfigProperties;
+import org.zowe.apiml.gateway.utils.CleanCurrentRequestContextTest;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class AsyncRibbonRoutingFilterTest extends CleanCurrentRequestContextTest {
+
+    private AsyncRoutingConfigProperties properties;
+    private AsyncRibbonRoutingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AsyncRoutingConfigProperties();
+        properties.setMaxRequestBodyBytes(100);
+        filter = new AsyncRibbonRoutingFilter(
+            new ProxyRequestHelper(new ZuulProperties()),
+            mock(RibbonCommandFactory.class),
+            Collections.emptyList(),
+            mock(SpringClientFactory.class),
+            mock(CloseableHttpAsyncClient.class),
+            properties
+        );
+    }
+
+    private MockHttpServletRequest createRequest(int contentLength) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/service/resource");
+        request.setAsyncSupported(true);
+        if (contentLength >= 0) {
+            request.setContent(new byte[contentLength]);
+        }
+        return request;
+    }
+
+    @Test
+    void givenSmallBody_whenIsAsyncSupported_thenTrue() {
+        assertTrue(filter.isAsyncSupported(createRequest(100)));
+    }
+
+    @Test
+    void givenNoBody_whenIsAsyncSupported_thenTrue() {
+        assertTrue(filter.isAsyncSupported(createRequest(-1)));
+    }
+
+    @Test
+    void givenBigBody_whenIsAsyncSupported_thenFalse() {
+        assertFalse(filter.isAsyncSupported(createRequest(101)));
+    }
+
+    @Test
+    void givenChunkedBody_whenIsAsyncSupported_thenFalse() {
+        MockHttpServletRequest request = createRequest(-1);
+        request.addHeader("Transfer-Encoding", "chunked");
+
+        assertFalse(filter.isAsyncSupported(request));
+    }
+
+    @Test
+    void givenServletWithoutAsyncSupport_whenIsAsyncSupported_thenFalse() {
+        MockHttpServletRequest request = createRequest(0);
+        request.setAsyncSupported(false);
+
+        assertFalse(filter.isAsyncSupported(request));
+    }
+
+    @Test
+    void givenResponse_whenProcessResult_thenResponseIsSetToContext() throws IOException {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_CREATED, "Created");
+        response.addHeader("X-Custom", "value");
+        response.setEntity(new ByteArrayEntity("body".getBytes()));
+        ctx.set(AsyncRibbonRoutingFilter.RESPONSE_KEY, response);
+
+        assertSame(response, filter.processResult(ctx));
+
+        assertEquals(HttpStatus.SC_CREATED, ctx.getResponseStatusCode());
+        assertEquals("body", StreamUtils.copyToString(ctx.getResponseDataStream(), StandardCharsets.UTF_8));
+        assertTrue(ctx.getZuulResponseHeaders().stream()
+            .anyMatch(h -> "X-Custom".equals(h.first()) && "value".equals(h.second())));
+        assertFalse(ctx.containsKey(AsyncRibbonRoutingFilter.RESPONSE_KEY));
+    }
+
+    @Test
+    void givenTimeout_whenProcessResult_thenGatewayTimeoutIsThrown() {
+        ctx.set(AsyncRibbonRoutingFilter.EXCEPTION_KEY, new SocketTimeoutException("Read timed out"));
+
+        ZuulRuntimeException exception = assertThrows(ZuulRuntimeException.class, () -> filter.processResult(ctx));
+
+        assertEquals(HttpStatus.SC_GATEWAY_TIMEOUT, ((ZuulException) exception.getCause()).nStatusCode);
+        assertFalse(ctx.containsKey(AsyncRibbonRoutingFilter.EXCEPTION_KEY));
+    }
+
+    @Test
+    void givenFailure_whenProcessResult_thenInternalErrorIsThrown() {
+        ctx.set(AsyncRibbonRoutingFilter.EXCEPTION_KEY, new IOException("Connection refused"));
+
+        ZuulRuntimeException exception = assertThrows(ZuulRuntimeException.class, () -> filter.processResult(ctx));
+
+        assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, ((ZuulException) exception.getCause()).nStatusCode);
+    }
+
+}
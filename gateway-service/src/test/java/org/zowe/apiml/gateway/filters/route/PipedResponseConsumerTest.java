@@ -0,0 +1,174 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.route;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PipedResponseConsumerTest {
+
+    private static final int BUFFER_LIMIT = 16;
+
+    private final AtomicReference<HttpResponse> received = new AtomicReference<>();
+    private PipedResponseConsumer consumer;
+    private IOControl ioControl;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new PipedResponseConsumer(BUFFER_LIMIT, 1000, received::set);
+        ioControl = mock(IOControl.class);
+    }
+
+    private HttpResponse createResponse(boolean withEntity) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        if (withEntity) {
+            BasicHttpEntity entity = new BasicHttpEntity();
+            entity.setContentType("application/octet-stream");
+            entity.setContentLength(-1);
+            response.setEntity(entity);
+        }
+        return response;
+    }
+
+    private byte[] createBody(int length) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) i;
+        }
+        return body;
+    }
+
+    @Test
+    void givenResponseWithoutEntity_whenReceived_thenIsPassedAtOnce() {
+        HttpResponse response = createResponse(false);
+
+        consumer.responseReceived(response);
+
+        assertSame(response, received.get());
+        assertNull(response.getEntity());
+    }
+
+    @Test
+    void givenResponseWithEntity_whenContentIsConsumed_thenBodyIsReadable() throws IOException {
+        byte[] body = createBody(BUFFER_LIMIT - 1);
+        consumer.responseReceived(createResponse(true));
+        assertEquals("application/octet-stream", received.get().getEntity().getContentType().getValue());
+
+        consumer.consumeContent(new ArrayContentDecoder(body), ioControl);
+        consumer.responseCompleted(new BasicHttpContext());
+
+        assertTrue(consumer.isDone());
+        assertArrayEquals(body, StreamUtils.copyToByteArray(received.get().getEntity().getContent()));
+        verify(ioControl, never()).suspendInput();
+    }
+
+    @Test
+    void givenSlowReader_whenBufferIsFull_thenInputIsSuspendedUntilRead() throws IOException {
+        byte[] body = createBody(BUFFER_LIMIT * 2);
+        consumer.responseReceived(createResponse(true));
+        InputStream inputStream = received.get().getEntity().getContent();
+
+        consumer.consumeContent(new ArrayContentDecoder(body), ioControl);
+        verify(ioControl).suspendInput();
+
+        byte[] read = new byte[body.length];
+        assertEquals(body.length, inputStream.read(read));
+        assertArrayEquals(body, read);
+        verify(ioControl).requestInput();
+    }
+
+    @Test
+    void givenFailure_whenRead_thenExceptionIsThrown() throws IOException {
+        consumer.responseReceived(createResponse(true));
+        InputStream inputStream = received.get().getEntity().getContent();
+
+        consumer.failed(new IOException("connection reset"));
+
+        assertThrows(IOException.class, inputStream::read);
+        assertNotNull(consumer.getException());
+    }
+
+    @Test
+    void givenNoData_whenRead_thenTimesOut() throws IOException {
+        consumer = new PipedResponseConsumer(BUFFER_LIMIT, 10, received::set);
+        consumer.responseReceived(createResponse(true));
+
+        assertThrows(SocketTimeoutException.class, () -> received.get().getEntity().getContent().read());
+    }
+
+    @Test
+    void givenUnfinishedBody_whenClosed_thenExchangeIsCancelled() throws IOException {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        consumer.setOnClose(() -> cancelled.set(true));
+        consumer.responseReceived(createResponse(true));
+
+        received.get().getEntity().getContent().close();
+
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void givenFinishedBody_whenClosed_thenExchangeIsNotCancelled() throws IOException {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        consumer.setOnClose(() -> cancelled.set(true));
+        consumer.responseReceived(createResponse(true));
+        consumer.responseCompleted(new BasicHttpContext());
+
+        received.get().getEntity().getContent().close();
+
+        assertFalse(cancelled.get());
+    }
+
+    private static class ArrayContentDecoder implements ContentDecoder {
+
+        private final ByteBuffer source;
+
+        ArrayContentDecoder(byte[] data) {
+            this.source = ByteBuffer.wrap(data);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!source.hasRemaining()) return -1;
+
+            int count = Math.min(dst.remaining(), source.remaining());
+            for (int i = 0; i < count; i++) {
+                dst.put(source.get());
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return !source.hasRemaining();
+        }
+
+    }
+
+}
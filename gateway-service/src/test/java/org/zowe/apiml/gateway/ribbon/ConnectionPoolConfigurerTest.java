@@ -0,0 +1,206 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.CONNECTION_POOL_MAX_PER_ROUTE;
+
+class ConnectionPoolConfigurerTest {
+
+    private EurekaClient discoveryClient;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private MeterRegistry meterRegistry;
+    private ConnectionPoolConfigurer connectionPoolConfigurer;
+
+    @BeforeEach
+    void setUp() {
+        discoveryClient = mock(EurekaClient.class);
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(100);
+        connectionManager.setDefaultMaxPerRoute(10);
+        meterRegistry = new SimpleMeterRegistry();
+        connectionPoolConfigurer = new ConnectionPoolConfigurer(discoveryClient, connectionManager, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManager.close();
+    }
+
+    private InstanceInfo createInstanceInfo(String serviceId, String hostName, int port, String maxPerRoute) {
+        return InstanceInfo.Builder.newBuilder()
+            .setAppName(serviceId)
+            .setInstanceId(hostName + ":" + serviceId + ":" + port)
+            .setHostName(hostName)
+            .setPort(port)
+            .enablePort(InstanceInfo.PortType.UNSECURE, false)
+            .setSecurePort(port)
+            .enablePort(InstanceInfo.PortType.SECURE, true)
+            .setMetadata(maxPerRoute == null ?
+                Collections.emptyMap() : Collections.singletonMap(CONNECTION_POOL_MAX_PER_ROUTE, maxPerRoute))
+            .build();
+    }
+
+    private void refresh(InstanceInfo...instanceInfos) {
+        Applications applications = new Applications();
+        for (InstanceInfo instanceInfo : instanceInfos) {
+            Application application = new Application(instanceInfo.getAppName());
+            application.addInstance(instanceInfo);
+            applications.addApplication(application);
+        }
+        when(discoveryClient.getApplications()).thenReturn(applications);
+        connectionPoolConfigurer.onEvent(mock(CacheRefreshedEvent.class));
+    }
+
+    private int getMaxPerRoute(InstanceInfo instanceInfo) {
+        return connectionManager.getMaxPerRoute(ConnectionPoolConfigurer.getRoute(instanceInfo));
+    }
+
+    @Test
+    void givenConfigurer_whenCreated_thenIsRegisteredAsListenerWithTotalGauges() {
+        verify(discoveryClient).registerEventListener(connectionPoolConfigurer);
+        assertEquals(100.0, meterRegistry.get(ConnectionPoolConfigurer.METRIC_PREFIX + ".total.max").gauge().value());
+        assertEquals(0.0, meterRegistry.get(ConnectionPoolConfigurer.METRIC_PREFIX + ".total.leased").gauge().value());
+    }
+
+    @Test
+    void givenInstanceWithMetadata_whenRefreshed_thenLimitOfRouteIsSet() {
+        InstanceInfo custom = createInstanceInfo("SERVICE1", "host1", 10001, "50");
+        InstanceInfo standard = createInstanceInfo("SERVICE2", "host2", 10002, null);
+
+        refresh(custom, standard);
+
+        assertEquals(50, getMaxPerRoute(custom));
+        assertEquals(10, getMaxPerRoute(standard));
+    }
+
+    @Test
+    void givenSecureInstanceWithDifferentPorts_whenRefreshed_thenLimitIsSetForSecurePort() {
+        InstanceInfo secure = InstanceInfo.Builder.newBuilder()
+            .setAppName("SERVICE1")
+            .setInstanceId("host1:SERVICE1:10443")
+            .setHostName("host1")
+            .setPort(10001)
+            .enablePort(InstanceInfo.PortType.UNSECURE, false)
+            .setSecurePort(10443)
+            .enablePort(InstanceInfo.PortType.SECURE, true)
+            .setMetadata(Collections.singletonMap(CONNECTION_POOL_MAX_PER_ROUTE, "50"))
+            .build();
+
+        refresh(secure);
+
+        assertEquals(50, connectionManager.getMaxPerRoute(new HttpRoute(new HttpHost("host1", 10443, "https"), null, true)));
+        assertEquals(10, connectionManager.getMaxPerRoute(new HttpRoute(new HttpHost("host1", 10001, "https"), null, true)));
+    }
+
+    @Test
+    void givenInvalidMetadata_whenRefreshed_thenDefaultLimitIsUsed() {
+        InstanceInfo notNumber = createInstanceInfo("SERVICE1", "host1", 10001, "many");
+        InstanceInfo negative = createInstanceInfo("SERVICE2", "host2", 10002, "-1");
+
+        refresh(notNumber, negative);
+
+        assertEquals(10, getMaxPerRoute(notNumber));
+        assertEquals(10, getMaxPerRoute(negative));
+    }
+
+    @Test
+    void givenRemovedMetadata_whenRefreshed_thenLimitIsReset() {
+        refresh(createInstanceInfo("SERVICE1", "host1", 10001, "50"));
+        InstanceInfo changed = createInstanceInfo("SERVICE1", "host1", 10001, null);
+
+        refresh(changed);
+
+        assertEquals(10, getMaxPerRoute(changed));
+    }
+
+    @Test
+    void givenAddedPool_whenRefreshed_thenLimitsAreSetInBothPools() {
+        InstanceInfo instanceInfo = createInstanceInfo("SERVICE1", "host1", 10001, "50");
+        refresh(instanceInfo);
+        PoolingHttpClientConnectionManager otherPool = new PoolingHttpClientConnectionManager();
+        otherPool.setDefaultMaxPerRoute(20);
+        HttpRoute route = ConnectionPoolConfigurer.getRoute(instanceInfo);
+
+        try {
+            connectionPoolConfigurer.addConnectionPool(otherPool);
+            assertEquals(50, otherPool.getMaxPerRoute(route));
+
+            refresh(createInstanceInfo("SERVICE1", "host1", 10001, "30"));
+            assertEquals(30, otherPool.getMaxPerRoute(route));
+            assertEquals(30, connectionManager.getMaxPerRoute(route));
+
+            refresh(createInstanceInfo("SERVICE1", "host1", 10001, null));
+            assertEquals(20, otherPool.getMaxPerRoute(route));
+            assertEquals(10, connectionManager.getMaxPerRoute(route));
+        } finally {
+            otherPool.close();
+        }
+    }
+
+    @Test
+    void givenInstance_whenRefreshed_thenRouteGaugesAreRegistered() {
+        InstanceInfo instanceInfo = createInstanceInfo("SERVICE1", "host1", 10001, "50");
+
+        refresh(instanceInfo);
+
+        String route = "https://host1:10001";
+        assertEquals(50.0, meterRegistry.get(ConnectionPoolConfigurer.METRIC_PREFIX + ".max")
+            .tag(ConnectionPoolConfigurer.TAG_ROUTE, route).gauge().value());
+        assertEquals(0.0, meterRegistry.get(ConnectionPoolConfigurer.METRIC_PREFIX + ".leased")
+            .tag(ConnectionPoolConfigurer.TAG_ROUTE, route).gauge().value());
+        assertEquals(0.0, meterRegistry.get(ConnectionPoolConfigurer.METRIC_PREFIX + ".pending")
+            .tag(ConnectionPoolConfigurer.TAG_ROUTE, route).gauge().value());
+        assertEquals(0.0, meterRegistry.get(ConnectionPoolConfigurer.METRIC_PREFIX + ".available")
+            .tag(ConnectionPoolConfigurer.TAG_ROUTE, route).gauge().value());
+    }
+
+    @Test
+    void givenRemovedInstance_whenRefreshed_thenRouteGaugesAreRemoved() {
+        refresh(createInstanceInfo("SERVICE1", "host1", 10001, null));
+        refresh(createInstanceInfo("SERVICE2", "host2", 10002, null));
+
+        assertNull(meterRegistry.find(ConnectionPoolConfigurer.METRIC_PREFIX + ".leased")
+            .tag(ConnectionPoolConfigurer.TAG_ROUTE, "https://host1:10001").gauge());
+        assertNotNull(meterRegistry.find(ConnectionPoolConfigurer.METRIC_PREFIX + ".leased")
+            .tag(ConnectionPoolConfigurer.TAG_ROUTE, "https://host2:10002").gauge());
+    }
+
+    @Test
+    void givenUnsecureInstance_whenGetRoute_thenRouteIsPlain() {
+        InstanceInfo instanceInfo = InstanceInfo.Builder.newBuilder()
+            .setAppName("SERVICE1").setHostName("host1")
+            .setPort(10001).enablePort(InstanceInfo.PortType.UNSECURE, true)
+            .build();
+
+        HttpRoute route = ConnectionPoolConfigurer.getRoute(instanceInfo);
+
+        assertFalse(route.isSecure());
+        assertEquals("http://host1:10001", route.getTargetHost().toURI());
+    }
+
+}
@@ -11,10 +11,11 @@ package org.zowe.apiml.gateway.ribbon;/*
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
-import org.zowe.apiml.gateway.config.CacheConfig;
+import org.zowe.apiml.gateway.config.StreamingConfigProperties;
 import org.zowe.apiml.gateway.security.service.AuthenticationException;
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationCommand;
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.client.RequestSpecificRetryHandler;
 import com.netflix.client.config.DefaultClientConfigImpl;
 import com.netflix.client.config.IClientConfig;
 import com.netflix.discovery.EurekaClient;
@@ -27,22 +28,28 @@ import com.netflix.loadbalancer.reactive.LoadBalancerCommand;
 import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
 import com.netflix.zuul.context.RequestContext;
 import lombok.Getter;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.CacheManager;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonApacheHttpRequest;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonApacheHttpResponse;
 import org.springframework.cloud.netflix.ribbon.support.RibbonCommandContext;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
+import java.io.ByteArrayInputStream;
+import java.net.ConnectException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
@@ -55,8 +62,7 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration(classes = {
-    GatewayRibbonLoadBalancingHttpClientImplTest.Context.class,
-    CacheConfig.class
+    GatewayRibbonLoadBalancingHttpClientImplTest.Context.class
 })
 public class GatewayRibbonLoadBalancingHttpClientImplTest {
 
@@ -82,28 +88,15 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
     }
 
     @Test
-    public void testCache() {
-        InstanceInfo ii = mock(InstanceInfo.class);
-        bean.putInstanceInfo("service1", "host:service1:123", ii);
-
-        verify(discoveryClient, never()).getApplications(any());
-        assertSame(ii, bean.getInstanceInfo("service1", "host:service1:123"));
-
+    public void testGetInstanceInfo() {
         InstanceInfo ii1 = createInstanceInfo("host:service2:1");
         InstanceInfo ii2 = createInstanceInfo("host:service2:2");
         Application application = createApplication(ii1, ii2);
         when(discoveryClient.getApplication("service2")).thenReturn(application);
         assertSame(ii1, bean.getInstanceInfo("service2", "host:service2:1"));
         assertSame(ii2, bean.getInstanceInfo("service2", "host:service2:2"));
-        verify(discoveryClient, times(1)).getApplication("service2");
-
-        bean.evictCacheService("service2");
-
-        assertSame(ii, bean.getInstanceInfo("service1", "host:service1:123"));
-        verify(discoveryClient, times(1)).getApplication("service2");
-
-        assertSame(ii2, bean.getInstanceInfo("service2", "host:service2:2"));
-        verify(discoveryClient, times(2)).getApplication("service2");
+        assertNull(bean.getInstanceInfo("service2", "host:service2:3"));
+        assertNull(bean.getInstanceInfo("unknown", "host:unknown:1"));
     }
 
     private ExecutionListener<Object, RibbonApacheHttpResponse> getListener() {
@@ -168,10 +161,6 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
         assertNotNull(headers.get("testinstanceid"));
         assertEquals(1, headers.get("testinstanceid").size());
         assertEquals("host:service3:1", headers.get("testinstanceid").get(0));
-        verify(discoveryClient, times(1)).getApplication("service3");
-        bean.getInstanceInfo("service3", "host:service3:1");
-        bean.getInstanceInfo("service3", "host:service3:2");
-        verify(discoveryClient, times(1)).getApplication("service3");
     }
 
     @Test
@@ -192,6 +181,131 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
         assertEquals("https://localhost:10014/apicatalog/", reconstructedURI.toString(),"URI is not same with expected");
     }
 
+    @Test
+    public void givenUsualUri_whenReconstructURIWithServer_thenSameAsRibbonConstruction() throws URISyntaxException {
+        GatewayRibbonLoadBalancingHttpClientImpl client = (GatewayRibbonLoadBalancingHttpClientImpl) bean;
+        Server[] servers = {
+            createServer("localhost", 10014, true, false, "defaultZone"),
+            createServer("localhost", 10014, false, true, "defaultZone")
+        };
+        String[] requests = {
+            "/apicatalog/api/v1/containers",
+            "/apicatalog/api/v1/containers?a=1&b=%20",
+            "/",
+            "",
+            "http://localhost:10014/apicatalog/",
+            "https://otherhost/apicatalog/?x=y"
+        };
+
+        for (Server server : servers) {
+            InstanceInfo instanceInfo = ((DiscoveryEnabledServer) server).getInstanceInfo();
+            for (String request : requests) {
+                URI original = new URI(request);
+                assertTrue(ServerUriTemplate.isSupported(original));
+                assertEquals(
+                    client.reconstructURIWithServer(server, original, instanceInfo),
+                    bean.reconstructURIWithServer(server, original),
+                    "URI is not same with expected for " + request
+                );
+            }
+        }
+    }
+
+    @Test
+    public void givenUnusualUri_whenReconstructURIWithServer_thenRibbonConstructionIsUsed() throws URISyntaxException {
+        Server server = createServer("localhost", 10014, true, false, "defaultZone");
+
+        assertEquals("https://user@localhost:10014/apicatalog/", bean.reconstructURIWithServer(server, new URI("http://user@localhost/apicatalog/")).toString());
+        assertEquals("https://localhost:10014/apicatalog/#part", bean.reconstructURIWithServer(server, new URI("/apicatalog/#part")).toString());
+        assertFalse(ServerUriTemplate.isSupported(new URI("ws://localhost/apicatalog/")));
+        assertFalse(ServerUriTemplate.isSupported(new URI("/apicatalog/?a=b+c")));
+        assertFalse(ServerUriTemplate.isSupported(new URI("mailto:user@localhost")));
+    }
+
+    @Test
+    public void givenSameServer_whenReconstructURIWithServer_thenTemplateIsReusedUntilInstanceChanged() {
+        GatewayRibbonLoadBalancingHttpClientImpl client = (GatewayRibbonLoadBalancingHttpClientImpl) bean;
+        DiscoveryEnabledServer server = createServer("localhost", 10014, true, false, "defaultZone");
+        InstanceInfo instanceInfo = server.getInstanceInfo();
+
+        ServerUriTemplate template = client.getUriTemplate(server, instanceInfo);
+        assertSame(template, client.getUriTemplate(server, instanceInfo));
+
+        InstanceInfo changedInstanceInfo = new InstanceInfo(instanceInfo);
+        assertNotSame(template, client.getUriTemplate(server, changedInstanceInfo));
+    }
+
+    @Test
+    public void givenRemovedInstance_whenPruneUriTemplates_thenTemplateIsRemoved() {
+        GatewayRibbonLoadBalancingHttpClientImpl client = (GatewayRibbonLoadBalancingHttpClientImpl) bean;
+        DiscoveryEnabledServer server = createServer("localhost", 10014, true, false, "defaultZone");
+        client.getUriTemplate(server, server.getInstanceInfo());
+
+        client.pruneUriTemplates();
+        int size = client.getUriTemplatesSize();
+        assertTrue(size > 0);
+
+        when(discoveryClient.getApplication("apicatalog")).thenReturn(null);
+        client.pruneUriTemplates();
+        assertEquals(size - 1, client.getUriTemplatesSize());
+    }
+
+    @Test
+    public void givenBigOrChunkedRequest_whenIsStreamed_thenTrue() {
+        GatewayRibbonLoadBalancingHttpClientImpl client = (GatewayRibbonLoadBalancingHttpClientImpl) bean;
+        MockHttpServletRequest small = new MockHttpServletRequest("POST", "/");
+        small.setContent(new byte[10]);
+        MockHttpServletRequest big = new MockHttpServletRequest("POST", "/");
+        big.setContent(new byte[100]);
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/");
+        chunked.addHeader(HttpHeaders.TRANSFER_ENCODING, "chunked");
+
+        assertFalse(client.isStreamed(null));
+        assertFalse(client.isStreamed(new MockHttpServletRequest("GET", "/")));
+        assertFalse(client.isStreamed(small));
+        assertTrue(client.isStreamed(big));
+        assertTrue(client.isStreamed(chunked));
+    }
+
+    @Test
+    public void givenStreamedRequest_whenRetryHandler_thenNoRetries() {
+        RequestContext requestContext = new RequestContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/");
+        request.setContent(new byte[100]);
+        requestContext.setRequest(request);
+        RequestContext.testSetCurrentContext(requestContext);
+        try {
+            RequestSpecificRetryHandler retryHandler = ((GatewayRibbonLoadBalancingHttpClientImpl) bean)
+                .getRequestSpecificRetryHandler(mock(RibbonApacheHttpRequest.class), config);
+            assertEquals(0, retryHandler.getMaxRetriesOnSameServer());
+            assertEquals(0, retryHandler.getMaxRetriesOnNextServer());
+            assertFalse(retryHandler.isRetriableException(new ConnectException(), false));
+        } finally {
+            RequestContext.testSetCurrentContext(null);
+        }
+    }
+
+    @Test
+    public void givenStreamedBody_whenToStreamingRequest_thenBodyIsNotRepeatable() {
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add("X-Test", "value");
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("a", "1");
+        RibbonCommandContext context = new RibbonCommandContext("service", "POST", "http://localhost:10012/api/v1/upload", false,
+            headers, params, null, Collections.emptyList(), 5L);
+        RibbonApacheHttpRequest request = new RibbonApacheHttpRequest(context);
+
+        HttpUriRequest httpUriRequest = ((GatewayRibbonLoadBalancingHttpClientImpl) bean).toStreamingRequest(
+            request, RequestConfig.DEFAULT, new ByteArrayInputStream(new byte[5]));
+
+        assertEquals("POST", httpUriRequest.getMethod());
+        assertEquals("http://localhost:10012/api/v1/upload?a=1", httpUriRequest.getURI().toString());
+        assertEquals("value", httpUriRequest.getFirstHeader("X-Test").getValue());
+        HttpEntity entity = ((HttpEntityEnclosingRequest) httpUriRequest).getEntity();
+        assertFalse(entity.isRepeatable());
+        assertEquals(5, entity.getContentLength());
+    }
+
     private DiscoveryEnabledServer createServer(String host,
                                                 int port,
                                                 boolean isSecureEnabled,
@@ -306,11 +420,23 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
             CloseableHttpClient secureHttpClient,
             IClientConfig config,
             ServerIntrospector serverIntrospector,
-            EurekaClient discoveryClient,
-            CacheManager cacheManager,
-            ApplicationContext applicationContext
+            InstanceInfoIndex instanceInfoIndex,
+            StreamingConfigProperties streamingConfigProperties
         ) {
-            return new GatewayRibbonLoadBalancingHttpClientImplTestBean(secureHttpClient, config, serverIntrospector, discoveryClient, cacheManager, applicationContext);
+            return new GatewayRibbonLoadBalancingHttpClientImplTestBean(secureHttpClient, config, serverIntrospector, instanceInfoIndex, streamingConfigProperties);
+        }
+
+        @Bean
+        public StreamingConfigProperties getStreamingConfigProperties() {
+            StreamingConfigProperties out = new StreamingConfigProperties();
+            out.setEnabled(true);
+            out.setThresholdBytes(100);
+            return out;
+        }
+
+        @Bean
+        public InstanceInfoIndex getInstanceInfoIndex(EurekaClient discoveryClient) {
+            return new InstanceInfoIndex(discoveryClient);
         }
 
     }
@@ -329,10 +455,11 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
          * @param secureHttpClient   custom http client for our certificates
          * @param config             configuration details
          * @param serverIntrospector introspector
-         * @param discoveryClient    using discovery client
+         * @param instanceInfoIndex  index of instances from discovery client
+         * @param streamingConfigProperties configuration of streaming of request bodies
          */
-        public GatewayRibbonLoadBalancingHttpClientImplTestBean(CloseableHttpClient secureHttpClient, IClientConfig config, ServerIntrospector serverIntrospector, EurekaClient discoveryClient, CacheManager cacheManager, ApplicationContext applicationContext) {
-            super(secureHttpClient, config, serverIntrospector, discoveryClient, cacheManager, applicationContext);
+        public GatewayRibbonLoadBalancingHttpClientImplTestBean(CloseableHttpClient secureHttpClient, IClientConfig config, ServerIntrospector serverIntrospector, InstanceInfoIndex instanceInfoIndex, StreamingConfigProperties streamingConfigProperties) {
+            super(secureHttpClient, config, serverIntrospector, instanceInfoIndex, streamingConfigProperties);
         }
 
         @Override
@@ -0,0 +1,108 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.StatusChangeEvent;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InstanceInfoIndexTest {
+
+    private EurekaClient discoveryClient;
+    private InstanceInfoIndex instanceInfoIndex;
+
+    @BeforeEach
+    void setUp() {
+        discoveryClient = mock(EurekaClient.class);
+        instanceInfoIndex = new InstanceInfoIndex(discoveryClient);
+    }
+
+    private InstanceInfo createInstanceInfo(String serviceId, String instanceId) {
+        return InstanceInfo.Builder.newBuilder()
+            .setAppName(serviceId)
+            .setInstanceId(instanceId)
+            .setHostName("host")
+            .build();
+    }
+
+    private Applications createApplications(InstanceInfo...instanceInfos) {
+        Applications applications = new Applications();
+        for (InstanceInfo instanceInfo : instanceInfos) {
+            Application application = applications.getRegisteredApplications(instanceInfo.getAppName());
+            if (application == null) {
+                application = new Application(instanceInfo.getAppName());
+                applications.addApplication(application);
+            }
+            application.addInstance(instanceInfo);
+        }
+        return applications;
+    }
+
+    @Test
+    void givenIndex_whenCreated_thenIsRegisteredAsListener() {
+        verify(discoveryClient).registerEventListener(instanceInfoIndex);
+    }
+
+    @Test
+    void givenRefreshedRegistry_whenGetInstanceInfo_thenFoundWithoutApplicationLookup() {
+        InstanceInfo ii1 = createInstanceInfo("SERVICE1", "host:service1:1");
+        InstanceInfo ii2 = createInstanceInfo("SERVICE1", "host:service1:2");
+        InstanceInfo ii3 = createInstanceInfo("SERVICE2", "host:service2:1");
+        when(discoveryClient.getApplications()).thenReturn(createApplications(ii1, ii2, ii3));
+
+        instanceInfoIndex.onEvent(mock(CacheRefreshedEvent.class));
+
+        assertSame(ii1, instanceInfoIndex.getInstanceInfo("service1", "host:service1:1"));
+        assertSame(ii2, instanceInfoIndex.getInstanceInfo("service1", "host:service1:2"));
+        assertSame(ii3, instanceInfoIndex.getInstanceInfo("service2", "host:service2:1"));
+        verify(discoveryClient, never()).getApplication(any());
+    }
+
+    @Test
+    void givenChangedRegistry_whenRefreshed_thenIndexIsReplaced() {
+        InstanceInfo ii1 = createInstanceInfo("SERVICE1", "host:service1:1");
+        InstanceInfo ii2 = createInstanceInfo("SERVICE1", "host:service1:2");
+        when(discoveryClient.getApplications()).thenReturn(createApplications(ii1));
+        instanceInfoIndex.onEvent(mock(CacheRefreshedEvent.class));
+
+        when(discoveryClient.getApplications()).thenReturn(createApplications(ii2));
+        instanceInfoIndex.onEvent(mock(CacheRefreshedEvent.class));
+
+        assertSame(ii2, instanceInfoIndex.getInstanceInfo("service1", "host:service1:2"));
+        assertNull(instanceInfoIndex.getInstanceInfo("service1", "host:service1:1"));
+    }
+
+    @Test
+    void givenOtherEvent_whenOnEvent_thenIndexIsNotRebuilt() {
+        instanceInfoIndex.onEvent(mock(StatusChangeEvent.class));
+        verify(discoveryClient, never()).getApplications();
+    }
+
+    @Test
+    void givenNotIndexedInstance_whenGetInstanceInfo_thenApplicationIsSearched() {
+        InstanceInfo ii1 = createInstanceInfo("SERVICE1", "host:service1:1");
+        Application application = new Application("SERVICE1");
+        application.addInstance(ii1);
+        when(discoveryClient.getApplication("service1")).thenReturn(application);
+
+        assertSame(ii1, instanceInfoIndex.getInstanceInfo("service1", "host:service1:1"));
+        assertNull(instanceInfoIndex.getInstanceInfo("service1", "host:service1:2"));
+        assertNull(instanceInfoIndex.getInstanceInfo("service2", "host:service2:1"));
+    }
+
+}
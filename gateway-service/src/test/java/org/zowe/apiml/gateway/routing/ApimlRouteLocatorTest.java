@@ -0,0 +1,161 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.routing;
+
+import com.netflix.zuul.context.RequestContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.springframework.cloud.netflix.zuul.filters.discovery.SimpleServiceRouteMapper;
+import org.zowe.apiml.product.routing.RoutedServicesUser;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ApimlRouteLocatorTest {
+
+    private DiscoveryClient discoveryClient;
+    private RoutedServicesUser routedServicesUser;
+    private MeterRegistry meterRegistry;
+    private ZuulProperties zuulProperties;
+    private ApimlRouteLocator apimlRouteLocator;
+
+    private Map<String, List<ServiceInstance>> registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new LinkedHashMap<>();
+        discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getServices()).thenAnswer(invocation -> new ArrayList<>(registry.keySet()));
+        when(discoveryClient.getInstances(any())).thenAnswer(invocation -> registry.get(invocation.<String>getArgument(0)));
+
+        routedServicesUser = mock(RoutedServicesUser.class);
+        meterRegistry = new SimpleMeterRegistry();
+        zuulProperties = new ZuulProperties();
+        apimlRouteLocator = new ApimlRouteLocator(
+            "", discoveryClient, zuulProperties, new SimpleServiceRouteMapper(),
+            Collections.singletonList(routedServicesUser), meterRegistry
+        );
+    }
+
+    private ServiceInstance instance(String instanceId, String gatewayUrl, String serviceUrl) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("apiml.routes.api_v1.gatewayUrl", gatewayUrl);
+        metadata.put("apiml.routes.api_v1.serviceUrl", serviceUrl);
+        metadata.put("apiml.service.title", instanceId);
+
+        ServiceInstance serviceInstance = mock(ServiceInstance.class);
+        when(serviceInstance.getInstanceId()).thenReturn(instanceId);
+        when(serviceInstance.getMetadata()).thenReturn(metadata);
+        return serviceInstance;
+    }
+
+    @Test
+    public void givenRegisteredServices_whenLocateRoutes_thenRoutesAreCreated() {
+        registry.put("service1", Collections.singletonList(instance("host1:service1:1", "api/v1", "/service1")));
+        registry.put("service2", Collections.singletonList(instance("host1:service2:1", "api/v2", "/service2")));
+
+        assertNotNull(apimlRouteLocator.getMatchingRoute("/api/v1/service1/test"));
+        assertNotNull(apimlRouteLocator.getMatchingRoute("/api/v2/service2/test"));
+        assertEquals(1, apimlRouteLocator.getRoutesVersion());
+        verify(routedServicesUser).addRoutedServices(eq("service1"), any());
+        verify(routedServicesUser).addRoutedServices(eq("service2"), any());
+        assertEquals(2.0, meterRegistry.counter("apiml.gateway.routes.services.rebuilt").count());
+    }
+
+    @Test
+    public void givenRouteFromMetadata_whenGetMatchingRoute_thenRoutedServiceIsStoredInContext() {
+        registry.put("service1", Collections.singletonList(instance("host1:service1:1", "api/v1", "/service1/api")));
+        RequestContext context = RequestContext.getCurrentContext();
+        context.clear();
+
+        assertNotNull(apimlRouteLocator.getMatchingRoute("/api/v1/service1/test"));
+        RoutedZuulRoute route = (RoutedZuulRoute) context.get(RoutedZuulRoute.CONTEXT_KEY);
+        assertEquals("service1", route.getServiceId());
+        assertEquals("api/v1", route.getRoutedService().getGatewayUrl());
+        assertEquals("/service1/api", route.getServiceUrl());
+
+        assertNull(apimlRouteLocator.getMatchingRoute("/api/v1/unknown/test"));
+        assertNull(context.get(RoutedZuulRoute.CONTEXT_KEY));
+        context.clear();
+    }
+
+    @Test
+    public void givenNoChangeInRoutes_whenRefresh_thenRouteTableIsKept() {
+        registry.put("service1", Arrays.asList(
+            instance("host1:service1:1", "api/v1", "/service1"),
+            instance("host2:service1:1", "api/v1", "/service1")
+        ));
+        apimlRouteLocator.getRoutes();
+
+        // Eureka shuffles instances, the change of order cannot cause rebuild
+        registry.put("service1", Arrays.asList(registry.get("service1").get(1), registry.get("service1").get(0)));
+        apimlRouteLocator.refresh();
+
+        assertEquals(1, apimlRouteLocator.getRoutesVersion());
+        verify(routedServicesUser, times(1)).addRoutedServices(eq("service1"), any());
+        assertEquals(1, meterRegistry.timer("apiml.gateway.routes.rebuild").count());
+    }
+
+    @Test
+    public void givenChangedZuulProperties_whenRefresh_thenRouteTableIsRebuilt() {
+        registry.put("service1", Collections.singletonList(instance("host1:service1:1", "api/v1", "/service1")));
+        registry.put("service2", Collections.singletonList(instance("host1:service2:1", "api/v2", "/service2")));
+        apimlRouteLocator.getRoutes();
+
+        zuulProperties.setIgnoredServices(Collections.singleton("service2"));
+        apimlRouteLocator.refresh();
+
+        assertEquals(2, apimlRouteLocator.getRoutesVersion());
+        assertNotNull(apimlRouteLocator.getMatchingRoute("/api/v1/service1/test"));
+        assertNull(apimlRouteLocator.getMatchingRoute("/api/v2/service2/test"));
+        // routes of services are not parsed again
+        verify(routedServicesUser, times(1)).addRoutedServices(eq("service2"), any());
+    }
+
+    @Test
+    public void givenChangedRoutesOfOneService_whenRefresh_thenOnlyThisServiceIsRebuilt() {
+        registry.put("service1", Collections.singletonList(instance("host1:service1:1", "api/v1", "/service1")));
+        registry.put("service2", Collections.singletonList(instance("host1:service2:1", "api/v1", "/service2")));
+        apimlRouteLocator.getRoutes();
+
+        registry.put("service2", Collections.singletonList(instance("host1:service2:1", "api/v2", "/service2")));
+        apimlRouteLocator.refresh();
+
+        assertEquals(2, apimlRouteLocator.getRoutesVersion());
+        verify(routedServicesUser, times(1)).addRoutedServices(eq("service1"), any());
+        verify(routedServicesUser, times(2)).addRoutedServices(eq("service2"), any());
+        assertNull(apimlRouteLocator.getMatchingRoute("/api/v1/service2/test"));
+        assertNotNull(apimlRouteLocator.getMatchingRoute("/api/v2/service2/test"));
+    }
+
+    @Test
+    public void givenNewService_whenRefresh_thenRouteTableIsReplaced() {
+        registry.put("service1", Collections.singletonList(instance("host1:service1:1", "api/v1", "/service1")));
+        apimlRouteLocator.getRoutes();
+
+        registry.put("service2", Collections.singletonList(instance("host1:service2:1", "api/v1", "/service2")));
+        apimlRouteLocator.refresh();
+
+        assertEquals(2, apimlRouteLocator.getRoutesVersion());
+        verify(routedServicesUser, times(1)).addRoutedServices(eq("service1"), any());
+        verify(routedServicesUser, times(1)).addRoutedServices(eq("service2"), any());
+        assertNotNull(apimlRouteLocator.getMatchingRoute("/api/v1/service2/test"));
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.routing;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class RouteTrieTest {
+
+    private static final String[] PATHS = {
+        "/", "", "api", "/api", "/api/v1", "/api/v1/service1", "/api/v1/service1/", "/api/v1/service1/test",
+        "/api//v1/service1/test", "/api/v1/service10/test", "/api/v1/service2/a/b/c", "/ui/v1/service1/index.html",
+        "/service1/test", "/static/x/file.js", "/static/y/file.css", "/API/v1/service1/test", "/api/v1/serviceX/test"
+    };
+
+    private static Map<String, String> routes(String... patterns) {
+        Map<String, String> routes = new LinkedHashMap<>();
+        for (String pattern : patterns) {
+            routes.put(pattern, pattern);
+        }
+        return routes;
+    }
+
+    private static String antMatch(Map<String, String> routes, String path) {
+        AntPathMatcher pathMatcher = new AntPathMatcher();
+        for (Map.Entry<String, String> entry : routes.entrySet()) {
+            if (pathMatcher.match(entry.getKey(), path)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static void assertSameAsAntPathMatcher(Map<String, String> routes) {
+        RouteTrie<String> routeTrie = RouteTrie.compile(routes);
+        for (String path : PATHS) {
+            assertEquals(antMatch(routes, path), routeTrie.match(path), "Path " + path);
+        }
+    }
+
+    @Test
+    public void givenLiteralRoutes_whenMatch_thenResultIsSameAsAntPathMatcher() {
+        assertSameAsAntPathMatcher(routes(
+            "/api/v1/service1/**", "/api/v1/service2/**", "/ui/v1/service1/**", "/service1/**", "/service2/**"
+        ));
+    }
+
+    @Test
+    public void givenOverlappingRoutes_whenMatch_thenTheFirstInOrderWins() {
+        assertSameAsAntPathMatcher(routes("/api/**", "/api/v1/service1/**", "/**"));
+        assertSameAsAntPathMatcher(routes("/api/v1/service1/**", "/api/**", "/**"));
+    }
+
+    @Test
+    public void givenRoutesWithWildcards_whenMatch_thenResultIsSameAsAntPathMatcher() {
+        assertSameAsAntPathMatcher(routes(
+            "/static/*/file.js", "/api/v1/service1/**", "/api/*/service2/**", "/static/**", "/service1/test"
+        ));
+        assertSameAsAntPathMatcher(routes(
+            "/api/v1/service1/**", "/api/v?/service1/**", "/ui/{version}/service1/**"
+        ));
+    }
+
+    @Test
+    public void givenEmptyRoutes_whenMatch_thenNothingIsFound() {
+        RouteTrie<String> routeTrie = RouteTrie.compile(new LinkedHashMap<>());
+        for (String path : PATHS) {
+            assertNull(routeTrie.match(path));
+        }
+        assertNull(routeTrie.match(null));
+    }
+
+    @Test
+    public void givenManyRoutes_whenMatch_thenEachServiceIsFound() {
+        Map<String, String> routes = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            routes.put("/api/v1/service" + i + "/**", "service" + i);
+        }
+        RouteTrie<String> routeTrie = RouteTrie.compile(routes);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("service" + i, routeTrie.match("/api/v1/service" + i + "/resource"));
+        }
+        assertNull(routeTrie.match("/api/v1/service1000/resource"));
+    }
+
+}
@@ -26,6 +26,10 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
 import org.zowe.apiml.gateway.security.service.JwtSecurityInitializer;
+import org.zowe.apiml.gateway.security.service.ParsedTokenCache;
+import org.zowe.apiml.gateway.security.service.ZosmfValidationCoalescer;
+import org.zowe.apiml.gateway.security.service.RevokedTokenStore;
+import org.zowe.apiml.gateway.security.service.TokenInvalidationDistributor;
 import org.zowe.apiml.gateway.security.service.zosmf.ZosmfServiceV2;
 import org.zowe.apiml.security.SecurityUtils;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
@@ -60,6 +64,12 @@ public class SuccessfulQueryHandlerTest {
     @Mock
     private DiscoveryClient discoveryClient;
 
+    @Mock
+    private RevokedTokenStore revokedTokenStore;
+
+    @Mock
+    private TokenInvalidationDistributor tokenInvalidationDistributor;
+
     @Mock
     private CacheManager cacheManager;
 
@@ -78,7 +88,8 @@ public class SuccessfulQueryHandlerTest {
         ZosmfServiceV2 zosmfService = new ZosmfServiceV2(authConfigurationProperties, discoveryClient, restTemplate, new ObjectMapper());
         AuthenticationService authenticationService = new AuthenticationService(
             applicationContext, authConfigurationProperties, jwtSecurityInitializer, zosmfService,
-            discoveryClient, restTemplate, cacheManager
+            discoveryClient, tokenInvalidationDistributor, revokedTokenStore, new ParsedTokenCache(100),
+            new ZosmfValidationCoalescer(100, 1000), cacheManager
         );
         when(jwtSecurityInitializer.getSignatureAlgorithm()).thenReturn(algorithm);
         when(jwtSecurityInitializer.getJwtSecret()).thenReturn(privateKey);
@@ -10,12 +10,10 @@
 package org.zowe.apiml.gateway.security.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.netflix.appinfo.ApplicationInfoManager;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.DiscoveryClient;
 import com.netflix.discovery.shared.Application;
 import io.jsonwebtoken.*;
-import net.sf.ehcache.Element;
 import org.apache.commons.lang.time.DateUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,11 +21,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -39,6 +34,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.gateway.config.CacheConfig;
+import org.zowe.apiml.gateway.config.TokenInvalidationConfigProperties;
 import org.zowe.apiml.gateway.security.service.zosmf.ZosmfServiceV2;
 import org.zowe.apiml.security.SecurityUtils;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
@@ -64,7 +60,6 @@ import static org.mockito.Mockito.*;
     AuthenticationServiceTest.Context.class
 })
 @RunWith(PowerMockRunner.class)
-@PrepareForTest(net.sf.ehcache.Cache.class)
 public class AuthenticationServiceTest {
 
     private static final String ZOSMF = "zosmf";
@@ -99,6 +94,12 @@ public class AuthenticationServiceTest {
     @Autowired
     private DiscoveryClient discoveryClient;
 
+    @Autowired
+    private TokenInvalidationDistributor tokenInvalidationDistributor;
+
+    @Autowired
+    private CacheManager cacheManager;
+
     private static ObjectMapper securityObjectMapper = new ObjectMapper();
 
     private void mockJwtSecurityInitializer() {
@@ -266,6 +267,45 @@ public class AuthenticationServiceTest {
         );
     }
 
+    private String createJwtTokenWithKeyId(String keyId, Key secretKey) {
+        return Jwts.builder()
+            .setHeaderParam(JwsHeader.KEY_ID, keyId)
+            .setExpiration(new Date(System.currentTimeMillis() + 60000))
+            .setIssuer(authConfigurationProperties.getTokenProperties().getIssuer())
+            .claim("ltpa", LTPA)
+            .signWith(ALGORITHM, secretKey)
+            .compact();
+    }
+
+    @Test
+    public void givenTokenSignedByPreviousKey_whenValidate_thenKeyIsResolvedById() {
+        KeyPair previous = SecurityUtils.generateKeyPair("RSA", 2048);
+        when(jwtSecurityInitializer.getKeyId()).thenReturn("current");
+        when(jwtSecurityInitializer.getJwtPublicKey("previous")).thenReturn(previous.getPublic());
+
+        assertEquals(LTPA, authService.getLtpaTokenWithValidation(createJwtTokenWithKeyId("previous", previous.getPrivate())));
+        assertEquals(LTPA, authService.getLtpaTokenWithValidation(createJwtTokenWithKeyId("current", privateKey)));
+    }
+
+    @Test
+    public void givenTokenWithUnknownKeyId_whenValidate_thenIsNotValid() {
+        String jwtToken = createJwtTokenWithKeyId("unknown", privateKey);
+
+        assertThrows(
+            TokenNotValidException.class,
+            () -> authService.getLtpaTokenWithValidation(jwtToken)
+        );
+    }
+
+    @Test
+    public void givenKeyId_whenCreateJwtToken_thenIsInHeader() {
+        when(jwtSecurityInitializer.getKeyId()).thenReturn("current");
+
+        String jwtToken = authService.createJwtToken(USER, DOMAIN, LTPA);
+
+        assertEquals("current", Jwts.parser().setSigningKey(publicKey).parseClaimsJws(jwtToken).getHeader().getKeyId());
+    }
+
     private String createExpiredJwtToken(Key secretKey) {
         long expiredTimeMillis = System.currentTimeMillis() - 1000;
 
@@ -294,30 +334,17 @@ public class AuthenticationServiceTest {
         tokenAuthentication = authService.validateJwtToken(jwt1);
         assertTrue(tokenAuthentication.isAuthenticated());
 
-        InstanceInfo myInstance = mock(InstanceInfo.class);
-        when(myInstance.getInstanceId()).thenReturn("myInstance01");
-        ApplicationInfoManager applicationInfoManager = mock(ApplicationInfoManager.class);
-        when(applicationInfoManager.getInfo()).thenReturn(myInstance);
-        when(discoveryClient.getApplicationInfoManager()).thenReturn(applicationInfoManager);
         when(restTemplate.exchange(eq(zosmfUrl + "/zosmf/services/authenticate"), eq(HttpMethod.DELETE), any(), eq(String.class)))
             .thenReturn(new ResponseEntity<>(HttpStatus.OK));
-
-        Application application = mock(Application.class);
-        List<InstanceInfo> instances = Arrays.asList(
-            createInstanceInfo("instance02", "hostname1", 10000, 10433),
-            createInstanceInfo("myInstance01", "localhost", 10000, 10433),
-            createInstanceInfo("instance03", "hostname2", 10001, 0)
-        );
-        when(application.getInstances()).thenReturn(instances);
-        when(discoveryClient.getApplication("gateway")).thenReturn(application);
+        reset(tokenInvalidationDistributor);
+        when(tokenInvalidationDistributor.invalidate(jwt1)).thenReturn(true);
 
         authService.invalidateJwtToken(jwt1, true);
         assertTrue(authService.isInvalidated(jwt1));
         tokenAuthentication = authService.validateJwtToken(jwt1);
         assertFalse(tokenAuthentication.isAuthenticated());
-        verify(restTemplate, times(2)).delete(anyString(), (Object[]) any());
-        verify(restTemplate).delete("https://hostname1:10433/auth/invalidate/{}", jwt1);
-        verify(restTemplate).delete("http://hostname2:10001/auth/invalidate/{}", jwt1);
+        verify(tokenInvalidationDistributor, times(1)).invalidate(jwt1);
+        verify(restTemplate, never()).delete(anyString(), (Object[]) any());
         verify(restTemplate, times(1))
             .exchange(eq(zosmfUrl + "/zosmf/services/authenticate"), eq(HttpMethod.DELETE), any(), eq(String.class));
     }
@@ -366,7 +393,9 @@ public class AuthenticationServiceTest {
     private AuthenticationService getSpiedAuthenticationService(ZosmfServiceV2 spiedZosmfService) {
         AuthenticationService out = new AuthenticationService(
             applicationContext, authConfigurationProperties, jwtSecurityInitializer,
-            spiedZosmfService, discoveryClient, restTemplate, mock(CacheManager.class)
+            spiedZosmfService, discoveryClient, tokenInvalidationDistributor,
+            new RevokedTokenStore(new TokenInvalidationConfigProperties()), new ParsedTokenCache(100),
+            new ZosmfValidationCoalescer(100, 1000), mock(CacheManager.class)
         );
         ReflectionTestUtils.setField(out, "meAsProxy", out);
         return spy(out);
@@ -379,9 +408,9 @@ public class AuthenticationServiceTest {
 
         final ZosmfServiceV2 zosmfService = getSpiedZosmfService();
         final AuthenticationService authService = getSpiedAuthenticationService(zosmfService);
-        doReturn(new QueryResponse(
-            "domain", "userId", new Date(), new Date(), QueryResponse.Source.ZOSMF
-        )).when(authService).parseJwtToken(token);
+        doReturn(new ParsedTokenCache.ParsedToken(
+            "domain", "userId", System.currentTimeMillis(), System.currentTimeMillis(), QueryResponse.Source.ZOSMF, null
+        )).when(authService).getParsedToken(token);
         HttpHeaders headers = new HttpHeaders();
         headers.add("X-CSRF-ZOSMF-HEADER", "");
         headers.add(HttpHeaders.COOKIE, "jwtToken=" + token);
@@ -403,10 +432,9 @@ public class AuthenticationServiceTest {
 
         final ZosmfServiceV2 zosmfService = getSpiedZosmfService();
         final AuthenticationService authService = getSpiedAuthenticationService(zosmfService);
-        doReturn(new QueryResponse(
-            "domain", "userId", new Date(), new Date(), QueryResponse.Source.ZOWE
-        )).when(authService).parseJwtToken(jwtToken);
-        doReturn(ltpaToken).when(authService).getLtpaToken(jwtToken);
+        doReturn(new ParsedTokenCache.ParsedToken(
+            "domain", "userId", System.currentTimeMillis(), System.currentTimeMillis(), QueryResponse.Source.ZOWE, ltpaToken
+        )).when(authService).getParsedToken(jwtToken);
         HttpHeaders headers = new HttpHeaders();
         headers.add("X-CSRF-ZOSMF-HEADER", "");
         headers.add(HttpHeaders.COOKIE, "LtpaToken2=" + ltpaToken);
@@ -491,7 +519,7 @@ public class AuthenticationServiceTest {
         class AuthenticationServiceExceptionHanlderTest extends AuthenticationService {
 
             AuthenticationServiceExceptionHanlderTest() {
-                super(null, null, null, null, null, null, null);
+                super(null, null, null, null, null, null, null, null, null, null);
             }
 
             @Override
@@ -542,30 +570,53 @@ public class AuthenticationServiceTest {
         when(application.getByInstanceId("instanceId")).thenReturn(instanceInfo);
         when(discoveryClient.getApplication("gateway")).thenReturn(application);
 
-        Map<Object, Element> mapCache = new HashMap<>();
-        mapCache.put("a", new Element("a", "a"));
-        mapCache.put("b", new Element("b", "b"));
+        Date expiration = DateUtils.addHours(new Date(), 1);
+        RevokedTokenStore revokedTokenStore = new RevokedTokenStore(new TokenInvalidationConfigProperties());
+        revokedTokenStore.revoke("a", expiration);
+        revokedTokenStore.revoke("b", expiration);
 
         ApplicationContext applicationContext = mock(ApplicationContext.class);
-        CacheManager cacheManager = mock(CacheManager.class);
-        Cache cache = mock(Cache.class);
-        net.sf.ehcache.Cache ehCache = PowerMockito.mock(net.sf.ehcache.Cache.class);
-        when(ehCache.getAll(any())).thenReturn(mapCache);
-        when(cache.getNativeCache()).thenReturn(ehCache);
-        when(cacheManager.getCache(anyString())).thenReturn(cache);
-
         AuthenticationService authenticationService = new AuthenticationService(
             applicationContext, authConfigurationProperties, jwtSecurityInitializer, getSpiedZosmfService(),
-            discoveryClient, restTemplate, cacheManager
+            discoveryClient, tokenInvalidationDistributor, revokedTokenStore, new ParsedTokenCache(100),
+            new ZosmfValidationCoalescer(100, 1000), mock(CacheManager.class)
         );
 
         when(applicationContext.getBean(AuthenticationService.class)).thenReturn(authenticationService);
 
-        authenticationService.distributeInvalidate(instanceInfo.getInstanceId());
+        reset(tokenInvalidationDistributor);
+        assertTrue(authenticationService.distributeInvalidate(instanceInfo.getInstanceId()));
+
+        verify(tokenInvalidationDistributor, times(1)).distribute(eq(instanceInfo), argThat(entries ->
+            (entries.size() == 2) && entries.stream().allMatch(e -> e.endsWith(":" + expiration.getTime()))
+        ));
+        verify(restTemplate, never()).delete(anyString(), anyString());
+    }
+
+    @Test
+    public void givenEntriesFromAnotherInstance_whenAddInvalidated_thenTokensAreInvalidated() {
+        String jwtToken = authService.createJwtToken("user01", "domain01", "ltpa01");
+        String otherJwtToken = authService.createJwtToken("user02", "domain01", "ltpa02");
+        RevokedTokenStore anotherStore = new RevokedTokenStore(new TokenInvalidationConfigProperties());
+        anotherStore.revoke(jwtToken, DateUtils.addHours(new Date(), 1));
+
+        assertTrue(authService.validateJwtToken(jwtToken).isAuthenticated());
+        assertTrue(authService.validateJwtToken(otherJwtToken).isAuthenticated());
+        authService.addInvalidated(anotherStore.export());
 
-        verify(restTemplate, times(2)).delete(anyString(), anyString());
-        verify(restTemplate, times(1)).delete(EurekaUtils.getUrl(instanceInfo) + "/auth/invalidate/{}", "a");
-        verify(restTemplate, times(1)).delete(EurekaUtils.getUrl(instanceInfo) + "/auth/invalidate/{}", "a");
+        assertTrue(authService.isInvalidated(jwtToken));
+        assertFalse(authService.validateJwtToken(jwtToken).isAuthenticated());
+        // only the validation of the imported token is evicted
+        assertNotNull(cacheManager.getCache("validationJwtToken").get(otherJwtToken));
+    }
+
+    @Test
+    public void givenGatewayNotRegistered_whenInvalidateWithDistribution_thenFalse() {
+        String jwt = authService.createJwtToken("user1", "domain1", "ltpa1");
+        reset(tokenInvalidationDistributor);
+        when(tokenInvalidationDistributor.invalidate(jwt)).thenReturn(false);
+
+        assertFalse(authService.invalidateJwtToken(jwt, true));
     }
 
     @Configuration
@@ -574,6 +625,9 @@ public class AuthenticationServiceTest {
         @Autowired
         private ApplicationContext applicationContext;
 
+        @Autowired
+        private CacheManager cacheManager;
+
         @Bean
         public AuthConfigurationProperties getAuthConfigurationProperties() {
             final AuthConfigurationProperties authConfigurationProperties = new AuthConfigurationProperties();
@@ -596,6 +650,11 @@ public class AuthenticationServiceTest {
             return mock(DiscoveryClient.class);
         }
 
+        @Bean
+        public TokenInvalidationDistributor getTokenInvalidationDistributor() {
+            return mock(TokenInvalidationDistributor.class);
+        }
+
         @Bean
         public ZosmfServiceV2 getZosmfService() {
             return new ZosmfServiceV2(
@@ -607,10 +666,26 @@ public class AuthenticationServiceTest {
         }
 
         @Bean
-        public AuthenticationService getAuthenticationService(CacheManager cacheManager) {
+        public RevokedTokenStore getRevokedTokenStore() {
+            return new RevokedTokenStore(new TokenInvalidationConfigProperties());
+        }
+
+        @Bean
+        public ParsedTokenCache getParsedTokenCache() {
+            return new ParsedTokenCache(100);
+        }
+
+        @Bean
+        public ZosmfValidationCoalescer getZosmfValidationCoalescer() {
+            return new ZosmfValidationCoalescer(100, 1000);
+        }
+
+        @Bean
+        public AuthenticationService getAuthenticationService() {
             return new AuthenticationService(
                 applicationContext, getAuthConfigurationProperties(), getJwtSecurityInitializer(),
-                getZosmfService(), getDiscoveryClient(), getRestTemplate(), cacheManager
+                getZosmfService(), getDiscoveryClient(), getTokenInvalidationDistributor(), getRevokedTokenStore(),
+                getParsedTokenCache(), getZosmfValidationCoalescer(), cacheManager
             );
         }
 
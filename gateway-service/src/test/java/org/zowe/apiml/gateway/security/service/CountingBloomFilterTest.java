@@ -0,0 +1,83 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountingBloomFilterTest {
+
+    @Test
+    void givenAddedItem_whenMightContain_thenTrue() {
+        CountingBloomFilter filter = new CountingBloomFilter(100);
+
+        filter.add(1L, 2L);
+
+        assertTrue(filter.mightContain(1L, 2L));
+        assertFalse(filter.mightContain(3L, 4L));
+    }
+
+    @Test
+    void givenRemovedItem_whenMightContain_thenFalse() {
+        CountingBloomFilter filter = new CountingBloomFilter(100);
+
+        filter.add(1L, 2L);
+        filter.add(1L, 2L);
+        filter.remove(1L, 2L);
+        assertTrue(filter.mightContain(1L, 2L));
+
+        filter.remove(1L, 2L);
+        assertFalse(filter.mightContain(1L, 2L));
+    }
+
+    @Test
+    void givenNegativeHashes_whenAdd_thenIndexesAreValid() {
+        CountingBloomFilter filter = new CountingBloomFilter(10);
+
+        filter.add(Long.MIN_VALUE, -1L);
+
+        assertTrue(filter.mightContain(Long.MIN_VALUE, -1L));
+    }
+
+    @Test
+    void givenSaturatedCounter_whenRemove_thenItemStays() {
+        CountingBloomFilter filter = new CountingBloomFilter(10);
+
+        for (int i = 0; i < 20; i++) {
+            filter.add(5L, 7L);
+        }
+        for (int i = 0; i < 20; i++) {
+            filter.remove(5L, 7L);
+        }
+
+        assertTrue(filter.mightContain(5L, 7L));
+    }
+
+    @Test
+    void givenExpectedItems_whenMightContainOthers_thenFalsePositiveRateIsLow() {
+        int expected = 10000;
+        CountingBloomFilter filter = new CountingBloomFilter(expected);
+        Random random = new Random(42);
+        for (int i = 0; i < expected; i++) {
+            filter.add(random.nextLong(), random.nextLong());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < expected; i++) {
+            if (filter.mightContain(random.nextLong(), random.nextLong())) falsePositives++;
+        }
+
+        assertTrue(falsePositives < expected / 100, "False positives: " + falsePositives);
+    }
+
+}
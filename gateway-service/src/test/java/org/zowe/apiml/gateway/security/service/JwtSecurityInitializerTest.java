@@ -13,6 +13,8 @@ import org.zowe.apiml.security.HttpsConfigError;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringBootConfiguration;
 import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
@@ -21,9 +23,9 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 
 @ExtendWith(SpringExtension.class)
@@ -61,6 +63,40 @@ public class JwtSecurityInitializerTest {
         assertEquals(SignatureAlgorithm.RS256, jwtSecurityInitializer.getSignatureAlgorithm());
     }
 
+    @Test
+    public void shouldSetKeyIdOfPublicKey() {
+        jwtSecurityInitializer.init();
+        String keyId = jwtSecurityInitializer.getKeyId();
+
+        assertEquals(22, keyId.length());
+        assertEquals(JwtSecurityInitializer.getKeyId(jwtSecurityInitializer.getJwtPublicKey()), keyId);
+        assertSame(jwtSecurityInitializer.getJwtPublicKey(), jwtSecurityInitializer.getJwtPublicKey(keyId));
+        assertNull(jwtSecurityInitializer.getJwtPublicKey("unknown"));
+    }
+
+    @Test
+    public void shouldUseConfiguredSignatureAlgorithm() {
+        ReflectionTestUtils.setField(jwtSecurityInitializer, "signatureAlgorithmName", "RS512");
+        try {
+            jwtSecurityInitializer.init();
+            assertEquals(SignatureAlgorithm.RS512, jwtSecurityInitializer.getSignatureAlgorithm());
+        } finally {
+            ReflectionTestUtils.setField(jwtSecurityInitializer, "signatureAlgorithmName", null);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ES256", "EdDSA", "HS256", "unknown"})
+    public void shouldThrowExceptionIfAlgorithmDoesNotMatchKey(String algorithm) {
+        ReflectionTestUtils.setField(jwtSecurityInitializer, "signatureAlgorithmName", algorithm);
+        try {
+            Exception exception = assertThrows(HttpsConfigError.class, () -> jwtSecurityInitializer.init());
+            assertTrue(exception.getMessage().startsWith("Signature algorithm '" + algorithm + "' cannot be used"));
+        } finally {
+            ReflectionTestUtils.setField(jwtSecurityInitializer, "signatureAlgorithmName", null);
+        }
+    }
+
     @SpringBootConfiguration
     public static class TestConfig {
 
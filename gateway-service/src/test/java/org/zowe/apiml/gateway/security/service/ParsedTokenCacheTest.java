@@ -0,0 +1,115 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.security.common.token.QueryResponse;
+import org.zowe.apiml.security.common.token.TokenNotValidException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParsedTokenCacheTest {
+
+    private final AtomicInteger parsed = new AtomicInteger();
+
+    private Function<String, ParsedTokenCache.ParsedToken> parser(Long expiration) {
+        return token -> {
+            parsed.incrementAndGet();
+            return new ParsedTokenCache.ParsedToken("domain", token, 0L, expiration, QueryResponse.Source.ZOWE, "ltpa");
+        };
+    }
+
+    private long inHour() {
+        return System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+    }
+
+    @Test
+    void givenValidToken_whenGetRepeatedly_thenIsParsedOnce() {
+        ParsedTokenCache cache = new ParsedTokenCache(10);
+
+        ParsedTokenCache.ParsedToken first = cache.get("token", parser(inHour()));
+        ParsedTokenCache.ParsedToken second = cache.get("token", parser(inHour()));
+
+        assertSame(first, second);
+        assertEquals(1, parsed.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void givenExpiredOrEternalToken_whenGet_thenIsNotCached() {
+        ParsedTokenCache cache = new ParsedTokenCache(10);
+
+        cache.get("expired", parser(System.currentTimeMillis() - 1));
+        cache.get("expired", parser(System.currentTimeMillis() - 1));
+        cache.get("eternal", parser(null));
+
+        assertEquals(3, parsed.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void givenInvalidToken_whenGet_thenExceptionIsNotCached() {
+        ParsedTokenCache cache = new ParsedTokenCache(10);
+        Function<String, ParsedTokenCache.ParsedToken> failing = token -> {
+            parsed.incrementAndGet();
+            throw new TokenNotValidException("Token is not valid.");
+        };
+
+        assertThrows(TokenNotValidException.class, () -> cache.get("invalid", failing));
+        assertThrows(TokenNotValidException.class, () -> cache.get("invalid", failing));
+
+        assertEquals(2, parsed.get());
+    }
+
+    @Test
+    void givenFullCache_whenGet_thenSizeIsBounded() {
+        ParsedTokenCache cache = new ParsedTokenCache(10);
+
+        for (int i = 0; i < 100; i++) {
+            cache.get("token" + i, parser(inHour()));
+        }
+
+        assertTrue(cache.size() <= 10);
+    }
+
+    @Test
+    void givenCachedToken_whenToQueryResponse_thenCopyIsReturned() {
+        ParsedTokenCache cache = new ParsedTokenCache(10);
+        ParsedTokenCache.ParsedToken parsedToken = cache.get("token", parser(inHour()));
+
+        QueryResponse queryResponse = parsedToken.toQueryResponse();
+        queryResponse.getExpiration().setTime(0);
+
+        assertNotEquals(0L, parsedToken.toQueryResponse().getExpiration().getTime());
+        assertEquals("token", queryResponse.getUserId());
+    }
+
+    @Test
+    void givenRegistry_whenBind_thenMetricsAreRegistered() {
+        ParsedTokenCache cache = new ParsedTokenCache(10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get("token", parser(inHour()));
+        cache.get("token", parser(inHour()));
+
+        assertEquals(1.0, registry.get(ParsedTokenCache.METRIC_PREFIX + ".requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get(ParsedTokenCache.METRIC_PREFIX + ".requests").tag("result", "miss").functionCounter().count());
+        assertEquals(1.0, registry.get(ParsedTokenCache.METRIC_PREFIX + ".parse").functionTimer().count());
+        assertEquals(1.0, registry.get(ParsedTokenCache.METRIC_PREFIX + ".size").gauge().value());
+    }
+
+}
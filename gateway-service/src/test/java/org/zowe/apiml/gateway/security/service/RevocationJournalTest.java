@@ -0,0 +1,208 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevocationJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private RevocationJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        file = tempDir.resolve("test.journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (journal != null) journal.close();
+    }
+
+    private static List<long[]> replay(Path file) throws IOException {
+        List<long[]> records = new ArrayList<>();
+        try (RevocationJournal reopened = new RevocationJournal(file)) {
+            reopened.open((high, low, expiration) -> records.add(new long[]{high, low, expiration}));
+        }
+        return records;
+    }
+
+    @Test
+    void givenNewFile_whenOpen_thenJournalIsEmpty() throws IOException {
+        journal = new RevocationJournal(file);
+
+        assertEquals(0, journal.open((high, low, expiration) -> fail("No record expected")));
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    void givenAppendedRecords_whenReopen_thenRecordsAreReplayedInOrder() throws IOException {
+        journal = new RevocationJournal(file);
+        journal.open((high, low, expiration) -> {});
+        journal.append(1, 2, 3);
+        journal.append(-4, -5, 6);
+        journal.close();
+
+        List<long[]> records = replay(file);
+
+        assertEquals(2, records.size());
+        assertArrayEquals(new long[]{1, 2, 3}, records.get(0));
+        assertArrayEquals(new long[]{-4, -5, 6}, records.get(1));
+    }
+
+    @Test
+    void givenJournalNotClosedNorSynced_whenReopen_thenRecordsAreReplayed() throws IOException {
+        journal = new RevocationJournal(file);
+        journal.open((high, low, expiration) -> {});
+        journal.append(1, 2, 3);
+
+        // the same state as after a kill of the process, the mapped memory is not flushed
+        assertEquals(1, replay(file).size());
+    }
+
+    @Test
+    void givenMoreRecordsThanInitialCapacity_whenAppend_thenJournalGrows() throws IOException {
+        journal = new RevocationJournal(file);
+        journal.open((high, low, expiration) -> {});
+        for (int i = 0; i < 10000; i++) {
+            journal.append(i, i, i);
+        }
+        journal.close();
+
+        List<long[]> records = replay(file);
+
+        assertEquals(10000, records.size());
+        assertArrayEquals(new long[]{9999, 9999, 9999}, records.get(9999));
+    }
+
+    @Test
+    void givenIncompleteRecord_whenOpen_thenReplayStopsAndRecordIsOverwritten() throws IOException {
+        journal = new RevocationJournal(file);
+        journal.open((high, low, expiration) -> {});
+        journal.append(1, 2, 3);
+        journal.append(4, 5, 6);
+        journal.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            // damaged expiration of the second record, the checksum does not match
+            raf.seek(RevocationJournal.HEADER_SIZE + RevocationJournal.RECORD_SIZE + 16);
+            raf.writeLong(7);
+        }
+
+        journal = new RevocationJournal(file);
+        assertEquals(1, journal.open((high, low, expiration) -> {}));
+        journal.append(8, 9, 10);
+        journal.close();
+
+        List<long[]> records = replay(file);
+        assertEquals(2, records.size());
+        assertArrayEquals(new long[]{8, 9, 10}, records.get(1));
+    }
+
+    @Test
+    void givenForeignFile_whenOpen_thenNewJournalIsCreated() throws IOException {
+        Files.write(file, "not a journal".getBytes(StandardCharsets.UTF_8));
+
+        journal = new RevocationJournal(file);
+        assertEquals(0, journal.open((high, low, expiration) -> {}));
+        journal.append(1, 2, 3);
+        journal.close();
+
+        assertEquals(1, replay(file).size());
+    }
+
+    @Test
+    void givenRecords_whenCompact_thenOnlyWrittenRecordsStay() throws IOException {
+        journal = new RevocationJournal(file);
+        journal.open((high, low, expiration) -> {});
+        for (int i = 0; i < 100; i++) {
+            journal.append(i, i, i);
+        }
+
+        assertEquals(2, journal.compact(writer -> {
+            writer.accept(10, 10, 10);
+            writer.accept(20, 20, 20);
+        }));
+        journal.append(30, 30, 30);
+        assertEquals(3, journal.getRecordCount());
+        journal.close();
+
+        List<long[]> records = replay(file);
+        assertEquals(3, records.size());
+        assertArrayEquals(new long[]{30, 30, 30}, records.get(2));
+        assertFalse(Files.exists(tempDir.resolve("test.journal.tmp")));
+    }
+
+    @Test
+    void givenProcessKilledAfterAppends_whenOpen_thenAllRecordsAreReplayed() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            Writer.class.getName(), file.toString(), "1000")
+            .redirectErrorStream(true)
+            .start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null && !Writer.READY.equals(line)) {
+                // skip logs of the child process
+            }
+            assertEquals(Writer.READY, line);
+
+            // SIGKILL, the journal is neither synced nor closed
+            process.destroyForcibly();
+            assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+        }
+
+        List<long[]> records = replay(file);
+        assertEquals(1000, records.size());
+        assertArrayEquals(new long[]{999, 999, 999}, records.get(999));
+    }
+
+    /**
+     * Appends records and waits to be killed
+     */
+    public static class Writer {
+
+        static final String READY = "READY";
+
+        public static void main(String[] args) throws Exception {
+            RevocationJournal journal = new RevocationJournal(new File(args[0]).toPath());
+            journal.open((high, low, expiration) -> {});
+            int count = Integer.parseInt(args[1]);
+            for (int i = 0; i < count; i++) {
+                journal.append(i, i, i);
+            }
+            System.out.println(READY);
+            System.out.flush();
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+        }
+
+    }
+
+}
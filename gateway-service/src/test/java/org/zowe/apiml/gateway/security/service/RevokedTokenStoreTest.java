@@ -0,0 +1,178 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import org.apache.commons.lang.time.DateUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.zowe.apiml.gateway.config.TokenInvalidationConfigProperties;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevokedTokenStoreTest {
+
+    private static final String TOKEN = "eyJhbGciOiJSUzI1NiJ9.eyJzdWIiOiJ1c2VyIn0.signature";
+
+    private TokenInvalidationConfigProperties properties;
+    private RevokedTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenInvalidationConfigProperties();
+        properties.setExpectedTokens(100);
+        store = new RevokedTokenStore(properties);
+    }
+
+    @Test
+    void givenRevokedToken_whenIsRevoked_thenTrue() {
+        store.revoke(TOKEN, DateUtils.addHours(new Date(), 1));
+
+        assertTrue(store.isRevoked(TOKEN));
+        assertFalse(store.isRevoked(TOKEN + "x"));
+        assertFalse(store.isRevoked(null));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void givenExpiredToken_whenIsRevoked_thenFalseAndIsRemoved() {
+        store.revoke(TOKEN, DateUtils.addSeconds(new Date(), -1));
+
+        assertFalse(store.isRevoked(TOKEN));
+
+        store.removeExpired();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void givenTokenWithoutExpiration_whenRevoke_thenDefaultTtlIsUsed() {
+        store.revoke(TOKEN, null);
+        assertTrue(store.isRevoked(TOKEN));
+
+        properties.setDefaultTtlSeconds(-1);
+        store.revoke(TOKEN + "x", null);
+        assertFalse(store.isRevoked(TOKEN + "x"));
+    }
+
+    @Test
+    void givenTokenRevokedTwice_whenRevoke_thenLaterExpirationIsKept() {
+        Date expiration = DateUtils.addHours(new Date(), 2);
+        store.revoke(TOKEN, expiration);
+        store.revoke(TOKEN, DateUtils.addHours(new Date(), 1));
+
+        assertEquals(1, store.size());
+        assertTrue(store.export().get(0).endsWith(":" + expiration.getTime()));
+    }
+
+    @Test
+    void givenExportedEntries_whenImport_thenTokensAreRevoked() {
+        store.revoke(TOKEN, DateUtils.addHours(new Date(), 1));
+        store.revoke(TOKEN + "expired", DateUtils.addSeconds(new Date(), -1));
+
+        List<String> exported = store.export();
+        assertEquals(1, exported.size());
+
+        RevokedTokenStore another = new RevokedTokenStore(properties);
+        assertEquals(1, another.importEntries(exported, Long.MAX_VALUE).size());
+
+        assertTrue(another.isRevoked(TOKEN));
+        assertEquals(1, another.size());
+    }
+
+    @Test
+    void givenEntryWithFarExpiration_whenImport_thenExpirationIsLimited() {
+        properties.setDefaultTtlSeconds(60);
+        long maxExpiration = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        store.importEntries(Arrays.asList("0123456789abcdef0123456789abcdef:" + Long.MAX_VALUE), maxExpiration);
+
+        List<String> exported = store.export();
+        assertEquals(1, exported.size());
+        assertEquals("0123456789abcdef0123456789abcdef:" + maxExpiration, exported.get(0));
+    }
+
+    @Test
+    void givenJournal_whenStoreIsRestarted_thenRevocationsAreLoaded(@TempDir Path tempDir) throws IOException {
+        properties.setJournalLocation(tempDir.toString());
+        store.afterPropertiesSet();
+        store.revoke(TOKEN, DateUtils.addHours(new Date(), 1));
+        store.revoke(TOKEN + "expired", DateUtils.addSeconds(new Date(), -1));
+        store.preDestroy();
+
+        RevokedTokenStore restarted = new RevokedTokenStore(properties);
+        restarted.afterPropertiesSet();
+        try {
+            assertTrue(restarted.isRevoked(TOKEN));
+            assertEquals(1, restarted.size());
+        } finally {
+            restarted.preDestroy();
+        }
+    }
+
+    @Test
+    void givenMostlyExpiredJournal_whenCleanup_thenJournalIsCompacted(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve(RevokedTokenStore.JOURNAL_FILE_NAME);
+        store.openJournal(file);
+        Date expired = DateUtils.addSeconds(new Date(), -1);
+        for (int i = 0; i < 2000; i++) {
+            store.revoke(TOKEN + i, expired);
+        }
+        store.revoke(TOKEN, DateUtils.addHours(new Date(), 1));
+
+        store.cleanup();
+        store.preDestroy();
+
+        RevokedTokenStore restarted = new RevokedTokenStore(properties);
+        restarted.openJournal(file);
+        assertEquals(1, restarted.size());
+        assertTrue(restarted.isRevoked(TOKEN));
+    }
+
+    @Test
+    void givenLargeJournal_whenStartup_thenItIsLoadedQuickly(@TempDir Path tempDir) throws IOException {
+        int count = 100000;
+        Path file = tempDir.resolve(RevokedTokenStore.JOURNAL_FILE_NAME);
+        long expiration = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        try (RevocationJournal journal = new RevocationJournal(file)) {
+            journal.open((high, low, exp) -> {});
+            for (long i = 0; i < count; i++) {
+                journal.append(i, ~i, expiration);
+            }
+        }
+
+        properties.setExpectedTokens(count);
+        RevokedTokenStore restarted = new RevokedTokenStore(properties);
+        long start = System.nanoTime();
+        restarted.openJournal(file);
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(count, restarted.size());
+        assertTrue(durationMillis < 2000, "Journal was loaded in " + durationMillis + " ms");
+    }
+
+    @Test
+    void givenMalformedEntries_whenImport_thenAreSkipped() {
+        assertTrue(store.importEntries(Arrays.asList(
+            "abc",
+            "0123456789abcdef0123456789abcdef:notANumber",
+            "0123456789abcdef0123456789abcdef:1",
+            "0123456789abcdef0123456789abcdxx:" + Long.MAX_VALUE
+        ), Long.MAX_VALUE).isEmpty());
+
+        assertEquals(0, store.size());
+    }
+
+}
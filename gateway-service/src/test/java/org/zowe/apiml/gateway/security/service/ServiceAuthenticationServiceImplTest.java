@@ -17,6 +17,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.zowe.apiml.security.common.auth.Authentication;
 import org.zowe.apiml.security.common.auth.AuthenticationScheme;
 import org.zowe.apiml.security.common.token.QueryResponse;
+import org.zowe.apiml.cache.ServiceGenerations;
 import org.zowe.apiml.gateway.config.CacheConfig;
 import org.zowe.apiml.gateway.security.service.schema.*;
 import org.zowe.apiml.gateway.utils.CurrentRequestContextTest;
@@ -27,7 +28,6 @@ import com.netflix.zuul.context.RequestContext;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
@@ -65,7 +65,7 @@ public class ServiceAuthenticationServiceImplTest extends CurrentRequestContextT
     private ServiceAuthenticationService serviceAuthenticationService;
 
     @Autowired
-    private CacheManager cacheManager;
+    private ServiceGenerations serviceGenerations;
 
     /**
      * secondary instance to check protected methods
@@ -79,7 +79,7 @@ public class ServiceAuthenticationServiceImplTest extends CurrentRequestContextT
         RequestContext.testSetCurrentContext(null);
         serviceAuthenticationService.evictCacheAllService();
 
-        serviceAuthenticationServiceImpl = new ServiceAuthenticationServiceImpl(discoveryClient, authenticationSchemeFactory, authenticationService, cacheManager);
+        serviceAuthenticationServiceImpl = new ServiceAuthenticationServiceImpl(discoveryClient, authenticationSchemeFactory, authenticationService, serviceGenerations);
     }
 
     @AfterEach
@@ -388,8 +388,8 @@ public class ServiceAuthenticationServiceImplTest extends CurrentRequestContextT
         }
 
         @Bean
-        public ServiceAuthenticationService getServiceAuthenticationService(@Autowired CacheManager cacheManager) {
-            return new ServiceAuthenticationServiceImpl(getDiscoveryClient(), getAuthenticationSchemeFactory(), getAuthenticationService(), cacheManager);
+        public ServiceAuthenticationService getServiceAuthenticationService(@Autowired ServiceGenerations serviceGenerations) {
+            return new ServiceAuthenticationServiceImpl(getDiscoveryClient(), getAuthenticationSchemeFactory(), getAuthenticationService(), serviceGenerations);
         }
 
     }
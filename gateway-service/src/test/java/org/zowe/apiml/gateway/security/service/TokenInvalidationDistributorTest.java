@@ -0,0 +1,233 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.zowe.apiml.gateway.config.TokenInvalidationConfigProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TokenInvalidationDistributorTest {
+
+    private static final String URL_1 = "https://hostname1:10433/auth/invalidate";
+    private static final String URL_2 = "http://hostname2:10001/auth/invalidate";
+    private static final String REVOKED_URL_1 = "https://hostname1:10433/auth/revoked";
+
+    private EurekaClient discoveryClient;
+    private RestTemplate restTemplate;
+    private TokenInvalidationConfigProperties properties;
+    private TokenInvalidationDistributor distributor;
+
+    private InstanceInfo createInstanceInfo(String instanceId, String hostName, int port, int securePort) {
+        InstanceInfo out = mock(InstanceInfo.class);
+        when(out.getInstanceId()).thenReturn(instanceId);
+        when(out.getHostName()).thenReturn(hostName);
+        when(out.getPort()).thenReturn(port);
+        when(out.getSecurePort()).thenReturn(securePort);
+        return out;
+    }
+
+    @BeforeEach
+    void setUp() {
+        discoveryClient = mock(EurekaClient.class);
+        restTemplate = mock(RestTemplate.class);
+
+        InstanceInfo myInstance = createInstanceInfo("myInstance01", "localhost", 10000, 10433);
+        ApplicationInfoManager applicationInfoManager = mock(ApplicationInfoManager.class);
+        when(applicationInfoManager.getInfo()).thenReturn(myInstance);
+        when(discoveryClient.getApplicationInfoManager()).thenReturn(applicationInfoManager);
+
+        Application application = mock(Application.class);
+        when(application.getInstances()).thenReturn(Arrays.asList(
+            createInstanceInfo("instance02", "hostname1", 10000, 10433),
+            myInstance,
+            createInstanceInfo("instance03", "hostname2", 10001, 0)
+        ));
+        when(discoveryClient.getApplication("gateway")).thenReturn(application);
+
+        properties = new TokenInvalidationConfigProperties();
+        properties.setFlushDelayMillis(200);
+        properties.setInitialBackoffMillis(10);
+        properties.setMaxBackoffMillis(40);
+    }
+
+    private void startDistributor() {
+        distributor = new TokenInvalidationDistributor(discoveryClient, restTemplate, properties);
+        distributor.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (distributor != null) distributor.preDestroy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private String[] getTokens(HttpEntity<?> entity) throws IOException {
+        assertEquals("gzip", entity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        byte[] body = (byte[]) entity.getBody();
+        return new ObjectMapper().readValue(new GZIPInputStream(new ByteArrayInputStream(body)), String[].class);
+    }
+
+    @Test
+    void givenTokensInvalidatedAtOnce_whenFlushed_thenOneBatchIsSentToEachOtherInstance() throws IOException {
+        startDistributor();
+
+        assertTrue(distributor.invalidate("a"));
+        assertTrue(distributor.invalidate("b"));
+
+        ArgumentCaptor<HttpEntity> captor = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate, timeout(2000).times(1)).exchange(eq(URL_1), eq(HttpMethod.POST), captor.capture(), eq(Void.class));
+        assertArrayEquals(new String[] {"a", "b"}, getTokens(captor.getValue()));
+        verify(restTemplate, timeout(2000).times(1)).exchange(eq(URL_2), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class));
+        verify(restTemplate, after(300).times(2)).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(Void.class));
+    }
+
+    @Test
+    void givenGatewayIsNotRegistered_whenInvalidate_thenFalse() {
+        when(discoveryClient.getApplication("gateway")).thenReturn(null);
+        startDistributor();
+
+        assertFalse(distributor.invalidate("a"));
+    }
+
+    @Test
+    void givenAllTokens_whenDistribute_thenSentInOnePayload() throws IOException {
+        startDistributor();
+        InstanceInfo newInstance = createInstanceInfo("instance02", "hostname1", 10000, 10433);
+
+        distributor.distribute(newInstance, Arrays.asList("a", "b", "c"));
+
+        ArgumentCaptor<HttpEntity> captor = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate, timeout(2000).times(1)).exchange(eq(REVOKED_URL_1), eq(HttpMethod.POST), captor.capture(), eq(Void.class));
+        assertArrayEquals(new String[] {"a", "b", "c"}, getTokens(captor.getValue()));
+    }
+
+    @Test
+    void givenMoreTokensThanLimit_whenDistribute_thenSentInMoreBatches() throws IOException {
+        properties.setMaxEntriesPerRequest(2);
+        startDistributor();
+        InstanceInfo newInstance = createInstanceInfo("instance02", "hostname1", 10000, 10433);
+
+        distributor.distribute(newInstance, Arrays.asList("a", "b", "c"));
+
+        verify(restTemplate, timeout(2000).times(2)).exchange(eq(REVOKED_URL_1), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class));
+        ArgumentCaptor<HttpEntity> captor = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate, times(2)).exchange(eq(REVOKED_URL_1), eq(HttpMethod.POST), captor.capture(), eq(Void.class));
+        assertArrayEquals(new String[] {"a", "b"}, getTokens(captor.getAllValues().get(0)));
+        assertArrayEquals(new String[] {"c"}, getTokens(captor.getAllValues().get(1)));
+    }
+
+    @Test
+    void givenNoTokens_whenDistribute_thenNothingIsSent() {
+        startDistributor();
+
+        distributor.distribute(createInstanceInfo("instance02", "hostname1", 10000, 10433), Collections.emptyList());
+
+        verify(restTemplate, after(400).never()).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(Void.class));
+    }
+
+    @Test
+    void givenFailure_whenFlushed_thenBatchIsRetried() throws IOException {
+        when(restTemplate.exchange(eq(URL_2), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class)))
+            .thenThrow(new ResourceAccessException("Connection refused"))
+            .thenReturn(ResponseEntity.ok().build());
+        startDistributor();
+
+        distributor.invalidate("a");
+
+        ArgumentCaptor<HttpEntity> captor = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate, timeout(2000).times(2)).exchange(eq(URL_2), eq(HttpMethod.POST), captor.capture(), eq(Void.class));
+        assertArrayEquals(new String[] {"a"}, getTokens(captor.getValue()));
+        verify(restTemplate, after(300).times(2)).exchange(eq(URL_2), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class));
+    }
+
+    @Test
+    void givenPermanentFailure_whenRetriesAreExhausted_thenTokensAreDropped() {
+        properties.setMaxRetries(2);
+        when(restTemplate.exchange(eq(URL_2), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class)))
+            .thenThrow(new ResourceAccessException("Connection refused"));
+        startDistributor();
+
+        distributor.invalidate("a");
+
+        verify(restTemplate, timeout(2000).times(3)).exchange(eq(URL_2), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class));
+        verify(restTemplate, after(300).times(3)).exchange(eq(URL_2), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class));
+    }
+
+    @Test
+    void givenInstanceWithoutBulkEndpoint_whenFlushed_thenTokensAreSentOneByOne() {
+        when(restTemplate.exchange(eq(URL_2), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class)))
+            .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+        startDistributor();
+
+        distributor.invalidate("a");
+        distributor.invalidate("b");
+
+        verify(restTemplate, timeout(2000)).delete(URL_2 + "/{}", "a");
+        verify(restTemplate, timeout(2000)).delete(URL_2 + "/{}", "b");
+        verify(restTemplate, never()).delete(eq(URL_1 + "/{}"), any(Object[].class));
+
+        distributor.invalidate("c");
+
+        verify(restTemplate, timeout(2000)).delete(URL_2 + "/{}", "c");
+        verify(restTemplate, times(1)).exchange(eq(URL_2), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class));
+    }
+
+    @Test
+    void givenInstanceWithoutRevokedEndpoint_whenDistribute_thenNoFallback() {
+        properties.setMaxRetries(0);
+        when(restTemplate.exchange(eq(REVOKED_URL_1), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class)))
+            .thenThrow(new HttpClientErrorException(HttpStatus.METHOD_NOT_ALLOWED));
+        startDistributor();
+
+        distributor.distribute(createInstanceInfo("instance02", "hostname1", 10000, 10433), Arrays.asList("a", "b"));
+
+        verify(restTemplate, timeout(2000)).exchange(eq(REVOKED_URL_1), eq(HttpMethod.POST), any(HttpEntity.class), eq(Void.class));
+        verify(restTemplate, after(300).never()).delete(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void givenAttempts_whenGetBackoff_thenIsDoubledUpToLimit() {
+        distributor = new TokenInvalidationDistributor(discoveryClient, restTemplate, properties);
+
+        assertEquals(10, distributor.getBackoff(1));
+        assertEquals(20, distributor.getBackoff(2));
+        assertEquals(40, distributor.getBackoff(3));
+        assertEquals(40, distributor.getBackoff(10));
+        assertEquals(40, distributor.getBackoff(100));
+    }
+
+}
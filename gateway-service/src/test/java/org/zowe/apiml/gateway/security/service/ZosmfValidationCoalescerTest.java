@@ -0,0 +1,209 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.security.common.token.TokenNotValidException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.zowe.apiml.gateway.security.service.ZosmfService.TokenType.JWT;
+import static org.zowe.apiml.gateway.security.service.ZosmfService.TokenType.LTPA;
+
+class ZosmfValidationCoalescerTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final BiConsumer<ZosmfService.TokenType, String> valid = (type, token) -> calls.incrementAndGet();
+
+    private final BiConsumer<ZosmfService.TokenType, String> invalid = (type, token) -> {
+        calls.incrementAndGet();
+        throw new TokenNotValidException("Token is not valid.");
+    };
+
+    @Test
+    void givenConcurrentValidations_whenValidate_thenZosmfIsCalledOnce() throws Exception {
+        ZosmfValidationCoalescer coalescer = new ZosmfValidationCoalescer(10, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BiConsumer<ZosmfService.TokenType, String> slow = (type, token) -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> coalescer.validate(JWT, "token", slow)));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) {
+                futures.add(executor.submit(() -> coalescer.validate(JWT, "token", slow)));
+            }
+            while (coalescer.getCoalesced() < 5) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1, coalescer.getCalled());
+        assertEquals(5, coalescer.getCoalesced());
+    }
+
+    @Test
+    void givenConcurrentValidationsOfInvalidToken_whenValidate_thenAllFail() throws Exception {
+        ZosmfValidationCoalescer coalescer = new ZosmfValidationCoalescer(10, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BiConsumer<ZosmfService.TokenType, String> slowInvalid = (type, token) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            invalid.accept(type, token);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> coalescer.validate(JWT, "token", slowInvalid));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<?> second = executor.submit(() -> coalescer.validate(JWT, "token", slowInvalid));
+            while (coalescer.getCoalesced() < 1) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            ExecutionException e1 = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            ExecutionException e2 = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+            assertTrue(e1.getCause() instanceof TokenNotValidException);
+            assertTrue(e2.getCause() instanceof TokenNotValidException);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void givenValidatorThrowingError_whenValidateConcurrently_thenWaitingValidationFails() throws Exception {
+        ZosmfValidationCoalescer coalescer = new ZosmfValidationCoalescer(10, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BiConsumer<ZosmfService.TokenType, String> failing = (type, token) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new AssertionError("unexpected");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> coalescer.validate(JWT, "token", failing));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<?> second = executor.submit(() -> coalescer.validate(JWT, "token", failing));
+            while (coalescer.getCoalesced() < 1) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            ExecutionException e1 = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            ExecutionException e2 = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+            assertTrue(e1.getCause() instanceof AssertionError);
+            assertTrue(e2.getCause() instanceof AssertionError);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void givenInvalidToken_whenValidateAgain_thenIsRejectedWithoutCall() throws InterruptedException {
+        ZosmfValidationCoalescer coalescer = new ZosmfValidationCoalescer(10, 100);
+
+        assertThrows(TokenNotValidException.class, () -> coalescer.validate(JWT, "token", invalid));
+        assertThrows(TokenNotValidException.class, () -> coalescer.validate(JWT, "token", invalid));
+        assertEquals(1, calls.get());
+        assertEquals(1, coalescer.getRejected());
+
+        Thread.sleep(150);
+        assertThrows(TokenNotValidException.class, () -> coalescer.validate(JWT, "token", invalid));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void givenValidToken_whenValidateAgain_thenZosmfIsCalledAgain() {
+        ZosmfValidationCoalescer coalescer = new ZosmfValidationCoalescer(10, 1000);
+
+        coalescer.validate(JWT, "token", valid);
+        coalescer.validate(JWT, "token", valid);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void givenZosmfNotAvailable_whenValidate_thenFailureIsNotRemembered() {
+        ZosmfValidationCoalescer coalescer = new ZosmfValidationCoalescer(10, 1000);
+        BiConsumer<ZosmfService.TokenType, String> unavailable = (type, token) -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("z/OSMF is not available");
+        };
+
+        assertThrows(IllegalStateException.class, () -> coalescer.validate(JWT, "token", unavailable));
+        coalescer.validate(JWT, "token", valid);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void givenSameValueOfDifferentTypes_whenValidate_thenFailureIsNotShared() {
+        ZosmfValidationCoalescer coalescer = new ZosmfValidationCoalescer(10, 1000);
+
+        assertThrows(TokenNotValidException.class, () -> coalescer.validate(JWT, "token", invalid));
+        coalescer.validate(LTPA, "token", valid);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void givenRegistry_whenBind_thenMetricsAreRegistered() {
+        ZosmfValidationCoalescer coalescer = new ZosmfValidationCoalescer(10, 1000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        coalescer.bindTo(registry);
+
+        assertThrows(TokenNotValidException.class, () -> coalescer.validate(JWT, "token", invalid));
+        assertThrows(TokenNotValidException.class, () -> coalescer.validate(JWT, "token", invalid));
+
+        assertEquals(1.0, registry.get(ZosmfValidationCoalescer.METRIC_PREFIX + ".requests").tag("result", "called").functionCounter().count());
+        assertEquals(1.0, registry.get(ZosmfValidationCoalescer.METRIC_PREFIX + ".requests").tag("result", "rejected").functionCounter().count());
+        assertEquals(0.0, registry.get(ZosmfValidationCoalescer.METRIC_PREFIX + ".requests").tag("result", "coalesced").functionCounter().count());
+    }
+
+}
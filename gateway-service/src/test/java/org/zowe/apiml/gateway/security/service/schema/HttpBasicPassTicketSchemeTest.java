@@ -36,7 +36,8 @@ public class HttpBasicPassTicketSchemeTest extends CleanCurrentRequestContextTes
     @BeforeEach
     public void init() {
         PassTicketService passTicketService = new PassTicketService();
-        httpBasicPassTicketScheme = new HttpBasicPassTicketScheme(passTicketService, authConfigurationProperties);
+        PassTicketCache passTicketCache = new PassTicketCache(passTicketService, authConfigurationProperties, 100, 60, 5000);
+        httpBasicPassTicketScheme = new HttpBasicPassTicketScheme(passTicketCache, authConfigurationProperties);
     }
 
     @Test
@@ -0,0 +1,147 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.schema;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.zowe.apiml.passticket.AbstractIRRPassTicketException;
+import org.zowe.apiml.passticket.IRRPassTicketGenerationException;
+import org.zowe.apiml.passticket.PassTicketService;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PassTicketCacheTest {
+
+    private final AuthConfigurationProperties authConfigurationProperties = new AuthConfigurationProperties();
+    private final PassTicketService passTicketService = mock(PassTicketService.class);
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IRRPassTicketGenerationException {
+        when(passTicketService.generate(anyString(), anyString()))
+            .thenAnswer(invocation -> "PT" + counter.incrementAndGet());
+    }
+
+    private PassTicketCache createCache(int timeoutSeconds, int maxSize) {
+        authConfigurationProperties.getPassTicket().setTimeout(timeoutSeconds);
+        return new PassTicketCache(passTicketService, authConfigurationProperties, maxSize, 1, 5000);
+    }
+
+    @Test
+    void givenValidPassTicket_whenGet_thenIsGeneratedOnce() throws IRRPassTicketGenerationException {
+        PassTicketCache cache = createCache(540, 10);
+
+        PassTicketCache.CachedPassTicket first = cache.get("user", "APPLID");
+        PassTicketCache.CachedPassTicket second = cache.get("user", "APPLID");
+
+        assertSame(first, second);
+        assertEquals("PT1", second.getPassTicket());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        verify(passTicketService, times(1)).generate("user", "APPLID");
+    }
+
+    @Test
+    void givenDifferentApplIds_whenGet_thenPassTicketsAreDifferent() throws IRRPassTicketGenerationException {
+        PassTicketCache cache = createCache(540, 10);
+
+        assertNotEquals(cache.get("user", "APPLID1").getPassTicket(), cache.get("user", "APPLID2").getPassTicket());
+    }
+
+    @Test
+    void givenPassTicketValidShorterThanMinimum_whenGet_thenNewIsGenerated() throws IRRPassTicketGenerationException {
+        PassTicketCache cache = createCache((int) (PassTicketCache.MIN_VALIDITY_MILLIS / 1000), 10);
+
+        cache.get("user", "APPLID");
+        cache.get("user", "APPLID");
+
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void givenActivePair_whenRefresh_thenPassTicketIsGeneratedInBackground() throws IRRPassTicketGenerationException {
+        PassTicketCache cache = createCache(11, 10);
+        cache.get("user", "APPLID");
+
+        cache.refresh();
+        PassTicketCache.CachedPassTicket refreshed = cache.get("user", "APPLID");
+        cache.get("user", "APPLID");
+
+        assertEquals("PT2", refreshed.getPassTicket());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getRefreshes());
+        assertEquals(1, cache.getRefreshHits());
+    }
+
+    @Test
+    void givenInactivePair_whenRefresh_thenIsRemoved() throws IRRPassTicketGenerationException {
+        PassTicketCache cache = createCache(10, 10);
+        PassTicketCache.CachedPassTicket cached = cache.get("user", "APPLID");
+        ReflectionTestUtils.setField(cached, "lastAccess", 0L);
+
+        cache.refresh();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getRefreshes());
+    }
+
+    @Test
+    void givenFailingGeneration_whenRefresh_thenCurrentPassTicketIsKept() throws IRRPassTicketGenerationException {
+        PassTicketCache cache = createCache(11, 10);
+        PassTicketCache.CachedPassTicket cached = cache.get("user", "APPLID");
+        when(passTicketService.generate(anyString(), anyString()))
+            .thenThrow(new IRRPassTicketGenerationException(AbstractIRRPassTicketException.ErrorCode.ERR_8_8_16));
+
+        cache.refresh();
+
+        assertSame(cached, cache.get("user", "APPLID"));
+        assertEquals(0, cache.getRefreshes());
+    }
+
+    @Test
+    void givenFullCache_whenGet_thenOldestIsRemoved() throws IRRPassTicketGenerationException {
+        PassTicketCache cache = createCache(540, 2);
+
+        cache.get("user1", "APPLID");
+        cache.get("user2", "APPLID");
+        cache.get("user1", "APPLID");
+        cache.get("user3", "APPLID");
+
+        assertEquals(2, cache.size());
+        cache.get("user2", "APPLID");
+        assertEquals(3, cache.getMisses());
+        cache.get("user1", "APPLID");
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    void givenRegistry_whenBind_thenMetricsAreRegistered() throws IRRPassTicketGenerationException {
+        PassTicketCache cache = createCache(540, 10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get("user", "APPLID");
+        cache.get("user", "APPLID");
+
+        assertEquals(1.0, registry.get(PassTicketCache.METRIC_PREFIX + ".requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get(PassTicketCache.METRIC_PREFIX + ".requests").tag("result", "miss").functionCounter().count());
+        assertEquals(1.0, registry.get(PassTicketCache.METRIC_PREFIX + ".generation").functionTimer().count());
+        assertEquals(0.0, registry.get(PassTicketCache.METRIC_PREFIX + ".refreshes").functionCounter().count());
+        assertEquals(1.0, registry.get(PassTicketCache.METRIC_PREFIX + ".size").gauge().value());
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.adapter.jetty.JettyWebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PartialMessageWebSocketSessionDecoratorTest {
+
+    private final RemoteEndpoint remote = mock(RemoteEndpoint.class);
+    private PartialMessageWebSocketSessionDecorator underTest;
+
+    @BeforeEach
+    void setUp() {
+        Session nativeSession = mock(Session.class);
+        when(nativeSession.getRemote()).thenReturn(remote);
+        JettyWebSocketSession session = new JettyWebSocketSession(new HashMap<>());
+        session.initializeNativeSession(nativeSession);
+
+        underTest = new PartialMessageWebSocketSessionDecorator(session);
+    }
+
+    @Test
+    void givenFragmentedTextMessage_whenSend_thenFragmentsAreSent() throws Exception {
+        underTest.sendMessage(new TextMessage("first", false));
+        underTest.sendMessage(new TextMessage("second", false));
+        underTest.sendMessage(new TextMessage("last", true));
+
+        InOrder inOrder = inOrder(remote);
+        inOrder.verify(remote).sendPartialString("first", false);
+        inOrder.verify(remote).sendPartialString("second", false);
+        inOrder.verify(remote).sendPartialString("last", true);
+        verify(remote, never()).sendString(anyString());
+    }
+
+    @Test
+    void givenFragmentedBinaryMessage_whenSend_thenFragmentsAreSent() throws Exception {
+        ByteBuffer first = ByteBuffer.wrap(new byte[] {1, 2});
+        ByteBuffer last = ByteBuffer.wrap(new byte[] {3});
+
+        underTest.sendMessage(new BinaryMessage(first, false));
+        underTest.sendMessage(new BinaryMessage(last, true));
+
+        verify(remote).sendPartialBytes(first, false);
+        verify(remote).sendPartialBytes(last, true);
+    }
+
+    @Test
+    void givenWholeMessage_whenSend_thenItIsSentAsWhole() throws Exception {
+        underTest.sendMessage(new TextMessage("whole"));
+
+        verify(remote).sendString("whole");
+        verify(remote, never()).sendPartialString(anyString(), anyBoolean());
+    }
+
+}
@@ -11,6 +11,7 @@
 package org.zowe.apiml.gateway.ws;
 
 import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -41,10 +42,20 @@ class WebSocketActuatorEndpointTest {
         when(validSession.getClientUri()).thenReturn("ws://localhost:8080/v2");
         when(validSession.getServerUri()).thenReturn("ws://gateway:10010/api/v2/");
         when(validSession.getServerRemoteAddress()).thenReturn("ws://gateway:10010");
+        when(validSession.getServerBufferSize()).thenReturn(128);
         routedSessions.put("webSocketSessionId", validSession);
         when(webSocketProxyServerHandler.getRoutedSessions()).thenReturn(routedSessions);
 
-        String clientResponse = new JSONArray(underTest.getAll()).toString();
-        assertThat(clientResponse, is("[{\"gatewayPath\":\"ws:\\/\\/gateway:10010\\/api\\/v2\\/\",\"serviceUrl\":\"ws:\\/\\/localhost:8080\\/v2\",\"serviceSessionId\":\"12\",\"sessionId\":\"webSocketSessionId\",\"clientAddress\":\"ws:\\/\\/gateway:10010\"}]"));
+        JSONArray clientResponse = new JSONArray(underTest.getAll());
+        assertThat(clientResponse.length(), is(1));
+        JSONObject session = clientResponse.getJSONObject(0);
+        assertThat(session.length(), is(7));
+        assertThat(session.getString("sessionId"), is("webSocketSessionId"));
+        assertThat(session.getString("clientAddress"), is("ws://gateway:10010"));
+        assertThat(session.getString("gatewayPath"), is("ws://gateway:10010/api/v2/"));
+        assertThat(session.getString("serviceUrl"), is("ws://localhost:8080/v2"));
+        assertThat(session.getString("serviceSessionId"), is("12"));
+        assertThat(session.getString("clientBufferSize"), is("128"));
+        assertThat(session.getString("serviceBufferSize"), is("0"));
     }
 }
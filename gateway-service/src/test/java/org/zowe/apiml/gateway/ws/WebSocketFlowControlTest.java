@@ -0,0 +1,92 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WebSocketFlowControlTest {
+
+    private final WebSocketSession session = mock(WebSocketSession.class);
+
+    @Test
+    void givenClosePolicy_whenDecorate_thenMessagesAreQueued() {
+        WebSocketSession decorated = new WebSocketFlowControl(1000, 1024, WebSocketFlowControl.OverflowPolicy.CLOSE, 4096).decorate(session);
+
+        assertTrue(decorated instanceof ConcurrentWebSocketSessionDecorator);
+        assertEquals(1024, ((ConcurrentWebSocketSessionDecorator) decorated).getBufferSizeLimit());
+        assertEquals(0, WebSocketFlowControl.getBufferSize(decorated));
+    }
+
+    @Test
+    void givenDropPolicy_whenDecorate_thenMessagesAreQueued() {
+        WebSocketSession decorated = new WebSocketFlowControl(1000, 1024, WebSocketFlowControl.OverflowPolicy.DROP, 4096).decorate(session);
+
+        assertTrue(decorated instanceof WebSocketFlowControl.DroppingWebSocketSessionDecorator);
+        WebSocketSession queue = ((WebSocketSessionDecorator) decorated).getDelegate();
+        assertEquals(1024 + 4096, ((ConcurrentWebSocketSessionDecorator) queue).getBufferSizeLimit());
+        assertEquals(0, WebSocketFlowControl.getBufferSize(decorated));
+    }
+
+    @Test
+    void givenFullQueue_whenFirstFragmentArrives_thenWholeMessageIsDropped() throws Exception {
+        ConcurrentWebSocketSessionDecorator queue = mock(ConcurrentWebSocketSessionDecorator.class);
+        WebSocketSession decorated = new WebSocketFlowControl.DroppingWebSocketSessionDecorator(queue, 10);
+
+        when(queue.getBufferSize()).thenReturn(8);
+        decorated.sendMessage(new TextMessage("first", false));
+        when(queue.getBufferSize()).thenReturn(0);
+        decorated.sendMessage(new TextMessage("second", false));
+        decorated.sendMessage(new PingMessage());
+        decorated.sendMessage(new TextMessage("last", true));
+
+        verify(queue, times(1)).sendMessage(any());
+        verify(queue).sendMessage(any(PingMessage.class));
+
+        TextMessage next = new TextMessage("next", true);
+        decorated.sendMessage(next);
+        verify(queue).sendMessage(next);
+    }
+
+    @Test
+    void givenStartedMessage_whenQueueIsFull_thenFragmentsAreForwarded() throws Exception {
+        ConcurrentWebSocketSessionDecorator queue = mock(ConcurrentWebSocketSessionDecorator.class);
+        WebSocketSession decorated = new WebSocketFlowControl.DroppingWebSocketSessionDecorator(queue, 10);
+
+        decorated.sendMessage(new TextMessage("first", false));
+        when(queue.getBufferSize()).thenReturn(10);
+        decorated.sendMessage(new TextMessage("second", false));
+        decorated.sendMessage(new TextMessage("last", true));
+        decorated.sendMessage(new TextMessage("dropped", true));
+
+        verify(queue, times(3)).sendMessage(any());
+    }
+
+    @Test
+    void givenBlockPolicy_whenSendMessage_thenItIsSentDirectly() throws Exception {
+        WebSocketSession decorated = new WebSocketFlowControl(1000, 1024, WebSocketFlowControl.OverflowPolicy.BLOCK, 4096).decorate(session);
+        TextMessage message = new TextMessage("message");
+
+        decorated.sendMessage(message);
+
+        assertSame(session, WebSocketSessionDecorator.unwrap(decorated));
+        assertEquals(0, WebSocketFlowControl.getBufferSize(decorated));
+        verify(session).sendMessage(message);
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import com.netflix.appinfo.InstanceInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.netflix.eureka.EurekaServiceInstance;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketLoadBalancerTest {
+
+    private static ServiceInstance instance(String host, InstanceInfo.InstanceStatus status) {
+        return new EurekaServiceInstance(InstanceInfo.Builder.newBuilder()
+            .setAppName("service")
+            .setInstanceId(host + ":service:10012")
+            .setHostName(host)
+            .setPort(10012)
+            .setStatus(status)
+            .build());
+    }
+
+    private final ServiceInstance first = instance("host1", InstanceInfo.InstanceStatus.UP);
+    private final ServiceInstance second = instance("host2", InstanceInfo.InstanceStatus.UP);
+    private final ServiceInstance down = instance("host3", InstanceInfo.InstanceStatus.DOWN);
+
+    @Test
+    void givenLeastSessions_whenChoose_thenInstanceWithFewerSessionsIsSelected() {
+        WebSocketLoadBalancer loadBalancer = new WebSocketLoadBalancer(WebSocketLoadBalancer.Strategy.LEAST_SESSIONS);
+        loadBalancer.sessionOpened("s1", first);
+        loadBalancer.sessionOpened("s2", first);
+        loadBalancer.sessionOpened("s3", second);
+
+        assertSame(second, loadBalancer.choose(Arrays.asList(first, second), null));
+
+        loadBalancer.sessionClosed("s1");
+        loadBalancer.sessionClosed("s2");
+        assertSame(first, loadBalancer.choose(Arrays.asList(first, second), null));
+        assertEquals(0, loadBalancer.getActiveSessions(first));
+    }
+
+    @Test
+    void givenRoundRobin_whenChoose_thenInstancesAlternate() {
+        WebSocketLoadBalancer loadBalancer = new WebSocketLoadBalancer(WebSocketLoadBalancer.Strategy.ROUND_ROBIN);
+        List<ServiceInstance> instances = Arrays.asList(first, second);
+
+        ServiceInstance chosen1 = loadBalancer.choose(instances, null);
+        ServiceInstance chosen2 = loadBalancer.choose(instances, null);
+
+        assertNotSame(chosen1, chosen2);
+        assertSame(chosen1, loadBalancer.choose(instances, null));
+    }
+
+    @Test
+    void givenSticky_whenChooseForSameUser_thenSameInstanceIsSelected() {
+        WebSocketLoadBalancer loadBalancer = new WebSocketLoadBalancer(WebSocketLoadBalancer.Strategy.STICKY);
+        List<ServiceInstance> instances = Arrays.asList(first, second);
+
+        ServiceInstance chosen = loadBalancer.choose(instances, "user");
+        for (int i = 0; i < 10; i++) {
+            assertSame(chosen, loadBalancer.choose(instances, "user"));
+        }
+
+        Set<ServiceInstance> byUsers = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            byUsers.add(loadBalancer.choose(instances, "user" + i));
+        }
+        assertEquals(2, byUsers.size());
+    }
+
+    @Test
+    void givenInstanceNotUp_whenChoose_thenItIsSkipped() {
+        WebSocketLoadBalancer loadBalancer = new WebSocketLoadBalancer(WebSocketLoadBalancer.Strategy.ROUND_ROBIN);
+
+        for (int i = 0; i < 4; i++) {
+            assertSame(first, loadBalancer.choose(Arrays.asList(down, first), null));
+        }
+        assertNull(loadBalancer.choose(Collections.singletonList(down), null));
+        assertNull(loadBalancer.choose(Collections.emptyList(), null));
+    }
+
+}
@@ -10,13 +10,17 @@
 
 package org.zowe.apiml.gateway.ws;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.util.concurrent.SettableListenableFuture;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
 import org.zowe.apiml.product.routing.RoutedService;
 import org.zowe.apiml.product.routing.RoutedServices;
 
@@ -24,6 +28,7 @@ import java.net.URI;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -85,6 +90,42 @@ class WebSocketProxyServerHandlerTest {
         assertThat(preparedSession, is(notNullValue()));
     }
 
+    @Test
+    public void givenStartedClients_whenMoreConnectionsAreEstablished_thenTheClientIsShared() throws Exception {
+        RoutedServices routesForSpecificValidService = mock(RoutedServices.class);
+        when(routesForSpecificValidService.findServiceByGatewayUrl("ws/1"))
+            .thenReturn(new RoutedService("api-v1", "api/v1", "/api-v1/api/v1"));
+        ServiceInstance foundService = validServiceInstance();
+        when(discoveryClient.getInstances("api-v1")).thenReturn(Collections.singletonList(foundService));
+        underTest.addRoutedServices("api-v1", routesForSpecificValidService);
+        WebSocketRoutedSession routedSession = mock(WebSocketRoutedSession.class);
+        SettableListenableFuture<WebSocketSession> handshake = new SettableListenableFuture<>();
+        handshake.set(mock(WebSocketSession.class));
+        when(routedSession.getHandshake()).thenReturn(handshake);
+        when(webSocketRoutedSessionFactory.session(any(), any(), any())).thenReturn(routedSession);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        underTest.bindTo(registry);
+
+        underTest.startClients();
+        try {
+            for (String id : new String[] {"first", "second"}) {
+                WebSocketSession establishedSession = mock(WebSocketSession.class);
+                when(establishedSession.getId()).thenReturn(id);
+                when(establishedSession.getUri()).thenReturn(new URI("wss://gatewayHost:1443/gateway/1/api-v1/api/v1"));
+                underTest.afterConnectionEstablished(establishedSession);
+            }
+        } finally {
+            underTest.stopClients();
+        }
+
+        ArgumentCaptor<JettyWebSocketClient> clients = ArgumentCaptor.forClass(JettyWebSocketClient.class);
+        verify(webSocketRoutedSessionFactory, times(2)).session(any(), any(), clients.capture());
+        assertThat(clients.getAllValues().get(0), is(notNullValue()));
+        assertThat(clients.getAllValues().get(1), is(clients.getAllValues().get(0)));
+        assertThat(registry.get(WebSocketProxyServerHandler.METRIC_PREFIX + ".handshake").timer().count(), is(2L));
+        assertThat(registry.get(WebSocketProxyServerHandler.METRIC_PREFIX + ".sessions").gauge().value(), is(2.0));
+    }
+
     private ServiceInstance validServiceInstance() {
         ServiceInstance validService = mock(ServiceInstance.class);
         when(validService.getHost()).thenReturn("gatewayHost");
@@ -158,6 +199,24 @@ class WebSocketProxyServerHandlerTest {
         verify(establishedSession).close(new CloseStatus(CloseStatus.SERVICE_RESTARTED.getCode(), "Requested service api-v1 does not have available instance"));
     }
 
+    @Test
+    public void givenFullHandshakeQueue_whenTheConnectionIsEstablished_thenTheSocketIsClosedAsServiceOverload() throws Exception {
+        WebSocketSession establishedSession = mock(WebSocketSession.class);
+        when(establishedSession.getUri()).thenReturn(new URI("wss://gatewayHost:1443/gateway/1/api-v1/api/v1"));
+        RoutedServices routesForSpecificValidService = mock(RoutedServices.class);
+        when(routesForSpecificValidService.findServiceByGatewayUrl("ws/1"))
+            .thenReturn(new RoutedService("api-v1", "api/v1", "/api-v1/api/v1"));
+        when(discoveryClient.getInstances("api-v1")).thenReturn(Collections.singletonList(validServiceInstance()));
+        underTest.addRoutedServices("api-v1", routesForSpecificValidService);
+        when(webSocketRoutedSessionFactory.session(any(), any(), any())).thenThrow(
+            new WebSocketProxyError("Too many handshakes", new RejectedExecutionException(), establishedSession));
+
+        underTest.afterConnectionEstablished(establishedSession);
+
+        verify(establishedSession).close(new CloseStatus(CloseStatus.SERVICE_OVERLOAD.getCode(), "Too many handshakes"));
+        assertThat(routedSessions.isEmpty(), is(true));
+    }
+
     @Test
     public void givenValidSession_whenTheConnectionIsClosed_thenTheSessionIsClosedAndRemovedFromRepository() throws Exception {
         CloseStatus normalClose = CloseStatus.NORMAL;
@@ -10,16 +10,32 @@
 package org.zowe.apiml.gateway.ws;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.Collections;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
 
 public class WebSocketRoutedSessionTest {
     private WebSocketSession clientSession;
@@ -52,4 +68,131 @@ public class WebSocketRoutedSessionTest {
         assertThat(underTest.getServerRemoteAddress(), is("gateway:8080"));
         assertThat(underTest.getServerUri(), is(serverUriPath));
     }
+
+    @Nested
+    class GivenHandshakeInProgress {
+        private SettableListenableFuture<WebSocketSession> handshake;
+        private JettyWebSocketClient webSocketClient;
+
+        @BeforeEach
+        void startHandshake() {
+            handshake = new SettableListenableFuture<>();
+            webSocketClient = mock(JettyWebSocketClient.class);
+            when(webSocketClient.doHandshake(any(), any(WebSocketHttpHeaders.class), any(URI.class))).thenReturn(handshake);
+            when(serverSession.getHandshakeHeaders()).thenReturn(new HttpHeaders());
+            when(serverSession.isOpen()).thenReturn(true);
+
+            underTest = new WebSocketRoutedSession(serverSession, "wss://service:10012/ws", webSocketClient,
+                new WebSocketFlowControl(10000, 1024, WebSocketFlowControl.OverflowPolicy.CLOSE, 16), true);
+        }
+
+        @Test
+        void whenMessagesArrive_thenTheyAreSentAfterHandshake() throws Exception {
+            WebSocketMessage<?> first = new TextMessage("first");
+            WebSocketMessage<?> second = new TextMessage("second");
+            underTest.sendMessageToServer(first);
+            underTest.sendMessageToServer(second);
+            verify(clientSession, never()).sendMessage(any());
+
+            handshake.set(clientSession);
+            WebSocketMessage<?> third = new TextMessage("third");
+            underTest.sendMessageToServer(third);
+
+            InOrder inOrder = inOrder(clientSession);
+            inOrder.verify(clientSession).sendMessage(first);
+            inOrder.verify(clientSession).sendMessage(second);
+            inOrder.verify(clientSession).sendMessage(third);
+            assertThat(WebSocketSessionDecorator.unwrap(underTest.getWebSocketClientSession()), is(clientSession));
+            assertThat(underTest.getClientBufferSize(), is(0));
+        }
+
+        @Test
+        void whenHandshakeIsStarted_thenCompressionIsRequested() {
+            ArgumentCaptor<WebSocketHttpHeaders> headers = ArgumentCaptor.forClass(WebSocketHttpHeaders.class);
+            verify(webSocketClient).doHandshake(any(), headers.capture(), any(URI.class));
+
+            assertThat(headers.getValue().getSecWebSocketExtensions(),
+                is(Collections.singletonList(new WebSocketExtension(WebSocketRoutedSession.PERMESSAGE_DEFLATE))));
+        }
+
+        @Test
+        void whenPartialMessagesExceedMaxSize_thenSessionIsClosed() throws Exception {
+            handshake.set(clientSession);
+
+            underTest.sendMessageToServer(new TextMessage("0123456789", false));
+            underTest.sendMessageToServer(new TextMessage("0123456789", false));
+
+            verify(clientSession, times(1)).sendMessage(any());
+            verify(serverSession).close(argThat(status -> status.getCode() == CloseStatus.TOO_BIG_TO_PROCESS.getCode()));
+        }
+
+        @Test
+        void whenTooManyMessagesArrive_thenSessionIsClosed() throws Exception {
+            for (int i = 0; i <= WebSocketRoutedSession.MAX_PENDING_MESSAGES; i++) {
+                underTest.sendMessageToServer(new TextMessage("message"));
+            }
+
+            verify(serverSession).close(argThat(status -> status.getCode() == CloseStatus.POLICY_VIOLATION.getCode()));
+        }
+
+        @Test
+        void whenTooManyBytesArrive_thenSessionIsClosed() throws Exception {
+            // 16 bytes per message, the limit is 1024 bytes
+            for (int i = 0; i <= 1024 / 16; i++) {
+                underTest.sendMessageToServer(new TextMessage("0123456789abcdef"));
+            }
+
+            verify(serverSession).close(argThat(status -> status.getCode() == CloseStatus.POLICY_VIOLATION.getCode()));
+        }
+
+        @Test
+        void whenHandshakeTimesOut_thenSessionIsClosed() throws Exception {
+            underTest.timeoutHandshake();
+
+            assertThat(handshake.isCancelled(), is(true));
+            verify(serverSession).close(argThat(status -> status.getCode() == CloseStatus.SERVICE_OVERLOAD.getCode()));
+        }
+
+        @Test
+        void whenHandshakeFails_thenSessionIsClosed() throws Exception {
+            handshake.setException(new IOException("Connection refused"));
+
+            verify(serverSession).close(argThat(status -> status.getCode() == CloseStatus.NOT_ACCEPTABLE.getCode()));
+        }
+
+        @Test
+        void whenClosedBeforeHandshake_thenHandshakeIsCancelled() throws Exception {
+            underTest.close(CloseStatus.NORMAL);
+
+            assertThat(handshake.isCancelled(), is(true));
+            verify(serverSession, never()).close(any());
+        }
+
+        private WebSocketHandler getHandler() {
+            ArgumentCaptor<WebSocketHandler> handler = ArgumentCaptor.forClass(WebSocketHandler.class);
+            verify(webSocketClient).doHandshake(handler.capture(), any(WebSocketHttpHeaders.class), any(URI.class));
+            return handler.getValue();
+        }
+
+        @Test
+        void whenSessionIsOpenedAfterClose_thenItIsClosed() throws Exception {
+            when(clientSession.isOpen()).thenReturn(true);
+            underTest.close(CloseStatus.NORMAL);
+
+            getHandler().afterConnectionEstablished(clientSession);
+
+            verify(clientSession).close(CloseStatus.GOING_AWAY);
+        }
+
+        @Test
+        void whenSessionIsOpenedBeforeTimeout_thenItIsClosedWithHandshake() throws Exception {
+            when(clientSession.isOpen()).thenReturn(true);
+            getHandler().afterConnectionEstablished(clientSession);
+
+            underTest.timeoutHandshake();
+
+            assertThat(handshake.isCancelled(), is(true));
+            verify(clientSession).close(CloseStatus.GOING_AWAY);
+        }
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gatewayservice;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.zowe.apiml.util.categories.AdditionalLocalTest;
+import org.zowe.apiml.util.categories.SlowTests;
+import org.zowe.apiml.util.http.HttpClientUtils;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.zowe.apiml.util.http.HttpRequestUtils.getUriFromGateway;
+
+/**
+ * Verify that the gateway in async mode processes more concurrent requests than the count of its servlet threads.
+ * Slow requests are sent at once, with blocking routing they would be processed in waves by the limited threads.
+ *
+ * The gateway has to run with:
+ * <ul>
+ *     <li>apiml.gateway.async.enabled=true</li>
+ *     <li>server.tomcat.max-threads=20</li>
+ *     <li>apiml.httpclient.maxConnectionsPerRoute=100</li>
+ * </ul>
+ */
+@Slf4j
+@Category({SlowTests.class, AdditionalLocalTest.class})
+public class AsyncRoutingIntegrationTest {
+
+    private static final String GREETING_PATH = "/api/v1/discoverableclient/greeting";
+
+    private static final int SERVLET_THREADS = 20;
+    private static final int CONCURRENT_REQUESTS = 5 * SERVLET_THREADS;
+    private static final int DELAY_MILLIS = 2000;
+
+    @Test
+    public void givenMoreRequestsThanThreads_whenRoutedAsync_thenAreProcessedConcurrently() throws Exception {
+        URI uri = new URIBuilder(getUriFromGateway(GREETING_PATH)).setParameter("delayMs", String.valueOf(DELAY_MILLIS)).build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            long start = System.currentTimeMillis();
+
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                results.add(executor.submit(() -> {
+                    HttpResponse response = HttpClientUtils.client().execute(new HttpGet(uri));
+                    EntityUtils.consume(response.getEntity());
+                    return response.getStatusLine().getStatusCode();
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertThat(result.get(), equalTo(HttpStatus.SC_OK));
+            }
+
+            long elapsed = System.currentTimeMillis() - start;
+            log.info("{} requests with delay {} ms processed in {} ms", CONCURRENT_REQUESTS, DELAY_MILLIS, elapsed);
+
+            // blocking routing needs at least CONCURRENT_REQUESTS / SERVLET_THREADS * DELAY_MILLIS (ie. 10 s)
+            assertThat(elapsed, lessThan(3L * DELAY_MILLIS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gatewayservice;
+
+import io.restassured.RestAssured;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.zowe.apiml.util.categories.AdditionalLocalTest;
+import org.zowe.apiml.util.categories.SlowTests;
+import org.zowe.apiml.util.http.HttpClientUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.zowe.apiml.gatewayservice.SecurityUtils.GATEWAY_TOKEN_COOKIE_NAME;
+import static org.zowe.apiml.gatewayservice.SecurityUtils.gatewayToken;
+import static org.zowe.apiml.util.http.HttpRequestUtils.getUriFromGateway;
+
+/**
+ * Verify that large bodies are streamed through the gateway. A file bigger than the usual heap of the gateway is
+ * downloaded and uploaded, meanwhile the used heap of the gateway is sampled by its metrics endpoint (the gateway
+ * has to expose it, ie. run it with the profile diag).
+ */
+@Slf4j
+@Category({SlowTests.class, AdditionalLocalTest.class})
+public class StreamingIntegrationTest {
+
+    private static final String LARGE_FILE_PATH = "/api/v1/discoverableclient/large-file";
+    private static final String MULTIPART_PATH = "/api/v1/discoverableclient/multipart";
+    private static final String HEAP_METRICS_PATH = "/application/metrics/jvm.memory.used";
+
+    private static final long FILE_SIZE = 3L * 1024 * 1024 * 1024;
+    private static final double MAX_HEAP_GROWTH = 256.0 * 1024 * 1024;
+    private static final String BOUNDARY = "apimlStreamingTestBoundary";
+
+    @BeforeClass
+    public static void beforeClass() {
+        RestAssured.useRelaxedHTTPSValidation();
+    }
+
+    @Test
+    public void givenLargeFile_whenDownload_thenGatewayHeapIsConstant() throws IOException, URISyntaxException {
+        URI uri = new URIBuilder(getUriFromGateway(LARGE_FILE_PATH)).setParameter("size", String.valueOf(FILE_SIZE)).build();
+
+        try (HeapSampler heapSampler = new HeapSampler()) {
+            HttpResponse response = HttpClientUtils.client().execute(new HttpGet(uri));
+            assertThat(response.getStatusLine().getStatusCode(), equalTo(HttpStatus.SC_OK));
+
+            long received = 0;
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream inputStream = response.getEntity().getContent()) {
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    received += read;
+                }
+            }
+
+            assertThat(received, equalTo(FILE_SIZE));
+            assertThat(heapSampler.getMaxGrowth(), lessThan(MAX_HEAP_GROWTH));
+        }
+    }
+
+    @Test
+    public void givenLargeFile_whenMultipartUpload_thenGatewayHeapIsConstant() throws IOException {
+        byte[] preamble = ("--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"large-file.bin\"\r\n"
+            + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] epilogue = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        InputStream body = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+            new ByteArrayInputStream(preamble), new GeneratedInputStream(FILE_SIZE), new ByteArrayInputStream(epilogue)
+        )));
+
+        HttpPut request = new HttpPut(getUriFromGateway(MULTIPART_PATH));
+        request.setEntity(new InputStreamEntity(
+            body, preamble.length + FILE_SIZE + epilogue.length, ContentType.parse("multipart/form-data; boundary=" + BOUNDARY)
+        ));
+
+        try (HeapSampler heapSampler = new HeapSampler()) {
+            HttpResponse response = HttpClientUtils.client().execute(request);
+            assertThat(response.getStatusLine().getStatusCode(), equalTo(HttpStatus.SC_OK));
+            assertThat(EntityUtils.toString(response.getEntity()), containsString("\"size\":" + FILE_SIZE));
+            assertThat(heapSampler.getMaxGrowth(), lessThan(MAX_HEAP_GROWTH));
+        }
+    }
+
+    /**
+     * Periodically reads used heap of the gateway and remembers the maximal growth from the first sample.
+     */
+    private static class HeapSampler implements AutoCloseable {
+
+        private final String token = gatewayToken();
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        private final double baseline;
+        private volatile double max;
+
+        HeapSampler() {
+            baseline = sample();
+            max = baseline;
+            executor.scheduleAtFixedRate(() -> max = Math.max(max, sample()), 0, 500, TimeUnit.MILLISECONDS);
+        }
+
+        private double sample() {
+            return given()
+                .cookie(GATEWAY_TOKEN_COOKIE_NAME, token)
+                .queryParam("tag", "area:heap")
+            .when()
+                .get(getUriFromGateway(HEAP_METRICS_PATH))
+            .then()
+                .statusCode(HttpStatus.SC_OK)
+                .extract().jsonPath().getDouble("measurements[0].value");
+        }
+
+        double getMaxGrowth() {
+            log.info("Used heap of gateway: baseline {} B, max {} B", baseline, max);
+            return max - baseline;
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+
+    }
+
+    /**
+     * Stream of zeros with the given length, the content is never held in the memory.
+     */
+    private static class GeneratedInputStream extends InputStream {
+
+        private long remaining;
+
+        GeneratedInputStream(long length) {
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) return -1;
+            remaining--;
+            return 0;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) return -1;
+            int count = (int) Math.min(len, remaining);
+            Arrays.fill(b, off, off + count, (byte) 0);
+            remaining -= count;
+            return count;
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gatewayservice;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.zowe.apiml.util.categories.AdditionalLocalTest;
+import org.zowe.apiml.util.categories.SlowTests;
+import org.zowe.apiml.util.http.HttpClientUtils;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.zowe.apiml.util.http.HttpRequestUtils.getUriFromGateway;
+
+/**
+ * Benchmark of the gateway's thread mode. Waves of slow requests with growing concurrency are sent through the
+ * gateway, p99 latency of each wave is logged. While the concurrency is sustained, the latency stays close to the
+ * delay of the service; once requests wait for a servlet thread, it grows by multiples of the delay.
+ *
+ * The gateway has to run with:
+ * <ul>
+ *     <li>apiml.service.virtualThreads=true</li>
+ *     <li>server.tomcat.max-threads=20</li>
+ *     <li>apiml.httpclient.maxConnectionsPerRoute=200</li>
+ * </ul>
+ * For comparison, run it again with apiml.service.virtualThreads=false; the assertion fails then from concurrency
+ * above the count of servlet threads.
+ */
+@Slf4j
+@Category({SlowTests.class, AdditionalLocalTest.class})
+public class VirtualThreadsIntegrationTest {
+
+    private static final String GREETING_PATH = "/api/v1/discoverableclient/greeting";
+
+    private static final int[] CONCURRENCY_LEVELS = {10, 20, 50, 100, 200};
+    private static final int DELAY_MILLIS = 1000;
+
+    @Test
+    public void givenGrowingConcurrency_whenRoutedOnVirtualThreads_thenLatencyIsSustained() throws Exception {
+        URI uri = new URIBuilder(getUriFromGateway(GREETING_PATH)).setParameter("delayMs", String.valueOf(DELAY_MILLIS)).build();
+
+        for (int concurrency : CONCURRENCY_LEVELS) {
+            long p99 = measureP99(uri, concurrency);
+            log.info("Concurrency {}: p99 latency {} ms (service delay {} ms)", concurrency, p99, DELAY_MILLIS);
+
+            assertThat(p99, lessThan(2L * DELAY_MILLIS));
+        }
+    }
+
+    private long measureP99(URI uri, int concurrency) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                results.add(executor.submit(() -> {
+                    long start = System.currentTimeMillis();
+                    HttpResponse response = HttpClientUtils.client().execute(new HttpGet(uri));
+                    EntityUtils.consume(response.getEntity());
+                    assertThat(response.getStatusLine().getStatusCode(), equalTo(HttpStatus.SC_OK));
+                    return System.currentTimeMillis() - start;
+                }));
+            }
+
+            List<Long> latencies = new ArrayList<>();
+            for (Future<Long> result : results) {
+                latencies.add(result.get());
+            }
+            Collections.sort(latencies);
+            return latencies.get((int) Math.ceil(0.99 * latencies.size()) - 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
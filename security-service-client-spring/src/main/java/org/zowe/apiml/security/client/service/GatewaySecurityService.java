@@ -12,12 +12,14 @@ package org.zowe.apiml.security.client.service;
 import org.zowe.apiml.security.client.handler.RestResponseHandler;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.security.common.error.ErrorType;
+import org.zowe.apiml.security.common.token.JsonWebKeys;
 import org.zowe.apiml.security.common.token.QueryResponse;
 import org.zowe.apiml.product.gateway.GatewayClient;
 import org.zowe.apiml.product.gateway.GatewayConfigProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
@@ -25,6 +27,9 @@ import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -104,6 +109,34 @@ public class GatewaySecurityService {
         return null;
     }
 
+    /**
+     * Loads public keys verifying JWT tokens of the gateway (JSON Web Key Set)
+     *
+     * @return list of JSON Web Keys
+     */
+    public List<Map<String, Object>> getVerificationKeys() {
+        GatewayConfigProperties gatewayConfigProperties = gatewayClient.getGatewayConfigProperties();
+        String uri = String.format("%s://%s%s", gatewayConfigProperties.getScheme(),
+            gatewayConfigProperties.getHostname(), authConfigurationProperties.getGatewayKeysEndpoint());
+
+        try {
+            ResponseEntity<Map<String, List<Map<String, Object>>>> response = restTemplate.exchange(
+                uri,
+                HttpMethod.GET,
+                HttpEntity.EMPTY,
+                new ParameterizedTypeReference<Map<String, List<Map<String, Object>>>>() {});
+
+            Map<String, List<Map<String, Object>>> body = response.getBody();
+            if ((body != null) && (body.get(JsonWebKeys.KEYS) != null)) {
+                return body.get(JsonWebKeys.KEYS);
+            }
+        } catch (HttpClientErrorException | ResourceAccessException | HttpServerErrorException e) {
+            responseHandler.handleBadResponse(e, null,
+                "Can not access Gateway service. Uri '{}' returned: {}", uri, e.getMessage());
+        }
+        return Collections.emptyList();
+    }
+
     private Optional<String> extractToken(String cookies) {
         String cookieName = authConfigurationProperties.getCookieProperties().getCookieName();
 
@@ -10,6 +10,7 @@
 package org.zowe.apiml.security.client.token;
 
 import org.zowe.apiml.security.client.service.GatewaySecurityService;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.security.common.token.QueryResponse;
 import org.zowe.apiml.security.common.token.TokenAuthentication;
 import lombok.RequiredArgsConstructor;
@@ -17,13 +18,21 @@ import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
+
 /**
- * Authentication provider that authenticates TokenAuthentication against Gateway
+ * Authentication provider that authenticates TokenAuthentication against Gateway. With
+ * apiml.security.auth.localTokenValidation tokens are verified locally by the public keys of Gateway, see
+ * {@link LocalTokenValidator}, and Gateway is asked only about tokens which cannot be verified that way. Results of
+ * validation are cached, see {@link TokenValidationCache}.
  */
 @Component
 @RequiredArgsConstructor
 public class GatewayTokenProvider implements AuthenticationProvider {
     private final GatewaySecurityService gatewaySecurityService;
+    private final AuthConfigurationProperties authConfigurationProperties;
+    private final LocalTokenValidator localTokenValidator;
+    private final TokenValidationCache tokenValidationCache;
 
     /**
      * Authenticate the token
@@ -34,7 +43,7 @@ public class GatewayTokenProvider implements AuthenticationProvider {
     @Override
     public Authentication authenticate(Authentication authentication) {
         TokenAuthentication tokenAuthentication = (TokenAuthentication) authentication;
-        QueryResponse queryResponse = gatewaySecurityService.query(tokenAuthentication.getCredentials());
+        QueryResponse queryResponse = tokenValidationCache.get(tokenAuthentication.getCredentials(), this::query);
 
         TokenAuthentication validTokenAuthentication = new TokenAuthentication(queryResponse.getUserId(), tokenAuthentication.getCredentials());
         validTokenAuthentication.setAuthenticated(true);
@@ -42,6 +51,16 @@ public class GatewayTokenProvider implements AuthenticationProvider {
         return validTokenAuthentication;
     }
 
+    private QueryResponse query(String token) {
+        if (authConfigurationProperties.isLocalTokenValidation()) {
+            Optional<QueryResponse> queryResponse = localTokenValidator.validate(token);
+            if (queryResponse.isPresent()) {
+                return queryResponse.get();
+            }
+        }
+        return gatewaySecurityService.query(token);
+    }
+
     @Override
     public boolean supports(Class<?> authentication) {
         return TokenAuthentication.class.isAssignableFrom(authentication);
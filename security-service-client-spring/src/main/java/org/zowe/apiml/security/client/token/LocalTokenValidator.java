@@ -0,0 +1,148 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.security.client.token;
+
+import io.jsonwebtoken.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.security.client.service.GatewaySecurityService;
+import org.zowe.apiml.security.common.token.JsonWebKeys;
+import org.zowe.apiml.security.common.token.QueryResponse;
+import org.zowe.apiml.security.common.token.TokenExpireException;
+import org.zowe.apiml.security.common.token.TokenNotValidException;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.*;
+
+/**
+ * Validates JWT tokens issued by the gateway locally by its public keys (see the endpoint /auth/keys of the gateway),
+ * so a call of the query endpoint per token is not needed.
+ *
+ * The keys are loaded on the first use and again when a token is signed by an unknown key (a rotation of keys on the
+ * gateway), at most once per {@link #MIN_REFRESH_INTERVAL_MILLIS}. Tokens which cannot be verified locally (tokens of
+ * z/OSMF, unknown keys) are not validated here and the caller should ask the gateway.
+ *
+ * The gateway is not asked about tokens invalidated by a logout, they are valid here until they expire.
+ */
+@Slf4j
+@Component
+public class LocalTokenValidator {
+
+    static final long MIN_REFRESH_INTERVAL_MILLIS = 30_000;
+
+    private static final String DOMAIN_CLAIM_NAME = "dom";
+
+    private final GatewaySecurityService gatewaySecurityService;
+    private final JwtParser jwtParser;
+
+    private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+    private volatile long lastRefresh = Long.MIN_VALUE;
+
+    @Autowired
+    public LocalTokenValidator(GatewaySecurityService gatewaySecurityService) {
+        this.gatewaySecurityService = gatewaySecurityService;
+        this.jwtParser = Jwts.parser().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+            @Override
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                return getKey(header.getKeyId(), claims.getIssuer());
+            }
+        });
+    }
+
+    /**
+     * Verifies the token by the public keys of the gateway
+     *
+     * @param token JWT token to be validated
+     * @return JWT token data or empty if the token cannot be verified locally
+     * @throws TokenExpireException   if the token is expired
+     * @throws TokenNotValidException if the token is not valid
+     */
+    public Optional<QueryResponse> validate(String token) {
+        try {
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            return Optional.of(new QueryResponse(
+                claims.get(DOMAIN_CLAIM_NAME, String.class),
+                claims.getSubject(),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                QueryResponse.Source.ZOWE
+            ));
+        } catch (NotVerifiableException e) {
+            log.debug("Token cannot be verified locally: {}", e.getMessage());
+            return Optional.empty();
+        } catch (ExpiredJwtException e) {
+            throw new TokenExpireException("Token is expired.");
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Token is not valid due to: {}", e.getMessage());
+            throw new TokenNotValidException("Token is not valid.");
+        }
+    }
+
+    private Key getKey(String keyId, String issuer) {
+        if (!"APIML".equalsIgnoreCase(issuer)) {
+            throw new NotVerifiableException("token is issued by " + issuer);
+        }
+        if (keyId == null) {
+            throw new NotVerifiableException("token has no id of key");
+        }
+
+        PublicKey key = keys.get(keyId);
+        if ((key == null) && refreshKeys()) {
+            key = keys.get(keyId);
+        }
+        if (key == null) {
+            throw new NotVerifiableException("unknown key " + keyId);
+        }
+        return key;
+    }
+
+    /**
+     * @return true if the keys were loaded, false if the last load is too recent or it failed
+     */
+    private synchronized boolean refreshKeys() {
+        final long now = System.currentTimeMillis();
+        if ((lastRefresh != Long.MIN_VALUE) && (now - lastRefresh < MIN_REFRESH_INTERVAL_MILLIS)) {
+            return false;
+        }
+        lastRefresh = now;
+
+        try {
+            Map<String, PublicKey> loaded = new HashMap<>();
+            for (Map<String, Object> jwk : gatewaySecurityService.getVerificationKeys()) {
+                try {
+                    loaded.put(String.valueOf(jwk.get(JsonWebKeys.KEY_ID)), JsonWebKeys.toPublicKey(jwk));
+                } catch (IllegalArgumentException e) {
+                    log.debug("Key of the gateway is skipped: {}", e.getMessage());
+                }
+            }
+            keys = Collections.unmodifiableMap(loaded);
+            return true;
+        } catch (RuntimeException e) {
+            log.debug("Keys of the gateway cannot be loaded: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * The token could be valid, but it has to be verified by the gateway
+     */
+    private static class NotVerifiableException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        NotVerifiableException(String message) {
+            super(message);
+        }
+
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.security.client.token;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.cache.ExpiringCache;
+import org.zowe.apiml.cache.SingleFlight;
+import org.zowe.apiml.security.common.token.QueryResponse;
+import org.zowe.apiml.security.common.token.TokenExpireException;
+import org.zowe.apiml.security.common.token.TokenNotValidException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache of results of token validation, so not each request of the service costs a call of the gateway. Entries are
+ * keyed by the SHA-256 hash of token, the raw tokens are not stored.
+ *
+ * A valid token is cached until it expires, but at most for apiml.security.client.tokenCache.maxTtlMillis, an invalid
+ * or an expired token for a short period (apiml.security.client.tokenCache.negativeTtlMillis). Other errors, ie. the
+ * gateway is not available, are not cached. Concurrent validations of the same token share one call of the gateway
+ * (see {@link SingleFlight}).
+ * The cache is bounded (see {@link ExpiringCache}), if it is full the oldest entries are removed.
+ *
+ * Because a valid token is cached, a logout on the gateway is seen by the service with a delay up to maxTtlMillis. If
+ * it is not acceptable, the cache could be disabled by apiml.security.client.tokenCache.enabled=false, then each
+ * validation calls the gateway (or validates the token locally).
+ *
+ * Counts of hits and misses and the time of validations are exported as metrics (apiml.security.client.tokenCache).
+ */
+@Component
+public class TokenValidationCache implements MeterBinder {
+
+    static final String METRIC_PREFIX = "apiml.security.client.tokenCache";
+
+    private final boolean enabled;
+    private final long maxTtlMillis;
+    private final long negativeTtlMillis;
+
+    private final ExpiringCache<TokenKey, Entry> cache;
+    private final SingleFlight<TokenKey, QueryResponse> inFlight = new SingleFlight<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    public TokenValidationCache(
+        @Value("${apiml.security.client.tokenCache.enabled:true}") boolean enabled,
+        @Value("${apiml.security.client.tokenCache.maxSize:10000}") int maxSize,
+        @Value("${apiml.security.client.tokenCache.maxTtlMillis:60000}") long maxTtlMillis,
+        @Value("${apiml.security.client.tokenCache.negativeTtlMillis:5000}") long negativeTtlMillis
+    ) {
+        this.enabled = enabled;
+        this.cache = new ExpiringCache<>(maxSize);
+        this.maxTtlMillis = maxTtlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    /**
+     * Return the cached result of validation or validate the token by the loader and store the result
+     *
+     * @param token  JWT token
+     * @param loader validation of token, called on a cache miss
+     * @return JWT token data, the caller could modify it
+     * @throws TokenNotValidException if the token is not valid (also from the cache)
+     * @throws TokenExpireException   if the token is expired (also from the cache)
+     */
+    public QueryResponse get(String token, Function<String, QueryResponse> loader) {
+        if ((token == null) || !enabled) return loader.apply(token);
+
+        final long now = System.currentTimeMillis();
+        final TokenKey key = TokenKey.of(token);
+        final Entry cached = cache.get(key, now);
+        if (cached != null) {
+            hits.increment();
+            return cached.get();
+        }
+
+        return copy(inFlight.load(key, () -> load(key, token, loader, now)));
+    }
+
+    private QueryResponse load(TokenKey key, String token, Function<String, QueryResponse> loader, long now) {
+        misses.increment();
+        final long start = System.nanoTime();
+        try {
+            final QueryResponse queryResponse = loader.apply(token);
+            if ((queryResponse != null) && (queryResponse.getExpiration() != null)) {
+                final long expiresAt = Math.min(queryResponse.getExpiration().getTime(), now + maxTtlMillis);
+                put(key, new Entry(expiresAt, queryResponse, null), now);
+            }
+            return queryResponse;
+        } catch (TokenNotValidException | TokenExpireException e) {
+            put(key, new Entry(now + negativeTtlMillis, null, e), now);
+            throw e;
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return count of validations from the cache, incl. those, which waited for a running validation
+     */
+    public long getHits() {
+        return hits.sum() + inFlight.getJoined();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", this, TokenValidationCache::getHits)
+            .tag("result", "hit")
+            .description("Count of tokens validated by the cache")
+            .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .description("Count of tokens validated by the gateway because of a cache miss")
+            .register(registry);
+        FunctionTimer.builder(METRIC_PREFIX + ".load", this, TokenValidationCache::getMisses, c -> c.loadNanos.sum(), TimeUnit.NANOSECONDS)
+            .description("Time of validation of tokens on a cache miss")
+            .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".size", cache, ExpiringCache::size)
+            .register(registry);
+    }
+
+    private void put(TokenKey key, Entry entry, long now) {
+        if (entry.isExpired(now)) return;
+
+        cache.put(key, entry, entry.expiresAt);
+    }
+
+    private static QueryResponse copy(QueryResponse queryResponse) {
+        if (queryResponse == null) return null;
+
+        return new QueryResponse(
+            queryResponse.getDomain(),
+            queryResponse.getUserId(),
+            (queryResponse.getCreation() == null) ? null : new Date(queryResponse.getCreation().getTime()),
+            (queryResponse.getExpiration() == null) ? null : new Date(queryResponse.getExpiration().getTime()),
+            queryResponse.getSource()
+        );
+    }
+
+    /**
+     * Result of validation, either data of token or the exception
+     */
+    @AllArgsConstructor
+    private static final class Entry {
+
+        private final long expiresAt;
+        private final QueryResponse queryResponse;
+        private final RuntimeException exception;
+
+        boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+
+        QueryResponse get() {
+            if (exception != null) throw exception;
+            return copy(queryResponse);
+        }
+
+    }
+
+    /**
+     * The first 128 bits of SHA-256 of token
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class TokenKey {
+
+        private final long high;
+        private final long low;
+
+        static TokenKey of(String token) {
+            try {
+                final byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+                final ByteBuffer buffer = ByteBuffer.wrap(hash);
+                return new TokenKey(buffer.getLong(), buffer.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not supported", e);
+            }
+        }
+
+    }
+
+}
@@ -11,6 +11,7 @@
 package org.zowe.apiml.security.client.token;
 
 import org.zowe.apiml.security.client.service.GatewaySecurityService;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.security.common.token.QueryResponse;
 import org.zowe.apiml.security.common.token.TokenAuthentication;
 import org.junit.Rule;
@@ -20,10 +21,11 @@ import org.mockito.junit.MockitoRule;
 import org.springframework.security.core.Authentication;
 
 import java.util.Date;
+import java.util.Optional;
 
 import static org.junit.Assert.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 public class GatewayTokenProviderTest {
     private static final String USER = "USER";
@@ -31,7 +33,10 @@ public class GatewayTokenProviderTest {
     private static final String VALID_TOKEN = "VALID_TOKEN";
 
     private final GatewaySecurityService gatewaySecurityService = mock(GatewaySecurityService.class);
-    private final GatewayTokenProvider gatewayTokenProvider = new GatewayTokenProvider(gatewaySecurityService);
+    private final AuthConfigurationProperties authConfigurationProperties = new AuthConfigurationProperties();
+    private final LocalTokenValidator localTokenValidator = mock(LocalTokenValidator.class);
+    private final TokenValidationCache tokenValidationCache = new TokenValidationCache(true, 100, 60000, 1000);
+    private final GatewayTokenProvider gatewayTokenProvider = new GatewayTokenProvider(gatewaySecurityService, authConfigurationProperties, localTokenValidator, tokenValidationCache);
 
     @Rule
     public MockitoRule rule = MockitoJUnit.rule();
@@ -49,6 +54,51 @@ public class GatewayTokenProviderTest {
         assertEquals(USER, processedAuthentication.getName());
     }
 
+    @Test
+    public void shouldValidateTokenLocally() {
+        authConfigurationProperties.setLocalTokenValidation(true);
+        when(localTokenValidator.validate(VALID_TOKEN)).thenReturn(Optional.of(new QueryResponse(DOMAIN, USER, new Date(), new Date(), QueryResponse.Source.ZOWE)));
+
+        Authentication processedAuthentication = gatewayTokenProvider.authenticate(new TokenAuthentication(VALID_TOKEN));
+
+        assertTrue(processedAuthentication.isAuthenticated());
+        assertEquals(USER, processedAuthentication.getName());
+        verify(gatewaySecurityService, never()).query(anyString());
+    }
+
+    @Test
+    public void shouldQueryGatewayWhenTokenCannotBeValidatedLocally() {
+        authConfigurationProperties.setLocalTokenValidation(true);
+        when(localTokenValidator.validate(VALID_TOKEN)).thenReturn(Optional.empty());
+        when(gatewaySecurityService.query(VALID_TOKEN)).thenReturn(new QueryResponse(DOMAIN, USER, new Date(), new Date(), QueryResponse.Source.ZOSMF));
+
+        Authentication processedAuthentication = gatewayTokenProvider.authenticate(new TokenAuthentication(VALID_TOKEN));
+
+        assertTrue(processedAuthentication.isAuthenticated());
+        assertEquals(USER, processedAuthentication.getName());
+    }
+
+    @Test
+    public void shouldNotValidateLocallyByDefault() {
+        when(gatewaySecurityService.query(VALID_TOKEN)).thenReturn(new QueryResponse(DOMAIN, USER, new Date(), new Date(), QueryResponse.Source.ZOWE));
+
+        gatewayTokenProvider.authenticate(new TokenAuthentication(VALID_TOKEN));
+
+        verify(localTokenValidator, never()).validate(anyString());
+    }
+
+    @Test
+    public void shouldQueryGatewayOnceForCachedToken() {
+        Date expiration = new Date(System.currentTimeMillis() + 60000);
+        when(gatewaySecurityService.query(VALID_TOKEN)).thenReturn(new QueryResponse(DOMAIN, USER, new Date(), expiration, QueryResponse.Source.ZOWE));
+
+        gatewayTokenProvider.authenticate(new TokenAuthentication(VALID_TOKEN));
+        Authentication processedAuthentication = gatewayTokenProvider.authenticate(new TokenAuthentication(VALID_TOKEN));
+
+        assertEquals(USER, processedAuthentication.getName());
+        verify(gatewaySecurityService, times(1)).query(VALID_TOKEN);
+    }
+
     @Test
     public void shouldSupportTokenAuthentication() {
         assertTrue(gatewayTokenProvider.supports(TokenAuthentication.class));
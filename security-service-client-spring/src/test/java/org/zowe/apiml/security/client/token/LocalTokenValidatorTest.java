@@ -0,0 +1,124 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.security.client.token;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.Before;
+import org.junit.Test;
+import org.zowe.apiml.security.client.service.GatewaySecurityService;
+import org.zowe.apiml.security.common.token.JsonWebKeys;
+import org.zowe.apiml.security.common.token.QueryResponse;
+import org.zowe.apiml.security.common.token.TokenExpireException;
+import org.zowe.apiml.security.common.token.TokenNotValidException;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class LocalTokenValidatorTest {
+
+    private static final String KEY_ID = "kid1";
+
+    private KeyPair keyPair;
+    private GatewaySecurityService gatewaySecurityService;
+    private LocalTokenValidator localTokenValidator;
+
+    @Before
+    public void setUp() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+
+        gatewaySecurityService = mock(GatewaySecurityService.class);
+        when(gatewaySecurityService.getVerificationKeys()).thenReturn(
+            Collections.singletonList(JsonWebKeys.toJwk(KEY_ID, keyPair.getPublic(), "RS256")));
+        localTokenValidator = new LocalTokenValidator(gatewaySecurityService);
+    }
+
+    private String createToken(String keyId, String issuer, long expiration, KeyPair signingKeyPair) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+            .setHeaderParam("kid", keyId)
+            .setSubject("user")
+            .claim("dom", "domain")
+            .setIssuedAt(new Date(now))
+            .setExpiration(new Date(now + expiration))
+            .setIssuer(issuer)
+            .signWith(SignatureAlgorithm.RS256, signingKeyPair.getPrivate())
+            .compact();
+    }
+
+    @Test
+    public void givenValidToken_whenValidate_thenQueryResponseIsReturned() {
+        Optional<QueryResponse> queryResponse = localTokenValidator.validate(createToken(KEY_ID, "APIML", 60000, keyPair));
+
+        assertTrue(queryResponse.isPresent());
+        assertEquals("user", queryResponse.get().getUserId());
+        assertEquals("domain", queryResponse.get().getDomain());
+        assertEquals(QueryResponse.Source.ZOWE, queryResponse.get().getSource());
+    }
+
+    @Test
+    public void givenMoreTokens_whenValidate_thenKeysAreLoadedOnce() {
+        localTokenValidator.validate(createToken(KEY_ID, "APIML", 60000, keyPair));
+        localTokenValidator.validate(createToken(KEY_ID, "APIML", 60000, keyPair));
+
+        verify(gatewaySecurityService, times(1)).getVerificationKeys();
+    }
+
+    @Test(expected = TokenExpireException.class)
+    public void givenExpiredToken_whenValidate_thenException() {
+        localTokenValidator.validate(createToken(KEY_ID, "APIML", -60000, keyPair));
+    }
+
+    @Test(expected = TokenNotValidException.class)
+    public void givenTokenWithWrongSignature_whenValidate_thenException() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+
+        localTokenValidator.validate(createToken(KEY_ID, "APIML", 60000, generator.generateKeyPair()));
+    }
+
+    @Test(expected = TokenNotValidException.class)
+    public void givenMalformedToken_whenValidate_thenException() {
+        localTokenValidator.validate("not.a.token");
+    }
+
+    @Test
+    public void givenZosmfToken_whenValidate_thenGatewayHasToVerifyIt() {
+        assertFalse(localTokenValidator.validate(createToken(KEY_ID, "zOSMF", 60000, keyPair)).isPresent());
+        verify(gatewaySecurityService, never()).getVerificationKeys();
+    }
+
+    @Test
+    public void givenUnknownKey_whenValidate_thenKeysAreRefreshedAtMostOnceInInterval() {
+        localTokenValidator.validate(createToken(KEY_ID, "APIML", 60000, keyPair));
+
+        assertFalse(localTokenValidator.validate(createToken("kid2", "APIML", 60000, keyPair)).isPresent());
+        assertFalse(localTokenValidator.validate(createToken("kid3", "APIML", 60000, keyPair)).isPresent());
+
+        verify(gatewaySecurityService, times(1)).getVerificationKeys();
+    }
+
+    @Test
+    public void givenGatewayNotAvailable_whenValidate_thenGatewayHasToVerifyIt() {
+        when(gatewaySecurityService.getVerificationKeys()).thenThrow(new IllegalStateException("not available"));
+
+        assertFalse(localTokenValidator.validate(createToken(KEY_ID, "APIML", 60000, keyPair)).isPresent());
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.security.client.token;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.zowe.apiml.security.common.token.QueryResponse;
+import org.zowe.apiml.security.common.token.TokenNotValidException;
+
+import java.util.Date;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class TokenValidationCacheTest {
+
+    private final AtomicInteger loaded = new AtomicInteger();
+
+    private Function<String, QueryResponse> loader(long expiration) {
+        return token -> {
+            loaded.incrementAndGet();
+            return new QueryResponse("domain", token, new Date(), new Date(expiration), QueryResponse.Source.ZOWE);
+        };
+    }
+
+    private long inHour() {
+        return System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+    }
+
+    @Test
+    public void givenValidToken_whenGetRepeatedly_thenIsLoadedOnce() {
+        TokenValidationCache cache = new TokenValidationCache(true, 10, 60000, 1000);
+
+        QueryResponse first = cache.get("token", loader(inHour()));
+        QueryResponse second = cache.get("token", loader(inHour()));
+
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals(1, loaded.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void givenMaxTtl_whenGetAfterIt_thenValidTokenIsLoadedAgain() throws InterruptedException {
+        TokenValidationCache cache = new TokenValidationCache(true, 10, 100, 1000);
+
+        cache.get("token", loader(inHour()));
+        cache.get("token", loader(inHour()));
+        assertEquals(1, loaded.get());
+
+        Thread.sleep(150);
+        cache.get("token", loader(inHour()));
+        assertEquals(2, loaded.get());
+    }
+
+    @Test
+    public void givenDisabledCache_whenGetRepeatedly_thenIsLoadedEachTime() {
+        TokenValidationCache cache = new TokenValidationCache(false, 10, 60000, 1000);
+
+        cache.get("token", loader(inHour()));
+        cache.get("token", loader(inHour()));
+
+        assertEquals(2, loaded.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void givenExpiredToken_whenGet_thenIsNotCached() {
+        TokenValidationCache cache = new TokenValidationCache(true, 10, 60000, 1000);
+
+        cache.get("token", loader(System.currentTimeMillis() - 1));
+        cache.get("token", loader(System.currentTimeMillis() - 1));
+
+        assertEquals(2, loaded.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void givenInvalidToken_whenGet_thenExceptionIsCachedForShortTime() throws InterruptedException {
+        TokenValidationCache cache = new TokenValidationCache(true, 10, 60000, 100);
+        Function<String, QueryResponse> failing = token -> {
+            loaded.incrementAndGet();
+            throw new TokenNotValidException("Token is not valid.");
+        };
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("invalid", failing);
+                fail();
+            } catch (TokenNotValidException e) {
+                // expected
+            }
+        }
+        assertEquals(1, loaded.get());
+
+        Thread.sleep(150);
+        try {
+            cache.get("invalid", failing);
+            fail();
+        } catch (TokenNotValidException e) {
+            // expected
+        }
+        assertEquals(2, loaded.get());
+    }
+
+    @Test
+    public void givenOtherError_whenGet_thenIsNotCached() {
+        TokenValidationCache cache = new TokenValidationCache(true, 10, 60000, 1000);
+        Function<String, QueryResponse> failing = token -> {
+            loaded.incrementAndGet();
+            throw new IllegalStateException("Gateway is not available");
+        };
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("token", failing);
+                fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+
+        assertEquals(2, loaded.get());
+    }
+
+    @Test
+    public void givenConcurrentRequests_whenGet_thenTokenIsLoadedOnce() throws Exception {
+        TokenValidationCache cache = new TokenValidationCache(true, 10, 60000, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, QueryResponse> slow = token -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader(inHour()).apply(token);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<QueryResponse> first = executor.submit(() -> cache.get("token", slow));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<QueryResponse> second = executor.submit(() -> cache.get("token", slow));
+            Future<QueryResponse> third = executor.submit(() -> cache.get("token", slow));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("token", first.get(5, TimeUnit.SECONDS).getUserId());
+            assertEquals("token", second.get(5, TimeUnit.SECONDS).getUserId());
+            assertEquals("token", third.get(5, TimeUnit.SECONDS).getUserId());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loaded.get());
+    }
+
+    @Test
+    public void givenLoaderThrowingError_whenGetConcurrently_thenWaitingRequestFails() throws Exception {
+        TokenValidationCache cache = new TokenValidationCache(true, 10, 60000, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, QueryResponse> failing = token -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new AssertionError("unexpected");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<QueryResponse> first = executor.submit(() -> cache.get("token", failing));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<QueryResponse> second = executor.submit(() -> cache.get("token", failing));
+            Thread.sleep(100);
+            release.countDown();
+
+            try {
+                first.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+            try {
+                second.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void givenFullCache_whenGet_thenSizeIsBounded() {
+        TokenValidationCache cache = new TokenValidationCache(true, 10, 60000, 1000);
+
+        for (int i = 0; i < 100; i++) {
+            cache.get("token" + i, loader(inHour()));
+        }
+
+        assertTrue(cache.size() <= 10);
+    }
+
+    @Test
+    public void givenRegistry_whenBind_thenMetricsAreRegistered() {
+        TokenValidationCache cache = new TokenValidationCache(true, 10, 60000, 1000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get("token", loader(inHour()));
+        cache.get("token", loader(inHour()));
+
+        assertEquals(1.0, registry.get(TokenValidationCache.METRIC_PREFIX + ".requests").tag("result", "hit").functionCounter().count(), 0);
+        assertEquals(1.0, registry.get(TokenValidationCache.METRIC_PREFIX + ".requests").tag("result", "miss").functionCounter().count(), 0);
+        assertEquals(1.0, registry.get(TokenValidationCache.METRIC_PREFIX + ".load").functionTimer().count(), 0);
+        assertEquals(1.0, registry.get(TokenValidationCache.METRIC_PREFIX + ".size").gauge().value(), 0);
+    }
+
+}